@@ -0,0 +1,34 @@
+package com.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+// Runs the benchmarks once per thread count with the GC profiler, so every result has
+// throughput and allocation per operation (gc.alloc.rate.norm).
+//
+//   java -cp benchmarks/target/benchmarks.jar com.benchmarks.BenchmarkRunner [include-regex]
+//   -Dbench.threads=1,4,16   thread counts to sweep
+//   -Dbench.result=results   prefix for the JSON result files
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws RunnerException {
+        String include = args.length > 0 ? args[0] : "com.benchmarks.*";
+        String prefix = System.getProperty("bench.result", "results");
+
+        for (String t : System.getProperty("bench.threads", "1,4,16").split(",")) {
+            int threads = Integer.parseInt(t.trim());
+            Options options = new OptionsBuilder()
+                    .include(include)
+                    .threads(threads)
+                    .addProfiler(GCProfiler.class)
+                    .resultFormat(ResultFormatType.JSON)
+                    .result(prefix + "-t" + threads + ".json")
+                    .build();
+            new Runner(options).run();
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.benchmarks;
+
+import com.utilities.DBConnection;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+
+// In-process H2 database (MySQL mode) behind DBConnection, loaded with sql/schema.sql
+public final class EmbeddedDatabase {
+
+    private static int counter;
+
+    private EmbeddedDatabase() {
+    }
+
+    public static synchronized void start(int poolSize) throws SQLException, IOException {
+        // A fresh database per trial, so rows from one trial never leak into the next
+        String url = "jdbc:h2:mem:bench" + (++counter)
+                + ";MODE=MySQL;DB_CLOSE_DELAY=-1;CASE_INSENSITIVE_IDENTIFIERS=TRUE";
+        DBConnection.configure(url, "sa", "", poolSize);
+
+        String schema;
+        try (InputStream in = EmbeddedDatabase.class.getResourceAsStream("/sql/schema.sql")) {
+            if (in == null) {
+                throw new IOException("sql/schema.sql not found on the classpath");
+            }
+            schema = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        try (Connection conn = DBConnection.getConnection();
+             Statement stmt = conn.createStatement()) {
+            for (String ddl : schema.replaceAll("(?m)^--.*$", "").split(";")) {
+                if (!ddl.isBlank()) {
+                    stmt.execute(ddl);
+                }
+            }
+        }
+    }
+
+    public static void stop() {
+        DBConnection.shutdown();
+    }
+
+    // Products 1..count, all with the same stock
+    public static void seedProducts(int count, int stock) throws SQLException {
+        String sql = "INSERT INTO Product (product_id, name, description, price, stock_quantity, supplier_id) VALUES (?, ?, ?, ?, ?, 1)";
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            conn.setAutoCommit(false);
+            for (int id = 1; id <= count; id++) {
+                stmt.setInt(1, id);
+                stmt.setString(2, "Product " + id);
+                stmt.setString(3, "Benchmark product");
+                stmt.setDouble(4, 9.99);
+                stmt.setInt(5, stock);
+                stmt.addBatch();
+                if (id % 1000 == 0) {
+                    stmt.executeBatch();
+                }
+            }
+            stmt.executeBatch();
+            conn.commit();
+        }
+    }
+
+    public static void seedInventoryLog(int rows, int products) throws SQLException {
+        String sql = "INSERT INTO InventoryLog (product_id, change_quantity, action, timestamp) VALUES (?, ?, ?, ?)";
+        long now = System.currentTimeMillis();
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            conn.setAutoCommit(false);
+            for (int i = 1; i <= rows; i++) {
+                stmt.setInt(1, 1 + i % products);
+                stmt.setInt(2, -1 - i % 5);
+                stmt.setString(3, "Order Processed - Order " + i);
+                stmt.setTimestamp(4, new Timestamp(now - (rows - i) * 1000L));
+                stmt.addBatch();
+                if (i % 1000 == 0) {
+                    stmt.executeBatch();
+                }
+            }
+            stmt.executeBatch();
+            conn.commit();
+        }
+    }
+
+    // The CRUD methods print on every call; keep that out of the measurements
+    public static void silenceStdout() {
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+}
@@ -0,0 +1,74 @@
+package com.benchmarks;
+
+import com.InventoryLog;
+import com.utilities.ExportCompression;
+import com.utilities.ExportFormat;
+import com.utilities.ExportTable;
+import com.utilities.FileExport;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+// Time to export the InventoryLog table, single-threaded streaming vs the partitioned engine
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ExportBenchmarks {
+
+    @Param({"100000"})
+    public int rows;
+
+    @Param({"CSV", "COLUMNAR"})
+    public ExportFormat format;
+
+    @Param({"1", "4"})
+    public int partitions;
+
+    private Path dir;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException, IOException {
+        EmbeddedDatabase.silenceStdout();
+        EmbeddedDatabase.start(16);
+        EmbeddedDatabase.seedInventoryLog(rows, 1000);
+        dir = Files.createTempDirectory("export-bench");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        EmbeddedDatabase.stop();
+        Files.deleteIfExists(dir.resolve("inventoryLog.txt"));
+        Files.deleteIfExists(dir.resolve("inventoryLog" + format.getExtension()));
+        Files.delete(dir);
+    }
+
+    @Benchmark
+    public long streamingTextExport() {
+        return InventoryLog.exportToFileStreaming(dir.resolve("inventoryLog.txt").toString(), 1000);
+    }
+
+    @Benchmark
+    public long partitionedExport() throws SQLException, IOException {
+        return FileExport.export(ExportTable.INVENTORY_LOG, format, ExportCompression.NONE,
+                dir.resolve("inventoryLog" + format.getExtension()).toString(), partitions);
+    }
+}
@@ -0,0 +1,108 @@
+package com.benchmarks;
+
+import com.InventoryLog;
+import com.Order;
+import com.OrderItem;
+import com.Product;
+import com.exceptions.OrderNotFoundException;
+import com.exceptions.ProductNotFoundException;
+import com.utilities.DBConnection;
+import com.utilities.KeyDistribution;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+// Per-operation throughput of the inventory write paths.
+// Run with -t to vary the thread count (or use BenchmarkRunner) and -prof gc for allocation per op.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InventoryBenchmarks {
+
+    @Param({"1000"})
+    public int products;
+
+    // uniform, zipf:<s> or hot:<keys>:<probability>, see KeyDistribution.parse
+    @Param({"uniform", "zipf:1.0", "hot:1:0.9"})
+    public String skew;
+
+    private KeyDistribution keys;
+    private Product[] catalog;
+    private Date today;
+
+    // Connection held for the whole trial by each benchmark thread, for the methods that take one
+    @State(Scope.Thread)
+    public static class ThreadConnection {
+        Connection conn;
+
+        @Setup(Level.Trial)
+        public void open() throws SQLException {
+            conn = DBConnection.getConnection();
+        }
+
+        @TearDown(Level.Trial)
+        public void close() throws SQLException {
+            conn.close();
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException, IOException {
+        EmbeddedDatabase.silenceStdout();
+        EmbeddedDatabase.start(128);
+        EmbeddedDatabase.seedProducts(products, 1_000_000_000);
+
+        keys = KeyDistribution.parse(skew, products);
+        catalog = new Product[products];
+        for (int i = 0; i < products; i++) {
+            catalog[i] = new Product(i + 1, "Product " + (i + 1), "Benchmark product", 9.99, 1_000_000_000, 1);
+        }
+        today = new Date(System.currentTimeMillis());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        EmbeddedDatabase.stop();
+    }
+
+    @Benchmark
+    public int sellProduct(ThreadConnection t) throws SQLException {
+        Product p = catalog[keys.next()];
+        p.sellProduct(t.conn, 1);
+        return p.getStockQuantity();
+    }
+
+    @Benchmark
+    public void createLog(ThreadConnection t) {
+        InventoryLog.createLog(t.conn, new InventoryLog(0, keys.next() + 1, -1, "Benchmark", null));
+    }
+
+    @Benchmark
+    public void createOrderItem() throws OrderNotFoundException, ProductNotFoundException {
+        OrderItem.createOrderItem(new OrderItem(1, keys.next() + 1, 1, 9.99));
+    }
+
+    @Benchmark
+    public int createOrder() {
+        return Order.createOrder(new Order(today, "Benchmark", "Pending"));
+    }
+}
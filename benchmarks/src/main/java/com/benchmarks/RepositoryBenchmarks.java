@@ -0,0 +1,101 @@
+package com.benchmarks;
+
+import com.Order;
+import com.OrderItem;
+import com.Product;
+import com.exceptions.OutOfStockException;
+import com.repository.Repositories;
+import com.utilities.DBConnection;
+import com.utilities.KeyDistribution;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.sql.Date;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// The same repository calls against H2 and against the in-memory backend; the difference between
+// the two rows of each benchmark is what the JDBC round trips cost.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RepositoryBenchmarks {
+
+    private static final int STOCK = 1_000_000_000;
+
+    @Param({"jdbc", "memory"})
+    public String backend;
+
+    @Param({"1000"})
+    public int products;
+
+    @Param({"uniform", "zipf:1.0"})
+    public String skew;
+
+    private Repositories repos;
+    private KeyDistribution keys;
+    private Date today;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException, IOException, OutOfStockException {
+        EmbeddedDatabase.silenceStdout();
+        if (backend.equals("memory")) {
+            repos = Repositories.inMemory();
+            List<Product> catalog = new ArrayList<>(products);
+            for (int id = 1; id <= products; id++) {
+                catalog.add(new Product(id, "Product " + id, "Benchmark product", 9.99, STOCK, 1));
+            }
+            repos.inTransaction(() -> {
+                repos.products().upsertStock(catalog);
+                return null;
+            });
+        } else {
+            EmbeddedDatabase.start(128);
+            EmbeddedDatabase.seedProducts(products, STOCK);
+            repos = Repositories.jdbc(DBConnection::getConnection);
+        }
+        keys = KeyDistribution.parse(skew, products);
+        today = new Date(System.currentTimeMillis());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (backend.equals("jdbc")) {
+            EmbeddedDatabase.stop();
+        }
+    }
+
+    @Benchmark
+    public int decrementStock() throws SQLException {
+        return repos.products().decrementStock(keys.next() + 1, 1);
+    }
+
+    @Benchmark
+    public Product findById() throws SQLException {
+        return repos.products().findById(keys.next() + 1);
+    }
+
+    @Benchmark
+    public int submitOrder() throws SQLException, OutOfStockException {
+        OrderItem item = new OrderItem(0, keys.next() + 1, 1, 9.99);
+        return repos.orders().submit(new Order(today, "Benchmark", "Pending"), Collections.singletonList(item));
+    }
+}
@@ -0,0 +1,85 @@
+package com.benchmarks;
+
+import com.utilities.KeyDistribution;
+import com.utilities.StockCounterStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// In-memory stock counters: StockCounterStore against the ConcurrentHashMap<Integer, AtomicInteger>
+// it replaced. -prof gc shows the boxing the map costs on every lookup of an ID above 127.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class StockStoreBenchmarks {
+
+    private static final int STOCK = 1_000_000_000;
+    private static final int FIRST_ID = 1_000;
+
+    @Param({"1000000", "10000000"})
+    public int products;
+
+    @Param({"uniform", "zipf:1.0"})
+    public String skew;
+
+    private StockCounterStore store;
+    private ConcurrentHashMap<Integer, AtomicInteger> map;
+    private KeyDistribution keys;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        store = new StockCounterStore(products);
+        map = new ConcurrentHashMap<>(products * 2);
+        for (int i = 0; i < products; i++) {
+            store.put(FIRST_ID + i, STOCK);
+            map.put(FIRST_ID + i, new AtomicInteger(STOCK));
+        }
+        keys = KeyDistribution.parse(skew, products);
+        System.out.println("\n" + store);
+    }
+
+    @Benchmark
+    public int storeDecrement() {
+        return store.decrement(FIRST_ID + keys.next(), 1);
+    }
+
+    @Benchmark
+    public int storeGet() {
+        return store.get(FIRST_ID + keys.next());
+    }
+
+    @Benchmark
+    public int mapDecrement() {
+        AtomicInteger cell = map.get(FIRST_ID + keys.next());
+        while (true) {
+            int current = cell.get();
+            if (current < 1) {
+                return StockCounterStore.OUT_OF_STOCK;
+            }
+            if (cell.compareAndSet(current, current - 1)) {
+                return current - 1;
+            }
+        }
+    }
+
+    @Benchmark
+    public int mapGet() {
+        return map.get(FIRST_ID + keys.next()).get();
+    }
+}
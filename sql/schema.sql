@@ -0,0 +1,62 @@
+-- Schema for the sprint1 database.
+-- Plain MySQL DDL that also runs on H2 in MySQL mode (jdbc:h2:mem:sprint1;MODE=MySQL;CASE_INSENSITIVE_IDENTIFIERS=TRUE),
+-- which is what the benchmarks use as an embedded database.
+
+CREATE TABLE IF NOT EXISTS Supplier (
+    supplier_id   INT AUTO_INCREMENT PRIMARY KEY,
+    name          VARCHAR(100) NOT NULL,
+    contact_email VARCHAR(100),
+    phone         VARCHAR(15)
+);
+
+CREATE TABLE IF NOT EXISTS Product (
+    product_id     INT AUTO_INCREMENT PRIMARY KEY,
+    name           VARCHAR(100) NOT NULL,
+    description    VARCHAR(255),
+    price          DECIMAL(10, 2) NOT NULL,
+    stock_quantity INT NOT NULL DEFAULT 0,
+    supplier_id    INT
+);
+
+CREATE TABLE IF NOT EXISTS Orders (
+    order_id      INT AUTO_INCREMENT PRIMARY KEY,
+    order_date    DATE NOT NULL,
+    customer_name VARCHAR(100) NOT NULL,
+    status        VARCHAR(20) NOT NULL,
+    -- Customer order history: seek to the customer, read newest first (order_date DESC, order_id DESC)
+    INDEX idx_orders_customer_date (customer_name, order_date, order_id)
+);
+
+CREATE TABLE IF NOT EXISTS OrderItem (
+    order_item_id INT AUTO_INCREMENT PRIMARY KEY,
+    order_id      INT NOT NULL,
+    product_id    INT NOT NULL,
+    quantity      INT NOT NULL,
+    unit_price    DECIMAL(10, 2) NOT NULL,
+    -- Lines of an order (customer history join, listing by order)
+    INDEX idx_order_item_order (order_id)
+);
+
+-- Databases created before these indexes existed:
+--   CREATE INDEX idx_orders_customer_date ON Orders (customer_name, order_date, order_id);
+--   CREATE INDEX idx_order_item_order ON OrderItem (order_id);
+--   CREATE INDEX idx_log_time ON InventoryLog (timestamp, log_id);
+--   CREATE INDEX idx_log_product_time ON InventoryLog (product_id, timestamp, log_id);
+
+CREATE TABLE IF NOT EXISTS InventoryLog (
+    log_id          INT AUTO_INCREMENT PRIMARY KEY,
+    product_id      INT NOT NULL,
+    change_quantity INT NOT NULL,
+    action          VARCHAR(255),
+    timestamp       TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    -- Day partitions for archival, and the newest-first listings (timestamp DESC, log_id DESC)
+    INDEX idx_log_time (timestamp, log_id),
+    INDEX idx_log_product_time (product_id, timestamp, log_id)
+);
+
+-- Written on the primary by ReplicaRouter's heartbeat and read back from each read replica to measure
+-- how far behind it is (only used with -Dinventory.db.replicaUrls)
+CREATE TABLE IF NOT EXISTS ReplicaHeartbeat (
+    id          INT PRIMARY KEY,
+    beat_millis BIGINT NOT NULL
+);
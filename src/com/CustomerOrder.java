@@ -0,0 +1,58 @@
+package com;
+
+import java.sql.Date;
+import java.util.ArrayList;
+import java.util.List;
+
+// One order of a customer's history together with its lines (see Order.listCustomerOrders)
+public class CustomerOrder {
+    private final Order order;
+    private final List<OrderItem> items;
+
+    public CustomerOrder(Order order, List<OrderItem> items) {
+        this.order = order;
+        this.items = items;
+    }
+
+    public Order getOrder() {
+        return order;
+    }
+
+    public List<OrderItem> getItems() {
+        return items;
+    }
+
+    public int getOrderId() {
+        return order.getOrderId();
+    }
+
+    public Date getOrderDate() {
+        return order.getOrderDate();
+    }
+
+    public double getTotal() {
+        double total = 0;
+        for (OrderItem item : items) {
+            total += item.getQuantity() * item.getUnitPrice();
+        }
+        return total;
+    }
+
+    // Deep copy, so a cached history never shares objects with callers
+    public CustomerOrder copy() {
+        Date date = order.getOrderDate() != null ? new Date(order.getOrderDate().getTime()) : null;
+        List<OrderItem> lines = new ArrayList<>(items.size());
+        for (OrderItem i : items) {
+            lines.add(new OrderItem(i.getOrderItemId(), i.getOrderId(), i.getProductId(), i.getQuantity(), i.getUnitPrice()));
+        }
+        return new CustomerOrder(new Order(order.getOrderId(), date, order.getCustomerName(), order.getStatus()), lines);
+    }
+
+    @Override
+    public String toString() {
+        return "CustomerOrder{" +
+                "order=" + order +
+                ", items=" + items +
+                '}';
+    }
+}
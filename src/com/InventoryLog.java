@@ -1,12 +1,21 @@
 package com;
 
+import com.repository.ArchivedLogRepositories;
+import com.repository.JdbcInventoryLogRepository;
+import com.repository.Repositories;
 import com.utilities.DBConnection;
+import com.utilities.ExportCompression;
+import com.utilities.ExportFormat;
+import com.utilities.ExportTable;
 import com.utilities.FileExport;
+import com.utilities.InventoryLogWriter;
+import com.utilities.Metrics;
+import com.utilities.Page;
+import com.utilities.SqlStatements;
 
+import java.io.IOException;
+import java.io.Writer;
 import java.sql.*;
-import java.time.format.DateTimeFormatter;
-import java.util.ArrayList;
-import java.util.List;
 import java.util.Scanner;
 
 public class InventoryLog {
@@ -16,6 +25,13 @@ public class InventoryLog {
     private String action;
     private Timestamp timestamp;
 
+    // Optional background writer (-Dinventory.log.mode=GROUP_COMMIT|FIRE_AND_FORGET).
+    // When null, rows are inserted on the caller's connection inside its transaction.
+    private static volatile InventoryLogWriter logWriter = createConfiguredWriter();
+
+    private static final Metrics.Operation CREATE = Metrics.operation("InventoryLog.create");
+    private static final Metrics.Operation EXPORT = Metrics.operation("InventoryLog.export");
+
     // Constructors
     public InventoryLog() {
     }
@@ -81,43 +97,110 @@ public class InventoryLog {
                 '}';
     }
 
-    // ---------- JDBC CRUD Methods ------------
+    // ---------- Log writer ------------
+
+    private static InventoryLogWriter createConfiguredWriter() {
+        String mode = System.getProperty("inventory.log.mode");
+        if (mode == null || mode.equalsIgnoreCase("SYNC")) {
+            return null;
+        }
+        return new InventoryLogWriter(
+                InventoryLogWriter.Durability.valueOf(mode.toUpperCase()),
+                Integer.getInteger("inventory.log.queueCapacity", 10_000),
+                Integer.getInteger("inventory.log.batchSize", 500),
+                Long.getLong("inventory.log.lingerMillis", 5));
+    }
+
+    public static InventoryLogWriter getLogWriter() {
+        return logWriter;
+    }
+
+    // Install a writer (or null for in-transaction inserts); the previous writer is drained and closed
+    public static synchronized void setLogWriter(InventoryLogWriter writer) {
+        InventoryLogWriter old = logWriter;
+        logWriter = writer;
+        if (old != null && old != writer) {
+            old.close();
+        }
+    }
+
+    // True when rows are written by the background writer instead of the caller's transaction
+    public static boolean isQueued() {
+        InventoryLogWriter writer = logWriter;
+        return writer != null && writer.getDurability() != InventoryLogWriter.Durability.SYNC;
+    }
 
-    public static synchronized void createLog(Connection conn, InventoryLog log) {
-        String sql = "INSERT INTO InventoryLog (product_id, change_quantity, action) VALUES (?, ?, ?)";
-        try (PreparedStatement stmt = conn.prepareStatement(sql)) { // ✅ Use existing connection
-            stmt.setInt(1, log.getProductId());
-            stmt.setInt(2, log.getChangeQuantity());
-            stmt.setString(3, log.getAction());
+    public static void shutdownLogWriter() {
+        setLogWriter(null);
+    }
+
+    // ---------- CRUD Methods ------------
+
+    // Records one stock change on the caller's connection (or hands it to the background writer).
+    // Repository code should use Repositories.getDefault().inventoryLogs().append() instead.
+    public static void createLog(Connection conn, InventoryLog log) {
+        InventoryLogWriter writer = logWriter;
+        if (writer != null) {
+            long start = Metrics.start();
+            try {
+                writer.append(conn, log);
+                CREATE.success(start, 1);
+            } catch (SQLException e) {
+                CREATE.failure(start);
+                e.printStackTrace();
+            }
+            return;
+        }
 
-            stmt.executeUpdate();
-            System.out.println("Log inserted successfully.");
+        try {
+            JdbcInventoryLogRepository.insert(conn, log); // ✅ Use existing connection
         } catch (SQLException e) {
             e.printStackTrace();
         }
     }
 
+    // Keyset page of log rows, newest first. Pass the timestamp and log ID of the previous page's
+    // last row (null and 0 for the first page); productId <= 0 lists every product.
+    public static Page<InventoryLog> listLogs(Timestamp beforeTimestamp, int beforeLogId, int pageSize, int productId)
+            throws SQLException {
+        return Repositories.getDefault().inventoryLogs().list(beforeTimestamp, beforeLogId, pageSize, productId);
+    }
+
     public static void readLogs() {
-        String sql = "SELECT * FROM InventoryLog ORDER BY timestamp DESC";
-        try (Connection conn = DBConnection.getConnection();
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
-
-            while (rs.next()) {
-                InventoryLog log = new InventoryLog(
-                        rs.getInt("log_id"),
-                        rs.getInt("product_id"),
-                        rs.getInt("change_quantity"),
-                        rs.getString("action"),
-                        rs.getTimestamp("timestamp")
-                );
-                System.out.println(log);
+        Timestamp before = null;
+        int beforeId = 0;
+        try {
+            while (true) {
+                Page<InventoryLog> page = listLogs(before, beforeId, Page.DEFAULT_SIZE, 0);
+                for (InventoryLog log : page.getItems()) {
+                    System.out.println(log);
+                }
+                if (!page.hasMore() || !Page.promptNextPage()) {
+                    break;
+                }
+                before = page.getLast().getTimestamp();
+                beforeId = page.getLast().getLogId();
             }
         } catch (SQLException e) {
             e.printStackTrace();
         }
     }
 
+    // Move the days older than -Dinventory.log.retentionDays out of the table (see LogArchive)
+    public static void archiveOldLogs() {
+        ArchivedLogRepositories repos = ArchivedLogRepositories.getInstalled();
+        if (repos == null) {
+            System.out.println("Archiving is off; start with -Dinventory.log.archiveDir=<directory> to enable it.");
+            return;
+        }
+        try {
+            long rows = repos.archiveNow();
+            System.out.println("Archived " + rows + " row(s). " + repos.getArchive());
+        } catch (SQLException | IOException e) {
+            System.err.println("Error archiving inventory log: " + e.getMessage());
+        }
+    }
+
     public static void deleteLog(int logId) {
 //        String sql = "DELETE FROM InventoryLog WHERE log_id = ?";
 //        try (Connection conn = DBConnection.getConnection();
@@ -137,42 +220,61 @@ public class InventoryLog {
 //    }
 
     public static void exportToFile() {
-        String sql = "SELECT * FROM inventorylog";
-        List<String> inventoryLogList = new ArrayList<>();
+        exportToFileStreaming("inventoryLog.txt", Integer.getInteger("inventory.export.fetchSize", 1000));
+    }
 
+    // Stream the whole table to a file in constant memory: rows are pulled fetchSize at a time,
+    // formatted into one reused buffer and written through a large buffered channel.
+    // MySQL only honours the fetch size with useCursorFetch=true on the URL (DBConnection adds it
+    // unless the URL sets it), or streams row by row when fetchSize is Integer.MIN_VALUE.
+    // Returns the number of rows written.
+    public static long exportToFileStreaming(String filename, int fetchSize) {
+        String sql = SqlStatements.INVENTORY_LOG_EXPORT;
+        long rows = 0;
+        long start = System.nanoTime();
+
+        try {
+            DBConnection.requireUnsharded("The inventory log export");
+        } catch (SQLException e) {
+            System.err.println("Error exporting inventory log: " + e.getMessage());
+            return 0;
+        }
         try (Connection conn = DBConnection.getConnection();
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
-
-            while (rs.next()) {
-
-                Timestamp timestamp = rs.getTimestamp("timestamp");
-                String formattedTime = (timestamp != null)
-                        ? timestamp.toLocalDateTime().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"))
-                        : "N/A";
-
-                String row = String.format("%d | %d | %d | %s | %s",
-                        rs.getInt("log_id"),
-                        rs.getInt("product_id"),
-                        rs.getInt("change_quantity"),
-                        rs.getString("action"),
-                        formattedTime);
-                inventoryLogList.add(row);
+             Statement stmt = conn.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+             Writer writer = FileExport.openBufferedWriter(filename)) {
+
+            stmt.setFetchSize(fetchSize);
+            try (ResultSet rs = stmt.executeQuery(sql)) {
+                StringBuilder line = new StringBuilder(128);
+                while (rs.next()) {
+                    line.setLength(0);
+                    line.append(rs.getInt(1)).append(" | ")
+                            .append(rs.getInt(2)).append(" | ")
+                            .append(rs.getInt(3)).append(" | ")
+                            .append(rs.getString(4)).append(" | ");
+                    FileExport.appendTimestamp(line, rs.getTimestamp(5));
+                    line.append('\n');
+                    writer.append(line);
+                    rows++;
+                }
             }
-
-        } catch (SQLException e) {
-            System.err.println("Error fetching product data: " + e.getMessage());
+        } catch (SQLException | IOException e) {
+            EXPORT.failure(start);
+            System.err.println("Error exporting inventory log: " + e.getMessage());
+            return rows;
         }
+        EXPORT.success(start, rows);
 
-        FileExport fex = new FileExport(inventoryLogList ,"inventoryLog.txt");
+        double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+        System.out.printf("Exported %d row(s) to %s in %.2f s (%.0f rows/s)%n",
+                rows, filename, seconds, seconds > 0 ? rows / seconds : (double) rows);
+        return rows;
     }
 
-
-
     // ---------- Optional main() for testing ----------
     public static void runInventoryLog() {
         Scanner sc = new Scanner(System.in);
-        System.out.println("1-Read | 2-Export to File");
+        System.out.println("1-Read | 2-Export to File | 3-Export as CSV/JSONL/Columnar | 4-Archive old logs");
         int choice = sc.nextInt();
 
         switch (choice) {
@@ -187,6 +289,23 @@ public class InventoryLog {
             case 2:
                 exportToFile();
                 break;
+            case 3:
+                System.out.print("Format (1-CSV | 2-JSONL | 3-Columnar): ");
+                int f = sc.nextInt();
+                ExportFormat format = f == 2 ? ExportFormat.JSONL : f == 3 ? ExportFormat.COLUMNAR : ExportFormat.CSV;
+                System.out.print("Compress with gzip? (1-Yes | 2-No): ");
+                ExportCompression compression = sc.nextInt() == 1 ? ExportCompression.GZIP : ExportCompression.NONE;
+                String filename = "inventoryLog" + format.getExtension() + compression.getExtension();
+                try {
+                    FileExport.export(ExportTable.INVENTORY_LOG, format, compression, filename,
+                            Runtime.getRuntime().availableProcessors());
+                } catch (SQLException | IOException e) {
+                    System.err.println("Error exporting inventory log: " + e.getMessage());
+                }
+                break;
+            case 4:
+                archiveOldLogs();
+                break;
             default:
                 System.out.println("Invalid Input... Try again.");
 
@@ -1,10 +1,17 @@
 package com;
 
-//import com.utilities.InventorySimulator;
-
 import com.exceptions.OrderNotFoundException;
 import com.exceptions.ProductNotFoundException;
+import com.repository.ArchivedLogRepositories;
+import com.repository.LowStockTracker;
+import com.repository.InMemoryJournal;
+import com.repository.MappedStockRepositories;
+import com.repository.ShardedRepositories;
+import com.repository.StockLedger;
+import com.utilities.DBConnection;
 import com.utilities.InventorySimulator;
+import com.utilities.Metrics;
+import com.utilities.SalesAnalytics;
 
 import java.sql.SQLException;
 import java.util.Scanner;
@@ -13,6 +20,13 @@ public class Main {
     public static void main(String[] args) throws SQLException, InterruptedException, OrderNotFoundException, ProductNotFoundException {
         Scanner scanner = new Scanner(System.in);
         boolean running = true;
+        Metrics.startConfiguredDump();
+        InMemoryJournal.installConfigured(); // replays the in-memory store before anything wraps it
+        ShardedRepositories.installConfigured();
+        ArchivedLogRepositories.installConfigured(); // below the ledger, whose recovery reads archived rows
+        StockLedger.installConfigured();
+        MappedStockRepositories.installConfigured();
+        LowStockTracker.installConfigured(); // indexes whatever stock the ledger (or the table) reports
 
         while (running) {
             System.out.println("\n==== Inventory Management System ====");
@@ -21,7 +35,11 @@ public class Main {
             System.out.println("3. Manage Orders");
             System.out.println("4. Manage Order Items");
             System.out.println("5. View Inventory Logs");
-            System.out.println("6. Simulate Concurrent Orders");
+            System.out.println("6. Run Concurrent Order Load Test");
+            System.out.println("7. Compare Global vs Striped Locking");
+            System.out.println("8. Burst Orders on Virtual Threads");
+            System.out.println("9. Show JDBC Metrics");
+            System.out.println("10. Sales Analytics");
             System.out.println("0. Exit");
             System.out.print("Select an option: ");
 
@@ -33,6 +51,10 @@ public class Main {
                 case 4 -> OrderItem.runOrderItem();
                 case 5 -> InventoryLog.runInventoryLog();
                 case 6 -> InventorySimulator.runSimulation(); // InventorySimulator.main(null); // launch concurrent simulation
+                case 7 -> InventorySimulator.runLockComparison();
+                case 8 -> InventorySimulator.runOrderBurst();
+                case 9 -> System.out.print(Metrics.toText());
+                case 10 -> SalesAnalytics.runReport();
 //                case 7 -> {
 //                    Scanner sc = new Scanner(System.in);
 //
@@ -68,6 +90,15 @@ public class Main {
             }
         }
         scanner.close();
+        Metrics.stopPeriodicDump();
+        LowStockTracker.uninstall();
+        MappedStockRepositories.uninstall(); // marks the stock file clean
+        StockLedger.uninstall(); // final snapshot while the pool is still up
+        ArchivedLogRepositories.uninstall();
+        InMemoryJournal.uninstall(); // checkpoint of the in-memory store
+        ShardedRepositories.uninstall(); // closes the shard pools
+        InventoryLog.shutdownLogWriter(); // drain queued log rows before the pool goes away
+        DBConnection.shutdown();
         System.out.println("Exiting Inventory System.");
     }
 }
\ No newline at end of file
@@ -1,8 +1,12 @@
 package com;
 
 import com.exceptions.OrderNotFoundException;
+import com.exceptions.OutOfStockException;
 import com.exceptions.ProductNotFoundException;
-import com.utilities.DBConnection;
+import com.repository.CustomerHistoryCache;
+import com.repository.OrderRepository;
+import com.repository.Repositories;
+import com.utilities.Page;
 
 import java.sql.*;
 import java.util.ArrayList;
@@ -17,6 +21,10 @@ public class Order {
 
     static Scanner sc = new Scanner(System.in);
 
+    // Newest page of each customer's history; new orders of the customer invalidate it (see JdbcOrderRepository)
+    private static final CustomerHistoryCache HISTORY_CACHE =
+            new CustomerHistoryCache(Integer.getInteger("inventory.historyCache.size", 1_000));
+
     // Constructors
     public Order() {
     }
@@ -79,42 +87,36 @@ public class Order {
                 '}';
     }
 
-    // ---------- JDBC CRUD Methods ------------
-
-    public static int createOrder(Order order) {
-        String sql = "INSERT INTO Orders (order_date, customer_name, status) VALUES (?, ?, ?)";
-        try (Connection conn = DBConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
-
-            stmt.setDate(1, order.getOrderDate());
-            stmt.setString(2, order.getCustomerName());
-            stmt.setString(3, order.getStatus());
+    public static CustomerHistoryCache getHistoryCache() {
+        return HISTORY_CACHE;
+    }
 
-            int affectedRows = stmt.executeUpdate();
+    // ---------- CRUD Methods (through Repositories.getDefault()) ------------
 
-            try (ResultSet generatedKeys = stmt.getGeneratedKeys()) {
-                if (generatedKeys.next()) {
-                    return generatedKeys.getInt(1); // Return new orderId
-                } else {
-                    throw new SQLException("Creating order failed, no ID obtained.");
-                }
-            }
+    private static OrderRepository repository() {
+        return Repositories.getDefault().orders();
+    }
 
+    public static int createOrder(Order order) {
+        try {
+            return repository().create(order); // Return new orderId
         } catch (SQLException e) {
             e.printStackTrace();
         }
         return -1;
     }
 
-    public static void createOrderWithItems(Order order) throws SQLException, InterruptedException, OrderNotFoundException, ProductNotFoundException {
-        int orderId = createOrder(order);
-        if (orderId == -1) {
-            System.out.println("Failed to create order.");
-            return;
-        }
+    // Submit an order and all of its lines in a single transaction: order header, guarded stock
+    // decrements, item inserts and InventoryLog rows.
+    // If any line is short of stock everything is rolled back and OutOfStockException is thrown.
+    // Returns the new order ID; the order and its items are updated with the generated IDs.
+    public static int submitOrder(Order order, List<OrderItem> items) throws SQLException, OutOfStockException {
+        return repository().submit(order, items);
+    }
 
+    public static void createOrderWithItems(Order order) throws SQLException, InterruptedException, OrderNotFoundException, ProductNotFoundException {
         List<OrderItem> itemsForOrder = new ArrayList<>();
-        System.out.println("Add items for | Name: " + order.getCustomerName() + " | OrderId: " + orderId);
+        System.out.println("Add items for | Name: " + order.getCustomerName());
 
         Scanner sc = new Scanner(System.in);
 
@@ -182,32 +184,8 @@ public class Order {
                 continue;
             }
 
-            // Create order item
-            double prodPrice = product.getPrice() * quantity;
-            OrderItem item = new OrderItem(orderId, prodId, quantity, prodPrice);
-            itemsForOrder.add(item);
-
-            // Update stock with transaction
-            try (Connection conn = DBConnection.getConnection()) {
-                synchronized (Product.class) { // Synchronize on the Product class to ensure atomicity
-                    conn.setAutoCommit(false); // Start transaction
-
-                    product.sellProduct(conn, quantity); // Use the synchronized sellProduct method
-
-                    InventoryLog.createLog(conn, new InventoryLog(
-                            0, prodId, -quantity,
-                            "Order Processed (Manual)",
-                            new Timestamp(System.currentTimeMillis())
-                    ));
-
-                    conn.commit(); // Commit transaction
-                    System.out.println("Stock updated and log created for product ID " + prodId);
-                }
-            } catch (SQLException e) {
-                System.err.println("Failed to update stock: " + e.getMessage());
-                // No need to rollback explicitly here, as sellProduct handles its own transaction or relies on a larger one.
-                // If a larger transaction is intended, the rollback should be handled at that level.
-            }
+            // Stock is only taken when the whole order is submitted below
+            itemsForOrder.add(new OrderItem(0, prodId, quantity, product.getPrice()));
 
             // Ask to add more items
             System.out.println("Add more items?");
@@ -233,41 +211,91 @@ public class Order {
             if (choice == 2) break;
         }
 
-        for(OrderItem oi: itemsForOrder){
-            OrderItem.createOrderItem(oi);
+        if (itemsForOrder.isEmpty()) {
+            System.out.println("No items added, order not created.");
+            return;
         }
 
-        System.out.println("Order created successfully with " + itemsForOrder.size() + " item(s).");
+        try {
+            int orderId = submitOrder(order, itemsForOrder);
+            System.out.println("Order " + orderId + " created successfully with " + itemsForOrder.size() + " item(s).");
+        } catch (OutOfStockException e) {
+            System.out.println("Order not created: " + e.getMessage());
+        } catch (SQLException e) {
+            System.err.println("Failed to create order: " + e.getMessage());
+        }
 
 
 
     }
 
 
+    // Keyset page of orders with order_id > afterOrderId (0 for the first page),
+    // optionally restricted to one status (null for all)
+    public static Page<Order> listOrders(int afterOrderId, int pageSize, String status) throws SQLException {
+        return repository().list(afterOrderId, pageSize, status);
+    }
+
     public static void readOrders() {
-        String sql = "SELECT * FROM Orders";
-        try (Connection conn = DBConnection.getConnection();
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
-
-            System.out.printf("%-10s %-15s %-25s %-10s%n", "Order ID", "Order Date", "Customer Name", "Status");
-            System.out.println("---------------------------------------------------------------");
-
-            while (rs.next()) {
-                Order o = new Order(
-                        rs.getInt("order_id"),
-                        rs.getDate("order_date"),
-                        rs.getString("customer_name"),
-                        rs.getString("status")
-                );
-
-                System.out.printf(
-                        "%-10d %-15s %-25s %-10s%n",
-                        o.getOrderId(),
-                        o.getOrderDate().toString(),
-                        o.getCustomerName(),
-                        o.getStatus()
-                );
+        System.out.printf("%-10s %-15s %-25s %-10s%n", "Order ID", "Order Date", "Customer Name", "Status");
+        System.out.println("---------------------------------------------------------------");
+
+        int after = 0;
+        try {
+            while (true) {
+                Page<Order> page = listOrders(after, Page.DEFAULT_SIZE, null);
+                for (Order o : page.getItems()) {
+                    System.out.printf(
+                            "%-10d %-15s %-25s %-10s%n",
+                            o.getOrderId(),
+                            o.getOrderDate().toString(),
+                            o.getCustomerName(),
+                            o.getStatus()
+                    );
+                }
+                if (!page.hasMore() || !Page.promptNextPage()) {
+                    break;
+                }
+                after = page.getLast().getOrderId();
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+
+    // One customer's orders with their items, newest first. beforeDate is null for the first page;
+    // pass the last order's date and ID for the next one.
+    public static Page<CustomerOrder> listCustomerOrders(String customerName, Date beforeDate, int beforeOrderId, int pageSize)
+            throws SQLException {
+        return repository().listByCustomer(customerName, beforeDate, beforeOrderId, pageSize);
+    }
+
+    public static void readCustomerOrders(String customerName) {
+        System.out.println("Order history of " + customerName);
+        System.out.printf("%-10s %-15s %-10s %-12s %-10s %-12s%n", "Order ID", "Order Date", "Status", "Product ID", "Quantity", "Unit Price");
+        System.out.println("---------------------------------------------------------------------");
+
+        Date before = null;
+        int beforeId = 0;
+        try {
+            while (true) {
+                Page<CustomerOrder> page = listCustomerOrders(customerName, before, beforeId, Page.DEFAULT_SIZE);
+                for (CustomerOrder co : page.getItems()) {
+                    Order o = co.getOrder();
+                    System.out.printf("%-10d %-15s %-10s%n", o.getOrderId(), o.getOrderDate().toString(), o.getStatus());
+                    for (OrderItem item : co.getItems()) {
+                        System.out.printf("%-37s %-12d %-10d %-12.2f%n", "", item.getProductId(), item.getQuantity(), item.getUnitPrice());
+                    }
+                    System.out.printf("%-37s Total: %.2f%n", "", co.getTotal());
+                }
+                if (page.isEmpty()) {
+                    System.out.println("No orders found.");
+                }
+                if (!page.hasMore() || !Page.promptNextPage()) {
+                    break;
+                }
+                before = page.getLast().getOrderDate();
+                beforeId = page.getLast().getOrderId();
             }
         } catch (SQLException e) {
             e.printStackTrace();
@@ -293,28 +321,17 @@ public class Order {
     }
 
     public static void updateOrderStatus(int orderId, String newStatus) {
-        String sql = "UPDATE Orders SET status = ? WHERE order_id = ?";
-        try (Connection conn = DBConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-
-            stmt.setString(1, newStatus);
-            stmt.setInt(2, orderId);
-
-            int rows = stmt.executeUpdate();
+        try {
+            int rows = repository().updateStatus(orderId, newStatus);
             System.out.println(rows + " order(s) updated.");
-
         } catch (SQLException e) {
             e.printStackTrace();
         }
     }
 
     public static void deleteOrder(int orderId) {
-        String sql = "DELETE FROM Orders WHERE order_id = ?";
-        try (Connection conn = DBConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-
-            stmt.setInt(1, orderId);
-            int rows = stmt.executeUpdate();
+        try {
+            int rows = repository().delete(orderId);
             System.out.println(rows + " order(s) deleted.");
         } catch (SQLException e) {
             e.printStackTrace();
@@ -366,25 +383,25 @@ public class Order {
         boolean validInput = false;
 
         while (!validInput) {
-            System.out.println("Choose: 1-Create | 2-Read | 3-Update Status | 4-Delete | 5-Exit");
+            System.out.println("Choose: 1-Create | 2-Read | 3-Update Status | 4-Delete | 5-Exit | 6-Customer History");
             String input = sc.nextLine();
 
             // Check if input is letters only (a-z or A-Z)
             if (input.matches("[a-zA-Z]+")) {
-                System.out.println("Invalid, please enter a valid number 1-5");
+                System.out.println("Invalid, please enter a valid number 1-6");
                 continue;
             }
 
             try {
                 choice = Integer.parseInt(input);
 
-                if (choice < 1 || choice > 5) {
-                    System.out.println("Invalid input, please choose 1-5");
+                if (choice < 1 || choice > 6) {
+                    System.out.println("Invalid input, please choose 1-6");
                 } else {
                     validInput = true;
                 }
             } catch (NumberFormatException e) {
-                System.out.println("Invalid, please enter a valid number 1-5");
+                System.out.println("Invalid, please enter a valid number 1-6");
             }
         }
 
@@ -491,6 +508,10 @@ public class Order {
                 int delId = sc.nextInt();
                 deleteOrder(delId);
                 break;
+            case 6:
+                System.out.print("Customer name: ");
+                readCustomerOrders(sc.nextLine().trim());
+                break;
         }
 
     }
@@ -2,7 +2,9 @@ package com;
 
 import com.exceptions.OrderNotFoundException;
 import com.exceptions.ProductNotFoundException;
-import com.utilities.DBConnection;
+import com.repository.OrderItemRepository;
+import com.repository.Repositories;
+import com.utilities.Page;
 
 import java.sql.*;
 import java.util.Scanner;
@@ -89,13 +91,8 @@ public class OrderItem {
 
     //---------CHECK IF ORDER EXISTS-------//
     public static boolean orderExists(int orderId) {
-        String sql = "SELECT order_id FROM Orders WHERE order_id = ?";
-        try (Connection conn = DBConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-            stmt.setInt(1, orderId);
-            try (ResultSet rs = stmt.executeQuery()) {
-                return rs.next();
-            }
+        try {
+            return Repositories.getDefault().orders().exists(orderId);
         } catch (SQLException e) {
             e.printStackTrace();
             return false;
@@ -103,21 +100,16 @@ public class OrderItem {
     }
 
     //----------IF PRODUCT EXISTS----------------
+    // Goes through the product cache, so the lookup that usually follows is served from memory
     public static boolean productExists(int productId) {
-        String sql = "SELECT product_id FROM Product WHERE product_id = ?";
-        try (Connection conn = DBConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-            stmt.setInt(1, productId);
-            try (ResultSet rs = stmt.executeQuery()) {
-                return rs.next();
-            }
-        } catch (SQLException e) {
-            e.printStackTrace();
-            return false;
-        }
+        return Product.getProductById(productId) != null;
     }
 
-    // ---------- JDBC CRUD Methods ------------
+    // ---------- CRUD Methods (through Repositories.getDefault()) ------------
+
+    private static OrderItemRepository repository() {
+        return Repositories.getDefault().orderItems();
+    }
 
     public static void createOrderItem(OrderItem item) throws OrderNotFoundException, ProductNotFoundException {
 
@@ -129,37 +121,32 @@ public class OrderItem {
 //            throw new ProductNotFoundException("Product with ID " + item.getProductId() + " does not exist.");
 //        }
 
-        String sql = "INSERT INTO OrderItem (order_id, product_id, quantity, unit_price) VALUES (?, ?, ?, ?)";
-        try (Connection conn = DBConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-
-            stmt.setInt(1, item.getOrderId());
-            stmt.setInt(2, item.getProductId());
-            stmt.setInt(3, item.getQuantity());
-            stmt.setDouble(4, item.getUnitPrice());
-
-            stmt.executeUpdate();
+        try {
+            repository().create(item);
 //            System.out.println("OrderItem inserted successfully.");
         } catch (SQLException e) {
             e.printStackTrace();
         }
     }
 
+    // Keyset page of order items with order_item_id > afterOrderItemId (0 for the first page),
+    // optionally restricted to one order (orderId <= 0 for all)
+    public static Page<OrderItem> listOrderItems(int afterOrderItemId, int pageSize, int orderId) throws SQLException {
+        return repository().list(afterOrderItemId, pageSize, orderId);
+    }
+
     public static void readOrderItems() {
-        String sql = "SELECT * FROM OrderItem";
-        try (Connection conn = DBConnection.getConnection();
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
-
-            while (rs.next()) {
-                OrderItem item = new OrderItem(
-                        rs.getInt("order_item_id"),
-                        rs.getInt("order_id"),
-                        rs.getInt("product_id"),
-                        rs.getInt("quantity"),
-                        rs.getDouble("unit_price")
-                );
-                System.out.println(item);
+        int after = 0;
+        try {
+            while (true) {
+                Page<OrderItem> page = listOrderItems(after, Page.DEFAULT_SIZE, 0);
+                for (OrderItem item : page.getItems()) {
+                    System.out.println(item);
+                }
+                if (!page.hasMore() || !Page.promptNextPage()) {
+                    break;
+                }
+                after = page.getLast().getOrderItemId();
             }
         } catch (SQLException e) {
             e.printStackTrace();
@@ -182,13 +169,8 @@ public class OrderItem {
 //    }
 
     public static void deleteOrderItem(int orderItemId) {
-        String sql = "DELETE FROM OrderItem WHERE order_item_id = ?";
-        try (Connection conn = DBConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-
-            stmt.setInt(1, orderItemId);
-
-            int rows = stmt.executeUpdate();
+        try {
+            int rows = repository().delete(orderItemId);
             System.out.println(rows + " row(s) deleted.");
         } catch (SQLException e) {
             e.printStackTrace();
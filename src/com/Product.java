@@ -1,9 +1,19 @@
 package com;
 
-import com.utilities.DBConnection;
+import com.repository.JdbcProductRepository;
+import com.repository.LowStockTracker;
+import com.repository.MappedStockRepositories;
+import com.repository.ProductRepository;
+import com.repository.Repositories;
+import com.utilities.LruCache;
+import com.utilities.Metrics;
+import com.utilities.Page;
 
 import java.io.Console;
 import java.sql.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Scanner;
 
 public class Product {
@@ -14,6 +24,12 @@ public class Product {
     private int stockQuantity;
     private int supplierId;
 
+    // Rows served by getProductById; every JDBC write invalidates its entry (see JdbcProductRepository)
+    private static final LruCache<Integer, Product> CACHE =
+            new LruCache<>(Integer.getInteger("inventory.productCache.size", 10_000));
+
+    private static final Metrics.Operation ENSURE_EXISTS = Metrics.operation("Product.ensureExists");
+
     // Default constructor
     public Product() {
     }
@@ -89,6 +105,10 @@ public class Product {
         this.supplierId = supplierId;
     }
 
+    public static LruCache<Integer, Product> getCache() {
+        return CACHE;
+    }
+
     // toString
     @Override
     public String toString() {
@@ -102,61 +122,57 @@ public class Product {
                 '}';
     }
 
-    // ----------- JDBC CRUD METHODS BELOW -----------
+    // ----------- CRUD METHODS BELOW (through Repositories.getDefault()) -----------
 
-    public static void createProduct(Product product) {
-        String sql = "INSERT INTO Product (name, description, price, stock_quantity, supplier_id) VALUES (?, ?, ?, ?, ?)";
-        try (Connection conn = DBConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-
-            stmt.setString(1, product.getName());
-            stmt.setString(2, product.getDescription());
-            stmt.setDouble(3, product.getPrice());
-            stmt.setInt(4, product.getStockQuantity());
-            stmt.setInt(5, product.getSupplierId());
+    private static ProductRepository repository() {
+        return Repositories.getDefault().products();
+    }
 
-            stmt.executeUpdate();
+    public static void createProduct(Product product) {
+        try {
+            repository().create(product);
             System.out.println("Product created successfully.");
         } catch (SQLException e) {
             e.printStackTrace();
         }
     }
 
+    // Keyset page of products with product_id > afterProductId (0 for the first page),
+    // optionally restricted to names containing nameFilter (null for no filter)
+    public static Page<Product> listProducts(int afterProductId, int pageSize, String nameFilter) throws SQLException {
+        return repository().list(afterProductId, pageSize, nameFilter);
+    }
+
     public static void readProducts() {
         System.out.println("Reading products: ");
-        String sql = "SELECT * FROM Product";
-        try (Connection conn = DBConnection.getConnection();
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
-
-            System.out.printf("%-10s %-20s %-40s %-10s %-15s %-12s%n",
-                    "Product ID", "Name", "Description", "Price", "Stock Qty", "Supplier ID");
-            System.out.println("---------------------------------------------------------------------------------------------------------------");
-
-            while (rs.next()) {
-                Product p = new Product(
-                        rs.getInt("product_id"),
-                        rs.getString("name"),
-                        rs.getString("description"),
-                        rs.getDouble("price"),
-                        rs.getInt("stock_quantity"),
-                        rs.getInt("supplier_id")
-                );
-
-                // Truncate long descriptions to avoid breaking the table
-                String desc = p.getDescription();
-                if (desc.length() > 37) {
-                    desc = desc.substring(0, 37) + "...";
+        System.out.printf("%-10s %-20s %-40s %-10s %-15s %-12s%n",
+                "Product ID", "Name", "Description", "Price", "Stock Qty", "Supplier ID");
+        System.out.println("---------------------------------------------------------------------------------------------------------------");
+
+        int after = 0;
+        try {
+            while (true) {
+                Page<Product> page = listProducts(after, Page.DEFAULT_SIZE, null);
+                for (Product p : page.getItems()) {
+                    // Truncate long descriptions to avoid breaking the table
+                    String desc = p.getDescription();
+                    if (desc != null && desc.length() > 37) {
+                        desc = desc.substring(0, 37) + "...";
+                    }
+
+                    System.out.printf("%-10d %-20s %-40s %-10.2f %-15d %-12d%n",
+                            p.getProductId(),
+                            p.getName(),
+                            desc,
+                            p.getPrice(),
+                            p.getStockQuantity(),
+                            p.getSupplierId()
+                    );
                 }
-
-                System.out.printf("%-10d %-20s %-40s %-10.2f %-15d %-12d%n",
-                        p.getProductId(),
-                        p.getName(),
-                        desc,
-                        p.getPrice(),
-                        p.getStockQuantity(),
-                        p.getSupplierId()
-                );
+                if (!page.hasMore() || !Page.promptNextPage()) {
+                    break;
+                }
+                after = page.getLast().getProductId();
             }
         } catch (SQLException e) {
             e.printStackTrace();
@@ -164,13 +180,8 @@ public class Product {
     }
 
     public static void updateProductPrice(int productId, double newPrice) {
-        String sql = "UPDATE Product SET price = ? WHERE product_id = ?";
-        try (Connection conn = DBConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-
-            stmt.setDouble(1, newPrice);
-            stmt.setInt(2, productId);
-            int rows = stmt.executeUpdate();
+        try {
+            int rows = repository().updatePrice(productId, newPrice);
             System.out.println(rows + " product(s) updated.");
         } catch (SQLException e) {
             e.printStackTrace();
@@ -178,123 +189,168 @@ public class Product {
     }
 
     public static void deleteProduct(int productId) {
-        String sql = "DELETE FROM Product WHERE product_id = ?";
-        try (Connection conn = DBConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-
-            stmt.setInt(1, productId);
-            int rows = stmt.executeUpdate();
+        try {
+            int rows = repository().delete(productId);
             System.out.println(rows + " product(s) deleted.");
         } catch (SQLException e) {
             e.printStackTrace();
         }
     }
 
+    // Served from the product cache when possible. Callers get their own copy, so
+    // sellProduct/setters on the returned object never touch the cached row.
     public static Product getProductById(int productId) {
-        String sql = "SELECT * FROM Product WHERE product_id = ?";
-        try (Connection conn = DBConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-            stmt.setInt(1, productId);
-            ResultSet rs = stmt.executeQuery();
-
-            if (rs.next()) {
-                return new Product(
-                        rs.getInt("product_id"),
-                        rs.getString("name"),
-                        rs.getString("description"),
-                        rs.getDouble("price"),
-                        rs.getInt("stock_quantity"),
-                        rs.getInt("supplier_id")
-                );
-            }
+        try {
+            return repository().findById(productId);
         } catch (SQLException e) {
             e.printStackTrace();
+            return null;
         }
-        return null;
     }
 
+    // ----------- Connection-level stock operations (caller's JDBC transaction) -----------
+    // With -Dinventory.stock=mapped the stock is in the mapped stock file instead, outside the caller's transaction.
+    // With auto-commit off the cached product is only dropped by invalidateCached(productId), which the
+    // caller runs once it has committed or rolled back.
+
     // Get current stock for a product
     public static int getProductStock(Connection conn, int productId) throws SQLException {
-        String sql = "SELECT stock_quantity FROM Product WHERE product_id = ?";
-        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
-            stmt.setInt(1, productId);
-            try (ResultSet rs = stmt.executeQuery()) {
-                if (rs.next()) {
-                    return rs.getInt("stock_quantity");
-                }
+        MappedStockRepositories mapped = MappedStockRepositories.getInstalled();
+        if (mapped != null) {
+            return mapped.getStock(productId);
+        }
+        return JdbcProductRepository.getStock(conn, productId);
+    }
+
+    // Update product stock; the row lock serializes concurrent updates of the same product
+    public static void updateProductStock(Connection conn, int productId, int newStock) throws SQLException {
+        MappedStockRepositories mapped = MappedStockRepositories.getInstalled();
+        if (mapped != null) {
+            mapped.setStock(productId, newStock);
+        } else {
+            JdbcProductRepository.setStock(conn, productId, newStock);
+            invalidateIfCommitted(conn, productId);
+        }
+        LowStockTracker.changedOn(conn, productId);
+    }
+
+    // Returned by decrementStock when the product does not have enough units left
+    public static final int OUT_OF_STOCK = ProductRepository.OUT_OF_STOCK;
+
+    // Atomically take quantity units out of stock with a single guarded UPDATE.
+    // Returns the new stock or OUT_OF_STOCK.
+    public static int decrementStock(Connection conn, int productId, int quantity) throws SQLException {
+        MappedStockRepositories mapped = MappedStockRepositories.getInstalled();
+        int newStock = mapped != null
+                ? mapped.decrementStock(productId, quantity)
+                : JdbcProductRepository.decrementStock(conn, productId, quantity);
+        if (newStock != OUT_OF_STOCK) {
+            if (mapped == null) {
+                invalidateIfCommitted(conn, productId);
             }
+            LowStockTracker.changedOn(conn, productId);
         }
-        throw new SQLException("Product not found: " + productId);
+        return newStock;
+    }
+
+    // Drop the cached product after a stock change on a caller's connection has committed (or rolled back)
+    public static void invalidateCached(int productId) {
+        getCache().invalidate(productId);
     }
 
-    // Update product stock
-    public static synchronized void updateProductStock(Connection conn, int productId, int newStock) throws SQLException {
-        String sql = "UPDATE Product SET stock_quantity = ? WHERE product_id = ?";
-        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
-            stmt.setInt(1, newStock);
-            stmt.setInt(2, productId);
-            stmt.executeUpdate();
+    private static void invalidateIfCommitted(Connection conn, int productId) throws SQLException {
+        if (conn.getAutoCommit()) {
+            invalidateCached(productId);
         }
     }
 
-    // New method to sell product, handles stock decrement and can be called by concurrent threads
-    public synchronized void sellProduct(Connection conn, int quantityToSell) throws SQLException { // ADDED METHOD
-        int currentStock = getProductStock(conn, this.productId);
-        if (currentStock < quantityToSell) {
-            System.out.println("Not enough stock for product " + this.name + ". Current: " + currentStock + ", Requested: " + quantityToSell);
+    // Sell product, handles stock decrement and can be called by concurrent threads
+    public void sellProduct(Connection conn, int quantityToSell) throws SQLException {
+        int newStock = decrementStock(conn, this.productId, quantityToSell);
+        if (newStock == OUT_OF_STOCK) {
+            System.out.println("Not enough stock for product " + this.name + ". Requested: " + quantityToSell);
             throw new SQLException("Out of Stock for product ID: " + this.productId);
         }
-        int newStock = currentStock - quantityToSell;
-        updateProductStock(conn, this.productId, newStock);
         this.setStockQuantity(newStock); // Update the object's stockQuantity
         System.out.println("Product " + this.name + " stock updated to: " + newStock);
     }
 
     // Ensure product exists with initial stock
     public static void ensureProductExists(int productId, int initialStock) {
-        String sql = "INSERT INTO Product (product_id, name, description, price, stock_quantity, supplier_id) " +
-                "VALUES (?, 'Test Product', 'Test Description', 9.99, ?, 1) " +
-                "ON DUPLICATE KEY UPDATE stock_quantity = VALUES(stock_quantity)";
-
-        try (Connection conn = DBConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-
-            stmt.setInt(1, productId);
-            stmt.setInt(2, initialStock);
-            stmt.executeUpdate();
+        long start = Metrics.start();
+        try {
+            repository().upsertStock(Collections.singletonList(
+                    new Product(productId, "Test Product", "Test Description", 9.99, initialStock, 1)));
+            ENSURE_EXISTS.success(start, 1);
         } catch (SQLException e) {
+            ENSURE_EXISTS.failure(start);
             System.err.println("Failed to ensure product existence: " + e.getMessage());
         }
     }
 
     //Checking low stock
     public static void checkLowStock(int threshold) {
-        String sql = "SELECT * FROM Product WHERE stock_quantity < ?";
-        try (Connection conn = DBConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-
-            stmt.setInt(1, threshold);
-            ResultSet rs = stmt.executeQuery();
+        try {
+            List<Product> low = repository().findLowStock(threshold);
 
             System.out.println("\n⚠️ Low Stock Products (Below " + threshold + " units):");
-            System.out.printf("%-10s %-20s %-10s%n", "Product ID", "Name", "Stock");
-            System.out.println("-------------------------------------------");
-
-            boolean found = false;
-            while (rs.next()) {
-                found = true;
-                System.out.printf("%-10d %-20s %-10d%n",
-                        rs.getInt("product_id"),
-                        rs.getString("name"),
-                        rs.getInt("stock_quantity"));
-            }
+            printLowStock(low);
+        } catch (SQLException e) {
+            System.err.println("Error checking low stock: " + e.getMessage());
+        }
+    }
 
-            if (!found) {
-                System.out.println("✅ All products have sufficient stock.");
+    // Products below their own reorder threshold, from the low-stock index
+    public static void checkReorderLevels() {
+        LowStockTracker tracker = LowStockTracker.getInstalled();
+        if (tracker == null) {
+            System.out.println("Low-stock tracking is off (-Dinventory.lowStock.tracking=false).");
+            return;
+        }
+        try {
+            List<Product> low = new ArrayList<>();
+            for (int productId : tracker.belowThreshold()) {
+                Product p = repository().findById(productId);
+                if (p != null) {
+                    low.add(p);
+                }
             }
-
+            System.out.println("\n⚠️ Products Below Their Reorder Threshold:");
+            printLowStock(low);
         } catch (SQLException e) {
-            System.err.println("Error checking low stock: " + e.getMessage());
+            System.err.println("Error checking reorder thresholds: " + e.getMessage());
+        }
+    }
+
+    public static void setReorderThreshold(int productId, int threshold) {
+        LowStockTracker tracker = LowStockTracker.getInstalled();
+        if (tracker == null) {
+            System.out.println("Low-stock tracking is off (-Dinventory.lowStock.tracking=false).");
+            return;
+        }
+        try {
+            tracker.setThreshold(productId, threshold);
+            System.out.println("Reorder threshold of product " + productId + " set to " + threshold + ".");
+        } catch (IllegalArgumentException e) {
+            System.out.println("⚠ " + e.getMessage());
+        }
+    }
+
+    private static void printLowStock(List<Product> low) {
+        System.out.printf("%-10s %-20s %-10s %-10s%n", "Product ID", "Name", "Stock", "Threshold");
+        System.out.println("------------------------------------------------------");
+
+        LowStockTracker tracker = LowStockTracker.getInstalled();
+        for (Product p : low) {
+            System.out.printf("%-10d %-20s %-10d %-10s%n",
+                    p.getProductId(),
+                    p.getName(),
+                    p.getStockQuantity(),
+                    tracker != null ? String.valueOf(tracker.thresholdOf(p.getProductId())) : "-");
+        }
+
+        if (low.isEmpty()) {
+            System.out.println("✅ All products have sufficient stock.");
         }
     }
 
@@ -302,7 +358,8 @@ public class Product {
     public static void runProduct() {
         Scanner sc = new Scanner(System.in);
 //        Console console = System.console();
-        System.out.println("Choose action: 1-Create | 2-Read | 3-Update Price | 4-Delete | 5-Check for Low Stock");
+        System.out.println("Choose action: 1-Create | 2-Read | 3-Update Price | 4-Delete | 5-Check for Low Stock"
+                + " | 6-Set Reorder Threshold | 7-Below Reorder Threshold");
         int choice = sc.nextInt();
 //        sc.nextLine();
 
@@ -351,11 +408,17 @@ public class Product {
                 break;
             case 5:
                 System.out.print("Enter stock threshold: ");
-                System.out.println("Stock less than 5: ");
-//                int threshold = sc.nextInt();
-//                checkLowStock(threshold);
-                checkLowStock(5);
-
+                int threshold = sc.nextInt();
+                checkLowStock(threshold);
+                break;
+            case 6:
+                System.out.print("Enter product ID: ");
+                int thresholdId = sc.nextInt();
+                System.out.print("Enter reorder threshold: ");
+                setReorderThreshold(thresholdId, sc.nextInt());
+                break;
+            case 7:
+                checkReorderLevels();
                 break;
         }
     }
@@ -1,6 +1,8 @@
 package com;
 
-import com.utilities.DBConnection;
+import com.repository.Repositories;
+import com.repository.SupplierRepository;
+import com.utilities.Page;
 
 import java.sql.*;
 import java.util.Scanner;
@@ -74,47 +76,48 @@ public class Supplier {
                 '}';
     }
 
-    //CRUD METHODS
+    //CRUD METHODS (through Repositories.getDefault())
+    private static SupplierRepository repository() {
+        return Repositories.getDefault().suppliers();
+    }
+
     public static void createSupplier(Supplier supplier) {
-        String sql = "INSERT INTO Supplier (name, contact_email, phone) VALUES (?, ?, ?)";
-        try (Connection conn = DBConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-
-            stmt.setString(1, supplier.getName());
-            stmt.setString(2, supplier.getContactEmail());
-            stmt.setString(3, supplier.getPhone());
-            stmt.executeUpdate();
+        try {
+            repository().create(supplier);
             System.out.println("Supplier created successfully.");
         } catch (SQLException e) {
             e.printStackTrace();
         }
     }
 
+    // Keyset page of suppliers with supplier_id > afterSupplierId (0 for the first page),
+    // optionally restricted to names containing nameFilter (null for no filter)
+    public static Page<Supplier> listSuppliers(int afterSupplierId, int pageSize, String nameFilter) throws SQLException {
+        return repository().list(afterSupplierId, pageSize, nameFilter);
+    }
+
     public static void readSuppliers() {
-        String sql = "SELECT * FROM Supplier";
-        try (Connection conn = DBConnection.getConnection();
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
-
-            System.out.printf("%-12s %-20s %-30s %-15s%n", "Supplier ID", "Name", "Email", "Phone");
-            System.out.println("----------------------------------------------------------------------------------------");
-
-            while (rs.next()) {
-                Supplier s = new Supplier(
-                        rs.getInt("supplier_id"),
-                        rs.getString("name"),
-                        rs.getString("contact_email"),
-                        rs.getString("phone")
-                );
-
-                // Print each row
-                System.out.printf(
-                        "%-12d %-20s %-30s %-15s%n",
-                        s.getSupplierId(),
-                        s.getName(),
-                        s.getContactEmail(),
-                        s.getPhone()
-                );
+        System.out.printf("%-12s %-20s %-30s %-15s%n", "Supplier ID", "Name", "Email", "Phone");
+        System.out.println("----------------------------------------------------------------------------------------");
+
+        int after = 0;
+        try {
+            while (true) {
+                Page<Supplier> page = listSuppliers(after, Page.DEFAULT_SIZE, null);
+                for (Supplier s : page.getItems()) {
+                    // Print each row
+                    System.out.printf(
+                            "%-12d %-20s %-30s %-15s%n",
+                            s.getSupplierId(),
+                            s.getName(),
+                            s.getContactEmail(),
+                            s.getPhone()
+                    );
+                }
+                if (!page.hasMore() || !Page.promptNextPage()) {
+                    break;
+                }
+                after = page.getLast().getSupplierId();
             }
         } catch (SQLException e) {
             e.printStackTrace();
@@ -122,13 +125,8 @@ public class Supplier {
     }
 
     public static void updateSupplier(int id, String newName) {
-        String sql = "UPDATE Supplier SET name = ? WHERE supplier_id = ?";
-        try (Connection conn = DBConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-
-            stmt.setString(1, newName);
-            stmt.setInt(2, id);
-            int rowsAffected = stmt.executeUpdate();
+        try {
+            int rowsAffected = repository().updateName(id, newName);
             System.out.println(rowsAffected + " supplier(s) updated.");
         } catch (SQLException e) {
             e.printStackTrace();
@@ -136,12 +134,8 @@ public class Supplier {
     }
 
     public static void deleteSupplier(int id) {
-        String sql = "DELETE FROM Supplier WHERE supplier_id = ?";
-        try (Connection conn = DBConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-
-            stmt.setInt(1, id);
-            int rowsDeleted = stmt.executeUpdate();
+        try {
+            int rowsDeleted = repository().delete(id);
             System.out.println(rowsDeleted + " supplier(s) deleted.");
         } catch (SQLException e) {
             e.printStackTrace();
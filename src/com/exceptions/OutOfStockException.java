@@ -0,0 +1,14 @@
+package com.exceptions;
+
+public class OutOfStockException extends Exception {
+    private final int productId;
+
+    public OutOfStockException(int productId, String message) {
+        super(message);
+        this.productId = productId;
+    }
+
+    public int getProductId() {
+        return productId;
+    }
+}
@@ -0,0 +1,96 @@
+package com.repository;
+
+import com.InventoryLog;
+import com.utilities.LogArchive;
+import com.utilities.Page;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.Lock;
+
+// Log rows in the live table first, then in the archive. Each query holds the archive's read lock
+// across both parts, so an archive run cannot move rows between them.
+public class ArchivedInventoryLogRepository implements InventoryLogRepository {
+
+    private static final Comparator<InventoryLog> NEWEST_FIRST =
+            Comparator.comparingLong((InventoryLog l) -> l.getTimestamp() != null ? l.getTimestamp().getTime() : Long.MIN_VALUE)
+                    .thenComparingInt(InventoryLog::getLogId).reversed();
+
+    private final LogArchive archive;
+    private final InventoryLogRepository base;
+
+    ArchivedInventoryLogRepository(LogArchive archive, InventoryLogRepository base) {
+        this.archive = archive;
+        this.base = base;
+    }
+
+    @Override
+    public void append(InventoryLog log) throws SQLException {
+        base.append(log);
+    }
+
+    // A full page of the table that is newer than everything archived needs no archive read, which is
+    // the usual case for recent history
+    @Override
+    public Page<InventoryLog> list(Timestamp beforeTimestamp, int beforeLogId, int pageSize, int productId)
+            throws SQLException {
+        Lock lock = archive.readLock();
+        lock.lock();
+        try {
+            Page<InventoryLog> live = base.list(beforeTimestamp, beforeLogId, pageSize, productId);
+            InventoryLog last = live.getLast();
+            if (live.getItems().size() == pageSize && last.getTimestamp() != null
+                    && last.getTimestamp().getTime() >= archive.getArchivedUntilMillis()) {
+                return live;
+            }
+            List<InventoryLog> older = archive.list(beforeTimestamp, beforeLogId, pageSize + 1, productId);
+            if (older.isEmpty()) {
+                return live;
+            }
+            // A lagging replica may still return rows that were just archived
+            List<InventoryLog> merged = new ArrayList<>(live.getItems());
+            Set<Integer> ids = new HashSet<>();
+            for (InventoryLog log : merged) {
+                ids.add(log.getLogId());
+            }
+            for (InventoryLog log : older) {
+                if (ids.add(log.getLogId())) {
+                    merged.add(log);
+                }
+            }
+            merged.sort(NEWEST_FIRST);
+            return merged.size() > pageSize ? Page.of(merged, pageSize) : new Page<>(List.copyOf(merged), live.hasMore());
+        } catch (IOException e) {
+            throw new SQLException("Cannot read the inventory log archive: " + e.getMessage(), e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public long lastLogId() throws SQLException {
+        return Math.max(base.lastLogId(), archive.getMaxLogId());
+    }
+
+    @Override
+    public Map<Integer, Long> netChanges(long afterLogId, int fromProductId, int toProductId) throws SQLException {
+        Lock lock = archive.readLock();
+        lock.lock();
+        try {
+            Map<Integer, Long> net = base.netChanges(afterLogId, fromProductId, toProductId);
+            archive.addNetChanges(afterLogId, fromProductId, toProductId, net);
+            return net;
+        } catch (IOException e) {
+            throw new SQLException("Cannot read the inventory log archive: " + e.getMessage(), e);
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.repository;
+
+import com.exceptions.OutOfStockException;
+import com.utilities.LogArchive;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.LocalDate;
+
+// JDBC repositories whose InventoryLog spans the live table and a LogArchive; everything else goes
+// straight to the wrapped backend. Installed below the stock ledger, so its recovery replays archived
+// rows too.
+public class ArchivedLogRepositories implements Repositories {
+
+    private static ArchivedLogRepositories installed;
+
+    private final Repositories base;
+    private final LogArchive archive;
+    private final ArchivedInventoryLogRepository inventoryLogs;
+    private final int retentionDays;
+
+    public ArchivedLogRepositories(Repositories base, LogArchive archive, int retentionDays) {
+        this.base = base;
+        this.archive = archive;
+        this.inventoryLogs = new ArchivedInventoryLogRepository(archive, base.inventoryLogs());
+        this.retentionDays = Math.max(1, retentionDays);
+    }
+
+    // ---------- Installation ----------
+
+    // Wrap the default JDBC repositories when -Dinventory.log.archiveDir is set
+    public static synchronized void installConfigured() {
+        String dir = System.getProperty("inventory.log.archiveDir");
+        if (installed != null || dir == null || dir.isBlank()) {
+            return;
+        }
+        if (!(Repositories.getDefault() instanceof JdbcRepositories)) {
+            System.err.println("-Dinventory.log.archiveDir needs the JDBC backend on one database; ignoring it");
+            return;
+        }
+        try {
+            LogArchive archive = LogArchive.open(Path.of(dir), Integer.getInteger("inventory.log.archiveCacheFiles", 8));
+            ArchivedLogRepositories repos = new ArchivedLogRepositories(Repositories.getDefault(), archive,
+                    Integer.getInteger("inventory.log.retentionDays", 30));
+            archive.startPeriodicArchival(repos.retentionDays, Long.getLong("inventory.log.archiveEveryMinutes", 60));
+            Repositories.setDefault(repos);
+            installed = repos;
+            System.out.println("Inventory log archive: " + archive);
+        } catch (SQLException | IOException e) {
+            System.err.println("Failed to open the inventory log archive, keeping every row in the table: " + e.getMessage());
+        }
+    }
+
+    public static ArchivedLogRepositories getInstalled() {
+        return installed;
+    }
+
+    public static synchronized void uninstall() {
+        ArchivedLogRepositories repos = installed;
+        if (repos != null) {
+            installed = null;
+            Repositories.setDefault(repos.base);
+            repos.archive.close();
+        }
+    }
+
+    // Archive the days older than the retention period now; returns the number of rows moved
+    public long archiveNow() throws SQLException, IOException {
+        return archive.archive(LocalDate.now().minusDays(retentionDays));
+    }
+
+    public LogArchive getArchive() {
+        return archive;
+    }
+
+    public Repositories getBase() {
+        return base;
+    }
+
+    // ---------- Repositories ----------
+
+    @Override
+    public ProductRepository products() {
+        return base.products();
+    }
+
+    @Override
+    public SupplierRepository suppliers() {
+        return base.suppliers();
+    }
+
+    @Override
+    public OrderRepository orders() {
+        return base.orders();
+    }
+
+    @Override
+    public OrderItemRepository orderItems() {
+        return base.orderItems();
+    }
+
+    @Override
+    public InventoryLogRepository inventoryLogs() {
+        return inventoryLogs;
+    }
+
+    @Override
+    public <T> T inTransaction(TransactionWork<T> work) throws SQLException, OutOfStockException {
+        return base.inTransaction(work);
+    }
+
+    @Override
+    public void afterCompletion(TransactionCallback callback) {
+        base.afterCompletion(callback);
+    }
+
+    @Override
+    public int sell(int productId, int quantity, String action) throws SQLException {
+        return base.sell(productId, quantity, action);
+    }
+}
@@ -0,0 +1,54 @@
+package com.repository;
+
+import com.utilities.DBConnection;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+// Where the JDBC repositories get their connections, e.g. DBConnection::getConnection or pool::borrow.
+// Callers close what they get; with a pool that hands the connection back.
+//
+// Reads that may be served slightly stale ask for a read connection (lookups by ID) or a report
+// connection (listings, reports). A plain source serves those from getConnection() too.
+public interface ConnectionSource {
+
+    Connection getConnection() throws SQLException;
+
+    default Connection getReadConnection() throws SQLException {
+        return getConnection();
+    }
+
+    default Connection getReportConnection() throws SQLException {
+        return getConnection();
+    }
+
+    // True if conn may be behind the primary, so what is read on it must not be cached
+    default boolean isReplica(Connection conn) {
+        return false;
+    }
+
+    // DBConnection's primary for writes and its replica routing for reads
+    static ConnectionSource dbConnection() {
+        return new ConnectionSource() {
+            @Override
+            public Connection getConnection() throws SQLException {
+                return DBConnection.getConnection();
+            }
+
+            @Override
+            public Connection getReadConnection() throws SQLException {
+                return DBConnection.getReadConnection();
+            }
+
+            @Override
+            public Connection getReportConnection() throws SQLException {
+                return DBConnection.getReportConnection();
+            }
+
+            @Override
+            public boolean isReplica(Connection conn) {
+                return DBConnection.isReplica(conn);
+            }
+        };
+    }
+}
@@ -0,0 +1,66 @@
+package com.repository;
+
+import com.CustomerOrder;
+import com.utilities.LruCache;
+import com.utilities.Page;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Newest page of each customer's order history (Order.getHistoryCache()), bounded by customer count.
+// Only the first page is kept: it is what a history view shows, and the one every new order changes.
+// Older pages are read from the database. Writers call invalidate(customer) once their order has
+// committed; loads pass generation(customer) to put() so a load that raced with one is dropped.
+public class CustomerHistoryCache {
+
+    private static final class Entry {
+        final int pageSize;
+        final Page<CustomerOrder> page;
+
+        Entry(int pageSize, Page<CustomerOrder> page) {
+            this.pageSize = pageSize;
+            this.page = page;
+        }
+    }
+
+    private final LruCache<String, Entry> cache;
+
+    public CustomerHistoryCache(int maxCustomers) {
+        cache = new LruCache<>(maxCustomers);
+    }
+
+    // A copy of the cached first page, or null
+    public Page<CustomerOrder> get(String customerName, int pageSize) {
+        Entry e = cache.get(customerName);
+        return e != null && e.pageSize == pageSize ? copy(e.page) : null;
+    }
+
+    public long generation(String customerName) {
+        return cache.generation(customerName);
+    }
+
+    public void put(String customerName, int pageSize, Page<CustomerOrder> firstPage, long generation) {
+        cache.putIfCurrent(customerName, new Entry(pageSize, copy(firstPage)), generation);
+    }
+
+    public void invalidate(String customerName) {
+        cache.invalidate(customerName);
+    }
+
+    public void clear() {
+        cache.clear();
+    }
+
+    private static Page<CustomerOrder> copy(Page<CustomerOrder> page) {
+        List<CustomerOrder> orders = new ArrayList<>(page.getItems().size());
+        for (CustomerOrder o : page.getItems()) {
+            orders.add(o.copy());
+        }
+        return new Page<>(orders, page.hasMore());
+    }
+
+    @Override
+    public String toString() {
+        return "CustomerHistoryCache" + cache.toString().substring("LruCache".length());
+    }
+}
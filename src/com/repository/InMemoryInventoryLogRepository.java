@@ -0,0 +1,108 @@
+package com.repository;
+
+import com.InventoryLog;
+import com.utilities.Page;
+
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Two indexes over the same rows: by log_id for netChanges/lastLogId, and by (timestamp, log_id)
+// descending for the newest-first keyset pages.
+public class InMemoryInventoryLogRepository implements InventoryLogRepository {
+
+    private static final Comparator<InventoryLog> NEWEST_FIRST =
+            Comparator.comparing(InventoryLog::getTimestamp).thenComparingInt(InventoryLog::getLogId).reversed();
+
+    private final InMemoryRepositories repos;
+    private final ConcurrentSkipListMap<Integer, InventoryLog> byId = new ConcurrentSkipListMap<>();
+    private final ConcurrentSkipListSet<InventoryLog> byTime = new ConcurrentSkipListSet<>(NEWEST_FIRST);
+    private final AtomicInteger lastId = new AtomicInteger();
+
+    InMemoryInventoryLogRepository(InMemoryRepositories repos) {
+        this.repos = repos;
+    }
+
+    @Override
+    public void append(InventoryLog log) throws SQLException {
+        int id = lastId.incrementAndGet();
+        // Like the column default, a missing timestamp is the insert time
+        Timestamp ts = log.getTimestamp() != null ? log.getTimestamp() : new Timestamp(System.currentTimeMillis());
+        InventoryLog row = new InventoryLog(id, log.getProductId(), log.getChangeQuantity(), log.getAction(), ts);
+        byId.put(id, row);
+        byTime.add(row);
+        repos.onRollback(() -> {
+            byTime.remove(row);
+            byId.remove(id);
+        });
+        InMemoryJournal journal = repos.journal();
+        if (journal != null) {
+            journal.logAppend(row);
+        }
+    }
+
+    @Override
+    public Page<InventoryLog> list(Timestamp beforeTimestamp, int beforeLogId, int pageSize, int productId) {
+        Page.checkSize(pageSize);
+        Iterable<InventoryLog> rows = beforeTimestamp != null
+                ? byTime.tailSet(new InventoryLog(beforeLogId, 0, 0, null, beforeTimestamp), false)
+                : byTime;
+        List<InventoryLog> logs = new ArrayList<>(pageSize + 1);
+        for (InventoryLog log : rows) {
+            if (productId <= 0 || log.getProductId() == productId) {
+                logs.add(copy(log));
+                if (logs.size() > pageSize) {
+                    break;
+                }
+            }
+        }
+        return Page.of(logs, pageSize);
+    }
+
+    @Override
+    public long lastLogId() {
+        return byId.isEmpty() ? 0 : byId.lastKey();
+    }
+
+    @Override
+    public Map<Integer, Long> netChanges(long afterLogId, int fromProductId, int toProductId) {
+        Map<Integer, Long> net = new HashMap<>();
+        int after = (int) Math.min(afterLogId, Integer.MAX_VALUE);
+        for (InventoryLog log : byId.tailMap(after, false).values()) {
+            int productId = log.getProductId();
+            if (productId >= fromProductId && productId <= toProductId) {
+                net.merge(productId, (long) log.getChangeQuantity(), Long::sum);
+            }
+        }
+        return net;
+    }
+
+    // ---------- Write-ahead log replay ----------
+
+    void restore(InventoryLog row) {
+        if (byId.put(row.getLogId(), row) == null) {
+            byTime.add(row);
+        }
+        lastId.accumulateAndGet(row.getLogId(), Math::max);
+    }
+
+    int lastId() {
+        return lastId.get();
+    }
+
+    void restoreLastId(int id) {
+        lastId.accumulateAndGet(id, Math::max);
+    }
+
+    private static InventoryLog copy(InventoryLog l) {
+        return new InventoryLog(l.getLogId(), l.getProductId(), l.getChangeQuantity(), l.getAction(),
+                (Timestamp) l.getTimestamp().clone());
+    }
+}
@@ -0,0 +1,668 @@
+package com.repository;
+
+import com.InventoryLog;
+import com.Order;
+import com.OrderItem;
+import com.Product;
+import com.Supplier;
+import com.utilities.Page;
+import com.utilities.WriteAheadLog;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.sql.Date;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// Makes the in-memory backend durable: every write is recorded in a WriteAheadLog, and the log is
+// replayed on startup. Turned on with -Dinventory.wal.dir=<dir> together with
+// -Dinventory.repository=memory.
+//
+// A transaction's records are collected on its thread and appended as one log entry when the work
+// is done. The commit waits for the entry (and, with the default BATCH sync, its fsync), so a
+// committed transaction survives a crash; if the append fails the transaction rolls back instead.
+// Rolled-back work never reaches the log. A write outside a transaction is its own entry.
+//
+// Stock changes are logged as deltas, which add up to the same stock in any order. Everything else
+// is logged with absolute values and a sequence number taken while the row changes; replay keeps the
+// newest value per row, so entries from concurrent transactions may land in either order. Deleted
+// rows are remembered during replay so an older entry cannot bring them back.
+//
+// On startup (after replay) and on a clean shutdown the whole store is written out as a checkpoint
+// and the older segments are deleted, so replay never reads more than one run's worth of log.
+public class InMemoryJournal {
+
+    private static final byte PRODUCT_PUT = 1;
+    private static final byte PRODUCT_PRICE = 2;
+    private static final byte PRODUCT_DELETE = 3;
+    private static final byte STOCK_DELTA = 4;
+    private static final byte SUPPLIER_PUT = 5;
+    private static final byte SUPPLIER_NAME = 6;
+    private static final byte SUPPLIER_DELETE = 7;
+    private static final byte ORDER_PUT = 8;
+    private static final byte ORDER_STATUS = 9;
+    private static final byte ORDER_DELETE = 10;
+    private static final byte ITEM_PUT = 11;
+    private static final byte ITEM_DELETE = 12;
+    private static final byte LOG_APPEND = 13;
+    private static final byte LAST_IDS = 14;
+
+    // Checkpoint entries hold this many records each
+    private static final int CHECKPOINT_RECORDS = 1000;
+
+    private static volatile InMemoryJournal installed;
+
+    private final InMemoryRepositories repos;
+    private final WriteAheadLog log;
+    private final AtomicLong seq = new AtomicLong();
+    private final ThreadLocal<Entry> current = new ThreadLocal<>();
+    private final LongAdder records = new LongAdder();
+    private final LongAdder commits = new LongAdder();
+    private long replayedEntries;
+    private long replayedRecords;
+    private long replayMillis;
+
+    // Newest sequence number per row while replaying; key is (table << 32) | id
+    private Map<Long, Long> replayed;
+
+    // Records of one log entry
+    private static final class Entry {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        final DataOutputStream out = new DataOutputStream(bytes);
+        int records;
+    }
+
+    private interface Encoder {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    private InMemoryJournal(InMemoryRepositories repos, WriteAheadLog log) {
+        this.repos = repos;
+        this.log = log;
+    }
+
+    // Replay log into repos (which should be empty), checkpoint, and start journaling repos' writes
+    public static InMemoryJournal open(InMemoryRepositories repos, WriteAheadLog log) throws IOException {
+        InMemoryJournal journal = new InMemoryJournal(repos, log);
+        journal.replay();
+        log.checkpoint(journal.snapshot());
+        log.start();
+        repos.attach(journal);
+        return journal;
+    }
+
+    // ---------- Installation ----------
+
+    // Attach a journal to the default in-memory repositories when -Dinventory.wal.dir is set
+    public static synchronized void installConfigured() {
+        String dir = System.getProperty("inventory.wal.dir");
+        if (installed != null || dir == null || dir.isBlank()) {
+            return;
+        }
+        if (!(Repositories.getDefault() instanceof InMemoryRepositories)) {
+            System.err.println("-Dinventory.wal.dir needs -Dinventory.repository=memory; ignoring it");
+            return;
+        }
+        try {
+            WriteAheadLog log = new WriteAheadLog(Path.of(dir),
+                    WriteAheadLog.Sync.valueOf(System.getProperty("inventory.wal.sync", "BATCH").toUpperCase(Locale.ROOT)),
+                    Long.getLong("inventory.wal.syncMillis", 100),
+                    Long.getLong("inventory.wal.segmentBytes", 64L << 20),
+                    Integer.getInteger("inventory.wal.queueCapacity", 10_000));
+            installed = open((InMemoryRepositories) Repositories.getDefault(), log);
+            System.out.println("Write-ahead log: " + installed);
+        } catch (IOException | IllegalArgumentException e) {
+            // Whatever was replayed so far is incomplete; start empty and leave the log as it is
+            Repositories.setDefault(Repositories.inMemory());
+            System.err.println("Failed to open the write-ahead log in " + dir
+                    + ", running in memory without it (the log was left untouched): " + e.getMessage());
+        }
+    }
+
+    public static InMemoryJournal getInstalled() {
+        return installed;
+    }
+
+    // Drain the log, then checkpoint so the next start replays only the checkpoint
+    public static synchronized void uninstall() {
+        InMemoryJournal journal = installed;
+        if (journal != null) {
+            installed = null;
+            journal.close();
+        }
+    }
+
+    public void close() {
+        log.close();
+        repos.attach(null);
+        try {
+            log.checkpoint(snapshot());
+        } catch (IOException e) {
+            System.err.println("Write-ahead log checkpoint failed, the next start replays the whole log: " + e.getMessage());
+        }
+    }
+
+    // ---------- Recording (called by the in-memory repositories) ----------
+
+    long nextSeq() {
+        return seq.incrementAndGet();
+    }
+
+    void productPut(long s, Product p) throws SQLException {
+        record(out -> {
+            out.writeByte(PRODUCT_PUT);
+            out.writeLong(s);
+            writeProduct(out, p);
+        });
+    }
+
+    void productPrice(long s, int productId, double price) throws SQLException {
+        record(out -> {
+            out.writeByte(PRODUCT_PRICE);
+            out.writeLong(s);
+            out.writeInt(productId);
+            out.writeDouble(price);
+        });
+    }
+
+    void productDelete(long s, int productId) throws SQLException {
+        record(out -> {
+            out.writeByte(PRODUCT_DELETE);
+            out.writeLong(s);
+            out.writeInt(productId);
+        });
+    }
+
+    void stockDelta(int productId, int delta) throws SQLException {
+        record(out -> {
+            out.writeByte(STOCK_DELTA);
+            out.writeInt(productId);
+            out.writeInt(delta);
+        });
+    }
+
+    void supplierPut(long s, Supplier supplier) throws SQLException {
+        record(out -> {
+            out.writeByte(SUPPLIER_PUT);
+            out.writeLong(s);
+            writeSupplier(out, supplier);
+        });
+    }
+
+    void supplierName(long s, int supplierId, String name) throws SQLException {
+        record(out -> {
+            out.writeByte(SUPPLIER_NAME);
+            out.writeLong(s);
+            out.writeInt(supplierId);
+            writeString(out, name);
+        });
+    }
+
+    void supplierDelete(long s, int supplierId) throws SQLException {
+        record(out -> {
+            out.writeByte(SUPPLIER_DELETE);
+            out.writeLong(s);
+            out.writeInt(supplierId);
+        });
+    }
+
+    void orderPut(long s, Order order) throws SQLException {
+        record(out -> {
+            out.writeByte(ORDER_PUT);
+            out.writeLong(s);
+            writeOrder(out, order);
+        });
+    }
+
+    void orderStatus(long s, int orderId, String status) throws SQLException {
+        record(out -> {
+            out.writeByte(ORDER_STATUS);
+            out.writeLong(s);
+            out.writeInt(orderId);
+            writeString(out, status);
+        });
+    }
+
+    void orderDelete(long s, int orderId) throws SQLException {
+        record(out -> {
+            out.writeByte(ORDER_DELETE);
+            out.writeLong(s);
+            out.writeInt(orderId);
+        });
+    }
+
+    void itemPut(long s, OrderItem item) throws SQLException {
+        record(out -> {
+            out.writeByte(ITEM_PUT);
+            out.writeLong(s);
+            writeItem(out, item);
+        });
+    }
+
+    void itemDelete(long s, int orderItemId) throws SQLException {
+        record(out -> {
+            out.writeByte(ITEM_DELETE);
+            out.writeLong(s);
+            out.writeInt(orderItemId);
+        });
+    }
+
+    void logAppend(InventoryLog row) throws SQLException {
+        record(out -> {
+            out.writeByte(LOG_APPEND);
+            writeLog(out, row);
+        });
+    }
+
+    private void record(Encoder encoder) throws SQLException {
+        boolean inTransaction = repos.isInTransaction();
+        Entry entry = inTransaction ? current.get() : new Entry();
+        if (entry == null) {
+            entry = new Entry();
+            current.set(entry);
+        }
+        try {
+            encoder.write(entry.out);
+        } catch (IOException e) {
+            throw new IllegalStateException(e); // in-memory stream
+        }
+        entry.records++;
+        records.increment();
+        if (!inTransaction) {
+            append(entry);
+        }
+    }
+
+    // The transaction's work is done: make its records durable before it counts as committed
+    void commit() throws SQLException {
+        Entry entry = current.get();
+        current.remove();
+        if (entry != null && entry.records > 0) {
+            append(entry);
+        }
+    }
+
+    // The transaction rolled back (or its commit failed)
+    void discard() {
+        current.remove();
+    }
+
+    private void append(Entry entry) throws SQLException {
+        try {
+            // The log completes every future it hands out, exceptionally if it is closed under us
+            log.append(entry.bytes.toByteArray()).get();
+            commits.increment();
+        } catch (ExecutionException e) {
+            throw new SQLException("Write-ahead log append failed: " + e.getCause().getMessage(), e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for the write-ahead log", e);
+        }
+    }
+
+    // ---------- Replay ----------
+
+    private void replay() throws IOException {
+        long start = System.currentTimeMillis();
+        replayed = new HashMap<>();
+        try {
+            replayedEntries = log.replay(payload -> {
+                DataInputStream in = new DataInputStream(
+                        new ByteArrayInputStream(payload.array(), payload.position(), payload.remaining()));
+                while (in.available() > 0) {
+                    apply(in);
+                    replayedRecords++;
+                }
+            });
+        } finally {
+            replayed = null;
+        }
+        replayMillis = System.currentTimeMillis() - start;
+    }
+
+    private void apply(DataInputStream in) throws IOException {
+        InMemoryProductRepository products = repos.products;
+        InMemorySupplierRepository suppliers = repos.suppliers;
+        InMemoryOrderRepository orders = repos.orders;
+        InMemoryOrderItemRepository orderItems = repos.orderItems;
+        try {
+            byte type = in.readByte();
+            switch (type) {
+                case PRODUCT_PUT -> {
+                    long s = in.readLong();
+                    Product p = readProduct(in);
+                    if (newer(PRODUCT_PUT, p.getProductId(), s)) {
+                        products.restore(p);
+                    }
+                }
+                case PRODUCT_PRICE -> {
+                    long s = in.readLong();
+                    int id = in.readInt();
+                    double price = in.readDouble();
+                    if (products.findById(id) != null && newer(PRODUCT_PUT, id, s)) {
+                        products.updatePrice(id, price);
+                    }
+                }
+                case PRODUCT_DELETE -> {
+                    long s = in.readLong();
+                    int id = in.readInt();
+                    if (newer(PRODUCT_PUT, id, s)) {
+                        products.delete(id);
+                    }
+                }
+                case STOCK_DELTA -> products.restoreStock(in.readInt(), in.readInt());
+                case SUPPLIER_PUT -> {
+                    long s = in.readLong();
+                    Supplier supplier = readSupplier(in);
+                    if (newer(SUPPLIER_PUT, supplier.getSupplierId(), s)) {
+                        suppliers.restore(supplier);
+                    }
+                }
+                case SUPPLIER_NAME -> {
+                    long s = in.readLong();
+                    int id = in.readInt();
+                    String name = readString(in);
+                    if (suppliers.exists(id) && newer(SUPPLIER_PUT, id, s)) {
+                        suppliers.updateName(id, name);
+                    }
+                }
+                case SUPPLIER_DELETE -> {
+                    long s = in.readLong();
+                    int id = in.readInt();
+                    if (newer(SUPPLIER_PUT, id, s)) {
+                        suppliers.delete(id);
+                    }
+                }
+                case ORDER_PUT -> {
+                    long s = in.readLong();
+                    Order order = readOrder(in);
+                    if (newer(ORDER_PUT, order.getOrderId(), s)) {
+                        orders.restore(order);
+                    }
+                }
+                case ORDER_STATUS -> {
+                    long s = in.readLong();
+                    int id = in.readInt();
+                    String status = readString(in);
+                    if (orders.exists(id) && newer(ORDER_PUT, id, s)) {
+                        orders.updateStatus(id, status);
+                    }
+                }
+                case ORDER_DELETE -> {
+                    long s = in.readLong();
+                    int id = in.readInt();
+                    if (newer(ORDER_PUT, id, s)) {
+                        orders.delete(id);
+                    }
+                }
+                case ITEM_PUT -> {
+                    long s = in.readLong();
+                    OrderItem item = readItem(in);
+                    if (newer(ITEM_PUT, item.getOrderItemId(), s)) {
+                        orderItems.restore(item);
+                    }
+                }
+                case ITEM_DELETE -> {
+                    long s = in.readLong();
+                    int id = in.readInt();
+                    if (newer(ITEM_PUT, id, s)) {
+                        orderItems.delete(id);
+                    }
+                }
+                case LOG_APPEND -> repos.inventoryLogs.restore(readLog(in));
+                case LAST_IDS -> {
+                    products.restoreLastId(in.readInt());
+                    suppliers.restoreLastId(in.readInt());
+                    orders.restoreLastId(in.readInt());
+                    orderItems.restoreLastId(in.readInt());
+                    repos.inventoryLogs.restoreLastId(in.readInt());
+                }
+                default -> throw new IOException("Unknown write-ahead log record type " + type);
+            }
+        } catch (SQLException e) {
+            throw new IOException(e); // the in-memory repositories do not fail outside the journal
+        }
+    }
+
+    // True (and remembered) when s is the newest sequence number seen for the row
+    private boolean newer(byte table, int id, long s) {
+        seq.accumulateAndGet(s, Math::max); // new records continue after the replayed ones
+        long key = ((long) table << 32) | (id & 0xFFFFFFFFL);
+        Long last = replayed.get(key);
+        if (last != null && last >= s) {
+            return false;
+        }
+        replayed.put(key, s);
+        return true;
+    }
+
+    // ---------- Checkpoint ----------
+
+    // The whole store as log entries of absolute records
+    private List<byte[]> snapshot() {
+        List<byte[]> entries = new ArrayList<>();
+        Entry[] entry = {new Entry()};
+        Checkpoint checkpoint = encoder -> {
+            try {
+                encoder.write(entry[0].out);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+            if (++entry[0].records == CHECKPOINT_RECORDS) {
+                entries.add(entry[0].bytes.toByteArray());
+                entry[0] = new Entry();
+            }
+        };
+
+        int after = Integer.MIN_VALUE;
+        Page<Product> products;
+        do {
+            products = repos.products.list(after, Page.MAX_SIZE, null);
+            for (Product p : products.getItems()) {
+                long s = nextSeq();
+                checkpoint.add(out -> {
+                    out.writeByte(PRODUCT_PUT);
+                    out.writeLong(s);
+                    writeProduct(out, p);
+                });
+                after = p.getProductId();
+            }
+        } while (products.hasMore());
+
+        after = Integer.MIN_VALUE;
+        Page<Supplier> suppliers;
+        do {
+            suppliers = repos.suppliers.list(after, Page.MAX_SIZE, null);
+            for (Supplier supplier : suppliers.getItems()) {
+                long s = nextSeq();
+                checkpoint.add(out -> {
+                    out.writeByte(SUPPLIER_PUT);
+                    out.writeLong(s);
+                    writeSupplier(out, supplier);
+                });
+                after = supplier.getSupplierId();
+            }
+        } while (suppliers.hasMore());
+
+        after = Integer.MIN_VALUE;
+        Page<Order> orders;
+        do {
+            orders = repos.orders.list(after, Page.MAX_SIZE, null);
+            for (Order order : orders.getItems()) {
+                long s = nextSeq();
+                checkpoint.add(out -> {
+                    out.writeByte(ORDER_PUT);
+                    out.writeLong(s);
+                    writeOrder(out, order);
+                });
+                after = order.getOrderId();
+            }
+        } while (orders.hasMore());
+
+        after = Integer.MIN_VALUE;
+        Page<OrderItem> items;
+        do {
+            items = repos.orderItems.list(after, Page.MAX_SIZE, 0);
+            for (OrderItem item : items.getItems()) {
+                long s = nextSeq();
+                checkpoint.add(out -> {
+                    out.writeByte(ITEM_PUT);
+                    out.writeLong(s);
+                    writeItem(out, item);
+                });
+                after = item.getOrderItemId();
+            }
+        } while (items.hasMore());
+
+        Timestamp before = null;
+        int beforeLogId = 0;
+        Page<InventoryLog> logs;
+        do {
+            logs = repos.inventoryLogs.list(before, beforeLogId, Page.MAX_SIZE, 0);
+            for (InventoryLog row : logs.getItems()) {
+                checkpoint.add(out -> {
+                    out.writeByte(LOG_APPEND);
+                    writeLog(out, row);
+                });
+                before = row.getTimestamp();
+                beforeLogId = row.getLogId();
+            }
+        } while (logs.hasMore());
+
+        // IDs of deleted rows are not handed out again
+        int[] lastIds = {repos.products.lastId(), repos.suppliers.lastId(), repos.orders.lastId(),
+                repos.orderItems.lastId(), repos.inventoryLogs.lastId()};
+        checkpoint.add(out -> {
+            out.writeByte(LAST_IDS);
+            for (int id : lastIds) {
+                out.writeInt(id);
+            }
+        });
+        if (entry[0].records > 0) {
+            entries.add(entry[0].bytes.toByteArray());
+        }
+        return entries;
+    }
+
+    private interface Checkpoint {
+        void add(Encoder encoder);
+    }
+
+    // ---------- Encoding ----------
+
+    private static void writeProduct(DataOutputStream out, Product p) throws IOException {
+        out.writeInt(p.getProductId());
+        writeString(out, p.getName());
+        writeString(out, p.getDescription());
+        out.writeDouble(p.getPrice());
+        out.writeInt(p.getStockQuantity());
+        out.writeInt(p.getSupplierId());
+    }
+
+    private static Product readProduct(DataInputStream in) throws IOException {
+        return new Product(in.readInt(), readString(in), readString(in), in.readDouble(), in.readInt(), in.readInt());
+    }
+
+    private static void writeSupplier(DataOutputStream out, Supplier s) throws IOException {
+        out.writeInt(s.getSupplierId());
+        writeString(out, s.getName());
+        writeString(out, s.getContactEmail());
+        writeString(out, s.getPhone());
+    }
+
+    private static Supplier readSupplier(DataInputStream in) throws IOException {
+        return new Supplier(in.readInt(), readString(in), readString(in), readString(in));
+    }
+
+    private static void writeOrder(DataOutputStream out, Order o) throws IOException {
+        out.writeInt(o.getOrderId());
+        out.writeLong(o.getOrderDate() != null ? o.getOrderDate().getTime() : Long.MIN_VALUE);
+        writeString(out, o.getCustomerName());
+        writeString(out, o.getStatus());
+    }
+
+    private static Order readOrder(DataInputStream in) throws IOException {
+        int id = in.readInt();
+        long date = in.readLong();
+        return new Order(id, date != Long.MIN_VALUE ? new Date(date) : null, readString(in), readString(in));
+    }
+
+    private static void writeItem(DataOutputStream out, OrderItem i) throws IOException {
+        out.writeInt(i.getOrderItemId());
+        out.writeInt(i.getOrderId());
+        out.writeInt(i.getProductId());
+        out.writeInt(i.getQuantity());
+        out.writeDouble(i.getUnitPrice());
+    }
+
+    private static OrderItem readItem(DataInputStream in) throws IOException {
+        return new OrderItem(in.readInt(), in.readInt(), in.readInt(), in.readInt(), in.readDouble());
+    }
+
+    // The timestamp is stored with its nanos, which order logs written in the same millisecond
+    private static void writeLog(DataOutputStream out, InventoryLog l) throws IOException {
+        out.writeInt(l.getLogId());
+        out.writeInt(l.getProductId());
+        out.writeInt(l.getChangeQuantity());
+        writeString(out, l.getAction());
+        out.writeLong(l.getTimestamp().getTime());
+        out.writeInt(l.getTimestamp().getNanos());
+    }
+
+    private static InventoryLog readLog(DataInputStream in) throws IOException {
+        int id = in.readInt();
+        int productId = in.readInt();
+        int change = in.readInt();
+        String action = readString(in);
+        Timestamp ts = new Timestamp(in.readLong());
+        ts.setNanos(in.readInt());
+        return new InventoryLog(id, productId, change, action, ts);
+    }
+
+    // Length-prefixed UTF-8; -1 for null
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        if (s == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // ---------- Stats ----------
+
+    public WriteAheadLog getLog() {
+        return log;
+    }
+
+    @Override
+    public String toString() {
+        return "InMemoryJournal{replayedEntries=" + replayedEntries + ", replayedRecords=" + replayedRecords
+                + ", replayMillis=" + replayMillis + ", records=" + records.sum() + ", commits=" + commits.sum()
+                + ", " + log + '}';
+    }
+}
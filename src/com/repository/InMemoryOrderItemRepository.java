@@ -0,0 +1,97 @@
+package com.repository;
+
+import com.OrderItem;
+import com.utilities.Page;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class InMemoryOrderItemRepository implements OrderItemRepository {
+
+    private final InMemoryRepositories repos;
+    private final ConcurrentSkipListMap<Integer, OrderItem> rows = new ConcurrentSkipListMap<>();
+    private final AtomicInteger lastId = new AtomicInteger();
+
+    InMemoryOrderItemRepository(InMemoryRepositories repos) {
+        this.repos = repos;
+    }
+
+    @Override
+    public int create(OrderItem item) throws SQLException {
+        InMemoryJournal journal = repos.journal();
+        int id = lastId.incrementAndGet();
+        item.setOrderItemId(id);
+        long seq = journal != null ? journal.nextSeq() : 0;
+        rows.put(id, copy(item));
+        repos.onRollback(() -> rows.remove(id));
+        if (journal != null) {
+            journal.itemPut(seq, item);
+        }
+        return 1;
+    }
+
+    // Filtering by order scans forward from the cursor; there is no secondary index by order_id
+    @Override
+    public Page<OrderItem> list(int afterOrderItemId, int pageSize, int orderId) {
+        Page.checkSize(pageSize);
+        List<OrderItem> items = new ArrayList<>(pageSize + 1);
+        for (OrderItem item : rows.tailMap(afterOrderItemId, false).values()) {
+            if (orderId <= 0 || item.getOrderId() == orderId) {
+                items.add(copy(item));
+                if (items.size() > pageSize) {
+                    break;
+                }
+            }
+        }
+        return Page.of(items, pageSize);
+    }
+
+    @Override
+    public int delete(int orderItemId) throws SQLException {
+        InMemoryJournal journal = repos.journal();
+        OrderItem removed = rows.remove(orderItemId);
+        if (removed == null) {
+            return 0;
+        }
+        long seq = journal != null ? journal.nextSeq() : 0;
+        repos.onRollback(() -> rows.putIfAbsent(orderItemId, removed));
+        if (journal != null) {
+            journal.itemDelete(seq, orderItemId);
+        }
+        return 1;
+    }
+
+    // Copies of the lines of the given orders, in order_item_id order
+    List<OrderItem> itemsOf(Set<Integer> orderIds) {
+        List<OrderItem> items = new ArrayList<>();
+        for (OrderItem item : rows.values()) {
+            if (orderIds.contains(item.getOrderId())) {
+                items.add(copy(item));
+            }
+        }
+        return items;
+    }
+
+    // ---------- Write-ahead log replay ----------
+
+    void restore(OrderItem item) {
+        rows.put(item.getOrderItemId(), copy(item));
+        lastId.accumulateAndGet(item.getOrderItemId(), Math::max);
+    }
+
+    int lastId() {
+        return lastId.get();
+    }
+
+    void restoreLastId(int id) {
+        lastId.accumulateAndGet(id, Math::max);
+    }
+
+    private static OrderItem copy(OrderItem i) {
+        return new OrderItem(i.getOrderItemId(), i.getOrderId(), i.getProductId(), i.getQuantity(), i.getUnitPrice());
+    }
+}
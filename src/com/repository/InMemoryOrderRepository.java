@@ -0,0 +1,194 @@
+package com.repository;
+
+import com.CustomerOrder;
+import com.InventoryLog;
+import com.Order;
+import com.OrderItem;
+import com.exceptions.OutOfStockException;
+import com.utilities.Page;
+
+import java.sql.Date;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class InMemoryOrderRepository implements OrderRepository {
+
+    private final InMemoryRepositories repos;
+    private final InMemoryProductRepository products;
+    private final InMemoryOrderItemRepository orderItems;
+    private final InMemoryInventoryLogRepository inventoryLogs;
+    private final ConcurrentSkipListMap<Integer, Order> rows = new ConcurrentSkipListMap<>();
+    private final AtomicInteger lastId = new AtomicInteger();
+
+    InMemoryOrderRepository(InMemoryRepositories repos, InMemoryProductRepository products,
+                            InMemoryOrderItemRepository orderItems, InMemoryInventoryLogRepository inventoryLogs) {
+        this.repos = repos;
+        this.products = products;
+        this.orderItems = orderItems;
+        this.inventoryLogs = inventoryLogs;
+    }
+
+    @Override
+    public int create(Order order) throws SQLException {
+        InMemoryJournal journal = repos.journal();
+        int id = lastId.incrementAndGet();
+        order.setOrderId(id);
+        long seq = journal != null ? journal.nextSeq() : 0;
+        rows.put(id, copy(order));
+        repos.onRollback(() -> rows.remove(id));
+        if (journal != null) {
+            journal.orderPut(seq, order);
+        }
+        return id;
+    }
+
+    // Lines are taken in product ID order, like the JDBC batch; a short line undoes the ones before it
+    @Override
+    public int submit(Order order, List<OrderItem> items) throws SQLException, OutOfStockException {
+        if (items.isEmpty()) {
+            throw new IllegalArgumentException("An order needs at least one item");
+        }
+        List<OrderItem> byProduct = new ArrayList<>(items);
+        byProduct.sort(Comparator.comparingInt(OrderItem::getProductId));
+
+        return repos.inTransaction(() -> {
+            int orderId = create(order);
+            for (OrderItem item : byProduct) {
+                if (item.getQuantity() <= 0) {
+                    throw new IllegalArgumentException("Quantity must be greater than 0 for product " + item.getProductId());
+                }
+                if (products.decrementIfPresent(item.getProductId(), item.getQuantity()) == ProductRepository.OUT_OF_STOCK) {
+                    int productId = item.getProductId();
+                    throw new OutOfStockException(productId, "Not enough stock (or no such product) for product ID: " + productId);
+                }
+            }
+            for (OrderItem item : items) {
+                item.setOrderId(orderId);
+                orderItems.create(item);
+            }
+            Timestamp now = new Timestamp(System.currentTimeMillis());
+            for (OrderItem item : byProduct) {
+                inventoryLogs.append(new InventoryLog(
+                        0, item.getProductId(), -item.getQuantity(), "Order Processed - Order " + orderId, now));
+            }
+            return orderId;
+        });
+    }
+
+    @Override
+    public boolean exists(int orderId) {
+        return rows.containsKey(orderId);
+    }
+
+    @Override
+    public Page<Order> list(int afterOrderId, int pageSize, String status) {
+        Page.checkSize(pageSize);
+        List<Order> orders = new ArrayList<>(pageSize + 1);
+        for (Order o : rows.tailMap(afterOrderId, false).values()) {
+            if (status == null || status.equalsIgnoreCase(o.getStatus())) {
+                orders.add(copy(o));
+                if (orders.size() > pageSize) {
+                    break;
+                }
+            }
+        }
+        return Page.of(orders, pageSize);
+    }
+
+    // Scans every order and, for the page, every line: like the in-memory order item listing there
+    // is no secondary index by customer or order
+    @Override
+    public Page<CustomerOrder> listByCustomer(String customerName, Date beforeDate, int beforeOrderId, int pageSize) {
+        Page.checkSize(pageSize);
+        Comparator<Order> newestFirst = Comparator.comparing(Order::getOrderDate).thenComparingInt(Order::getOrderId).reversed();
+        List<Order> matching = new ArrayList<>();
+        for (Order o : rows.values()) {
+            if (!o.getCustomerName().equals(customerName)) {
+                continue;
+            }
+            if (beforeDate != null) {
+                int c = o.getOrderDate().compareTo(beforeDate);
+                if (c > 0 || (c == 0 && o.getOrderId() >= beforeOrderId)) {
+                    continue;
+                }
+            }
+            matching.add(o);
+        }
+        matching.sort(newestFirst);
+
+        Page<Order> headers = Page.of(matching, pageSize);
+        Map<Integer, CustomerOrder> byId = new HashMap<>();
+        List<CustomerOrder> orders = new ArrayList<>(headers.getItems().size());
+        for (Order o : headers.getItems()) {
+            CustomerOrder co = new CustomerOrder(copy(o), new ArrayList<>());
+            byId.put(o.getOrderId(), co);
+            orders.add(co);
+        }
+        for (OrderItem item : orderItems.itemsOf(byId.keySet())) {
+            byId.get(item.getOrderId()).getItems().add(item);
+        }
+        return new Page<>(orders, headers.hasMore());
+    }
+
+    @Override
+    public int updateStatus(int orderId, String newStatus) throws SQLException {
+        InMemoryJournal journal = repos.journal();
+        Order[] old = new Order[1];
+        long[] seq = new long[1];
+        Order updated = rows.computeIfPresent(orderId, (id, o) -> {
+            old[0] = o;
+            seq[0] = journal != null ? journal.nextSeq() : 0;
+            return new Order(id, o.getOrderDate(), o.getCustomerName(), newStatus);
+        });
+        if (updated == null) {
+            return 0;
+        }
+        repos.onRollback(() -> rows.replace(orderId, updated, old[0]));
+        if (journal != null) {
+            journal.orderStatus(seq[0], orderId, newStatus);
+        }
+        return 1;
+    }
+
+    @Override
+    public int delete(int orderId) throws SQLException {
+        InMemoryJournal journal = repos.journal();
+        Order removed = rows.remove(orderId);
+        if (removed == null) {
+            return 0;
+        }
+        long seq = journal != null ? journal.nextSeq() : 0;
+        repos.onRollback(() -> rows.putIfAbsent(orderId, removed));
+        if (journal != null) {
+            journal.orderDelete(seq, orderId);
+        }
+        return 1;
+    }
+
+    // ---------- Write-ahead log replay ----------
+
+    void restore(Order order) {
+        rows.put(order.getOrderId(), copy(order));
+        lastId.accumulateAndGet(order.getOrderId(), Math::max);
+    }
+
+    int lastId() {
+        return lastId.get();
+    }
+
+    void restoreLastId(int id) {
+        lastId.accumulateAndGet(id, Math::max);
+    }
+
+    private static Order copy(Order o) {
+        Date date = o.getOrderDate() != null ? new Date(o.getOrderDate().getTime()) : null;
+        return new Order(o.getOrderId(), date, o.getCustomerName(), o.getStatus());
+    }
+}
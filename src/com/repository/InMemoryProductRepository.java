@@ -0,0 +1,254 @@
+package com.repository;
+
+import com.Product;
+import com.utilities.Page;
+import com.utilities.StockCounterStore;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Descriptive columns live in the row map; stock lives in a StockCounterStore, so sales and stock
+// updates are CASes on an int array instead of one AtomicInteger per product
+public class InMemoryProductRepository implements ProductRepository {
+
+    // Descriptive columns are replaced as a whole
+    private static final class Row {
+        volatile Product details;
+
+        Row(Product details) {
+            this.details = details;
+        }
+    }
+
+    private final InMemoryRepositories repos;
+    private final ConcurrentSkipListMap<Integer, Row> rows = new ConcurrentSkipListMap<>();
+    private final StockCounterStore stock =
+            new StockCounterStore(Integer.getInteger("inventory.memory.expectedProducts", 1 << 16));
+    private final AtomicInteger lastId = new AtomicInteger();
+
+    InMemoryProductRepository(InMemoryRepositories repos) {
+        this.repos = repos;
+    }
+
+    @Override
+    public int create(Product product) throws SQLException {
+        InMemoryJournal journal = repos.journal();
+        int id = lastId.incrementAndGet();
+        product.setProductId(id);
+        long seq = journal != null ? journal.nextSeq() : 0;
+        stock.put(id, product.getStockQuantity());
+        rows.put(id, new Row(JdbcProductRepository.copy(product)));
+        repos.onRollback(() -> {
+            rows.remove(id);
+            stock.remove(id);
+        });
+        if (journal != null) {
+            journal.productPut(seq, product);
+        }
+        return id;
+    }
+
+    @Override
+    public Product findById(int productId) {
+        Row row = rows.get(productId);
+        return row != null ? toProduct(row) : null;
+    }
+
+    // Name filter is a case-insensitive substring match, like LIKE '%x%' under MySQL's default collation
+    @Override
+    public Page<Product> list(int afterProductId, int pageSize, String nameFilter) {
+        Page.checkSize(pageSize);
+        String needle = nameFilter != null ? nameFilter.toLowerCase(Locale.ROOT) : null;
+        List<Product> products = new ArrayList<>(pageSize + 1);
+        for (Row row : rows.tailMap(afterProductId, false).values()) {
+            Product p = toProduct(row);
+            if (p == null) {
+                continue;
+            }
+            if (needle == null || (p.getName() != null && p.getName().toLowerCase(Locale.ROOT).contains(needle))) {
+                products.add(p);
+                if (products.size() > pageSize) {
+                    break;
+                }
+            }
+        }
+        return Page.of(products, pageSize);
+    }
+
+    @Override
+    public int updatePrice(int productId, double newPrice) throws SQLException {
+        InMemoryJournal journal = repos.journal();
+        Row row = rows.get(productId);
+        if (row == null) {
+            return 0;
+        }
+        long seq;
+        synchronized (row) {
+            seq = journal != null ? journal.nextSeq() : 0; // same order as the updates
+            Product old = row.details;
+            Product updated = JdbcProductRepository.copy(old);
+            updated.setPrice(newPrice);
+            row.details = updated;
+            repos.onRollback(() -> {
+                synchronized (row) {
+                    if (row.details == updated) { // a later update already replaced ours and wins
+                        row.details = old;
+                    }
+                }
+            });
+        }
+        if (journal != null) {
+            journal.productPrice(seq, productId, newPrice);
+        }
+        return 1;
+    }
+
+    @Override
+    public int delete(int productId) throws SQLException {
+        InMemoryJournal journal = repos.journal();
+        Row row = rows.remove(productId);
+        if (row == null) {
+            return 0;
+        }
+        long seq = journal != null ? journal.nextSeq() : 0;
+        int old = stock.remove(productId);
+        repos.onRollback(() -> {
+            if (old != StockCounterStore.MISSING) {
+                stock.putIfAbsent(productId, old);
+            }
+            rows.putIfAbsent(productId, row);
+        });
+        if (journal != null) {
+            journal.productDelete(seq, productId);
+        }
+        return 1;
+    }
+
+    @Override
+    public int getStock(int productId) throws SQLException {
+        int current = stock.get(productId);
+        if (current == StockCounterStore.MISSING) {
+            throw new SQLException("Product not found: " + productId);
+        }
+        return current;
+    }
+
+    // Journaled (and undone) as the difference to the replaced stock, so it adds up with concurrent
+    // sales on replay and a rollback keeps the sales committed in the meantime
+    @Override
+    public int setStock(int productId, int newStock) throws SQLException {
+        int old = stock.replace(productId, newStock);
+        if (old == StockCounterStore.MISSING) {
+            return 0;
+        }
+        repos.onRollback(() -> stock.add(productId, old - newStock));
+        InMemoryJournal journal = repos.journal();
+        if (journal != null) {
+            journal.stockDelta(productId, newStock - old);
+        }
+        return 1;
+    }
+
+    @Override
+    public int decrementStock(int productId, int quantity) throws SQLException {
+        int remaining = decrement(productId, quantity);
+        if (remaining == StockCounterStore.MISSING) {
+            throw new SQLException("Product not found: " + productId);
+        }
+        return remaining;
+    }
+
+    // Same as decrementStock, but a missing product also counts as OUT_OF_STOCK (like the guarded UPDATE in a batch)
+    int decrementIfPresent(int productId, int quantity) throws SQLException {
+        int remaining = decrement(productId, quantity);
+        return remaining != StockCounterStore.MISSING ? remaining : OUT_OF_STOCK;
+    }
+
+    private int decrement(int productId, int quantity) throws SQLException {
+        int remaining = stock.decrement(productId, quantity);
+        if (remaining >= 0) {
+            repos.onRollback(() -> stock.add(productId, quantity));
+            InMemoryJournal journal = repos.journal();
+            if (journal != null) {
+                journal.stockDelta(productId, -quantity);
+            }
+        }
+        return remaining;
+    }
+
+    @Override
+    public void upsertStock(List<Product> products) throws SQLException {
+        InMemoryJournal journal = repos.journal();
+        for (Product p : products) {
+            int id = p.getProductId();
+            long seq = journal != null ? journal.nextSeq() : 0;
+            Row fresh = new Row(JdbcProductRepository.copy(p));
+            int old = stock.put(id, p.getStockQuantity());
+            if (rows.putIfAbsent(id, fresh) == null) {
+                lastId.accumulateAndGet(id, Math::max); // later creates continue after explicit IDs
+                repos.onRollback(() -> {
+                    rows.remove(id, fresh);
+                    stock.remove(id);
+                });
+                if (journal != null) {
+                    journal.productPut(seq, p);
+                }
+            } else if (old != StockCounterStore.MISSING) {
+                int delta = old - p.getStockQuantity();
+                repos.onRollback(() -> stock.add(id, delta));
+                if (journal != null) {
+                    journal.stockDelta(id, p.getStockQuantity() - old);
+                }
+            }
+        }
+    }
+
+    @Override
+    public List<Product> findLowStock(int threshold) {
+        List<Product> products = new ArrayList<>();
+        for (Row row : rows.values()) {
+            Product p = toProduct(row);
+            if (p != null && p.getStockQuantity() < threshold) {
+                products.add(p);
+            }
+        }
+        return products;
+    }
+
+    // ---------- Write-ahead log replay ----------
+
+    // Insert or overwrite, stock included
+    void restore(Product p) {
+        int id = p.getProductId();
+        stock.put(id, p.getStockQuantity());
+        rows.put(id, new Row(JdbcProductRepository.copy(p)));
+        lastId.accumulateAndGet(id, Math::max);
+    }
+
+    // Ignored for products that are gone
+    void restoreStock(int productId, int delta) {
+        stock.add(productId, delta);
+    }
+
+    int lastId() {
+        return lastId.get();
+    }
+
+    void restoreLastId(int id) {
+        lastId.accumulateAndGet(id, Math::max);
+    }
+
+    // Null if the product was deleted after its row was read
+    private Product toProduct(Row row) {
+        Product d = row.details;
+        int units = stock.get(d.getProductId());
+        if (units == StockCounterStore.MISSING) {
+            return null;
+        }
+        return new Product(d.getProductId(), d.getName(), d.getDescription(), d.getPrice(), units, d.getSupplierId());
+    }
+}
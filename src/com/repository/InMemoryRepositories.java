@@ -0,0 +1,115 @@
+package com.repository;
+
+import com.exceptions.OutOfStockException;
+
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+// In-process backend on concurrent skip-list maps: no database, no connection pool, no network
+// round trips. Stock lives in one AtomicInteger per product and is decremented with a CAS loop, so
+// concurrent sales of the same product never block each other and never oversell.
+//
+// Transactions are atomic but not isolated. Every write inside inTransaction() registers an undo
+// callback on a thread-local list; if the work throws, the undos run newest first. Other threads
+// can see a transaction's writes before it finishes (and, after a rollback, can have seen writes
+// that never "happened"). Stock undo is an addAndGet of the taken units, so concurrent sales of the
+// same product stay exact across rollbacks; setStock/updatePrice undo restores the old value.
+// The async InventoryLogWriter is a JDBC feature and is not used here: logs are appended directly.
+// Everything is lost on exit unless an InMemoryJournal is attached (-Dinventory.wal.dir).
+public class InMemoryRepositories implements Repositories {
+
+    private final ThreadLocal<Deque<TransactionCallback>> callbacks = new ThreadLocal<>();
+
+    final InMemoryProductRepository products = new InMemoryProductRepository(this);
+    final InMemorySupplierRepository suppliers = new InMemorySupplierRepository(this);
+    final InMemoryOrderItemRepository orderItems = new InMemoryOrderItemRepository(this);
+    final InMemoryInventoryLogRepository inventoryLogs = new InMemoryInventoryLogRepository(this);
+    final InMemoryOrderRepository orders = new InMemoryOrderRepository(this, products, orderItems, inventoryLogs);
+
+    private volatile InMemoryJournal journal;
+
+    @Override
+    public ProductRepository products() {
+        return products;
+    }
+
+    @Override
+    public SupplierRepository suppliers() {
+        return suppliers;
+    }
+
+    @Override
+    public OrderRepository orders() {
+        return orders;
+    }
+
+    @Override
+    public OrderItemRepository orderItems() {
+        return orderItems;
+    }
+
+    @Override
+    public InventoryLogRepository inventoryLogs() {
+        return inventoryLogs;
+    }
+
+    public boolean isInTransaction() {
+        return callbacks.get() != null;
+    }
+
+    @Override
+    public <T> T inTransaction(TransactionWork<T> work) throws SQLException, OutOfStockException {
+        if (callbacks.get() != null) {
+            return work.run(); // join the outer transaction
+        }
+        Deque<TransactionCallback> pending = new ArrayDeque<>();
+        callbacks.set(pending);
+        InMemoryJournal j = journal;
+        boolean committed = false;
+        try {
+            T result = work.run();
+            if (j != null) {
+                j.commit(); // durable before anyone is told it committed
+            }
+            committed = true;
+            return result;
+        } finally {
+            if (j != null) {
+                j.discard();
+            }
+            callbacks.remove();
+            while (!pending.isEmpty()) {
+                pending.pop().afterCompletion(committed);
+            }
+        }
+    }
+
+    @Override
+    public void afterCompletion(TransactionCallback callback) {
+        Deque<TransactionCallback> pending = callbacks.get();
+        if (pending != null) {
+            pending.push(callback);
+        } else {
+            callback.afterCompletion(true);
+        }
+    }
+
+    // Null when writes are not journaled
+    InMemoryJournal journal() {
+        return journal;
+    }
+
+    void attach(InMemoryJournal journal) {
+        this.journal = journal;
+    }
+
+    // Called by the repositories after each write; a no-op outside a transaction
+    void onRollback(Runnable action) {
+        afterCompletion(committed -> {
+            if (!committed) {
+                action.run();
+            }
+        });
+    }
+}
@@ -0,0 +1,111 @@
+package com.repository;
+
+import com.Supplier;
+import com.utilities.Page;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Rows are stored as private copies and replaced as a whole on update
+public class InMemorySupplierRepository implements SupplierRepository {
+
+    private final InMemoryRepositories repos;
+    private final ConcurrentSkipListMap<Integer, Supplier> rows = new ConcurrentSkipListMap<>();
+    private final AtomicInteger lastId = new AtomicInteger();
+
+    InMemorySupplierRepository(InMemoryRepositories repos) {
+        this.repos = repos;
+    }
+
+    @Override
+    public int create(Supplier supplier) throws SQLException {
+        InMemoryJournal journal = repos.journal();
+        int id = lastId.incrementAndGet();
+        supplier.setSupplierId(id);
+        long seq = journal != null ? journal.nextSeq() : 0;
+        rows.put(id, copy(supplier));
+        repos.onRollback(() -> rows.remove(id));
+        if (journal != null) {
+            journal.supplierPut(seq, supplier);
+        }
+        return id;
+    }
+
+    @Override
+    public Page<Supplier> list(int afterSupplierId, int pageSize, String nameFilter) {
+        Page.checkSize(pageSize);
+        String needle = nameFilter != null ? nameFilter.toLowerCase(Locale.ROOT) : null;
+        List<Supplier> suppliers = new ArrayList<>(pageSize + 1);
+        for (Supplier s : rows.tailMap(afterSupplierId, false).values()) {
+            if (needle == null || (s.getName() != null && s.getName().toLowerCase(Locale.ROOT).contains(needle))) {
+                suppliers.add(copy(s));
+                if (suppliers.size() > pageSize) {
+                    break;
+                }
+            }
+        }
+        return Page.of(suppliers, pageSize);
+    }
+
+    @Override
+    public int updateName(int supplierId, String newName) throws SQLException {
+        InMemoryJournal journal = repos.journal();
+        Supplier[] old = new Supplier[1];
+        long[] seq = new long[1];
+        Supplier updated = rows.computeIfPresent(supplierId, (id, s) -> {
+            old[0] = s;
+            seq[0] = journal != null ? journal.nextSeq() : 0;
+            return new Supplier(id, newName, s.getContactEmail(), s.getPhone());
+        });
+        if (updated == null) {
+            return 0;
+        }
+        repos.onRollback(() -> rows.replace(supplierId, updated, old[0]));
+        if (journal != null) {
+            journal.supplierName(seq[0], supplierId, newName);
+        }
+        return 1;
+    }
+
+    @Override
+    public int delete(int supplierId) throws SQLException {
+        InMemoryJournal journal = repos.journal();
+        Supplier removed = rows.remove(supplierId);
+        if (removed == null) {
+            return 0;
+        }
+        long seq = journal != null ? journal.nextSeq() : 0;
+        repos.onRollback(() -> rows.putIfAbsent(supplierId, removed));
+        if (journal != null) {
+            journal.supplierDelete(seq, supplierId);
+        }
+        return 1;
+    }
+
+    // ---------- Write-ahead log replay ----------
+
+    boolean exists(int supplierId) {
+        return rows.containsKey(supplierId);
+    }
+
+    void restore(Supplier supplier) {
+        rows.put(supplier.getSupplierId(), copy(supplier));
+        lastId.accumulateAndGet(supplier.getSupplierId(), Math::max);
+    }
+
+    int lastId() {
+        return lastId.get();
+    }
+
+    void restoreLastId(int id) {
+        lastId.accumulateAndGet(id, Math::max);
+    }
+
+    private static Supplier copy(Supplier s) {
+        return new Supplier(s.getSupplierId(), s.getName(), s.getContactEmail(), s.getPhone());
+    }
+}
@@ -0,0 +1,24 @@
+package com.repository;
+
+import com.InventoryLog;
+import com.utilities.Page;
+
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Map;
+
+public interface InventoryLogRepository {
+
+    // Records one stock change; joins the current transaction if there is one
+    void append(InventoryLog log) throws SQLException;
+
+    // Keyset page, newest first; pass the timestamp and ID of the previous page's last row
+    // (null and 0 for the first page). productId <= 0 lists every product.
+    Page<InventoryLog> list(Timestamp beforeTimestamp, int beforeLogId, int pageSize, int productId) throws SQLException;
+
+    // Highest log_id written so far (0 when empty)
+    long lastLogId() throws SQLException;
+
+    // Sum of change_quantity per product for rows with log_id > afterLogId and product IDs in [fromProductId, toProductId]
+    Map<Integer, Long> netChanges(long afterLogId, int fromProductId, int toProductId) throws SQLException;
+}
@@ -0,0 +1,153 @@
+package com.repository;
+
+import com.InventoryLog;
+import com.utilities.InventoryLogWriter;
+import com.utilities.Metrics;
+import com.utilities.Page;
+import com.utilities.SqlStatements;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class JdbcInventoryLogRepository implements InventoryLogRepository {
+
+    private static final Metrics.Operation CREATE = Metrics.operation("InventoryLog.create");
+    private static final Metrics.Operation LIST = Metrics.operation("InventoryLog.list");
+    private static final Metrics.Operation NET_CHANGES = Metrics.operation("InventoryLog.netChanges");
+
+    private final JdbcRepositories connections;
+
+    JdbcInventoryLogRepository(JdbcRepositories connections) {
+        this.connections = connections;
+    }
+
+    // Goes through the background writer when one is installed (see InventoryLog.setLogWriter).
+    // Inside inTransaction the row is always inserted on the transaction's connection, so it commits
+    // or rolls back with the stock change; a queued row is handed over without holding a connection.
+    @Override
+    public void append(InventoryLog log) throws SQLException {
+        InventoryLogWriter writer = InventoryLog.getLogWriter();
+        boolean queued = writer != null && writer.getDurability() != InventoryLogWriter.Durability.SYNC;
+        if (writer == null || queued && connections.isInTransaction()) {
+            try (Connection conn = connections.getConnection()) {
+                insert(conn, log);
+            }
+            return;
+        }
+        long start = Metrics.start();
+        try {
+            if (queued) {
+                writer.append(null, log);
+            } else {
+                try (Connection conn = connections.getConnection()) {
+                    writer.append(conn, log);
+                }
+            }
+            CREATE.success(start, 1);
+        } catch (SQLException e) {
+            CREATE.failure(start);
+            throw e;
+        }
+    }
+
+    @Override
+    public Page<InventoryLog> list(Timestamp beforeTimestamp, int beforeLogId, int pageSize, int productId)
+            throws SQLException {
+        Page.checkSize(pageSize);
+        String sql;
+        if (productId > 0) {
+            sql = beforeTimestamp != null ? SqlStatements.INVENTORY_LOG_LIST_BY_PRODUCT_BEFORE : SqlStatements.INVENTORY_LOG_LIST_BY_PRODUCT;
+        } else {
+            sql = beforeTimestamp != null ? SqlStatements.INVENTORY_LOG_LIST_BEFORE : SqlStatements.INVENTORY_LOG_LIST;
+        }
+
+        long start = Metrics.start();
+        try (Connection conn = connections.getReportConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            int i = 1;
+            if (productId > 0) {
+                stmt.setInt(i++, productId);
+            }
+            if (beforeTimestamp != null) {
+                stmt.setTimestamp(i++, beforeTimestamp);
+                stmt.setTimestamp(i++, beforeTimestamp);
+                stmt.setInt(i++, beforeLogId);
+            }
+            stmt.setInt(i, pageSize + 1);
+
+            List<InventoryLog> logs = new ArrayList<>(pageSize + 1);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    logs.add(new InventoryLog(
+                            rs.getInt("log_id"),
+                            rs.getInt("product_id"),
+                            rs.getInt("change_quantity"),
+                            rs.getString("action"),
+                            rs.getTimestamp("timestamp")
+                    ));
+                }
+            }
+            LIST.success(start, logs.size());
+            return Page.of(logs, pageSize);
+        } catch (SQLException e) {
+            LIST.failure(start);
+            throw e;
+        }
+    }
+
+    @Override
+    public long lastLogId() throws SQLException {
+        try (Connection conn = connections.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(SqlStatements.INVENTORY_LOG_MAX_ID);
+             ResultSet rs = stmt.executeQuery()) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    @Override
+    public Map<Integer, Long> netChanges(long afterLogId, int fromProductId, int toProductId) throws SQLException {
+        long start = Metrics.start();
+        try (Connection conn = connections.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(SqlStatements.INVENTORY_LOG_NET_CHANGES)) {
+            stmt.setLong(1, afterLogId);
+            stmt.setInt(2, fromProductId);
+            stmt.setInt(3, toProductId);
+
+            Map<Integer, Long> net = new HashMap<>();
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    net.put(rs.getInt("product_id"), rs.getLong("net"));
+                }
+            }
+            NET_CHANGES.success(start, net.size());
+            return net;
+        } catch (SQLException e) {
+            NET_CHANGES.failure(start);
+            throw e;
+        }
+    }
+
+    // Plain insert on the caller's connection, inside whatever transaction it has open
+    public static void insert(Connection conn, InventoryLog log) throws SQLException {
+        long start = Metrics.start();
+        try (PreparedStatement stmt = conn.prepareStatement(SqlStatements.INVENTORY_LOG_INSERT)) {
+            stmt.setInt(1, log.getProductId());
+            stmt.setInt(2, log.getChangeQuantity());
+            stmt.setString(3, log.getAction());
+
+            int rows = stmt.executeUpdate();
+            CREATE.success(start, rows);
+        } catch (SQLException e) {
+            CREATE.failure(start);
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.repository;
+
+import com.OrderItem;
+import com.utilities.Metrics;
+import com.utilities.Page;
+import com.utilities.SqlStatements;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+public class JdbcOrderItemRepository implements OrderItemRepository {
+
+    private static final Metrics.Operation CREATE = Metrics.operation("OrderItem.create");
+    private static final Metrics.Operation LIST = Metrics.operation("OrderItem.list");
+    private static final Metrics.Operation DELETE = Metrics.operation("OrderItem.delete");
+
+    private final ConnectionSource connections;
+
+    JdbcOrderItemRepository(ConnectionSource connections) {
+        this.connections = connections;
+    }
+
+    @Override
+    public int create(OrderItem item) throws SQLException {
+        long start = Metrics.start();
+        try (Connection conn = connections.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(SqlStatements.ORDER_ITEM_INSERT)) {
+
+            stmt.setInt(1, item.getOrderId());
+            stmt.setInt(2, item.getProductId());
+            stmt.setInt(3, item.getQuantity());
+            stmt.setDouble(4, item.getUnitPrice());
+
+            int rows = stmt.executeUpdate();
+            CREATE.success(start, rows);
+            return rows;
+        } catch (SQLException e) {
+            CREATE.failure(start);
+            throw e;
+        }
+    }
+
+    @Override
+    public Page<OrderItem> list(int afterOrderItemId, int pageSize, int orderId) throws SQLException {
+        Page.checkSize(pageSize);
+        String sql = orderId > 0 ? SqlStatements.ORDER_ITEM_LIST_BY_ORDER : SqlStatements.ORDER_ITEM_LIST;
+        long start = Metrics.start();
+        try (Connection conn = connections.getReportConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            int i = 1;
+            stmt.setInt(i++, afterOrderItemId);
+            if (orderId > 0) {
+                stmt.setInt(i++, orderId);
+            }
+            stmt.setInt(i, pageSize + 1);
+
+            List<OrderItem> items = new ArrayList<>(pageSize + 1);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    items.add(new OrderItem(
+                            rs.getInt("order_item_id"),
+                            rs.getInt("order_id"),
+                            rs.getInt("product_id"),
+                            rs.getInt("quantity"),
+                            rs.getDouble("unit_price")
+                    ));
+                }
+            }
+            LIST.success(start, items.size());
+            return Page.of(items, pageSize);
+        } catch (SQLException e) {
+            LIST.failure(start);
+            throw e;
+        }
+    }
+
+    @Override
+    public int delete(int orderItemId) throws SQLException {
+        long start = Metrics.start();
+        try (Connection conn = connections.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(SqlStatements.ORDER_ITEM_DELETE)) {
+            stmt.setInt(1, orderItemId);
+            int rows = stmt.executeUpdate();
+            DELETE.success(start, rows);
+            return rows;
+        } catch (SQLException e) {
+            DELETE.failure(start);
+            throw e;
+        }
+    }
+}
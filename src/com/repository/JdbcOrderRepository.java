@@ -0,0 +1,387 @@
+package com.repository;
+
+import com.CustomerOrder;
+import com.InventoryLog;
+import com.Order;
+import com.OrderItem;
+import com.Product;
+import com.exceptions.OutOfStockException;
+import com.utilities.Metrics;
+import com.utilities.Page;
+import com.utilities.SqlStatements;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+public class JdbcOrderRepository implements OrderRepository {
+
+    private static final Metrics.Operation CREATE = Metrics.operation("Order.create");
+    private static final Metrics.Operation SUBMIT = Metrics.operation("Order.submit");
+    private static final Metrics.Operation SUBMIT_REJECTED = Metrics.operation("Order.submitOutOfStock");
+    private static final Metrics.Operation EXISTS = Metrics.operation("Order.exists");
+    private static final Metrics.Operation LIST = Metrics.operation("Order.list");
+    private static final Metrics.Operation HISTORY = Metrics.operation("Order.history");
+    private static final Metrics.Operation UPDATE_STATUS = Metrics.operation("Order.updateStatus");
+    private static final Metrics.Operation DELETE = Metrics.operation("Order.delete");
+
+    private final JdbcRepositories repos;
+
+    JdbcOrderRepository(JdbcRepositories repos) {
+        this.repos = repos;
+    }
+
+    @Override
+    public int create(Order order) throws SQLException {
+        long start = Metrics.start();
+        try (Connection conn = repos.getConnection()) {
+            int orderId = insertOrder(conn, order);
+            invalidateHistoryAfterCommit(repos, order.getCustomerName());
+            CREATE.success(start, 1);
+            return orderId;
+        } catch (SQLException e) {
+            CREATE.failure(start);
+            throw e;
+        }
+    }
+
+    // Decrements, items and logs each go in as one JDBC batch, so an order costs a constant
+    // number of round trips however many lines it has (on MySQL with rewriteBatchedStatements=true,
+    // which DBConnection adds to the URL).
+    @Override
+    public int submit(Order order, List<OrderItem> items) throws SQLException, OutOfStockException {
+        if (items.isEmpty()) {
+            throw new IllegalArgumentException("An order needs at least one item");
+        }
+
+        // Decrement in product ID order so two orders over the same products always take row locks in the same order
+        List<OrderItem> byProduct = new ArrayList<>(items);
+        byProduct.sort(Comparator.comparingInt(OrderItem::getProductId));
+
+        // With the background log writer the rows are queued only once the sale is committed. When this
+        // submit joins a caller's transaction that is when submit returns, so they go in synchronously instead.
+        boolean queuedLogs = InventoryLog.isQueued() && !repos.isInTransaction();
+
+        long start = Metrics.start();
+        try {
+            int orderId = repos.inTransaction(() -> {
+                try (Connection conn = repos.getConnection()) {
+                    int id = insertOrder(conn, order);
+                    invalidateHistoryAfterCommit(repos, order.getCustomerName());
+                    decrementAll(conn, byProduct);
+                    insertItems(conn, id, items);
+                    if (!queuedLogs) {
+                        insertLogs(conn, id, byProduct);
+                    }
+                    return id;
+                }
+            });
+
+            if (queuedLogs) {
+                Timestamp now = new Timestamp(System.currentTimeMillis());
+                for (OrderItem item : byProduct) {
+                    repos.inventoryLogs().append(new InventoryLog(
+                            0, item.getProductId(), -item.getQuantity(), "Order Processed - Order " + orderId, now));
+                }
+            }
+            SUBMIT.success(start, items.size());
+            return orderId;
+        } catch (OutOfStockException e) {
+            SUBMIT_REJECTED.success(start);
+            throw e;
+        } catch (SQLException | RuntimeException e) {
+            SUBMIT.failure(start);
+            throw e;
+        } finally {
+            invalidateStockAfterCommit(repos, byProduct);
+        }
+    }
+
+    @Override
+    public boolean exists(int orderId) throws SQLException {
+        long start = Metrics.start();
+        try (Connection conn = repos.getReadConnection();
+             PreparedStatement stmt = conn.prepareStatement(SqlStatements.ORDER_EXISTS)) {
+            stmt.setInt(1, orderId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                boolean exists = rs.next();
+                EXISTS.success(start, exists ? 1 : 0);
+                return exists;
+            }
+        } catch (SQLException e) {
+            EXISTS.failure(start);
+            throw e;
+        }
+    }
+
+    @Override
+    public Page<Order> list(int afterOrderId, int pageSize, String status) throws SQLException {
+        Page.checkSize(pageSize);
+        String sql = status != null ? SqlStatements.ORDER_LIST_BY_STATUS : SqlStatements.ORDER_LIST;
+        long start = Metrics.start();
+        try (Connection conn = repos.getReportConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            int i = 1;
+            stmt.setInt(i++, afterOrderId);
+            if (status != null) {
+                stmt.setString(i++, status);
+            }
+            stmt.setInt(i, pageSize + 1);
+
+            List<Order> orders = new ArrayList<>(pageSize + 1);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    orders.add(readOrder(rs));
+                }
+            }
+            LIST.success(start, orders.size());
+            return Page.of(orders, pageSize);
+        } catch (SQLException e) {
+            LIST.failure(start);
+            throw e;
+        }
+    }
+
+    // The newest page of a customer's history comes from Order.getHistoryCache() when it is there;
+    // rows read from a replica are not cached
+    @Override
+    public Page<CustomerOrder> listByCustomer(String customerName, Date beforeDate, int beforeOrderId, int pageSize)
+            throws SQLException {
+        Page.checkSize(pageSize);
+        boolean firstPage = beforeDate == null;
+        long start = Metrics.start();
+        if (firstPage) {
+            Page<CustomerOrder> cached = Order.getHistoryCache().get(customerName, pageSize);
+            if (cached != null) {
+                HISTORY.success(start, cached.getItems().size());
+                return cached;
+            }
+        }
+
+        long generation = Order.getHistoryCache().generation(customerName);
+        String sql = firstPage ? SqlStatements.ORDER_HISTORY : SqlStatements.ORDER_HISTORY_BEFORE;
+        try (Connection conn = repos.getReadConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            int i = 1;
+            stmt.setString(i++, customerName);
+            if (!firstPage) {
+                stmt.setDate(i++, beforeDate);
+                stmt.setDate(i++, beforeDate);
+                stmt.setInt(i++, beforeOrderId);
+            }
+            stmt.setInt(i, pageSize + 1);
+
+            List<CustomerOrder> orders = new ArrayList<>();
+            try (ResultSet rs = stmt.executeQuery()) {
+                CustomerOrder current = null;
+                while (rs.next()) {
+                    int orderId = rs.getInt("order_id");
+                    if (current == null || current.getOrderId() != orderId) {
+                        current = new CustomerOrder(readOrder(rs), new ArrayList<>());
+                        orders.add(current);
+                    }
+                    int orderItemId = rs.getInt("order_item_id");
+                    if (!rs.wasNull()) { // LEFT JOIN: an order without lines has one row of NULLs
+                        current.getItems().add(new OrderItem(orderItemId, orderId, rs.getInt("product_id"),
+                                rs.getInt("quantity"), rs.getDouble("unit_price")));
+                    }
+                }
+            }
+            Page<CustomerOrder> page = Page.of(orders, pageSize);
+            if (firstPage && !repos.isReplica(conn)) {
+                Order.getHistoryCache().put(customerName, pageSize, page, generation);
+            }
+            HISTORY.success(start, orders.size());
+            return page;
+        } catch (SQLException e) {
+            HISTORY.failure(start);
+            throw e;
+        }
+    }
+
+    @Override
+    public int updateStatus(int orderId, String newStatus) throws SQLException {
+        long start = Metrics.start();
+        try (Connection conn = repos.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(SqlStatements.ORDER_UPDATE_STATUS)) {
+            stmt.setString(1, newStatus);
+            stmt.setInt(2, orderId);
+            int rows = stmt.executeUpdate();
+            repos.afterCompletion(committed -> Order.getHistoryCache().clear()); // only the order ID is known here
+            UPDATE_STATUS.success(start, rows);
+            return rows;
+        } catch (SQLException e) {
+            UPDATE_STATUS.failure(start);
+            throw e;
+        }
+    }
+
+    @Override
+    public int delete(int orderId) throws SQLException {
+        long start = Metrics.start();
+        try (Connection conn = repos.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(SqlStatements.ORDER_DELETE)) {
+            stmt.setInt(1, orderId);
+            int rows = stmt.executeUpdate();
+            repos.afterCompletion(committed -> Order.getHistoryCache().clear());
+            DELETE.success(start, rows);
+            return rows;
+        } catch (SQLException e) {
+            DELETE.failure(start);
+            throw e;
+        }
+    }
+
+    static Order readOrder(ResultSet rs) throws SQLException {
+        return new Order(
+                rs.getInt("order_id"),
+                rs.getDate("order_date"),
+                rs.getString("customer_name"),
+                rs.getString("status")
+        );
+    }
+
+    // One page's worth (limit rows) of a customer's order headers, newest first; see ORDER_HISTORY_HEADERS
+    static List<Order> historyHeaders(Connection conn, String customerName, Date beforeDate, int beforeOrderId, int limit)
+            throws SQLException {
+        String sql = beforeDate == null ? SqlStatements.ORDER_HISTORY_HEADERS : SqlStatements.ORDER_HISTORY_HEADERS_BEFORE;
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            int i = 1;
+            stmt.setString(i++, customerName);
+            if (beforeDate != null) {
+                stmt.setDate(i++, beforeDate);
+                stmt.setDate(i++, beforeDate);
+                stmt.setInt(i++, beforeOrderId);
+            }
+            stmt.setInt(i, limit);
+            List<Order> orders = new ArrayList<>();
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    orders.add(readOrder(rs));
+                }
+            }
+            return orders;
+        }
+    }
+
+    // Lines of the given orders in one query. The IN list varies with the page, so this statement is not cached.
+    static List<OrderItem> itemsOf(Connection conn, List<Integer> orderIds) throws SQLException {
+        List<OrderItem> items = new ArrayList<>();
+        if (orderIds.isEmpty()) {
+            return items;
+        }
+        StringBuilder sql = new StringBuilder(
+                "SELECT order_item_id, order_id, product_id, quantity, unit_price FROM OrderItem WHERE order_id IN (");
+        for (int i = 0; i < orderIds.size(); i++) {
+            sql.append(i == 0 ? "?" : ", ?");
+        }
+        sql.append(") ORDER BY order_item_id");
+        try (PreparedStatement stmt = conn.prepareStatement(sql.toString())) {
+            for (int i = 0; i < orderIds.size(); i++) {
+                stmt.setInt(i + 1, orderIds.get(i));
+            }
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    items.add(new OrderItem(rs.getInt("order_item_id"), rs.getInt("order_id"), rs.getInt("product_id"),
+                            rs.getInt("quantity"), rs.getDouble("unit_price")));
+                }
+            }
+        }
+        return items;
+    }
+
+    // Once the outermost transaction commits or rolls back (this submit may have joined a caller's),
+    // so nobody re-caches the pre-order stock
+    static void invalidateStockAfterCommit(Repositories repos, List<OrderItem> byProduct) {
+        repos.afterCompletion(committed -> {
+            for (OrderItem item : byProduct) {
+                Product.getCache().invalidate(item.getProductId());
+            }
+        });
+    }
+
+    // Once the order is committed (or rolled back), so that no load re-caches the history without it
+    static void invalidateHistoryAfterCommit(Repositories repos, String customerName) {
+        if (customerName != null) {
+            repos.afterCompletion(committed -> Order.getHistoryCache().invalidate(customerName));
+        }
+    }
+
+    // ---------- Submit steps ----------
+
+    static int insertOrder(Connection conn, Order order) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(SqlStatements.ORDER_INSERT, Statement.RETURN_GENERATED_KEYS)) {
+            stmt.setDate(1, order.getOrderDate());
+            stmt.setString(2, order.getCustomerName());
+            stmt.setString(3, order.getStatus());
+            stmt.executeUpdate();
+            try (ResultSet keys = stmt.getGeneratedKeys()) {
+                if (!keys.next()) {
+                    throw new SQLException("Creating order failed, no ID obtained.");
+                }
+                order.setOrderId(keys.getInt(1));
+                return order.getOrderId();
+            }
+        }
+    }
+
+    static void decrementAll(Connection conn, List<OrderItem> byProduct) throws SQLException, OutOfStockException {
+        try (PreparedStatement stmt = conn.prepareStatement(SqlStatements.PRODUCT_DECREMENT_STOCK)) {
+            for (OrderItem item : byProduct) {
+                if (item.getQuantity() <= 0) {
+                    throw new IllegalArgumentException("Quantity must be greater than 0 for product " + item.getProductId());
+                }
+                stmt.setInt(1, item.getQuantity());
+                stmt.setInt(2, item.getProductId());
+                stmt.setInt(3, item.getQuantity());
+                stmt.addBatch();
+            }
+            int[] counts = stmt.executeBatch();
+            for (int i = 0; i < counts.length; i++) {
+                if (counts[i] == Statement.SUCCESS_NO_INFO) {
+                    // A driver that folds the batch into one statement cannot say which line was short;
+                    // rolling back beats overselling
+                    throw new SQLException("Driver returned no update count for the stock decrement of product "
+                            + byProduct.get(i).getProductId());
+                }
+                if (counts[i] == 0) {
+                    int productId = byProduct.get(i).getProductId();
+                    throw new OutOfStockException(productId, "Not enough stock (or no such product) for product ID: " + productId);
+                }
+            }
+        }
+    }
+
+    static void insertItems(Connection conn, int orderId, List<OrderItem> items) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(SqlStatements.ORDER_ITEM_INSERT)) {
+            for (OrderItem item : items) {
+                item.setOrderId(orderId);
+                stmt.setInt(1, orderId);
+                stmt.setInt(2, item.getProductId());
+                stmt.setInt(3, item.getQuantity());
+                stmt.setDouble(4, item.getUnitPrice());
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+    }
+
+    static void insertLogs(Connection conn, int orderId, List<OrderItem> byProduct) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(SqlStatements.INVENTORY_LOG_INSERT)) {
+            for (OrderItem item : byProduct) {
+                stmt.setInt(1, item.getProductId());
+                stmt.setInt(2, -item.getQuantity());
+                stmt.setString(3, "Order Processed - Order " + orderId);
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+    }
+}
@@ -0,0 +1,366 @@
+package com.repository;
+
+import com.Product;
+import com.utilities.Metrics;
+import com.utilities.Page;
+import com.utilities.SqlStatements;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+// Products over JDBC. Reads of single products go through Product.getCache(); every write
+// invalidates the affected entry once its transaction completes. The connection-level helpers
+// leave that to their callers.
+public class JdbcProductRepository implements ProductRepository {
+
+    private static final Metrics.Operation CREATE = Metrics.operation("Product.create");
+    private static final Metrics.Operation LIST = Metrics.operation("Product.list");
+    private static final Metrics.Operation GET_BY_ID = Metrics.operation("Product.getById");
+    private static final Metrics.Operation UPDATE_PRICE = Metrics.operation("Product.updatePrice");
+    private static final Metrics.Operation DELETE = Metrics.operation("Product.delete");
+    private static final Metrics.Operation GET_STOCK = Metrics.operation("Product.getStock");
+    private static final Metrics.Operation UPDATE_STOCK = Metrics.operation("Product.updateStock");
+    private static final Metrics.Operation DECREMENT_STOCK = Metrics.operation("Product.decrementStock");
+    private static final Metrics.Operation UPSERT_STOCK = Metrics.operation("Product.upsertStock");
+    private static final Metrics.Operation LOW_STOCK = Metrics.operation("Product.checkLowStock");
+
+    private final JdbcRepositories repos;
+
+    JdbcProductRepository(JdbcRepositories repos) {
+        this.repos = repos;
+    }
+
+    @Override
+    public int create(Product product) throws SQLException {
+        long start = Metrics.start();
+        try (Connection conn = repos.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(SqlStatements.PRODUCT_INSERT, Statement.RETURN_GENERATED_KEYS)) {
+
+            stmt.setString(1, product.getName());
+            stmt.setString(2, product.getDescription());
+            stmt.setDouble(3, product.getPrice());
+            stmt.setInt(4, product.getStockQuantity());
+            stmt.setInt(5, product.getSupplierId());
+
+            int rows = stmt.executeUpdate();
+            try (ResultSet keys = stmt.getGeneratedKeys()) {
+                if (!keys.next()) {
+                    throw new SQLException("Creating product failed, no ID obtained.");
+                }
+                product.setProductId(keys.getInt(1));
+            }
+            // Not cached here: inside a transaction the insert may still roll back
+            invalidateAfterCompletion(product.getProductId());
+            CREATE.success(start, rows);
+            return product.getProductId();
+        } catch (SQLException e) {
+            CREATE.failure(start);
+            throw e;
+        }
+    }
+
+    // Served from the product cache when possible, otherwise from a replica if one is fresh enough;
+    // callers get their own copy
+    @Override
+    public Product findById(int productId) throws SQLException {
+        long start = Metrics.start();
+        Product cached = Product.getCache().get(productId);
+        if (cached != null) {
+            GET_BY_ID.success(start, 1);
+            return copy(cached);
+        }
+
+        long generation = Product.getCache().generation(productId);
+        try (Connection conn = repos.getReadConnection();
+             PreparedStatement stmt = conn.prepareStatement(SqlStatements.PRODUCT_BY_ID)) {
+            stmt.setInt(1, productId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next()) {
+                    GET_BY_ID.success(start);
+                    return null;
+                }
+                Product p = read(rs);
+                if (!repos.isReplica(conn)) { // a replica row may predate an invalidation and would stay cached
+                    Product.getCache().putIfCurrent(productId, copy(p), generation);
+                }
+                GET_BY_ID.success(start, 1);
+                return p;
+            }
+        } catch (SQLException e) {
+            GET_BY_ID.failure(start);
+            throw e;
+        }
+    }
+
+    @Override
+    public Page<Product> list(int afterProductId, int pageSize, String nameFilter) throws SQLException {
+        Page.checkSize(pageSize);
+        String sql = nameFilter != null ? SqlStatements.PRODUCT_LIST_BY_NAME : SqlStatements.PRODUCT_LIST;
+        long start = Metrics.start();
+        try (Connection conn = repos.getReportConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            int i = 1;
+            stmt.setInt(i++, afterProductId);
+            if (nameFilter != null) {
+                stmt.setString(i++, "%" + nameFilter + "%");
+            }
+            stmt.setInt(i, pageSize + 1);
+
+            List<Product> products = new ArrayList<>(pageSize + 1);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    products.add(read(rs));
+                }
+            }
+            LIST.success(start, products.size());
+            return Page.of(products, pageSize);
+        } catch (SQLException e) {
+            LIST.failure(start);
+            throw e;
+        }
+    }
+
+    @Override
+    public int updatePrice(int productId, double newPrice) throws SQLException {
+        long start = Metrics.start();
+        try (Connection conn = repos.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(SqlStatements.PRODUCT_UPDATE_PRICE)) {
+            stmt.setDouble(1, newPrice);
+            stmt.setInt(2, productId);
+            int rows = stmt.executeUpdate();
+            invalidateAfterCompletion(productId);
+            UPDATE_PRICE.success(start, rows);
+            return rows;
+        } catch (SQLException e) {
+            UPDATE_PRICE.failure(start);
+            throw e;
+        }
+    }
+
+    @Override
+    public int delete(int productId) throws SQLException {
+        long start = Metrics.start();
+        try (Connection conn = repos.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(SqlStatements.PRODUCT_DELETE)) {
+            stmt.setInt(1, productId);
+            int rows = stmt.executeUpdate();
+            invalidateAfterCompletion(productId);
+            DELETE.success(start, rows);
+            return rows;
+        } catch (SQLException e) {
+            DELETE.failure(start);
+            throw e;
+        }
+    }
+
+    @Override
+    public int getStock(int productId) throws SQLException {
+        try (Connection conn = repos.getConnection()) {
+            return getStock(conn, productId);
+        }
+    }
+
+    @Override
+    public int setStock(int productId, int newStock) throws SQLException {
+        try (Connection conn = repos.getConnection()) {
+            int rows = setStock(conn, productId, newStock);
+            invalidateAfterCompletion(productId);
+            return rows;
+        }
+    }
+
+    @Override
+    public int decrementStock(int productId, int quantity) throws SQLException {
+        try (Connection conn = repos.getConnection()) {
+            int stock = decrementStock(conn, productId, quantity);
+            if (stock != OUT_OF_STOCK) {
+                invalidateAfterCompletion(productId);
+            }
+            return stock;
+        }
+    }
+
+    @Override
+    public void upsertStock(List<Product> products) throws SQLException {
+        long start = Metrics.start();
+        try (Connection conn = repos.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(SqlStatements.PRODUCT_UPSERT_STOCK)) {
+            int pending = 0;
+            for (Product p : products) {
+                stmt.setInt(1, p.getProductId());
+                stmt.setString(2, p.getName());
+                stmt.setString(3, p.getDescription());
+                stmt.setDouble(4, p.getPrice());
+                stmt.setInt(5, p.getStockQuantity());
+                stmt.setInt(6, p.getSupplierId());
+                stmt.addBatch();
+                if (++pending == 1000) {
+                    stmt.executeBatch();
+                    pending = 0;
+                }
+            }
+            if (pending > 0) {
+                stmt.executeBatch();
+            }
+            repos.afterCompletion(committed -> {
+                for (Product p : products) {
+                    Product.getCache().invalidate(p.getProductId());
+                }
+            });
+            UPSERT_STOCK.success(start, products.size());
+        } catch (SQLException e) {
+            UPSERT_STOCK.failure(start);
+            throw e;
+        }
+    }
+
+    @Override
+    public List<Product> findLowStock(int threshold) throws SQLException {
+        long start = Metrics.start();
+        try (Connection conn = repos.getReportConnection();
+             PreparedStatement stmt = conn.prepareStatement(SqlStatements.PRODUCT_LOW_STOCK)) {
+            stmt.setInt(1, threshold);
+            List<Product> products = new ArrayList<>();
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    products.add(read(rs));
+                }
+            }
+            LOW_STOCK.success(start, products.size());
+            return products;
+        } catch (SQLException e) {
+            LOW_STOCK.failure(start);
+            throw e;
+        }
+    }
+
+    // Dropped once the current transaction (if any) commits or rolls back; dropping it earlier would
+    // let a concurrent findById re-cache the row as it was before this transaction
+    private void invalidateAfterCompletion(int productId) {
+        repos.afterCompletion(committed -> Product.getCache().invalidate(productId));
+    }
+
+    // ---------- Connection-level operations (caller's transaction) ----------
+    // These do not touch Product.getCache(): only the caller knows when its transaction completes.
+
+    public static int getStock(Connection conn, int productId) throws SQLException {
+        long start = Metrics.start();
+        try (PreparedStatement stmt = conn.prepareStatement(SqlStatements.PRODUCT_STOCK)) {
+            stmt.setInt(1, productId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    GET_STOCK.success(start, 1);
+                    return rs.getInt("stock_quantity");
+                }
+            }
+        } catch (SQLException e) {
+            GET_STOCK.failure(start);
+            throw e;
+        }
+        GET_STOCK.failure(start);
+        throw new SQLException("Product not found: " + productId);
+    }
+
+    // A single blind UPDATE: the database's row lock serializes it with other writers of the product
+    // until the caller's transaction ends, so no application lock is taken here
+    public static int setStock(Connection conn, int productId, int newStock) throws SQLException {
+        long start = Metrics.start();
+        try (PreparedStatement stmt = conn.prepareStatement(SqlStatements.PRODUCT_SET_STOCK)) {
+            stmt.setInt(1, newStock);
+            stmt.setInt(2, productId);
+            int rows = stmt.executeUpdate();
+            UPDATE_STOCK.success(start, rows);
+            return rows;
+        } catch (SQLException e) {
+            UPDATE_STOCK.failure(start);
+            throw e;
+        }
+    }
+
+    // Single guarded UPDATE: the row only changes if enough stock is left, so no lock is needed
+    // around a read-then-write, and it stays correct when several JVMs share one database.
+    // Returns the new stock (from the UPDATE itself on MySQL and H2) or OUT_OF_STOCK.
+    public static int decrementStock(Connection conn, int productId, int quantity) throws SQLException {
+        if (quantity <= 0) {
+            throw new IllegalArgumentException("Quantity must be greater than 0: " + quantity);
+        }
+
+        long start = Metrics.start();
+        int stock;
+        try {
+            stock = decrement(conn, productId, quantity);
+        } catch (SQLException e) {
+            DECREMENT_STOCK.failure(start);
+            throw e;
+        }
+        DECREMENT_STOCK.success(start, stock != OUT_OF_STOCK ? 1 : 0);
+        if (stock != OUT_OF_STOCK) {
+            return stock;
+        }
+        // Nothing updated: getStock throws if the product does not exist, so a missing row is not
+        // reported as out of stock
+        getStock(conn, productId);
+        return OUT_OF_STOCK;
+    }
+
+    // The new stock, or OUT_OF_STOCK if the guard left the row alone
+    private static int decrement(Connection conn, int productId, int quantity) throws SQLException {
+        String database = conn.getMetaData().getDatabaseProductName();
+        if (database.equalsIgnoreCase("MySQL")) {
+            try (PreparedStatement stmt = conn.prepareStatement(
+                    SqlStatements.PRODUCT_DECREMENT_STOCK_MYSQL, Statement.RETURN_GENERATED_KEYS)) {
+                bindDecrement(stmt, productId, quantity);
+                if (stmt.executeUpdate() == 0) {
+                    return OUT_OF_STOCK;
+                }
+                try (ResultSet keys = stmt.getGeneratedKeys()) {
+                    return keys.next() ? keys.getInt(1) : 0; // the driver reports LAST_INSERT_ID(0) as no key
+                }
+            }
+        }
+        if (database.equalsIgnoreCase("H2")) {
+            try (PreparedStatement stmt = conn.prepareStatement(SqlStatements.PRODUCT_DECREMENT_STOCK_H2)) {
+                bindDecrement(stmt, productId, quantity);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    return rs.next() ? rs.getInt(1) : OUT_OF_STOCK;
+                }
+            }
+        }
+        try (PreparedStatement stmt = conn.prepareStatement(SqlStatements.PRODUCT_DECREMENT_STOCK)) {
+            bindDecrement(stmt, productId, quantity);
+            if (stmt.executeUpdate() == 0) {
+                return OUT_OF_STOCK;
+            }
+        }
+        return getStock(conn, productId); // other databases: read back on the same connection
+    }
+
+    private static void bindDecrement(PreparedStatement stmt, int productId, int quantity) throws SQLException {
+        stmt.setInt(1, quantity);
+        stmt.setInt(2, productId);
+        stmt.setInt(3, quantity);
+    }
+
+    // ---------- Mapping ----------
+
+    static Product read(ResultSet rs) throws SQLException {
+        return new Product(
+                rs.getInt("product_id"),
+                rs.getString("name"),
+                rs.getString("description"),
+                rs.getDouble("price"),
+                rs.getInt("stock_quantity"),
+                rs.getInt("supplier_id")
+        );
+    }
+
+    static Product copy(Product p) {
+        return new Product(p.getProductId(), p.getName(), p.getDescription(), p.getPrice(),
+                p.getStockQuantity(), p.getSupplierId());
+    }
+}
@@ -0,0 +1,187 @@
+package com.repository;
+
+import com.exceptions.OutOfStockException;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+// JDBC backend. Transactions bind one connection to the calling thread: while inTransaction() runs,
+// every repository call on that thread gets the same connection (through a handle whose close() is a
+// no-op), and the outermost call commits or rolls it back.
+public class JdbcRepositories implements Repositories, ConnectionSource {
+
+    private final ConnectionSource source;
+    private final ThreadLocal<Connection> current = new ThreadLocal<>();
+    private final ThreadLocal<Deque<TransactionCallback>> callbacks = new ThreadLocal<>();
+
+    private final JdbcProductRepository products;
+    private final JdbcSupplierRepository suppliers;
+    private final JdbcOrderRepository orders;
+    private final JdbcOrderItemRepository orderItems;
+    private final JdbcInventoryLogRepository inventoryLogs;
+
+    public JdbcRepositories(ConnectionSource source) {
+        this.source = source;
+        this.products = new JdbcProductRepository(this);
+        this.suppliers = new JdbcSupplierRepository(this);
+        this.orders = new JdbcOrderRepository(this);
+        this.orderItems = new JdbcOrderItemRepository(this);
+        this.inventoryLogs = new JdbcInventoryLogRepository(this);
+    }
+
+    @Override
+    public ProductRepository products() {
+        return products;
+    }
+
+    @Override
+    public SupplierRepository suppliers() {
+        return suppliers;
+    }
+
+    @Override
+    public OrderRepository orders() {
+        return orders;
+    }
+
+    @Override
+    public OrderItemRepository orderItems() {
+        return orderItems;
+    }
+
+    @Override
+    public InventoryLogRepository inventoryLogs() {
+        return inventoryLogs;
+    }
+
+    // The thread's transaction connection if there is one, otherwise a fresh one from the source
+    @Override
+    public Connection getConnection() throws SQLException {
+        Connection tx = current.get();
+        return tx != null ? nonClosing(tx) : source.getConnection();
+    }
+
+    // Reads inside a transaction see its own writes, so they stay on the transaction's connection
+    @Override
+    public Connection getReadConnection() throws SQLException {
+        Connection tx = current.get();
+        return tx != null ? nonClosing(tx) : source.getReadConnection();
+    }
+
+    @Override
+    public Connection getReportConnection() throws SQLException {
+        Connection tx = current.get();
+        return tx != null ? nonClosing(tx) : source.getReportConnection();
+    }
+
+    @Override
+    public boolean isReplica(Connection conn) {
+        return source.isReplica(conn);
+    }
+
+    public boolean isInTransaction() {
+        return current.get() != null;
+    }
+
+    @Override
+    public <T> T inTransaction(TransactionWork<T> work) throws SQLException, OutOfStockException {
+        if (current.get() != null) {
+            return work.run(); // join the outer transaction
+        }
+        callbacks.set(new ArrayDeque<>());
+        boolean committed = false;
+        try (Connection conn = source.getConnection()) {
+            conn.setAutoCommit(false);
+            current.set(conn);
+            try {
+                T result = work.run();
+                conn.commit();
+                committed = true;
+                return result;
+            } catch (SQLException | OutOfStockException | RuntimeException | Error e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                current.remove();
+            }
+        } finally {
+            runCallbacks(committed); // after the connection is back in the pool, so callbacks can take one
+        }
+    }
+
+    @Override
+    public void afterCompletion(TransactionCallback callback) {
+        Deque<TransactionCallback> pending = callbacks.get();
+        if (pending != null) {
+            pending.push(callback);
+        } else {
+            callback.afterCompletion(true);
+        }
+    }
+
+    // ---------- Transactions held open across shards (ShardedRepositories) ----------
+
+    // Open a transaction on this thread without running work in it; close it with end(...) and then
+    // runCallbacks(...). False (and nothing opened) if the thread already has one.
+    boolean begin() throws SQLException {
+        if (current.get() != null) {
+            return false;
+        }
+        Connection conn = source.getConnection();
+        try {
+            conn.setAutoCommit(false);
+        } catch (SQLException e) {
+            conn.close();
+            throw e;
+        }
+        callbacks.set(new ArrayDeque<>());
+        current.set(conn);
+        return true;
+    }
+
+    // Commit or roll back the transaction from begin() and give its connection back. Its callbacks
+    // stay pending, so the caller can run them with the outcome of every shard together.
+    void end(boolean commit) throws SQLException {
+        Connection conn = current.get();
+        current.remove();
+        try (conn) {
+            if (commit) {
+                conn.commit();
+            } else {
+                conn.rollback();
+            }
+        }
+    }
+
+    void runCallbacks(boolean committed) {
+        Deque<TransactionCallback> pending = callbacks.get();
+        callbacks.remove();
+        while (!pending.isEmpty()) {
+            pending.pop().afterCompletion(committed);
+        }
+    }
+
+    private static Connection nonClosing(Connection conn) {
+        return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "close":
+                            return null; // the transaction owns the connection
+                        case "isClosed":
+                            return conn.isClosed();
+                        default:
+                            try {
+                                return method.invoke(conn, args);
+                            } catch (InvocationTargetException e) {
+                                throw e.getCause();
+                            }
+                    }
+                });
+    }
+}
@@ -0,0 +1,116 @@
+package com.repository;
+
+import com.Supplier;
+import com.utilities.Metrics;
+import com.utilities.Page;
+import com.utilities.SqlStatements;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+public class JdbcSupplierRepository implements SupplierRepository {
+
+    private static final Metrics.Operation CREATE = Metrics.operation("Supplier.create");
+    private static final Metrics.Operation LIST = Metrics.operation("Supplier.list");
+    private static final Metrics.Operation UPDATE = Metrics.operation("Supplier.update");
+    private static final Metrics.Operation DELETE = Metrics.operation("Supplier.delete");
+
+    private final ConnectionSource connections;
+
+    JdbcSupplierRepository(ConnectionSource connections) {
+        this.connections = connections;
+    }
+
+    @Override
+    public int create(Supplier supplier) throws SQLException {
+        long start = Metrics.start();
+        try (Connection conn = connections.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(SqlStatements.SUPPLIER_INSERT, Statement.RETURN_GENERATED_KEYS)) {
+
+            stmt.setString(1, supplier.getName());
+            stmt.setString(2, supplier.getContactEmail());
+            stmt.setString(3, supplier.getPhone());
+            int rows = stmt.executeUpdate();
+            try (ResultSet keys = stmt.getGeneratedKeys()) {
+                if (!keys.next()) {
+                    throw new SQLException("Creating supplier failed, no ID obtained.");
+                }
+                supplier.setSupplierId(keys.getInt(1));
+            }
+            CREATE.success(start, rows);
+            return supplier.getSupplierId();
+        } catch (SQLException e) {
+            CREATE.failure(start);
+            throw e;
+        }
+    }
+
+    @Override
+    public Page<Supplier> list(int afterSupplierId, int pageSize, String nameFilter) throws SQLException {
+        Page.checkSize(pageSize);
+        String sql = nameFilter != null ? SqlStatements.SUPPLIER_LIST_BY_NAME : SqlStatements.SUPPLIER_LIST;
+        long start = Metrics.start();
+        try (Connection conn = connections.getReportConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            int i = 1;
+            stmt.setInt(i++, afterSupplierId);
+            if (nameFilter != null) {
+                stmt.setString(i++, "%" + nameFilter + "%");
+            }
+            stmt.setInt(i, pageSize + 1);
+
+            List<Supplier> suppliers = new ArrayList<>(pageSize + 1);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    suppliers.add(new Supplier(
+                            rs.getInt("supplier_id"),
+                            rs.getString("name"),
+                            rs.getString("contact_email"),
+                            rs.getString("phone")
+                    ));
+                }
+            }
+            LIST.success(start, suppliers.size());
+            return Page.of(suppliers, pageSize);
+        } catch (SQLException e) {
+            LIST.failure(start);
+            throw e;
+        }
+    }
+
+    @Override
+    public int updateName(int supplierId, String newName) throws SQLException {
+        long start = Metrics.start();
+        try (Connection conn = connections.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(SqlStatements.SUPPLIER_UPDATE_NAME)) {
+            stmt.setString(1, newName);
+            stmt.setInt(2, supplierId);
+            int rows = stmt.executeUpdate();
+            UPDATE.success(start, rows);
+            return rows;
+        } catch (SQLException e) {
+            UPDATE.failure(start);
+            throw e;
+        }
+    }
+
+    @Override
+    public int delete(int supplierId) throws SQLException {
+        long start = Metrics.start();
+        try (Connection conn = connections.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(SqlStatements.SUPPLIER_DELETE)) {
+            stmt.setInt(1, supplierId);
+            int rows = stmt.executeUpdate();
+            DELETE.success(start, rows);
+            return rows;
+        } catch (SQLException e) {
+            DELETE.failure(start);
+            throw e;
+        }
+    }
+}
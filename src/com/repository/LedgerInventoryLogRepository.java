@@ -0,0 +1,40 @@
+package com.repository;
+
+import com.InventoryLog;
+import com.utilities.Page;
+
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Map;
+
+// Appends are stock events: each one moves the product's stock by its change_quantity
+public class LedgerInventoryLogRepository implements InventoryLogRepository {
+
+    private final StockLedger ledger;
+    private final InventoryLogRepository base;
+
+    LedgerInventoryLogRepository(StockLedger ledger, InventoryLogRepository base) {
+        this.ledger = ledger;
+        this.base = base;
+    }
+
+    @Override
+    public void append(InventoryLog log) throws SQLException {
+        ledger.record(log, false);
+    }
+
+    @Override
+    public Page<InventoryLog> list(Timestamp beforeTimestamp, int beforeLogId, int pageSize, int productId) throws SQLException {
+        return base.list(beforeTimestamp, beforeLogId, pageSize, productId);
+    }
+
+    @Override
+    public long lastLogId() throws SQLException {
+        return base.lastLogId();
+    }
+
+    @Override
+    public Map<Integer, Long> netChanges(long afterLogId, int fromProductId, int toProductId) throws SQLException {
+        return base.netChanges(afterLogId, fromProductId, toProductId);
+    }
+}
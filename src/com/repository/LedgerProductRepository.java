@@ -0,0 +1,110 @@
+package com.repository;
+
+import com.InventoryLog;
+import com.Product;
+import com.utilities.Page;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// Product rows from the wrapped repository with stock_quantity replaced by the ledger's projection.
+// Stock writes become ledger events; the stock_quantity column keeps the opening balance.
+public class LedgerProductRepository implements ProductRepository {
+
+    private final StockLedger ledger;
+    private final ProductRepository base;
+
+    LedgerProductRepository(StockLedger ledger, ProductRepository base) {
+        this.ledger = ledger;
+        this.base = base;
+    }
+
+    @Override
+    public int create(Product product) throws SQLException {
+        return base.create(product);
+    }
+
+    @Override
+    public Product findById(int productId) throws SQLException {
+        Product p = base.findById(productId);
+        if (p != null) {
+            p.setStockQuantity(ledger.stockOf(p));
+        }
+        return p;
+    }
+
+    @Override
+    public Page<Product> list(int afterProductId, int pageSize, String nameFilter) throws SQLException {
+        Page<Product> page = base.list(afterProductId, pageSize, nameFilter);
+        for (Product p : page.getItems()) {
+            p.setStockQuantity(ledger.stockOf(p));
+        }
+        return page;
+    }
+
+    @Override
+    public int updatePrice(int productId, double newPrice) throws SQLException {
+        return base.updatePrice(productId, newPrice);
+    }
+
+    @Override
+    public int delete(int productId) throws SQLException {
+        int rows = base.delete(productId);
+        if (rows > 0) {
+            ledger.forget(productId);
+        }
+        return rows;
+    }
+
+    @Override
+    public int getStock(int productId) throws SQLException {
+        return ledger.getStock(productId);
+    }
+
+    @Override
+    public int setStock(int productId, int newStock) throws SQLException {
+        return ledger.reset(productId, newStock, "Stock Adjusted");
+    }
+
+    @Override
+    public int decrementStock(int productId, int quantity) throws SQLException {
+        if (quantity <= 0) {
+            throw new IllegalArgumentException("Quantity must be greater than 0: " + quantity);
+        }
+        ledger.getStock(productId); // throws for an unknown product, like the JDBC version
+        return ledger.record(new InventoryLog(0, productId, -quantity, "Stock Decrement", null), true);
+    }
+
+    // New products are inserted with their stock as the opening balance; existing ones get a reset event
+    @Override
+    public void upsertStock(List<Product> products) throws SQLException {
+        for (Product p : products) {
+            if (base.findById(p.getProductId()) == null) {
+                base.upsertStock(Collections.singletonList(p));
+            } else {
+                ledger.reset(p.getProductId(), p.getStockQuantity(), "Stock Reset");
+            }
+        }
+    }
+
+    // The column no longer holds the stock, so this pages through every product
+    @Override
+    public List<Product> findLowStock(int threshold) throws SQLException {
+        List<Product> low = new ArrayList<>();
+        int after = Integer.MIN_VALUE;
+        while (true) {
+            Page<Product> page = list(after, Page.MAX_SIZE, null);
+            for (Product p : page.getItems()) {
+                if (p.getStockQuantity() < threshold) {
+                    low.add(p);
+                }
+            }
+            if (!page.hasMore()) {
+                return low;
+            }
+            after = page.getLast().getProductId();
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.repository;
+
+import com.InventoryLog;
+import com.exceptions.OutOfStockException;
+
+import java.sql.SQLException;
+import java.sql.Timestamp;
+
+// Repositories whose stock comes from a StockLedger: products, orders and inventory logs go through
+// the ledger, everything else (and the transactions) through the wrapped backend. Every appended
+// InventoryLog row changes stock here, and every stock change appends exactly one row.
+public class LedgerRepositories implements Repositories {
+
+    private final StockLedger ledger;
+    private final Repositories base;
+    private final LedgerProductRepository products;
+    private final LedgerOrderRepository orders;
+    private final LedgerInventoryLogRepository inventoryLogs;
+
+    public LedgerRepositories(StockLedger ledger) {
+        this.ledger = ledger;
+        this.base = ledger.getBase();
+        if ((base instanceof JdbcRepositories || base instanceof ArchivedLogRepositories) && InventoryLog.isQueued()) {
+            // The log rows are the stock: they must commit in the same transaction as the sale
+            throw new IllegalStateException("The stock ledger needs -Dinventory.log.mode=SYNC");
+        }
+        this.products = new LedgerProductRepository(ledger, base.products());
+        this.orders = new LedgerOrderRepository(this, ledger, base);
+        this.inventoryLogs = new LedgerInventoryLogRepository(ledger, base.inventoryLogs());
+    }
+
+    public StockLedger getLedger() {
+        return ledger;
+    }
+
+    @Override
+    public ProductRepository products() {
+        return products;
+    }
+
+    @Override
+    public SupplierRepository suppliers() {
+        return base.suppliers();
+    }
+
+    @Override
+    public OrderRepository orders() {
+        return orders;
+    }
+
+    @Override
+    public OrderItemRepository orderItems() {
+        return base.orderItems();
+    }
+
+    @Override
+    public InventoryLogRepository inventoryLogs() {
+        return inventoryLogs;
+    }
+
+    @Override
+    public <T> T inTransaction(TransactionWork<T> work) throws SQLException, OutOfStockException {
+        return base.inTransaction(work);
+    }
+
+    @Override
+    public void afterCompletion(TransactionCallback callback) {
+        base.afterCompletion(callback);
+    }
+
+    // One guarded ledger event instead of a decrement plus a separate log row
+    @Override
+    public int sell(int productId, int quantity, String action) throws SQLException {
+        if (quantity <= 0) {
+            throw new IllegalArgumentException("Quantity must be greater than 0: " + quantity);
+        }
+        return ledger.record(new InventoryLog(
+                0, productId, -quantity, action, new Timestamp(System.currentTimeMillis())), true);
+    }
+}
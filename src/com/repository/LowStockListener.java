@@ -0,0 +1,10 @@
+package com.repository;
+
+// Registered with LowStockTracker.addListener(); told when a product's stock crosses its reorder
+// threshold. Runs on the thread that made the change, while the product is locked in the tracker,
+// so it should be quick.
+public interface LowStockListener {
+
+    // low is true when stock just dropped below threshold, false when it was restocked to it or above
+    void crossed(int productId, int stock, int threshold, boolean low);
+}
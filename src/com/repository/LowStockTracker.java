@@ -0,0 +1,343 @@
+package com.repository;
+
+import com.Product;
+import com.utilities.Metrics;
+import com.utilities.Page;
+import com.utilities.ProductLockManager;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+// Low-stock index kept up to date from every stock change, so "which products are low" never scans
+// the Product table. On by default in the CLI (-Dinventory.lowStock.tracking=false turns it off).
+//
+// Each tracked product has a stock level and a reorder threshold (its own, or the default from
+// -Dinventory.lowStock.threshold, 5). Two ordered sets index them: one by stock level, for "stock below
+// N" queries, and one by stock minus threshold, for "below its reorder threshold". Both answer with a
+// head set, O(log n + k) for k results. Listeners hear about threshold crossings as soon as the change
+// commits instead of at the next poll.
+//
+// TrackedRepositories reports every stock change made through the repositories (sales, orders, stock
+// updates, creates, upserts, deletes). After the transaction completes, the product's stock is read
+// back and re-indexed under the product's lock, so the index settles on the committed value even when
+// several threads sell the same product. The connection-level helpers report through changedOn().
+// Thresholds are kept in memory only, and changes made by other processes are not seen.
+public class LowStockTracker {
+
+    private static final Metrics.Operation REFRESH = Metrics.operation("LowStock.refresh");
+
+    private static volatile LowStockTracker installed;
+
+    private final Repositories base;
+    private final ProductLockManager locks = new ProductLockManager(64);
+    private final ConcurrentHashMap<Integer, Level> levels = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Integer, Integer> thresholds = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListSet<Long> byStock = new ConcurrentSkipListSet<>();
+    private final ConcurrentSkipListSet<Long> byMargin = new ConcurrentSkipListSet<>();
+    // Changed in a caller's own JDBC transaction; read back before the next query
+    private final Set<Integer> dirty = ConcurrentHashMap.newKeySet();
+    private final List<LowStockListener> listeners = new CopyOnWriteArrayList<>();
+    private volatile int defaultThreshold;
+
+    private static final class Level {
+        final int stock;
+        final int threshold;
+
+        Level(int stock, int threshold) {
+            this.stock = stock;
+            this.threshold = threshold;
+        }
+
+        boolean isLow() {
+            return stock < threshold;
+        }
+
+        long stockKey(int productId) {
+            return key(stock, productId);
+        }
+
+        long marginKey(int productId) {
+            long margin = (long) stock - threshold;
+            return key((int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, margin)), productId);
+        }
+    }
+
+    private LowStockTracker(Repositories base, int defaultThreshold) {
+        this.base = base;
+        this.defaultThreshold = checkThreshold(defaultThreshold);
+    }
+
+    // Index every product of base (one pass through the table)
+    public static LowStockTracker open(Repositories base, int defaultThreshold) throws SQLException {
+        LowStockTracker tracker = new LowStockTracker(base, defaultThreshold);
+        tracker.load();
+        return tracker;
+    }
+
+    // ---------- Installation ----------
+
+    // Wrap the default repositories in a tracker that prints threshold crossings
+    public static synchronized void installConfigured() {
+        if (installed != null || !Boolean.parseBoolean(System.getProperty("inventory.lowStock.tracking", "true"))) {
+            return;
+        }
+        try {
+            LowStockTracker tracker = open(Repositories.getDefault(), Integer.getInteger("inventory.lowStock.threshold", 5));
+            tracker.addListener((productId, stock, threshold, low) -> {
+                if (low) {
+                    System.out.println("\n⚠️ Product " + productId + " is below its reorder threshold: " + stock + " < " + threshold);
+                } else {
+                    System.out.println("\n✅ Product " + productId + " is back at " + stock + " (threshold " + threshold + ")");
+                }
+            });
+            Repositories.setDefault(new TrackedRepositories(tracker));
+            installed = tracker;
+        } catch (SQLException e) {
+            System.err.println("Failed to build the low-stock index, falling back to table scans: " + e.getMessage());
+        }
+    }
+
+    public static LowStockTracker getInstalled() {
+        return installed;
+    }
+
+    public static synchronized void uninstall() {
+        LowStockTracker tracker = installed;
+        if (tracker != null) {
+            installed = null;
+            Repositories.setDefault(tracker.base);
+        }
+    }
+
+    // For stock changed on a caller's connection (Product.decrementStock(conn, ...) and friends).
+    // With auto-commit the change is already committed; otherwise it is read back before the next query.
+    public static void changedOn(Connection conn, int productId) throws SQLException {
+        LowStockTracker tracker = installed;
+        if (tracker == null) {
+            return;
+        }
+        if (conn.getAutoCommit()) {
+            tracker.refresh(productId);
+        } else {
+            tracker.dirty.add(productId);
+        }
+    }
+
+    Repositories getBase() {
+        return base;
+    }
+
+    // ---------- Change notifications ----------
+
+    // Re-index productId once the current transaction (if any) completes
+    void changed(int productId) {
+        base.afterCompletion(committed -> refresh(productId));
+    }
+
+    void deleted(int productId) {
+        base.afterCompletion(committed -> {
+            if (committed) {
+                remove(productId);
+            }
+        });
+    }
+
+    // Read the product's stock and re-index it. Done under the product's lock, so whichever refresh
+    // runs last reads (and keeps) the latest committed stock. getStock reads the primary and skips the
+    // product cache, which may still hold the row from before the change.
+    public void refresh(int productId) {
+        long start = Metrics.start();
+        locks.lock(productId);
+        try {
+            int stock;
+            try {
+                stock = base.products().getStock(productId);
+            } catch (SQLException e) {
+                if (base.products().findById(productId) != null) {
+                    throw e;
+                }
+                removeLocked(productId); // deleted
+                REFRESH.success(start, 1);
+                return;
+            }
+            applyLocked(productId, stock, true);
+            REFRESH.success(start, 1);
+        } catch (SQLException e) {
+            REFRESH.failure(start);
+            System.err.println("Failed to refresh low-stock entry for product " + productId + ": " + e.getMessage());
+        } finally {
+            locks.unlock(productId);
+        }
+    }
+
+    private void remove(int productId) {
+        locks.lock(productId);
+        try {
+            removeLocked(productId);
+        } finally {
+            locks.unlock(productId);
+        }
+    }
+
+    private void load() throws SQLException {
+        int after = Integer.MIN_VALUE;
+        while (true) {
+            Page<Product> page = base.products().list(after, Page.MAX_SIZE, null);
+            for (Product p : page.getItems()) {
+                locks.lock(p.getProductId());
+                try {
+                    applyLocked(p.getProductId(), p.getStockQuantity(), false);
+                } finally {
+                    locks.unlock(p.getProductId());
+                }
+            }
+            if (!page.hasMore()) {
+                return;
+            }
+            after = page.getLast().getProductId();
+        }
+    }
+
+    private void applyLocked(int productId, int stock, boolean notify) {
+        Level old = levels.get(productId);
+        Level level = new Level(stock, thresholdOf(productId));
+        if (old != null) {
+            if (old.stock == level.stock && old.threshold == level.threshold) {
+                return;
+            }
+            byStock.remove(old.stockKey(productId));
+            byMargin.remove(old.marginKey(productId));
+        }
+        byStock.add(level.stockKey(productId));
+        byMargin.add(level.marginKey(productId));
+        levels.put(productId, level);
+
+        boolean wasLow = old != null && old.isLow();
+        if (notify && wasLow != level.isLow()) {
+            for (LowStockListener listener : listeners) {
+                listener.crossed(productId, level.stock, level.threshold, level.isLow());
+            }
+        }
+    }
+
+    private void removeLocked(int productId) {
+        Level old = levels.remove(productId);
+        if (old != null) {
+            byStock.remove(old.stockKey(productId));
+            byMargin.remove(old.marginKey(productId));
+        }
+    }
+
+    // ---------- Thresholds ----------
+
+    public int getDefaultThreshold() {
+        return defaultThreshold;
+    }
+
+    // Re-indexes every product without its own threshold; crossings are reported
+    public void setDefaultThreshold(int threshold) {
+        defaultThreshold = checkThreshold(threshold);
+        for (Integer productId : levels.keySet()) {
+            if (!thresholds.containsKey(productId)) {
+                reindex(productId);
+            }
+        }
+    }
+
+    public int thresholdOf(int productId) {
+        Integer own = thresholds.get(productId);
+        return own != null ? own : defaultThreshold;
+    }
+
+    public void setThreshold(int productId, int threshold) {
+        thresholds.put(productId, checkThreshold(threshold));
+        reindex(productId);
+    }
+
+    // Back to the default threshold
+    public void clearThreshold(int productId) {
+        thresholds.remove(productId);
+        reindex(productId);
+    }
+
+    private void reindex(int productId) {
+        locks.lock(productId);
+        try {
+            Level level = levels.get(productId);
+            if (level != null) {
+                applyLocked(productId, level.stock, true);
+            }
+        } finally {
+            locks.unlock(productId);
+        }
+    }
+
+    private static int checkThreshold(int threshold) {
+        if (threshold < 0) {
+            throw new IllegalArgumentException("Threshold must not be negative: " + threshold);
+        }
+        return threshold;
+    }
+
+    // ---------- Queries ----------
+
+    public void addListener(LowStockListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(LowStockListener listener) {
+        listeners.remove(listener);
+    }
+
+    // IDs of products with stock < level, lowest stock first
+    public List<Integer> below(int level) {
+        return ids(byStock.headSet(key(level, 0), false));
+    }
+
+    // IDs of products below their own reorder threshold, furthest below first
+    public List<Integer> belowThreshold() {
+        return ids(byMargin.headSet(key(0, 0), false));
+    }
+
+    // -1 when the product is not tracked
+    public int stockOf(int productId) {
+        Level level = levels.get(productId);
+        return level != null ? level.stock : -1;
+    }
+
+    public int size() {
+        return levels.size();
+    }
+
+    private List<Integer> ids(NavigableSet<Long> keys) {
+        for (Integer productId : dirty) {
+            if (dirty.remove(productId)) {
+                refresh(productId);
+            }
+        }
+        List<Integer> ids = new ArrayList<>();
+        for (long key : keys) {
+            ids.add((int) key); // the low 32 bits
+        }
+        return ids;
+    }
+
+    // Ordered by level, then product ID. The ID goes in the low 32 bits as an unsigned value, so
+    // key(level, 0) is the smallest key of a level.
+    private static long key(int level, int productId) {
+        return ((long) level << 32) | (productId & 0xFFFFFFFFL);
+    }
+
+    @Override
+    public String toString() {
+        return "LowStockTracker{products=" + levels.size() + ", defaultThreshold=" + defaultThreshold
+                + ", ownThresholds=" + thresholds.size() + ", low=" + byMargin.headSet(key(0, 0), false).size() + "}";
+    }
+}
@@ -0,0 +1,91 @@
+package com.repository;
+
+import com.InventoryLog;
+import com.CustomerOrder;
+import com.Order;
+import com.OrderItem;
+import com.exceptions.OutOfStockException;
+import com.utilities.Page;
+
+import java.sql.Date;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+// Orders whose stock lines are CASes on the mapped stock file; the header, items and log rows commit
+// together in the wrapped backend, and a rollback gives the taken units back
+public class MappedOrderRepository implements OrderRepository {
+
+    private final MappedStockRepositories repos;
+    private final Repositories base;
+
+    MappedOrderRepository(MappedStockRepositories repos, Repositories base) {
+        this.repos = repos;
+        this.base = base;
+    }
+
+    @Override
+    public int create(Order order) throws SQLException {
+        return base.orders().create(order);
+    }
+
+    @Override
+    public int submit(Order order, List<OrderItem> items) throws SQLException, OutOfStockException {
+        if (items.isEmpty()) {
+            throw new IllegalArgumentException("An order needs at least one item");
+        }
+        List<OrderItem> byProduct = new ArrayList<>(items);
+        byProduct.sort(Comparator.comparingInt(OrderItem::getProductId));
+
+        return repos.inTransaction(() -> {
+            int orderId = base.orders().create(order);
+            for (OrderItem item : byProduct) {
+                int productId = item.getProductId();
+                if (item.getQuantity() <= 0) {
+                    throw new IllegalArgumentException("Quantity must be greater than 0 for product " + productId);
+                }
+                if (!repos.seed(productId) || repos.decrementStock(productId, item.getQuantity()) == ProductRepository.OUT_OF_STOCK) {
+                    throw new OutOfStockException(productId, "Not enough stock (or no such product) for product ID: " + productId);
+                }
+            }
+            for (OrderItem item : items) {
+                item.setOrderId(orderId);
+                base.orderItems().create(item);
+            }
+            Timestamp now = new Timestamp(System.currentTimeMillis());
+            for (OrderItem item : byProduct) {
+                base.inventoryLogs().append(new InventoryLog(
+                        0, item.getProductId(), -item.getQuantity(), "Order Processed - Order " + orderId, now));
+            }
+            return orderId;
+        });
+    }
+
+    @Override
+    public boolean exists(int orderId) throws SQLException {
+        return base.orders().exists(orderId);
+    }
+
+    @Override
+    public Page<Order> list(int afterOrderId, int pageSize, String status) throws SQLException {
+        return base.orders().list(afterOrderId, pageSize, status);
+    }
+
+    @Override
+    public Page<CustomerOrder> listByCustomer(String customerName, Date beforeDate, int beforeOrderId, int pageSize)
+            throws SQLException {
+        return base.orders().listByCustomer(customerName, beforeDate, beforeOrderId, pageSize);
+    }
+
+    @Override
+    public int updateStatus(int orderId, String newStatus) throws SQLException {
+        return base.orders().updateStatus(orderId, newStatus);
+    }
+
+    @Override
+    public int delete(int orderId) throws SQLException {
+        return base.orders().delete(orderId);
+    }
+}
@@ -0,0 +1,102 @@
+package com.repository;
+
+import com.Product;
+import com.utilities.Page;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+// Product rows from the wrapped repository with stock_quantity replaced by the mapped stock file
+public class MappedProductRepository implements ProductRepository {
+
+    private final MappedStockRepositories repos;
+    private final ProductRepository base;
+
+    MappedProductRepository(MappedStockRepositories repos, ProductRepository base) {
+        this.repos = repos;
+        this.base = base;
+    }
+
+    @Override
+    public int create(Product product) throws SQLException {
+        int productId = base.create(product);
+        repos.put(productId, product.getStockQuantity());
+        return productId;
+    }
+
+    @Override
+    public Product findById(int productId) throws SQLException {
+        Product p = base.findById(productId);
+        if (p != null) {
+            p.setStockQuantity(repos.stockOf(p));
+        }
+        return p;
+    }
+
+    @Override
+    public Page<Product> list(int afterProductId, int pageSize, String nameFilter) throws SQLException {
+        Page<Product> page = base.list(afterProductId, pageSize, nameFilter);
+        for (Product p : page.getItems()) {
+            p.setStockQuantity(repos.stockOf(p));
+        }
+        return page;
+    }
+
+    @Override
+    public int updatePrice(int productId, double newPrice) throws SQLException {
+        return base.updatePrice(productId, newPrice);
+    }
+
+    @Override
+    public int delete(int productId) throws SQLException {
+        int rows = base.delete(productId);
+        if (rows > 0) {
+            repos.remove(productId);
+        }
+        return rows;
+    }
+
+    @Override
+    public int getStock(int productId) throws SQLException {
+        return repos.getStock(productId);
+    }
+
+    @Override
+    public int setStock(int productId, int newStock) throws SQLException {
+        return repos.setStock(productId, newStock);
+    }
+
+    @Override
+    public int decrementStock(int productId, int quantity) throws SQLException {
+        return repos.decrementStock(productId, quantity);
+    }
+
+    // The rows (and their column, the new opening balance) go to the base; the stock to the file
+    @Override
+    public void upsertStock(List<Product> products) throws SQLException {
+        base.upsertStock(products);
+        for (Product p : products) {
+            repos.put(p.getProductId(), p.getStockQuantity());
+        }
+    }
+
+    // The column no longer holds the stock, so this pages through every product
+    @Override
+    public List<Product> findLowStock(int threshold) throws SQLException {
+        List<Product> low = new ArrayList<>();
+        int after = Integer.MIN_VALUE;
+        while (true) {
+            Page<Product> page = list(after, Page.MAX_SIZE, null);
+            for (Product p : page.getItems()) {
+                if (p.getStockQuantity() < threshold) {
+                    low.add(p);
+                }
+            }
+            if (!page.hasMore()) {
+                return low;
+            }
+            after = page.getLast().getProductId();
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package com.repository;
+
+import com.Product;
+import com.exceptions.OutOfStockException;
+import com.utilities.MappedStockFile;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.SQLException;
+
+// Repositories whose stock lives in a MappedStockFile (-Dinventory.stock=mapped) rather than the
+// Product.stock_quantity column. A sale is a CAS on the mapped counter, with no database round trip for
+// the stock itself, and a restart just maps the file again.
+//
+// A product that is not in the file yet starts from its stock_quantity column. The column is not
+// written afterwards, so it stays the opening balance. Counter changes are undone when the surrounding
+// transaction rolls back, but they are not part of it: a crash between the CAS and the commit loses
+// the taken units (stock is under-, never over-counted). Product.getProductStock/updateProductStock
+// and decrementStock(conn, ...) use the file too while it is installed. Assumes this process is the
+// only writer of stock.
+public class MappedStockRepositories implements Repositories {
+
+    private static volatile MappedStockRepositories installed;
+
+    private final MappedStockFile file;
+    private final Repositories base;
+    private final MappedProductRepository products;
+    private final MappedOrderRepository orders;
+
+    public MappedStockRepositories(MappedStockFile file, Repositories base) {
+        this.file = file;
+        this.base = base;
+        this.products = new MappedProductRepository(this, base.products());
+        this.orders = new MappedOrderRepository(this, base);
+    }
+
+    // ---------- Installation ----------
+
+    // With -Dinventory.stock=mapped, keep stock in -Dinventory.stockFile (default stock.dat), forced to
+    // disk every -Dinventory.stockFile.syncSeconds (default 5)
+    public static synchronized void installConfigured() {
+        if (installed != null || !"mapped".equalsIgnoreCase(System.getProperty("inventory.stock"))) {
+            return;
+        }
+        Path path = Path.of(System.getProperty("inventory.stockFile", "stock.dat"));
+        try {
+            MappedStockFile file = MappedStockFile.open(path, Integer.getInteger("inventory.stockFile.capacity", 1 << 20));
+            file.startPeriodicSync(Long.getLong("inventory.stockFile.syncSeconds", 5));
+            MappedStockRepositories repos = new MappedStockRepositories(file, Repositories.getDefault());
+            Repositories.setDefault(repos);
+            installed = repos;
+            System.out.println("Stock file: " + file);
+        } catch (IOException e) {
+            System.err.println("Failed to open the stock file, using stock_quantity: " + e.getMessage());
+        }
+    }
+
+    public static MappedStockRepositories getInstalled() {
+        return installed;
+    }
+
+    // Close the file cleanly and go back to the plain repositories
+    public static synchronized void uninstall() {
+        MappedStockRepositories repos = installed;
+        if (repos != null) {
+            installed = null;
+            Repositories.setDefault(repos.base);
+            try {
+                repos.file.close();
+            } catch (IOException e) {
+                System.err.println("Failed to close the stock file: " + e.getMessage());
+            }
+        }
+    }
+
+    public MappedStockFile getFile() {
+        return file;
+    }
+
+    // ---------- Stock ----------
+
+    // Stock of a product read from the base repositories, whose stock_quantity is its opening balance
+    int stockOf(Product p) throws SQLException {
+        int current = file.get(p.getProductId());
+        return current != MappedStockFile.MISSING ? current : seed(p.getProductId(), p.getStockQuantity());
+    }
+
+    // Make sure the product is in the file, seeded from its column on first use; false if there is no such product
+    boolean seed(int productId) throws SQLException {
+        if (file.get(productId) != MappedStockFile.MISSING) {
+            return true;
+        }
+        Product p = base.products().findById(productId);
+        if (p == null) {
+            return false;
+        }
+        seed(productId, p.getStockQuantity());
+        return true;
+    }
+
+    private int seed(int productId, int stock) throws SQLException {
+        try {
+            return file.putIfAbsent(productId, Math.max(0, stock));
+        } catch (IOException e) {
+            throw new SQLException("Stock file: " + e.getMessage(), e);
+        }
+    }
+
+    public int getStock(int productId) throws SQLException {
+        int current = seed(productId) ? file.get(productId) : MappedStockFile.MISSING;
+        if (current == MappedStockFile.MISSING) {
+            throw new SQLException("Product not found: " + productId);
+        }
+        return current;
+    }
+
+    // Returns the number of products updated (0 or 1), like the UPDATE it replaces
+    public int setStock(int productId, int newStock) throws SQLException {
+        int old = seed(productId) ? file.replace(productId, newStock) : MappedStockFile.MISSING;
+        if (old == MappedStockFile.MISSING) {
+            return 0;
+        }
+        undoOnRollback(productId, old - newStock);
+        return 1;
+    }
+
+    // New stock or OUT_OF_STOCK; throws when the product does not exist
+    public int decrementStock(int productId, int quantity) throws SQLException {
+        if (quantity <= 0) {
+            throw new IllegalArgumentException("Quantity must be greater than 0: " + quantity);
+        }
+        int remaining = seed(productId) ? file.decrement(productId, quantity) : MappedStockFile.MISSING;
+        if (remaining == MappedStockFile.MISSING) {
+            throw new SQLException("Product not found: " + productId);
+        }
+        if (remaining != ProductRepository.OUT_OF_STOCK) {
+            undoOnRollback(productId, quantity);
+        }
+        return remaining;
+    }
+
+    void put(int productId, int stock) throws SQLException {
+        int old;
+        try {
+            old = file.put(productId, Math.max(0, stock));
+        } catch (IOException e) {
+            throw new SQLException("Stock file: " + e.getMessage(), e);
+        }
+        base.afterCompletion(committed -> {
+            if (!committed) {
+                if (old == MappedStockFile.MISSING) {
+                    file.remove(productId);
+                } else {
+                    file.add(productId, old - Math.max(0, stock));
+                }
+            }
+        });
+    }
+
+    void remove(int productId) {
+        int old = file.remove(productId);
+        base.afterCompletion(committed -> {
+            if (!committed && old != MappedStockFile.MISSING) {
+                try {
+                    file.putIfAbsent(productId, old); // its slot exists, so this never grows the file
+                } catch (IOException e) {
+                    System.err.println("Failed to restore stock of product " + productId + ": " + e.getMessage());
+                }
+            }
+        });
+    }
+
+    // A delta rather than the old value, so concurrent sales of the product survive the undo
+    private void undoOnRollback(int productId, int delta) {
+        base.afterCompletion(committed -> {
+            if (!committed) {
+                file.add(productId, delta);
+            }
+        });
+    }
+
+    // ---------- Repositories ----------
+
+    @Override
+    public ProductRepository products() {
+        return products;
+    }
+
+    @Override
+    public SupplierRepository suppliers() {
+        return base.suppliers();
+    }
+
+    @Override
+    public OrderRepository orders() {
+        return orders;
+    }
+
+    @Override
+    public OrderItemRepository orderItems() {
+        return base.orderItems();
+    }
+
+    @Override
+    public InventoryLogRepository inventoryLogs() {
+        return base.inventoryLogs();
+    }
+
+    @Override
+    public <T> T inTransaction(TransactionWork<T> work) throws SQLException, OutOfStockException {
+        return base.inTransaction(work);
+    }
+
+    @Override
+    public void afterCompletion(TransactionCallback callback) {
+        base.afterCompletion(callback);
+    }
+}
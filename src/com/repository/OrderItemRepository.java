@@ -0,0 +1,17 @@
+package com.repository;
+
+import com.OrderItem;
+import com.utilities.Page;
+
+import java.sql.SQLException;
+
+public interface OrderItemRepository {
+
+    // Inserts the item; returns the number of rows written
+    int create(OrderItem item) throws SQLException;
+
+    // Keyset page of items with order_item_id > afterOrderItemId; orderId <= 0 for every order
+    Page<OrderItem> list(int afterOrderItemId, int pageSize, int orderId) throws SQLException;
+
+    int delete(int orderItemId) throws SQLException;
+}
@@ -0,0 +1,36 @@
+package com.repository;
+
+import com.CustomerOrder;
+import com.Order;
+import com.OrderItem;
+import com.exceptions.OutOfStockException;
+import com.utilities.Page;
+
+import java.sql.Date;
+import java.sql.SQLException;
+import java.util.List;
+
+public interface OrderRepository {
+
+    // Inserts the order header only and sets its generated ID; returns the ID
+    int create(Order order) throws SQLException;
+
+    // Order header, stock decrements, items and InventoryLog rows as one atomic unit.
+    // If any line is short of stock nothing is applied and OutOfStockException is thrown.
+    // Sets the generated order ID on the order and its items and returns it.
+    int submit(Order order, List<OrderItem> items) throws SQLException, OutOfStockException;
+
+    boolean exists(int orderId) throws SQLException;
+
+    // Keyset page of orders with order_id > afterOrderId; status may be null for all
+    Page<Order> list(int afterOrderId, int pageSize, String status) throws SQLException;
+
+    // One customer's orders with their lines, newest first (order_date, then order_id). beforeDate is
+    // null for the first page; later pages continue after the (order_date, order_id) of the last order.
+    Page<CustomerOrder> listByCustomer(String customerName, Date beforeDate, int beforeOrderId, int pageSize)
+            throws SQLException;
+
+    int updateStatus(int orderId, String newStatus) throws SQLException;
+
+    int delete(int orderId) throws SQLException;
+}
@@ -0,0 +1,41 @@
+package com.repository;
+
+import com.Product;
+import com.utilities.Page;
+
+import java.sql.SQLException;
+import java.util.List;
+
+public interface ProductRepository {
+
+    // Returned by decrementStock when the product does not have enough units left
+    int OUT_OF_STOCK = -1;
+
+    // Inserts the product and sets its generated ID; returns the ID
+    int create(Product product) throws SQLException;
+
+    // Null when there is no such product. The caller owns the returned object.
+    Product findById(int productId) throws SQLException;
+
+    // Keyset page of products with product_id > afterProductId; nameFilter (substring) may be null
+    Page<Product> list(int afterProductId, int pageSize, String nameFilter) throws SQLException;
+
+    int updatePrice(int productId, double newPrice) throws SQLException;
+
+    int delete(int productId) throws SQLException;
+
+    // Throws when the product does not exist
+    int getStock(int productId) throws SQLException;
+
+    int setStock(int productId, int newStock) throws SQLException;
+
+    // Atomically take quantity units out of stock if at least that many are left.
+    // Returns the new stock or OUT_OF_STOCK; throws when the product does not exist.
+    int decrementStock(int productId, int quantity) throws SQLException;
+
+    // Insert each product with its own ID, or only reset the stock of the ones that already exist
+    void upsertStock(List<Product> products) throws SQLException;
+
+    // Products with stock_quantity < threshold
+    List<Product> findLowStock(int threshold) throws SQLException;
+}
@@ -0,0 +1,77 @@
+package com.repository;
+
+import com.InventoryLog;
+import com.exceptions.OutOfStockException;
+
+import java.sql.SQLException;
+import java.sql.Timestamp;
+
+// One persistence backend: the five repositories plus transactions spanning them.
+//
+// The entity classes' static CRUD methods go through getDefault(), which is JDBC on DBConnection
+// unless -Dinventory.repository=memory is set (or setDefault() is called), in which case the whole
+// application - menus, OrderEngine, LoadGenerator - runs against the in-memory store.
+public interface Repositories {
+
+    ProductRepository products();
+
+    SupplierRepository suppliers();
+
+    OrderRepository orders();
+
+    OrderItemRepository orderItems();
+
+    InventoryLogRepository inventoryLogs();
+
+    // Run work as one atomic unit: everything it does through these repositories commits together
+    // or not at all. Nested calls join the outer transaction.
+    <T> T inTransaction(TransactionWork<T> work) throws SQLException, OutOfStockException;
+
+    // Run callback on this thread once the outermost transaction commits or rolls back (newest
+    // callback first). Outside a transaction it runs immediately, as committed.
+    void afterCompletion(TransactionCallback callback);
+
+    // Take quantity units out of stock and record the InventoryLog row for it as one unit (a queued
+    // log writer is bypassed inside the transaction, see JdbcInventoryLogRepository.append).
+    // Returns the new stock or ProductRepository.OUT_OF_STOCK (in which case nothing is written).
+    default int sell(int productId, int quantity, String action) throws SQLException {
+        try {
+            return inTransaction(() -> {
+                int remaining = products().decrementStock(productId, quantity);
+                if (remaining != ProductRepository.OUT_OF_STOCK) {
+                    inventoryLogs().append(new InventoryLog(
+                            0, productId, -quantity, action, new Timestamp(System.currentTimeMillis())));
+                }
+                return remaining;
+            });
+        } catch (OutOfStockException e) {
+            throw new IllegalStateException(e); // the work above reports shortage as OUT_OF_STOCK
+        }
+    }
+
+    static Repositories jdbc(ConnectionSource source) {
+        return new JdbcRepositories(source);
+    }
+
+    static Repositories inMemory() {
+        return new InMemoryRepositories();
+    }
+
+    static Repositories getDefault() {
+        return Holder.current;
+    }
+
+    static void setDefault(Repositories repositories) {
+        Holder.current = repositories;
+    }
+
+    final class Holder {
+        private static volatile Repositories current =
+                "memory".equalsIgnoreCase(System.getProperty("inventory.repository"))
+                        ? inMemory()
+                        : jdbc(ConnectionSource.dbConnection());
+
+        private Holder() {
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.repository;
+
+import com.InventoryLog;
+import com.utilities.Page;
+
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Log rows live with their product. Log IDs are unique across shards, but each shard counts on its
+// own, so a busy shard's IDs run ahead of a quiet one's.
+public class ShardedInventoryLogRepository implements InventoryLogRepository {
+
+    private static final Comparator<InventoryLog> NEWEST_FIRST =
+            Comparator.comparing(InventoryLog::getTimestamp).thenComparingInt(InventoryLog::getLogId).reversed();
+
+    private final ShardedRepositories repos;
+
+    ShardedInventoryLogRepository(ShardedRepositories repos) {
+        this.repos = repos;
+    }
+
+    @Override
+    public void append(InventoryLog log) throws SQLException {
+        repos.shardFor(log.getProductId()).inventoryLogs().append(log);
+    }
+
+    @Override
+    public Page<InventoryLog> list(Timestamp beforeTimestamp, int beforeLogId, int pageSize, int productId)
+            throws SQLException {
+        if (productId > 0) {
+            return repos.shardFor(productId).inventoryLogs().list(beforeTimestamp, beforeLogId, pageSize, productId);
+        }
+        Page.checkSize(pageSize);
+        return ShardedRepositories.merge(
+                repos.scatter(shard -> shard.inventoryLogs().list(beforeTimestamp, beforeLogId, pageSize, 0)),
+                NEWEST_FIRST, pageSize);
+    }
+
+    // The highest ID on any shard. The shards behind it are moved past it, so every row logged after
+    // this call has a larger ID and the value works as a netChanges() cursor (as on one database, rows
+    // still uncommitted at the time of the call may have smaller ones). Not inside a transaction,
+    // where the DDL would commit it early.
+    @Override
+    public long lastLogId() throws SQLException {
+        List<Long> maxima = repos.scatter(shard -> shard.inventoryLogs().lastLogId());
+        long last = 0;
+        for (long id : maxima) {
+            last = Math.max(last, id);
+        }
+        if (!repos.isInTransaction()) {
+            for (int i = 0; i < maxima.size(); i++) {
+                if (maxima.get(i) < last) {
+                    repos.advanceLogIds(i, last);
+                }
+            }
+        }
+        return last;
+    }
+
+    // Each product's rows are on one shard, so the per-shard sums are disjoint
+    @Override
+    public Map<Integer, Long> netChanges(long afterLogId, int fromProductId, int toProductId) throws SQLException {
+        Map<Integer, Long> net = new HashMap<>();
+        for (Map<Integer, Long> shard : repos.scatter(shard -> shard.inventoryLogs().netChanges(afterLogId, fromProductId, toProductId))) {
+            net.putAll(shard);
+        }
+        return net;
+    }
+}
@@ -0,0 +1,36 @@
+package com.repository;
+
+import com.OrderItem;
+import com.utilities.Page;
+
+import java.sql.SQLException;
+import java.util.Comparator;
+
+// Order items live with their product, and their generated IDs route to the same shard
+public class ShardedOrderItemRepository implements OrderItemRepository {
+
+    private final ShardedRepositories repos;
+
+    ShardedOrderItemRepository(ShardedRepositories repos) {
+        this.repos = repos;
+    }
+
+    @Override
+    public int create(OrderItem item) throws SQLException {
+        return repos.shardFor(item.getProductId()).orderItems().create(item);
+    }
+
+    // An order's items are spread over its products' shards, so even a per-order listing asks every shard
+    @Override
+    public Page<OrderItem> list(int afterOrderItemId, int pageSize, int orderId) throws SQLException {
+        Page.checkSize(pageSize);
+        return ShardedRepositories.merge(
+                repos.scatter(shard -> shard.orderItems().list(afterOrderItemId, pageSize, orderId)),
+                Comparator.comparingInt(OrderItem::getOrderItemId), pageSize);
+    }
+
+    @Override
+    public int delete(int orderItemId) throws SQLException {
+        return repos.shardFor(orderItemId).orderItems().delete(orderItemId);
+    }
+}
@@ -0,0 +1,193 @@
+package com.repository;
+
+import com.CustomerOrder;
+import com.Order;
+import com.OrderItem;
+import com.exceptions.OutOfStockException;
+import com.utilities.Metrics;
+import com.utilities.Page;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+// Orders by order ID. An order's items, stock decrements and log rows go to their products' shards,
+// so a submit spans the order's shard and every shard its lines touch.
+public class ShardedOrderRepository implements OrderRepository {
+
+    private static final Metrics.Operation SUBMIT = Metrics.operation("Shard.submit");
+    private static final Metrics.Operation SUBMIT_REJECTED = Metrics.operation("Shard.submitOutOfStock");
+    private static final Metrics.Operation HISTORY = Metrics.operation("Shard.history");
+    private static final Comparator<Order> NEWEST_FIRST =
+            Comparator.comparing(Order::getOrderDate).thenComparingInt(Order::getOrderId).reversed();
+
+    private final ShardedRepositories repos;
+
+    ShardedOrderRepository(ShardedRepositories repos) {
+        this.repos = repos;
+    }
+
+    @Override
+    public int create(Order order) throws SQLException {
+        int shard = repos.nextCreateShard();
+        return ShardedRepositories.unchecked(() -> repos.inTransaction(new int[]{shard}, () -> {
+            int id = repos.shard(shard).orders().create(order);
+            repos.checkGenerated(shard, id, "Orders");
+            return id;
+        }));
+    }
+
+    // Same steps as the single-database submit, one batch per shard: decrements (shards in order,
+    // products in ID order within each, so concurrent orders lock rows in the same order), then the
+    // items and log rows. The background log writer is off while sharded, so logs go in the transaction.
+    @Override
+    public int submit(Order order, List<OrderItem> items) throws SQLException, OutOfStockException {
+        if (items.isEmpty()) {
+            throw new IllegalArgumentException("An order needs at least one item");
+        }
+        List<OrderItem> byProduct = new ArrayList<>(items);
+        byProduct.sort(Comparator.comparingInt(OrderItem::getProductId));
+
+        Map<Integer, List<OrderItem>> linesByShard = new TreeMap<>();
+        Map<Integer, List<OrderItem>> itemsByShard = new TreeMap<>();
+        for (OrderItem item : byProduct) {
+            linesByShard.computeIfAbsent(repos.shardOf(item.getProductId()), k -> new ArrayList<>()).add(item);
+        }
+        for (OrderItem item : items) {
+            itemsByShard.computeIfAbsent(repos.shardOf(item.getProductId()), k -> new ArrayList<>()).add(item);
+        }
+        int orderShard = repos.nextCreateShard();
+        TreeSet<Integer> involved = new TreeSet<>(linesByShard.keySet());
+        involved.add(orderShard);
+
+        long start = Metrics.start();
+        try {
+            int orderId = repos.inTransaction(involved.stream().mapToInt(Integer::intValue).toArray(), () -> {
+                int id;
+                try (Connection conn = repos.shard(orderShard).getConnection()) {
+                    id = JdbcOrderRepository.insertOrder(conn, order);
+                }
+                JdbcOrderRepository.invalidateHistoryAfterCommit(repos, order.getCustomerName());
+                repos.checkGenerated(orderShard, id, "Orders");
+                for (Map.Entry<Integer, List<OrderItem>> e : linesByShard.entrySet()) {
+                    try (Connection conn = repos.shard(e.getKey()).getConnection()) {
+                        JdbcOrderRepository.decrementAll(conn, e.getValue());
+                    }
+                }
+                for (Map.Entry<Integer, List<OrderItem>> e : linesByShard.entrySet()) {
+                    try (Connection conn = repos.shard(e.getKey()).getConnection()) {
+                        JdbcOrderRepository.insertItems(conn, id, itemsByShard.get(e.getKey()));
+                        JdbcOrderRepository.insertLogs(conn, id, e.getValue());
+                    }
+                }
+                return id;
+            });
+            SUBMIT.success(start, items.size());
+            return orderId;
+        } catch (OutOfStockException e) {
+            SUBMIT_REJECTED.success(start);
+            throw e;
+        } catch (SQLException | RuntimeException e) {
+            SUBMIT.failure(start);
+            throw e;
+        } finally {
+            JdbcOrderRepository.invalidateStockAfterCommit(repos, byProduct);
+        }
+    }
+
+    @Override
+    public boolean exists(int orderId) throws SQLException {
+        return repos.shardFor(orderId).orders().exists(orderId);
+    }
+
+    @Override
+    public Page<Order> list(int afterOrderId, int pageSize, String status) throws SQLException {
+        Page.checkSize(pageSize);
+        return ShardedRepositories.merge(
+                repos.scatter(shard -> shard.orders().list(afterOrderId, pageSize, status)),
+                Comparator.comparingInt(Order::getOrderId), pageSize);
+    }
+
+    // A customer's orders are on every shard and their lines on their products' shards, so this is two
+    // scatters: the headers (merged newest first), then the lines of the page's orders. The newest page
+    // is cached like on a single database.
+    @Override
+    public Page<CustomerOrder> listByCustomer(String customerName, Date beforeDate, int beforeOrderId, int pageSize)
+            throws SQLException {
+        Page.checkSize(pageSize);
+        boolean firstPage = beforeDate == null;
+        long start = Metrics.start();
+        if (firstPage) {
+            Page<CustomerOrder> cached = Order.getHistoryCache().get(customerName, pageSize);
+            if (cached != null) {
+                HISTORY.success(start, cached.getItems().size());
+                return cached;
+            }
+        }
+
+        long generation = Order.getHistoryCache().generation(customerName);
+        boolean[] replica = new boolean[1]; // any part read from a replica: do not cache
+        try {
+            Page<Order> headers = ShardedRepositories.merge(repos.scatter(shard -> {
+                try (Connection conn = shard.getReadConnection()) {
+                    if (shard.isReplica(conn)) {
+                        replica[0] = true;
+                    }
+                    return Page.of(JdbcOrderRepository.historyHeaders(conn, customerName, beforeDate, beforeOrderId, pageSize + 1), pageSize);
+                }
+            }), NEWEST_FIRST, pageSize);
+
+            List<Integer> orderIds = new ArrayList<>();
+            Map<Integer, CustomerOrder> byId = new HashMap<>();
+            List<CustomerOrder> orders = new ArrayList<>();
+            for (Order o : headers.getItems()) {
+                CustomerOrder co = new CustomerOrder(o, new ArrayList<>());
+                orderIds.add(o.getOrderId());
+                byId.put(o.getOrderId(), co);
+                orders.add(co);
+            }
+            for (List<OrderItem> shardItems : repos.scatter(shard -> {
+                try (Connection conn = shard.getReadConnection()) {
+                    if (shard.isReplica(conn)) {
+                        replica[0] = true;
+                    }
+                    return JdbcOrderRepository.itemsOf(conn, orderIds);
+                }
+            })) {
+                for (OrderItem item : shardItems) {
+                    byId.get(item.getOrderId()).getItems().add(item);
+                }
+            }
+            for (CustomerOrder co : orders) {
+                co.getItems().sort(Comparator.comparingInt(OrderItem::getOrderItemId));
+            }
+
+            Page<CustomerOrder> page = new Page<>(orders, headers.hasMore());
+            if (firstPage && !replica[0]) {
+                Order.getHistoryCache().put(customerName, pageSize, page, generation);
+            }
+            HISTORY.success(start, orders.size());
+            return page;
+        } catch (SQLException | RuntimeException e) {
+            HISTORY.failure(start);
+            throw e;
+        }
+    }
+
+    @Override
+    public int updateStatus(int orderId, String newStatus) throws SQLException {
+        return repos.shardFor(orderId).orders().updateStatus(orderId, newStatus);
+    }
+
+    @Override
+    public int delete(int orderId) throws SQLException {
+        return repos.shardFor(orderId).orders().delete(orderId);
+    }
+}
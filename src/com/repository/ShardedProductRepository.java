@@ -0,0 +1,97 @@
+package com.repository;
+
+import com.Product;
+import com.utilities.Page;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Products by product ID; listings and the low-stock report ask every shard
+public class ShardedProductRepository implements ProductRepository {
+
+    private final ShardedRepositories repos;
+
+    ShardedProductRepository(ShardedRepositories repos) {
+        this.repos = repos;
+    }
+
+    // Round-robin over the shards. In the shard's own transaction, so a row with an ID from the
+    // wrong residue class is rolled back rather than left where no lookup would find it.
+    @Override
+    public int create(Product product) throws SQLException {
+        int shard = repos.nextCreateShard();
+        return ShardedRepositories.unchecked(() -> repos.inTransaction(new int[]{shard}, () -> {
+            int id = repos.shard(shard).products().create(product);
+            repos.checkGenerated(shard, id, "Product");
+            return id;
+        }));
+    }
+
+    @Override
+    public Product findById(int productId) throws SQLException {
+        return repos.shardFor(productId).products().findById(productId);
+    }
+
+    @Override
+    public Page<Product> list(int afterProductId, int pageSize, String nameFilter) throws SQLException {
+        Page.checkSize(pageSize);
+        return ShardedRepositories.merge(
+                repos.scatter(shard -> shard.products().list(afterProductId, pageSize, nameFilter)),
+                Comparator.comparingInt(Product::getProductId), pageSize);
+    }
+
+    @Override
+    public int updatePrice(int productId, double newPrice) throws SQLException {
+        return repos.shardFor(productId).products().updatePrice(productId, newPrice);
+    }
+
+    @Override
+    public int delete(int productId) throws SQLException {
+        return repos.shardFor(productId).products().delete(productId);
+    }
+
+    @Override
+    public int getStock(int productId) throws SQLException {
+        return repos.shardFor(productId).products().getStock(productId);
+    }
+
+    @Override
+    public int setStock(int productId, int newStock) throws SQLException {
+        return repos.shardFor(productId).products().setStock(productId, newStock);
+    }
+
+    @Override
+    public int decrementStock(int productId, int quantity) throws SQLException {
+        return repos.shardFor(productId).products().decrementStock(productId, quantity);
+    }
+
+    // One batch per shard, all in one (cross-shard) transaction
+    @Override
+    public void upsertStock(List<Product> products) throws SQLException {
+        Map<Integer, List<Product>> byShard = new TreeMap<>();
+        for (Product p : products) {
+            byShard.computeIfAbsent(repos.shardOf(p.getProductId()), k -> new ArrayList<>()).add(p);
+        }
+        int[] shards = byShard.keySet().stream().mapToInt(Integer::intValue).toArray();
+        ShardedRepositories.unchecked(() -> repos.inTransaction(shards, () -> {
+            for (Map.Entry<Integer, List<Product>> e : byShard.entrySet()) {
+                repos.shard(e.getKey()).products().upsertStock(e.getValue());
+            }
+            return null;
+        }));
+    }
+
+    @Override
+    public List<Product> findLowStock(int threshold) throws SQLException {
+        List<Product> products = new ArrayList<>();
+        for (List<Product> shard : repos.scatter(shard -> shard.products().findLowStock(threshold))) {
+            products.addAll(shard);
+        }
+        products.sort(Comparator.comparingInt(Product::getProductId));
+        return products;
+    }
+}
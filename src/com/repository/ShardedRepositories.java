@@ -0,0 +1,455 @@
+package com.repository;
+
+import com.InventoryLog;
+import com.exceptions.OutOfStockException;
+import com.utilities.ConnectionPool;
+import com.utilities.DBConnection;
+import com.utilities.Metrics;
+import com.utilities.Page;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// JDBC repositories spread over N databases ("shards"), each with its own connection pool. Turned on
+// with -Dinventory.shards=<url>,<url>,... (same user and password as -Dinventory.db.*).
+//
+// Product, OrderItem and InventoryLog rows live on the shard of their product ID, Orders on the shard
+// of their order ID; Supplier is small reference data and stays on shard 0. An ID routes to shard
+// (id - 1) mod N. New products and orders go to the shards round-robin, so every shard must generate
+// IDs in its own residue class: shard k hands out k+1, k+1+N, k+1+2N, ... On MySQL that is
+// auto_increment_increment=N and auto_increment_offset=k+1 in the server config; interleaveIds() sets
+// it for H2 (and SET GLOBAL on MySQL) when -Dinventory.shards.prepare=true. A create that gets an ID
+// belonging to another shard fails instead of storing an unreachable row.
+//
+// Lookups and writes by ID touch one shard. Listings and reports without a product or order ID are
+// scatter-gathered: every shard is asked in parallel and the pages are merged. A transaction runs
+// one JDBC transaction per shard it may touch; shards a nested call adds stay open until the
+// outermost transaction ends, and all of them commit in shard order. There is no two-phase commit:
+// if a later shard's commit fails after an earlier one succeeded, the earlier shard keeps its part.
+// Callbacks then see committed=false, and the partial commit is logged and counted (Shard.partialCommit).
+//
+// InventoryLog IDs grow independently on each shard, so lastLogId() also moves every lagging shard's
+// log IDs past the value it returns; that keeps it usable as a netChanges() cursor. The background
+// log writer, the exports and the helpers that take a caller's Connection work on the
+// -Dinventory.db.url database, not the shards.
+public class ShardedRepositories implements Repositories {
+
+    private static final Metrics.Operation SCATTER = Metrics.operation("Shard.scatter");
+    private static final Metrics.Operation COMMIT = Metrics.operation("Shard.commit");
+    private static final Metrics.Operation PARTIAL_COMMIT = Metrics.operation("Shard.partialCommit");
+
+    private static volatile ShardedRepositories installed;
+    private static Repositories previous;
+
+    private final List<JdbcRepositories> shards = new ArrayList<>();
+    private final List<ConnectionPool> pools; // closed with the router
+    private final ExecutorService scatterPool;
+    private final AtomicInteger nextShard = new AtomicInteger();
+    private final ThreadLocal<Deque<TransactionCallback>> callbacks = new ThreadLocal<>();
+    private final ThreadLocal<TreeMap<Integer, JdbcRepositories>> open = new ThreadLocal<>(); // shards in the current transaction
+    private final int[] allShards;
+
+    private final ShardedProductRepository products;
+    private final ShardedOrderRepository orders;
+    private final ShardedOrderItemRepository orderItems;
+    private final ShardedInventoryLogRepository inventoryLogs;
+
+    // One query against one shard's repositories
+    interface ShardQuery<T> {
+        T run(JdbcRepositories shard) throws SQLException;
+    }
+
+    public ShardedRepositories(List<? extends ConnectionSource> sources) {
+        this(sources, List.of());
+    }
+
+    private ShardedRepositories(List<? extends ConnectionSource> sources, List<ConnectionPool> pools) {
+        if (sources.isEmpty()) {
+            throw new IllegalArgumentException("At least one shard is needed");
+        }
+        for (ConnectionSource source : sources) {
+            shards.add(new JdbcRepositories(source));
+        }
+        this.pools = pools;
+        this.allShards = new int[shards.size()];
+        for (int i = 0; i < allShards.length; i++) {
+            allShards[i] = i;
+        }
+        AtomicInteger threads = new AtomicInteger();
+        this.scatterPool = Executors.newFixedThreadPool(shards.size(), r -> {
+            Thread t = new Thread(r, "shard-scatter-" + threads.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        this.products = new ShardedProductRepository(this);
+        this.orders = new ShardedOrderRepository(this);
+        this.orderItems = new ShardedOrderItemRepository(this);
+        this.inventoryLogs = new ShardedInventoryLogRepository(this);
+    }
+
+    // ---------- Installation ----------
+
+    // Replace the default JDBC repositories with a router over the -Dinventory.shards URLs
+    public static synchronized void installConfigured() {
+        String urls = System.getProperty("inventory.shards");
+        if (installed != null || urls == null || urls.isBlank()) {
+            return;
+        }
+        if (!(Repositories.getDefault() instanceof JdbcRepositories)) {
+            System.err.println("-Dinventory.shards needs the JDBC backend; ignoring it");
+            return;
+        }
+        int poolSize = Integer.getInteger("inventory.shards.poolSize", 10);
+        List<ConnectionPool> pools = new ArrayList<>();
+        try {
+            for (String url : urls.split(",")) {
+                pools.add(DBConnection.openPool(url.trim(), poolSize));
+            }
+            if (Boolean.getBoolean("inventory.shards.prepare")) {
+                for (int i = 0; i < pools.size(); i++) {
+                    try (Connection conn = pools.get(i).borrow()) {
+                        interleaveIds(conn, i, pools.size());
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            pools.forEach(ConnectionPool::close);
+            System.err.println("Failed to set up the shards, using " + System.getProperty("inventory.db.url", "the default database")
+                    + ": " + e.getMessage());
+            return;
+        }
+        if (InventoryLog.isQueued()) {
+            System.err.println("The background inventory log writer writes to one database; logging synchronously on the shards");
+            InventoryLog.setLogWriter(null);
+        }
+        List<ConnectionSource> sources = new ArrayList<>();
+        for (ConnectionPool pool : pools) {
+            sources.add(pool::borrow);
+        }
+        ShardedRepositories router = new ShardedRepositories(sources, pools);
+        previous = Repositories.getDefault();
+        Repositories.setDefault(router);
+        installed = router;
+        System.out.println("Sharding: " + router);
+    }
+
+    public static ShardedRepositories getInstalled() {
+        return installed;
+    }
+
+    public static synchronized void uninstall() {
+        ShardedRepositories router = installed;
+        if (router != null) {
+            installed = null;
+            Repositories.setDefault(previous);
+            router.close();
+        }
+    }
+
+    // Closes the pools the router opened itself
+    public void close() {
+        scatterPool.shutdown();
+        for (ConnectionPool pool : pools) {
+            pool.close();
+        }
+    }
+
+    // Make shard's generated IDs land in its residue class (shard + 1 mod shards), continuing after
+    // the rows it already has. H2 gets identity column DDL; MySQL only has the server-wide setting,
+    // which needs SUPER (or SYSTEM_VARIABLES_ADMIN) and affects new connections only.
+    public static void interleaveIds(Connection conn, int shard, int shards) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            if (!conn.getMetaData().getDatabaseProductName().equalsIgnoreCase("H2")) {
+                for (String scope : new String[]{"GLOBAL", "SESSION"}) { // GLOBAL for new connections, SESSION for this one
+                    stmt.execute("SET " + scope + " auto_increment_increment = " + shards);
+                    stmt.execute("SET " + scope + " auto_increment_offset = " + (shard + 1));
+                }
+                return;
+            }
+            String[][] columns = {
+                    {"Product", "product_id"}, {"Orders", "order_id"}, {"OrderItem", "order_item_id"}, {"InventoryLog", "log_id"}};
+            for (String[] c : columns) {
+                long max;
+                try (ResultSet rs = stmt.executeQuery("SELECT COALESCE(MAX(" + c[1] + "), 0) FROM " + c[0])) {
+                    rs.next();
+                    max = rs.getLong(1);
+                }
+                long next = max + 1 + Math.floorMod(shard - max, shards); // first ID > max with (id - 1) mod shards == shard
+                stmt.execute("ALTER TABLE " + c[0] + " ALTER COLUMN " + c[1] + " RESTART WITH " + next);
+                stmt.execute("ALTER TABLE " + c[0] + " ALTER COLUMN " + c[1] + " SET INCREMENT BY " + shards);
+            }
+        }
+    }
+
+    // Make shard's next InventoryLog IDs larger than after (outside any transaction: this is DDL)
+    void advanceLogIds(int shard, long after) throws SQLException {
+        try (Connection conn = shards.get(shard).getConnection();
+             Statement stmt = conn.createStatement()) {
+            if (conn.getMetaData().getDatabaseProductName().equalsIgnoreCase("H2")) {
+                long next = after + 1 + Math.floorMod(shard - after, shards.size());
+                stmt.execute("ALTER TABLE InventoryLog ALTER COLUMN log_id RESTART WITH " + next);
+            } else {
+                stmt.execute("ALTER TABLE InventoryLog AUTO_INCREMENT = " + (after + 1)); // rounded up to the shard's offset
+            }
+        }
+    }
+
+    // ---------- Routing ----------
+
+    public int shardCount() {
+        return shards.size();
+    }
+
+    public int shardOf(int id) {
+        return Math.floorMod(id - 1, shards.size());
+    }
+
+    JdbcRepositories shard(int index) {
+        return shards.get(index);
+    }
+
+    JdbcRepositories shardFor(int id) {
+        return shards.get(shardOf(id));
+    }
+
+    // Shard for the next new product or order
+    int nextCreateShard() {
+        return Math.floorMod(nextShard.getAndIncrement(), shards.size());
+    }
+
+    // The database generated id on shard; fail if it routes elsewhere (the shard is not interleaved)
+    void checkGenerated(int shard, int id, String table) throws SQLException {
+        if (shardOf(id) != shard) {
+            throw new SQLException(table + " ID " + id + " generated on shard " + shard + " routes to shard " + shardOf(id)
+                    + "; set auto_increment_increment=" + shards.size() + " and auto_increment_offset=" + (shard + 1)
+                    + " on that database (or start with -Dinventory.shards.prepare=true)");
+        }
+    }
+
+    public boolean isInTransaction() {
+        return callbacks.get() != null;
+    }
+
+    // Run query on every shard, in parallel unless this thread is in a transaction (whose
+    // connections are bound to it). Results are in shard order.
+    <T> List<T> scatter(ShardQuery<T> query) throws SQLException {
+        long start = Metrics.start();
+        List<T> results = new ArrayList<>(shards.size());
+        try {
+            if (callbacks.get() != null || shards.size() == 1) {
+                for (JdbcRepositories shard : shards) {
+                    results.add(query.run(shard));
+                }
+            } else {
+                List<Future<T>> futures = new ArrayList<>(shards.size());
+                for (JdbcRepositories shard : shards) {
+                    futures.add(scatterPool.submit(() -> query.run(shard)));
+                }
+                for (Future<T> f : futures) {
+                    results.add(f.get());
+                }
+            }
+            SCATTER.success(start, shards.size());
+            return results;
+        } catch (ExecutionException e) {
+            SCATTER.failure(start);
+            if (e.getCause() instanceof SQLException) {
+                throw (SQLException) e.getCause();
+            }
+            throw new SQLException("Shard query failed", e.getCause());
+        } catch (InterruptedException e) {
+            SCATTER.failure(start);
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while querying the shards", e);
+        } catch (SQLException | RuntimeException e) {
+            SCATTER.failure(start);
+            throw e;
+        }
+    }
+
+    // For work that reports shortage by return value rather than OutOfStockException
+    static <T> T unchecked(TransactionWork<T> work) throws SQLException {
+        try {
+            return work.run();
+        } catch (OutOfStockException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // The first page overall from the first page of every shard: each shard returned its smallest
+    // keys, so the smallest pageSize keys overall are among them
+    static <T> Page<T> merge(List<Page<T>> pages, Comparator<? super T> order, int pageSize) {
+        List<T> items = new ArrayList<>();
+        boolean more = false;
+        for (Page<T> page : pages) {
+            items.addAll(page.getItems());
+            more |= page.hasMore();
+        }
+        items.sort(order);
+        if (items.size() > pageSize) {
+            return new Page<>(List.copyOf(items.subList(0, pageSize)), true);
+        }
+        return new Page<>(List.copyOf(items), more);
+    }
+
+    // ---------- Repositories ----------
+
+    @Override
+    public ProductRepository products() {
+        return products;
+    }
+
+    @Override
+    public SupplierRepository suppliers() {
+        return shards.get(0).suppliers();
+    }
+
+    @Override
+    public OrderRepository orders() {
+        return orders;
+    }
+
+    @Override
+    public OrderItemRepository orderItems() {
+        return orderItems;
+    }
+
+    @Override
+    public InventoryLogRepository inventoryLogs() {
+        return inventoryLogs;
+    }
+
+    // One shard: its own transaction, no connection borrowed from the others
+    @Override
+    public int sell(int productId, int quantity, String action) throws SQLException {
+        return unchecked(() -> inTransaction(new int[]{shardOf(productId)}, () -> {
+            int remaining = products.decrementStock(productId, quantity);
+            if (remaining != ProductRepository.OUT_OF_STOCK) {
+                inventoryLogs.append(new InventoryLog(
+                        0, productId, -quantity, action, new Timestamp(System.currentTimeMillis())));
+            }
+            return remaining;
+        }));
+    }
+
+    // Spans every shard; see inTransaction(int[], ...) for work that knows its shards
+    @Override
+    public <T> T inTransaction(TransactionWork<T> work) throws SQLException, OutOfStockException {
+        return inTransaction(allShards, work);
+    }
+
+    // Transactions on the given shards (ascending), opened in that order. Inside an outer transaction,
+    // shards it already holds are joined and any others are added to it: they commit (or roll back)
+    // with the outermost transaction, not when the nested work returns.
+    <T> T inTransaction(int[] shardIndexes, TransactionWork<T> work) throws SQLException, OutOfStockException {
+        TreeMap<Integer, JdbcRepositories> held = open.get();
+        if (held != null) {
+            join(shardIndexes, held);
+            return work.run();
+        }
+        Deque<TransactionCallback> pending = new ArrayDeque<>();
+        held = new TreeMap<>();
+        callbacks.set(pending);
+        open.set(held);
+        boolean committed = false;
+        try {
+            join(shardIndexes, held);
+            T result = work.run();
+            commitAll(held);
+            committed = true;
+            return result;
+        } finally {
+            callbacks.remove();
+            open.remove();
+            if (!committed) {
+                rollbackAll(held); // whatever commitAll has not ended yet
+            }
+            for (JdbcRepositories shard : held.values()) {
+                shard.runCallbacks(committed);
+            }
+            while (!pending.isEmpty()) {
+                pending.pop().afterCompletion(committed);
+            }
+        }
+    }
+
+    private void join(int[] shardIndexes, TreeMap<Integer, JdbcRepositories> held) throws SQLException {
+        for (int index : shardIndexes) {
+            if (!held.containsKey(index)) {
+                JdbcRepositories shard = shards.get(index);
+                if (!shard.begin()) {
+                    throw new IllegalStateException("Shard " + index + " already has a transaction on this thread");
+                }
+                held.put(index, shard);
+            }
+        }
+    }
+
+    // In shard order; on a failure the shards after it stay open for rollbackAll
+    private void commitAll(TreeMap<Integer, JdbcRepositories> held) throws SQLException {
+        long start = Metrics.start();
+        List<Integer> committed = new ArrayList<>();
+        for (Map.Entry<Integer, JdbcRepositories> e : held.entrySet()) {
+            try {
+                e.getValue().end(true);
+            } catch (SQLException | RuntimeException ex) {
+                COMMIT.failure(start);
+                if (!committed.isEmpty()) {
+                    PARTIAL_COMMIT.success(start, committed.size());
+                    System.err.println("Sharded transaction partially committed: shard(s) " + committed
+                            + " committed, shard " + e.getKey() + " failed: " + ex.getMessage());
+                }
+                throw ex;
+            }
+            committed.add(e.getKey());
+        }
+        COMMIT.success(start, committed.size());
+    }
+
+    // Shards whose transaction is still open; a failing rollback is logged so the others still get theirs
+    private static void rollbackAll(TreeMap<Integer, JdbcRepositories> held) {
+        for (Map.Entry<Integer, JdbcRepositories> e : held.entrySet()) {
+            if (e.getValue().isInTransaction()) {
+                try {
+                    e.getValue().end(false);
+                } catch (SQLException ex) {
+                    System.err.println("Rollback failed on shard " + e.getKey() + ": " + ex.getMessage());
+                }
+            }
+        }
+    }
+
+    @Override
+    public void afterCompletion(TransactionCallback callback) {
+        Deque<TransactionCallback> pending = callbacks.get();
+        if (pending != null) {
+            pending.push(callback);
+        } else {
+            callback.afterCompletion(true);
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("ShardedRepositories{shards=").append(shards.size());
+        for (int i = 0; i < pools.size(); i++) {
+            sb.append(", shard").append(i).append('=').append(pools.get(i));
+        }
+        return sb.append('}').toString();
+    }
+}
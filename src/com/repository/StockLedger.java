@@ -0,0 +1,382 @@
+package com.repository;
+
+import com.InventoryLog;
+import com.Product;
+import com.exceptions.OutOfStockException;
+import com.utilities.StockCounterStore;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+// Event-sourced stock (-Dinventory.stock=ledger). InventoryLog is the source of truth: every stock
+// change is one appended log row, and current stock is an in-memory projection (a StockCounterStore,
+// sized with -Dinventory.ledger.expectedProducts) instead of the Product.stock_quantity column. A sale
+// is a CAS on the projection plus an INSERT, with no row lock on Product.
+//
+// The projection is rebuilt from a snapshot file (stock per product as of some log_id) plus the log
+// rows written after it, so a restart only replays the tail. Snapshots are taken periodically and on
+// close. A product that is not in the projection yet starts from its stock_quantity column: in ledger
+// mode that column is never written after the product is created, so it is the opening balance that
+// the log rows apply to. On the very first start (no snapshot file) every column is still current, so
+// the ledger simply begins at the current last log_id.
+//
+// Assumes this process is the only writer of stock and inventory logs while the ledger is in use.
+// The connection-level helpers (Product.decrementStock(conn, ...), InventoryLog.createLog) bypass it,
+// and the snapshot file is part of the ledger's state: deleting it after sales loses them.
+public class StockLedger implements AutoCloseable {
+
+    private static final int MAGIC = 0x53544B4C; // "STKL"
+    private static final int VERSION = 1;
+
+    private static volatile StockLedger installed;
+
+    private final Repositories base;
+    private final Path snapshotFile;
+    private final StockCounterStore stock =
+            new StockCounterStore(Integer.getInteger("inventory.ledger.expectedProducts", 1 << 16));
+    // Stock changes hold the read side until their transaction completes; a snapshot takes the write
+    // side briefly, so it never sees a change whose log row is not committed (or one that will roll back)
+    private final ReentrantReadWriteLock gate = new ReentrantReadWriteLock();
+
+    private volatile long snapshotLogId;
+    private volatile int replayedProducts;
+    private ScheduledExecutorService snapshots;
+
+    private StockLedger(Repositories base, Path snapshotFile) {
+        this.base = base;
+        this.snapshotFile = snapshotFile;
+    }
+
+    // Load the snapshot (if any), replay the log rows after it and write a fresh snapshot
+    public static StockLedger open(Repositories base, Path snapshotFile) throws SQLException, IOException {
+        StockLedger ledger = new StockLedger(base, snapshotFile);
+        ledger.recover();
+        return ledger;
+    }
+
+    // ---------- Installation ----------
+
+    // With -Dinventory.stock=ledger, wrap the default repositories in a ledger and snapshot it every
+    // -Dinventory.ledger.snapshotSeconds (default 60) to -Dinventory.ledger.snapshotFile
+    public static synchronized void installConfigured() {
+        if (installed != null || !"ledger".equalsIgnoreCase(System.getProperty("inventory.stock"))) {
+            return;
+        }
+        Path file = Path.of(System.getProperty("inventory.ledger.snapshotFile", "stock-ledger.snapshot"));
+        try {
+            StockLedger ledger = open(Repositories.getDefault(), file);
+            Repositories.setDefault(new LedgerRepositories(ledger));
+            ledger.startPeriodicSnapshots(Long.getLong("inventory.ledger.snapshotSeconds", 60));
+            installed = ledger;
+            System.out.println("Stock ledger: " + ledger);
+        } catch (SQLException | IOException | IllegalStateException e) {
+            System.err.println("Failed to open the stock ledger, using stock_quantity: " + e.getMessage());
+        }
+    }
+
+    public static StockLedger getInstalled() {
+        return installed;
+    }
+
+    // Final snapshot and back to the plain repositories
+    public static synchronized void uninstall() {
+        StockLedger ledger = installed;
+        if (ledger != null) {
+            installed = null;
+            Repositories.setDefault(ledger.base);
+            ledger.close();
+        }
+    }
+
+    // ---------- Stock ----------
+
+    public int getStock(int productId) throws SQLException {
+        if (!seed(productId)) {
+            throw new SQLException("Product not found: " + productId);
+        }
+        int current = stock.get(productId);
+        if (current == StockCounterStore.MISSING) {
+            throw new SQLException("Product not found: " + productId); // forgotten meanwhile
+        }
+        return current;
+    }
+
+    // Stock of a product read from the base repositories, whose stock_quantity is its opening balance
+    int stockOf(Product p) {
+        int current = stock.get(p.getProductId());
+        return current != StockCounterStore.MISSING ? current : stock.putIfAbsent(p.getProductId(), p.getStockQuantity());
+    }
+
+    // Apply the event's change_quantity to the projection and append it, as one unit in the current
+    // (or a new) transaction. With guarded set, a change that would take stock below zero, or one for a
+    // product that does not exist, is refused with OUT_OF_STOCK and nothing is written.
+    int record(InventoryLog event, boolean guarded) throws SQLException {
+        try {
+            return base.inTransaction(() -> {
+                enter();
+                int productId = event.getProductId();
+                int delta = event.getChangeQuantity();
+                int updated = seed(productId) ? add(productId, delta, guarded) : StockCounterStore.MISSING;
+                if (updated == StockCounterStore.MISSING) {
+                    if (guarded) {
+                        return ProductRepository.OUT_OF_STOCK;
+                    }
+                    throw new SQLException("Product not found: " + productId);
+                }
+                if (guarded && delta < 0 && updated == ProductRepository.OUT_OF_STOCK) {
+                    return updated;
+                }
+                base.afterCompletion(committed -> {
+                    if (!committed) {
+                        stock.add(productId, -delta);
+                    }
+                });
+                base.inventoryLogs().append(event);
+                return updated;
+            });
+        } catch (OutOfStockException e) {
+            throw new IllegalStateException(e); // shortage is reported as OUT_OF_STOCK above
+        }
+    }
+
+    // Set the stock to an absolute value, recorded as one adjustment row for the difference
+    int reset(int productId, int newStock, String action) throws SQLException {
+        try {
+            return base.inTransaction(() -> {
+                enter();
+                int old = seed(productId) ? stock.replace(productId, newStock) : StockCounterStore.MISSING;
+                if (old == StockCounterStore.MISSING) {
+                    return 0;
+                }
+                int delta = newStock - old;
+                base.afterCompletion(committed -> {
+                    if (!committed) {
+                        stock.add(productId, -delta);
+                    }
+                });
+                if (delta != 0) {
+                    base.inventoryLogs().append(new InventoryLog(0, productId, delta, action, null));
+                }
+                return 1;
+            });
+        } catch (OutOfStockException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    void forget(int productId) {
+        stock.remove(productId);
+    }
+
+    // Hold the read side of the gate until the current transaction completes
+    private void enter() {
+        gate.readLock().lock();
+        base.afterCompletion(committed -> gate.readLock().unlock());
+    }
+
+    // Guarded removals stop at zero and return OUT_OF_STOCK; MISSING if the product is not in the store
+    private int add(int productId, int delta, boolean guarded) {
+        if (guarded && delta < 0) {
+            return stock.decrement(productId, -delta);
+        }
+        return stock.add(productId, delta);
+    }
+
+    // Make sure the product is in the store, seeded from its stock_quantity column on first use;
+    // false if there is no such product
+    private boolean seed(int productId) throws SQLException {
+        if (stock.get(productId) != StockCounterStore.MISSING) {
+            return true;
+        }
+        Product p = base.products().findById(productId);
+        if (p == null) {
+            return false;
+        }
+        // Two threads may both read the column; it does not change in ledger mode, so either value is right
+        stock.putIfAbsent(productId, p.getStockQuantity());
+        return true;
+    }
+
+    // ---------- Snapshots and recovery ----------
+
+    private void recover() throws SQLException, IOException {
+        long from;
+        if (Files.exists(snapshotFile)) {
+            from = readSnapshot();
+        } else {
+            from = base.inventoryLogs().lastLogId(); // first start: the stock_quantity columns are current
+        }
+
+        Map<Integer, Long> tail = base.inventoryLogs().netChanges(from, Integer.MIN_VALUE, Integer.MAX_VALUE);
+        int replayed = 0;
+        for (Map.Entry<Integer, Long> e : tail.entrySet()) {
+            if (seed(e.getKey())) { // rows of since-deleted products are skipped
+                stock.add(e.getKey(), Math.toIntExact(e.getValue()));
+                replayed++;
+            }
+        }
+        replayedProducts = replayed;
+        snapshotLogId = from;
+        snapshot();
+    }
+
+    // Write the projection to the snapshot file; returns the log_id it is valid for
+    public long snapshot() throws SQLException, IOException {
+        long[] logId = new long[1];
+        StockCounterStore copy = new StockCounterStore(stock.size());
+        try {
+            // Bind a connection before closing the gate, so the query below never waits on the pool
+            // while writers hold the connections and queue behind the gate
+            base.inTransaction(() -> {
+                gate.writeLock().lock();
+                try {
+                    logId[0] = base.inventoryLogs().lastLogId();
+                    stock.forEach(copy::put);
+                } finally {
+                    gate.writeLock().unlock();
+                }
+                return null;
+            });
+        } catch (OutOfStockException e) {
+            throw new IllegalStateException(e);
+        }
+        writeSnapshot(logId[0], copy);
+        snapshotLogId = logId[0];
+        return logId[0];
+    }
+
+    // Written to a temporary file and moved into place, so a crash never leaves a torn snapshot
+    private void writeSnapshot(long logId, StockCounterStore values) throws IOException {
+        Path dir = snapshotFile.toAbsolutePath().getParent();
+        Path tmp = Files.createTempFile(dir, snapshotFile.getFileName().toString(), ".tmp");
+        try {
+            CRC32 crc = new CRC32();
+            try (OutputStream file = Files.newOutputStream(tmp);
+                 DataOutputStream out = new DataOutputStream(new CheckedOutputStream(new BufferedOutputStream(file, 1 << 16), crc))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeLong(logId);
+                out.writeInt(values.size());
+                IOException[] failed = new IOException[1];
+                values.forEach((productId, units) -> {
+                    if (failed[0] == null) {
+                        try {
+                            out.writeInt(productId);
+                            out.writeInt(units);
+                        } catch (IOException e) {
+                            failed[0] = e;
+                        }
+                    }
+                });
+                if (failed[0] != null) {
+                    throw failed[0];
+                }
+                out.flush();
+                new DataOutputStream(file).writeLong(crc.getValue()); // trailer, not part of the checksum
+            }
+            Files.move(tmp, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    private long readSnapshot() throws IOException {
+        CRC32 crc = new CRC32();
+        try (InputStream file = new BufferedInputStream(Files.newInputStream(snapshotFile), 1 << 16)) {
+            DataInputStream in = new DataInputStream(new CheckedInputStream(file, crc));
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Not a stock ledger snapshot: " + snapshotFile);
+            }
+            long logId = in.readLong();
+            int count = in.readInt();
+            StockCounterStore values = new StockCounterStore(count);
+            for (int i = 0; i < count; i++) {
+                values.put(in.readInt(), in.readInt());
+            }
+            long expected = crc.getValue();
+            if (new DataInputStream(file).readLong() != expected) {
+                throw new IOException("Stock ledger snapshot is corrupt (checksum mismatch): " + snapshotFile);
+            }
+            values.forEach(stock::put);
+            return logId;
+        }
+    }
+
+    public synchronized void startPeriodicSnapshots(long periodSeconds) {
+        stopPeriodicSnapshots();
+        if (periodSeconds <= 0) {
+            return;
+        }
+        snapshots = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "stock-ledger-snapshot");
+            t.setDaemon(true);
+            return t;
+        });
+        snapshots.scheduleWithFixedDelay(() -> {
+            try {
+                snapshot();
+            } catch (SQLException | IOException | RuntimeException e) {
+                System.err.println("Stock ledger snapshot failed: " + e.getMessage());
+            }
+        }, periodSeconds, periodSeconds, TimeUnit.SECONDS);
+    }
+
+    public synchronized void stopPeriodicSnapshots() {
+        if (snapshots != null) {
+            snapshots.shutdownNow();
+            snapshots = null;
+        }
+    }
+
+    // Stop the timer and take a last snapshot, so the next start has nothing to replay
+    @Override
+    public void close() {
+        stopPeriodicSnapshots();
+        try {
+            snapshot();
+        } catch (SQLException | IOException e) {
+            System.err.println("Final stock ledger snapshot failed: " + e.getMessage());
+        }
+    }
+
+    // ---------- Stats ----------
+
+    Repositories getBase() {
+        return base;
+    }
+
+    public long getSnapshotLogId() {
+        return snapshotLogId;
+    }
+
+    public int getReplayedProducts() {
+        return replayedProducts;
+    }
+
+    public int size() {
+        return stock.size();
+    }
+
+    @Override
+    public String toString() {
+        return "StockLedger{snapshot=" + snapshotFile + ", snapshotLogId=" + snapshotLogId +
+                ", products=" + stock.size() + ", replayedProducts=" + replayedProducts + '}';
+    }
+}
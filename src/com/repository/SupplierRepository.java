@@ -0,0 +1,19 @@
+package com.repository;
+
+import com.Supplier;
+import com.utilities.Page;
+
+import java.sql.SQLException;
+
+public interface SupplierRepository {
+
+    // Inserts the supplier and sets its generated ID; returns the ID
+    int create(Supplier supplier) throws SQLException;
+
+    // Keyset page of suppliers with supplier_id > afterSupplierId; nameFilter (substring) may be null
+    Page<Supplier> list(int afterSupplierId, int pageSize, String nameFilter) throws SQLException;
+
+    int updateName(int supplierId, String newName) throws SQLException;
+
+    int delete(int supplierId) throws SQLException;
+}
@@ -0,0 +1,41 @@
+package com.repository;
+
+import com.InventoryLog;
+import com.utilities.Page;
+
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Map;
+
+// In ledger mode an appended log row is a stock change, so it re-indexes its product
+public class TrackedInventoryLogRepository implements InventoryLogRepository {
+
+    private final LowStockTracker tracker;
+    private final InventoryLogRepository base;
+
+    TrackedInventoryLogRepository(LowStockTracker tracker, InventoryLogRepository base) {
+        this.tracker = tracker;
+        this.base = base;
+    }
+
+    @Override
+    public void append(InventoryLog log) throws SQLException {
+        base.append(log);
+        tracker.changed(log.getProductId());
+    }
+
+    @Override
+    public Page<InventoryLog> list(Timestamp beforeTimestamp, int beforeLogId, int pageSize, int productId) throws SQLException {
+        return base.list(beforeTimestamp, beforeLogId, pageSize, productId);
+    }
+
+    @Override
+    public long lastLogId() throws SQLException {
+        return base.lastLogId();
+    }
+
+    @Override
+    public Map<Integer, Long> netChanges(long afterLogId, int fromProductId, int toProductId) throws SQLException {
+        return base.netChanges(afterLogId, fromProductId, toProductId);
+    }
+}
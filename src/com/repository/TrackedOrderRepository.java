@@ -0,0 +1,63 @@
+package com.repository;
+
+import com.CustomerOrder;
+import com.Order;
+import com.OrderItem;
+import com.exceptions.OutOfStockException;
+import com.utilities.Page;
+
+import java.sql.Date;
+import java.sql.SQLException;
+import java.util.List;
+
+// Submitted orders re-index every product they took stock from
+public class TrackedOrderRepository implements OrderRepository {
+
+    private final LowStockTracker tracker;
+    private final OrderRepository base;
+
+    TrackedOrderRepository(LowStockTracker tracker, OrderRepository base) {
+        this.tracker = tracker;
+        this.base = base;
+    }
+
+    @Override
+    public int create(Order order) throws SQLException {
+        return base.create(order);
+    }
+
+    @Override
+    public int submit(Order order, List<OrderItem> items) throws SQLException, OutOfStockException {
+        int orderId = base.submit(order, items);
+        for (OrderItem item : items) {
+            tracker.changed(item.getProductId());
+        }
+        return orderId;
+    }
+
+    @Override
+    public boolean exists(int orderId) throws SQLException {
+        return base.exists(orderId);
+    }
+
+    @Override
+    public Page<Order> list(int afterOrderId, int pageSize, String status) throws SQLException {
+        return base.list(afterOrderId, pageSize, status);
+    }
+
+    @Override
+    public Page<CustomerOrder> listByCustomer(String customerName, Date beforeDate, int beforeOrderId, int pageSize)
+            throws SQLException {
+        return base.listByCustomer(customerName, beforeDate, beforeOrderId, pageSize);
+    }
+
+    @Override
+    public int updateStatus(int orderId, String newStatus) throws SQLException {
+        return base.updateStatus(orderId, newStatus);
+    }
+
+    @Override
+    public int delete(int orderId) throws SQLException {
+        return base.delete(orderId);
+    }
+}
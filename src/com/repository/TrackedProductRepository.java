@@ -0,0 +1,94 @@
+package com.repository;
+
+import com.Product;
+import com.utilities.Page;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+// Products whose stock writes are reported to the LowStockTracker, and whose low-stock query is
+// answered from its index instead of a table scan
+public class TrackedProductRepository implements ProductRepository {
+
+    private final LowStockTracker tracker;
+    private final ProductRepository base;
+
+    TrackedProductRepository(LowStockTracker tracker, ProductRepository base) {
+        this.tracker = tracker;
+        this.base = base;
+    }
+
+    @Override
+    public int create(Product product) throws SQLException {
+        int productId = base.create(product);
+        tracker.changed(productId);
+        return productId;
+    }
+
+    @Override
+    public Product findById(int productId) throws SQLException {
+        return base.findById(productId);
+    }
+
+    @Override
+    public Page<Product> list(int afterProductId, int pageSize, String nameFilter) throws SQLException {
+        return base.list(afterProductId, pageSize, nameFilter);
+    }
+
+    @Override
+    public int updatePrice(int productId, double newPrice) throws SQLException {
+        return base.updatePrice(productId, newPrice);
+    }
+
+    @Override
+    public int delete(int productId) throws SQLException {
+        int rows = base.delete(productId);
+        if (rows > 0) {
+            tracker.deleted(productId);
+        }
+        return rows;
+    }
+
+    @Override
+    public int getStock(int productId) throws SQLException {
+        return base.getStock(productId);
+    }
+
+    @Override
+    public int setStock(int productId, int newStock) throws SQLException {
+        int rows = base.setStock(productId, newStock);
+        tracker.changed(productId);
+        return rows;
+    }
+
+    @Override
+    public int decrementStock(int productId, int quantity) throws SQLException {
+        int remaining = base.decrementStock(productId, quantity);
+        if (remaining != OUT_OF_STOCK) {
+            tracker.changed(productId);
+        }
+        return remaining;
+    }
+
+    @Override
+    public void upsertStock(List<Product> products) throws SQLException {
+        base.upsertStock(products);
+        for (Product p : products) {
+            tracker.changed(p.getProductId());
+        }
+    }
+
+    // Only the k low products are read, lowest stock first
+    @Override
+    public List<Product> findLowStock(int threshold) throws SQLException {
+        List<Product> low = new ArrayList<>();
+        for (int productId : tracker.below(threshold)) {
+            Product p = base.findById(productId);
+            if (p != null) {
+                low.add(p);
+            }
+        }
+        return low;
+    }
+}
@@ -0,0 +1,75 @@
+package com.repository;
+
+import com.exceptions.OutOfStockException;
+
+import java.sql.SQLException;
+
+// Repositories that report every stock change to a LowStockTracker; the wrapped backend does the work
+public class TrackedRepositories implements Repositories {
+
+    private final LowStockTracker tracker;
+    private final Repositories base;
+    private final TrackedProductRepository products;
+    private final TrackedOrderRepository orders;
+    private final InventoryLogRepository inventoryLogs;
+
+    public TrackedRepositories(LowStockTracker tracker) {
+        this.tracker = tracker;
+        this.base = tracker.getBase();
+        this.products = new TrackedProductRepository(tracker, base.products());
+        this.orders = new TrackedOrderRepository(tracker, base.orders());
+        // Only ledger log rows move stock; elsewhere an append would just cost a pointless read-back
+        this.inventoryLogs = base instanceof LedgerRepositories
+                ? new TrackedInventoryLogRepository(tracker, base.inventoryLogs())
+                : base.inventoryLogs();
+    }
+
+    public LowStockTracker getTracker() {
+        return tracker;
+    }
+
+    @Override
+    public ProductRepository products() {
+        return products;
+    }
+
+    @Override
+    public SupplierRepository suppliers() {
+        return base.suppliers();
+    }
+
+    @Override
+    public OrderRepository orders() {
+        return orders;
+    }
+
+    @Override
+    public OrderItemRepository orderItems() {
+        return base.orderItems();
+    }
+
+    @Override
+    public InventoryLogRepository inventoryLogs() {
+        return inventoryLogs;
+    }
+
+    @Override
+    public <T> T inTransaction(TransactionWork<T> work) throws SQLException, OutOfStockException {
+        return base.inTransaction(work);
+    }
+
+    @Override
+    public void afterCompletion(TransactionCallback callback) {
+        base.afterCompletion(callback);
+    }
+
+    // The backend's own sell (one ledger event in ledger mode), re-indexed once
+    @Override
+    public int sell(int productId, int quantity, String action) throws SQLException {
+        int remaining = base.sell(productId, quantity, action);
+        if (remaining != ProductRepository.OUT_OF_STOCK) {
+            tracker.changed(productId);
+        }
+        return remaining;
+    }
+}
@@ -0,0 +1,7 @@
+package com.repository;
+
+// Registered with Repositories.afterCompletion(); told whether the transaction committed
+public interface TransactionCallback {
+
+    void afterCompletion(boolean committed);
+}
@@ -0,0 +1,11 @@
+package com.repository;
+
+import com.exceptions.OutOfStockException;
+
+import java.sql.SQLException;
+
+// Body of Repositories.inTransaction(). Throwing anything rolls the whole unit back.
+public interface TransactionWork<T> {
+
+    T run() throws SQLException, OutOfStockException;
+}
@@ -0,0 +1,174 @@
+package com.utilities;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+// The columnar layout written by FileExport (ExportFormat.COLUMNAR) and the log archive:
+// header {magic, version, column count, (name, type)*}, then row groups {row count, one block per
+// column}, then a row count of 0. Ints are int32, doubles float64, strings int32 length (-1 for null)
+// + UTF-8, dates int32 epoch day, timestamps int64 epoch millis. Null ints/dates/timestamps are
+// stored as the type's MIN_VALUE, null doubles as NaN.
+public final class ColumnarFile {
+
+    public static final int MAGIC = 0x494E5643; // "INVC"
+    public static final short VERSION = 1;
+
+    private ColumnarFile() {
+    }
+
+    public static void writeHeader(OutputStream out, List<ExportTable.Column> columns) throws IOException {
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(MAGIC);
+        data.writeShort(VERSION);
+        data.writeShort(columns.size());
+        for (ExportTable.Column c : columns) {
+            data.writeUTF(c.getName());
+            data.writeByte(c.getType().ordinal());
+        }
+        data.flush();
+    }
+
+    // One row count plus the column blocks; the buffers are reset for the next group
+    public static void writeRowGroup(DataOutputStream out, int rowCount, ByteArrayOutputStream[] buffers)
+            throws IOException {
+        out.writeInt(rowCount);
+        for (ByteArrayOutputStream buffer : buffers) {
+            out.writeInt(buffer.size());
+            buffer.writeTo(out);
+            buffer.reset();
+        }
+    }
+
+    public static void writeEnd(OutputStream out) throws IOException {
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(0);
+        data.flush();
+    }
+
+    public static void writeString(DataOutputStream block, String value) throws IOException {
+        if (value == null) {
+            block.writeInt(-1);
+        } else {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            block.writeInt(bytes.length);
+            block.write(bytes);
+        }
+    }
+
+    // Row-at-a-time writer for callers that do not stream from a ResultSet
+    public static final class Writer {
+        private final DataOutputStream out;
+        private final ByteArrayOutputStream[] buffers;
+        private final DataOutputStream[] blocks;
+        private final int groupRows;
+        private int rows;
+
+        public Writer(OutputStream out, List<ExportTable.Column> columns, int groupRows) throws IOException {
+            writeHeader(out, columns);
+            this.out = new DataOutputStream(out);
+            this.buffers = new ByteArrayOutputStream[columns.size()];
+            this.blocks = new DataOutputStream[columns.size()];
+            for (int i = 0; i < buffers.length; i++) {
+                buffers[i] = new ByteArrayOutputStream(1 << 16);
+                blocks[i] = new DataOutputStream(buffers[i]);
+            }
+            this.groupRows = groupRows;
+        }
+
+        // The block of a column for the current row; call endRow() once every column is written
+        public DataOutputStream column(int index) {
+            return blocks[index];
+        }
+
+        public void endRow() throws IOException {
+            if (++rows == groupRows) {
+                writeRowGroup(out, rows, buffers);
+                rows = 0;
+            }
+        }
+
+        // Writes the last group and the end marker; does not close the stream
+        public void finish() throws IOException {
+            if (rows > 0) {
+                writeRowGroup(out, rows, buffers);
+                rows = 0;
+            }
+            writeEnd(out);
+        }
+    }
+
+    // Reads one columnar section group by group, leaving the stream right after its end marker
+    public static final class Reader {
+        private final DataInputStream in;
+        private final List<ExportTable.Column> columns = new ArrayList<>();
+        private final DataInputStream[] blocks;
+        private int rows;
+
+        public Reader(InputStream in) throws IOException {
+            this.in = in instanceof DataInputStream ? (DataInputStream) in : new DataInputStream(in);
+            if (this.in.readInt() != MAGIC) {
+                throw new IOException("Not a columnar file");
+            }
+            short version = this.in.readShort();
+            if (version != VERSION) {
+                throw new IOException("Unsupported columnar version " + version);
+            }
+            int count = this.in.readShort();
+            ExportTable.ColumnType[] types = ExportTable.ColumnType.values();
+            for (int i = 0; i < count; i++) {
+                String name = this.in.readUTF();
+                int type = this.in.readByte();
+                if (type < 0 || type >= types.length) {
+                    throw new IOException("Unknown column type " + type + " for " + name);
+                }
+                columns.add(new ExportTable.Column(name, types[type]));
+            }
+            this.blocks = new DataInputStream[count];
+        }
+
+        public List<ExportTable.Column> getColumns() {
+            return columns;
+        }
+
+        // Loads the next row group; returns its row count, or 0 at the end of the section
+        public int nextGroup() throws IOException {
+            rows = in.readInt();
+            if (rows < 0) {
+                throw new IOException("Corrupt row group: " + rows + " rows");
+            }
+            for (int i = 0; rows > 0 && i < blocks.length; i++) {
+                int size = in.readInt();
+                if (size < 0) {
+                    throw new IOException("Corrupt column block: " + size + " bytes");
+                }
+                byte[] bytes = new byte[size];
+                in.readFully(bytes);
+                blocks[i] = new DataInputStream(new ByteArrayInputStream(bytes));
+            }
+            return rows;
+        }
+
+        // The current group's block of a column, read in row order with the types' encodings
+        public DataInputStream column(int index) {
+            return blocks[index];
+        }
+
+        public static String readString(DataInputStream block) throws IOException {
+            int length = block.readInt();
+            if (length < 0) {
+                return null;
+            }
+            byte[] bytes = new byte[length];
+            block.readFully(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+}
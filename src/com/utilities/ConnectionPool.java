@@ -0,0 +1,710 @@
+package com.utilities;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// Bounded JDBC connection pool used behind DBConnection.getConnection().
+// Callers keep using try-with-resources: close() on a borrowed connection hands it back to the pool.
+//
+// Each physical connection also keeps an LRU cache of prepared statements. prepareStatement(sql)
+// and prepareStatement(sql, autoGeneratedKeys) on a borrowed connection return a cached statement
+// when one is free; close() on it clears its parameters and batch and hands it back to the cache.
+// Cached statements are closed when they fall out of the LRU or their connection is evicted.
+// Callers must not change statement-level settings (fetch size, timeouts, max rows) on them.
+// With MySQL Connector/J add useServerPrepStmts=true to the URL so the server keeps the parsed plan too.
+public class ConnectionPool implements AutoCloseable {
+
+    private final String url;
+    private final String user;
+    private final String password;
+    private final int maxSize;
+
+    private long borrowTimeoutMillis = 30_000;
+    private long idleTimeoutMillis = 10 * 60_000;
+    private long leakThresholdMillis = 60_000;
+    private int validationTimeoutSeconds = 2;
+    private long validationIdleMillis = 5_000;
+    private int statementCacheSize = 64;
+    private volatile Set<String> cacheableStatements; // null = cache any SQL
+    private volatile Runnable returnListener;
+
+    private final Semaphore permits;
+    private final Deque<PooledConnection> idle = new ArrayDeque<>();
+    private final Set<PooledConnection> borrowed = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService housekeeper;
+    private volatile boolean closed;
+
+    // Metrics
+    private final LongAdder borrows = new LongAdder();
+    private final LongAdder created = new LongAdder();
+    private final LongAdder evicted = new LongAdder();
+    private final LongAdder validationFailures = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder leaks = new LongAdder();
+    private final LongAdder totalWaitNanos = new LongAdder();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final LongAdder statementHits = new LongAdder();
+    private final LongAdder statementMisses = new LongAdder();
+    private final LongAdder statementEvictions = new LongAdder();
+
+    public ConnectionPool(String url, String user, String password, int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("Pool size must be positive: " + maxSize);
+        }
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.maxSize = maxSize;
+        this.permits = new Semaphore(maxSize, true);
+
+        housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "db-pool-housekeeper");
+            t.setDaemon(true);
+            return t;
+        });
+        housekeeper.scheduleWithFixedDelay(this::housekeep, 5, 5, TimeUnit.SECONDS);
+    }
+
+    // ---------- Configuration ----------
+
+    public void setBorrowTimeoutMillis(long borrowTimeoutMillis) {
+        this.borrowTimeoutMillis = borrowTimeoutMillis;
+    }
+
+    public void setIdleTimeoutMillis(long idleTimeoutMillis) {
+        this.idleTimeoutMillis = idleTimeoutMillis;
+    }
+
+    // 0 disables leak detection. A borrow only records its thread; the stack is taken from that thread
+    // once the threshold has passed, showing where the connection is being held rather than where it was borrowed.
+    public void setLeakThresholdMillis(long leakThresholdMillis) {
+        this.leakThresholdMillis = leakThresholdMillis;
+    }
+
+    public void setValidationTimeoutSeconds(int validationTimeoutSeconds) {
+        this.validationTimeoutSeconds = validationTimeoutSeconds;
+    }
+
+    // Only connections idle at least this long get an isValid round trip on borrow; 0 validates every borrow
+    public void setValidationIdleMillis(long validationIdleMillis) {
+        this.validationIdleMillis = validationIdleMillis;
+    }
+
+    // Prepared statements kept per physical connection; 0 disables the cache. Applies to connections opened afterwards.
+    public void setStatementCacheSize(int statementCacheSize) {
+        this.statementCacheSize = Math.max(0, statementCacheSize);
+    }
+
+    // Only cache these SQL strings (e.g. SqlStatements.all()); one-off SQL is prepared and closed as usual
+    public void setCacheableStatements(Set<String> cacheableStatements) {
+        this.cacheableStatements = cacheableStatements;
+    }
+
+    // Runs on the caller's thread each time it closes a borrowed connection, after it is back in the pool
+    public void setReturnListener(Runnable returnListener) {
+        this.returnListener = returnListener;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    // ---------- Borrow / return ----------
+
+    public Connection borrow() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is closed");
+        }
+
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(borrowTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                timeouts.increment();
+                throw new SQLException("Timed out after " + borrowTimeoutMillis + " ms waiting for a database connection"
+                        + " (pool size " + maxSize + ", in use " + borrowed.size() + ")");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection", e);
+        }
+
+        try {
+            PooledConnection pc = takeValidIdle();
+            if (pc == null) {
+                pc = new PooledConnection(DriverManager.getConnection(url, user, password));
+                created.increment();
+            }
+            recordWait(System.nanoTime() - start);
+            borrows.increment();
+            return pc.lease();
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    // True if conn is a handle this pool lent out
+    public boolean owns(Connection conn) {
+        return Proxy.isProxyClass(conn.getClass())
+                && Proxy.getInvocationHandler(conn) instanceof Handle
+                && ((Handle) Proxy.getInvocationHandler(conn)).pool() == this;
+    }
+
+    private PooledConnection takeValidIdle() {
+        while (true) {
+            PooledConnection pc;
+            synchronized (idle) {
+                pc = idle.pollFirst(); // most recently used first, keeps the rest idle long enough to evict
+            }
+            if (pc == null) {
+                return null;
+            }
+            // A connection handed back moments ago is still good; skip the round trip
+            boolean recent = System.currentTimeMillis() - pc.lastReturned < validationIdleMillis;
+            if (recent ? !pc.isClosed() : pc.isValid(validationTimeoutSeconds)) {
+                return pc;
+            }
+            validationFailures.increment();
+            pc.closePhysical();
+        }
+    }
+
+    private void recordWait(long waitNanos) {
+        totalWaitNanos.add(waitNanos);
+        maxWaitNanos.accumulateAndGet(waitNanos, Math::max);
+    }
+
+    void giveBack(PooledConnection pc) {
+        borrowed.remove(pc);
+        pc.borrower = null;
+        try {
+            if (closed || !pc.reset()) {
+                pc.closePhysical();
+            } else {
+                synchronized (idle) {
+                    idle.addFirst(pc);
+                }
+            }
+        } finally {
+            permits.release();
+        }
+    }
+
+    // ---------- Housekeeping ----------
+
+    // Runs every 5 s on the housekeeper thread; package-private so the tests can run it on demand
+    void housekeep() {
+        long now = System.currentTimeMillis();
+
+        synchronized (idle) {
+            Iterator<PooledConnection> it = idle.iterator();
+            while (it.hasNext()) {
+                PooledConnection pc = it.next();
+                if (now - pc.lastReturned >= idleTimeoutMillis) {
+                    it.remove();
+                    pc.closePhysical();
+                    evicted.increment();
+                }
+            }
+        }
+
+        if (leakThresholdMillis > 0) {
+            for (PooledConnection pc : borrowed) {
+                Thread holder = pc.borrower;
+                if (!pc.leakReported && holder != null && now - pc.borrowedAt >= leakThresholdMillis) {
+                    pc.leakReported = true;
+                    leaks.increment();
+                    System.err.println("Possible connection leak: connection held for " + (now - pc.borrowedAt)
+                            + " ms by thread " + holder.getName() + (holder.isAlive() ? ", now at:" : " (terminated)"));
+                    for (StackTraceElement frame : holder.getStackTrace()) {
+                        System.err.println("\tat " + frame);
+                    }
+                }
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        housekeeper.shutdownNow();
+        synchronized (idle) {
+            for (PooledConnection pc : idle) {
+                pc.closePhysical();
+            }
+            idle.clear();
+        }
+    }
+
+    // ---------- Metrics ----------
+
+    public int getIdleCount() {
+        synchronized (idle) {
+            return idle.size();
+        }
+    }
+
+    public int getActiveCount() {
+        return borrowed.size();
+    }
+
+    public long getBorrowCount() {
+        return borrows.sum();
+    }
+
+    public long getCreatedCount() {
+        return created.sum();
+    }
+
+    public long getEvictedCount() {
+        return evicted.sum();
+    }
+
+    public long getValidationFailureCount() {
+        return validationFailures.sum();
+    }
+
+    public long getTimeoutCount() {
+        return timeouts.sum();
+    }
+
+    public long getLeakCount() {
+        return leaks.sum();
+    }
+
+    public double getAverageWaitMillis() {
+        long n = borrows.sum();
+        return n == 0 ? 0.0 : totalWaitNanos.sum() / (double) n / 1_000_000.0;
+    }
+
+    public double getMaxWaitMillis() {
+        return maxWaitNanos.get() / 1_000_000.0;
+    }
+
+    // Cached statement handed out without preparing
+    public long getStatementHitCount() {
+        return statementHits.sum();
+    }
+
+    // Cacheable statement that had to be prepared (first use on a connection, or already in use)
+    public long getStatementMissCount() {
+        return statementMisses.sum();
+    }
+
+    public long getStatementEvictionCount() {
+        return statementEvictions.sum();
+    }
+
+    public double getStatementHitRate() {
+        long h = statementHits.sum();
+        long total = h + statementMisses.sum();
+        return total == 0 ? 0.0 : (double) h / total;
+    }
+
+    public void resetStatementStats() {
+        statementHits.reset();
+        statementMisses.reset();
+        statementEvictions.reset();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ConnectionPool{max=%d, active=%d, idle=%d, borrows=%d, created=%d, evicted=%d, " +
+                        "validationFailures=%d, timeouts=%d, leaks=%d, avgWait=%.3fms, maxWait=%.3fms, " +
+                        "statementHits=%d, statementMisses=%d, statementHitRate=%.1f%%, statementEvictions=%d}",
+                maxSize, getActiveCount(), getIdleCount(), getBorrowCount(), getCreatedCount(), getEvictedCount(),
+                getValidationFailureCount(), getTimeoutCount(), getLeakCount(), getAverageWaitMillis(), getMaxWaitMillis(),
+                getStatementHitCount(), getStatementMissCount(), getStatementHitRate() * 100, getStatementEvictionCount());
+    }
+
+    // ---------- Pooled connection ----------
+
+    // One physical connection. Every borrow gets a fresh proxy handle, so a stale handle
+    // that is closed twice or used after close cannot affect the next borrower.
+    final class PooledConnection {
+        final Connection physical;
+        final StatementCache statements = statementCacheSize > 0 ? new StatementCache(statementCacheSize) : null;
+        volatile long borrowedAt;
+        volatile long lastReturned = System.currentTimeMillis();
+        volatile Thread borrower;
+        volatile boolean leakReported;
+
+        PooledConnection(Connection physical) {
+            this.physical = physical;
+        }
+
+        Connection lease() {
+            borrowedAt = System.currentTimeMillis();
+            borrower = Thread.currentThread();
+            leakReported = false;
+            borrowed.add(this);
+            return (Connection) Proxy.newProxyInstance(
+                    Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class},
+                    new Handle(this));
+        }
+
+        boolean isClosed() {
+            try {
+                return physical.isClosed();
+            } catch (SQLException e) {
+                return true;
+            }
+        }
+
+        boolean isValid(int timeoutSeconds) {
+            try {
+                return !physical.isClosed() && physical.isValid(timeoutSeconds);
+            } catch (SQLException e) {
+                return false;
+            }
+        }
+
+        // Undo whatever the borrower left behind; false means the connection is not reusable.
+        boolean reset() {
+            if (statements != null) {
+                statements.closeLeased();
+            }
+            try {
+                if (!physical.getAutoCommit()) {
+                    physical.rollback();
+                    physical.setAutoCommit(true);
+                }
+                physical.clearWarnings();
+                lastReturned = System.currentTimeMillis();
+                return true;
+            } catch (SQLException e) {
+                return false;
+            }
+        }
+
+        void closePhysical() {
+            if (statements != null) {
+                statements.closeAll();
+            }
+            try {
+                physical.close();
+            } catch (SQLException e) {
+                // Already broken, nothing else to release
+            }
+        }
+    }
+
+    private final class Handle implements InvocationHandler {
+        private PooledConnection target;
+
+        Handle(PooledConnection target) {
+            this.target = target;
+        }
+
+        ConnectionPool pool() {
+            return ConnectionPool.this;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            PooledConnection pc;
+            synchronized (this) {
+                switch (name) {
+                    case "close":
+                        pc = target;
+                        target = null;
+                        break; // give back outside the monitor: reset() does I/O and would pin a virtual thread
+                    case "isClosed":
+                        return target == null || target.physical.isClosed();
+                    case "equals":
+                        return proxy == args[0];
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    case "toString":
+                        return "PooledConnection[" + (target == null ? "closed" : target.physical) + "]";
+                    default:
+                        if (target == null) {
+                            throw new SQLException("Connection is closed");
+                        }
+                        pc = target;
+                }
+            }
+            if (name.equals("prepareStatement") && pc.statements != null && isCacheable(method, args)) {
+                int keys = args.length == 2 ? (Integer) args[1] : Statement.NO_GENERATED_KEYS;
+                return pc.statements.prepare(pc.physical, (Connection) proxy, (String) args[0], keys);
+            }
+            if (name.equals("close")) {
+                if (pc != null) {
+                    giveBack(pc);
+                    Runnable listener = returnListener;
+                    if (listener != null) {
+                        listener.run();
+                    }
+                }
+                return null;
+            }
+            try {
+                return method.invoke(pc.physical, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+
+    // prepareStatement(String) or prepareStatement(String, int autoGeneratedKeys) with a registered SQL string
+    private boolean isCacheable(Method method, Object[] args) {
+        Class<?>[] params = method.getParameterTypes();
+        if (params.length == 2 && params[1] != int.class) {
+            return false;
+        }
+        if (params.length > 2) {
+            return false;
+        }
+        Set<String> allowed = cacheableStatements;
+        return allowed == null || allowed.contains((String) args[0]);
+    }
+
+    // ---------- Statement cache ----------
+
+    private static final class CachedStatement {
+        final String key;
+        final PreparedStatement physical;
+        boolean inUse;
+        boolean evicted; // dropped from the cache while leased; closed on release
+
+        CachedStatement(String key, PreparedStatement physical) {
+            this.key = key;
+            this.physical = physical;
+        }
+    }
+
+    // Per-connection LRU of prepared statements. Only the borrower and the pool touch it,
+    // but the lock keeps eviction by the housekeeper safe; no JDBC call runs while holding it.
+    final class StatementCache {
+        private final LinkedHashMap<String, CachedStatement> map;
+        private final List<CachedStatement> toClose = new ArrayList<>();
+
+        StatementCache(int maxStatements) {
+            map = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, CachedStatement> eldest) {
+                    if (size() <= maxStatements) {
+                        return false;
+                    }
+                    statementEvictions.increment();
+                    CachedStatement cs = eldest.getValue();
+                    if (cs.inUse) {
+                        cs.evicted = true;
+                    } else {
+                        toClose.add(cs);
+                    }
+                    return true;
+                }
+            };
+        }
+
+        PreparedStatement prepare(Connection physical, Connection owner, String sql, int autoGeneratedKeys) throws SQLException {
+            String key = autoGeneratedKeys == Statement.NO_GENERATED_KEYS ? sql : autoGeneratedKeys + "|" + sql;
+            CachedStatement cs;
+            boolean leased = false;
+            synchronized (this) {
+                cs = map.get(key);
+                if (cs != null && !cs.inUse) {
+                    cs.inUse = true;
+                    leased = true;
+                }
+            }
+            if (leased) {
+                statementHits.increment();
+                return lease(cs, owner);
+            }
+
+            statementMisses.increment();
+            PreparedStatement ps = autoGeneratedKeys == Statement.NO_GENERATED_KEYS
+                    ? physical.prepareStatement(sql)
+                    : physical.prepareStatement(sql, autoGeneratedKeys);
+            if (cs != null) {
+                return ps; // the cached one is already open on this connection (nested use): plain, uncached
+            }
+
+            CachedStatement fresh = new CachedStatement(key, ps);
+            fresh.inUse = true;
+            List<CachedStatement> evicted;
+            synchronized (this) {
+                CachedStatement previous = map.put(key, fresh);
+                if (previous != null) {
+                    if (previous.inUse) {
+                        previous.evicted = true;
+                    } else {
+                        toClose.add(previous);
+                    }
+                }
+                evicted = drainToClose();
+            }
+            closeQuietly(evicted);
+            return lease(fresh, owner);
+        }
+
+        private PreparedStatement lease(CachedStatement cs, Connection owner) {
+            return (PreparedStatement) Proxy.newProxyInstance(
+                    PreparedStatement.class.getClassLoader(),
+                    new Class<?>[]{PreparedStatement.class},
+                    new StatementHandle(this, cs, owner));
+        }
+
+        // Called when the caller closes its handle
+        void release(CachedStatement cs, List<ResultSet> results) {
+            boolean reusable = true;
+            if (results != null) {
+                for (ResultSet rs : results) {
+                    try {
+                        rs.close();
+                    } catch (SQLException e) {
+                        reusable = false;
+                    }
+                }
+            }
+            try {
+                cs.physical.clearParameters();
+                cs.physical.clearBatch();
+                cs.physical.clearWarnings();
+            } catch (SQLException e) {
+                reusable = false;
+            }
+
+            boolean close;
+            synchronized (this) {
+                cs.inUse = false;
+                close = cs.evicted || !reusable;
+                if (close && map.get(cs.key) == cs) {
+                    map.remove(cs.key);
+                }
+            }
+            if (close) {
+                closeQuietly(List.of(cs));
+            }
+        }
+
+        // The borrower returned the connection with statements still open: drop them
+        void closeLeased() {
+            List<CachedStatement> leaked = new ArrayList<>();
+            synchronized (this) {
+                Iterator<CachedStatement> it = map.values().iterator();
+                while (it.hasNext()) {
+                    CachedStatement cs = it.next();
+                    if (cs.inUse) {
+                        it.remove();
+                        leaked.add(cs);
+                    }
+                }
+            }
+            closeQuietly(leaked);
+        }
+
+        void closeAll() {
+            List<CachedStatement> all;
+            synchronized (this) {
+                all = new ArrayList<>(map.values());
+                map.clear();
+                all.addAll(drainToClose());
+            }
+            closeQuietly(all);
+        }
+
+        private List<CachedStatement> drainToClose() {
+            if (toClose.isEmpty()) {
+                return List.of();
+            }
+            List<CachedStatement> list = new ArrayList<>(toClose);
+            toClose.clear();
+            return list;
+        }
+
+        private void closeQuietly(List<CachedStatement> statements) {
+            for (CachedStatement cs : statements) {
+                try {
+                    cs.physical.close();
+                } catch (SQLException e) {
+                    // Connection may already be gone
+                }
+            }
+        }
+    }
+
+    // Handle given to the caller for one use of a cached statement. close() returns the statement
+    // to the cache instead of closing it; any use after that fails like a closed statement would.
+    private static final class StatementHandle implements InvocationHandler {
+        private final StatementCache cache;
+        private final CachedStatement cs;
+        private final Connection owner;
+        private List<ResultSet> results;
+        private boolean closed;
+
+        StatementHandle(StatementCache cache, CachedStatement cs, Connection owner) {
+            this.cache = cache;
+            this.cs = cs;
+            this.owner = owner;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!closed) {
+                        closed = true;
+                        cache.release(cs, results);
+                        results = null;
+                    }
+                    return null;
+                case "isClosed":
+                    return closed || cs.physical.isClosed();
+                case "getConnection":
+                    return owner;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "CachedStatement[" + cs.key + "]";
+                default:
+                    if (closed) {
+                        throw new SQLException("Statement is closed");
+                    }
+            }
+            Object result;
+            try {
+                result = method.invoke(cs.physical, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+            if (result instanceof ResultSet) {
+                // A real close() would close these; a cached statement has to do it on release
+                if (results == null) {
+                    results = new ArrayList<>(2);
+                }
+                results.add((ResultSet) result);
+            }
+            return result;
+        }
+    }
+}
@@ -1,15 +1,190 @@
 package com.utilities;
 
+import com.repository.ShardedRepositories;
+
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
 
 public class DBConnection {
-    private static final String URL = "jdbc:mysql://localhost:3306/sprint1";
-    private static final String USER = "root";
-    private static final String PASSWORD = "root";
+    // Defaults can be overridden with -Dinventory.db.url=... etc., e.g. jdbc:h2:mem:sprint1;MODE=MySQL for an embedded database
+    private static final String URL = System.getProperty("inventory.db.url", "jdbc:mysql://localhost:3306/sprint1?useCursorFetch=true&rewriteBatchedStatements=true");
+    private static final String USER = System.getProperty("inventory.db.user", "root");
+    private static final String PASSWORD = System.getProperty("inventory.db.password", "root");
+    private static final int POOL_SIZE = Integer.getInteger("inventory.db.poolSize", 10);
+    private static final int STATEMENT_CACHE_SIZE = Integer.getInteger("inventory.db.statementCacheSize", 64);
+    // Read replicas (comma-separated URLs); see ReplicaRouter for how reads are routed to them
+    private static final String REPLICA_URLS = System.getProperty("inventory.db.replicaUrls", "");
+    private static final long LOOKUP_MAX_LAG_MILLIS = Long.getLong("inventory.db.maxReplicaLagMillis", 1_000);
+    private static final long REPORT_MAX_LAG_MILLIS = Long.getLong("inventory.db.reportMaxLagMillis", 30_000);
+    private static final long HEARTBEAT_MILLIS = Long.getLong("inventory.db.heartbeatMillis", 250);
+
+    private static volatile ConnectionPool pool;
+    private static String url = URL; // of the current pool; guarded by DBConnection.class
+    private static String user = USER;
+    private static String password = PASSWORD;
+    private static volatile ReplicaRouter router;
+    private static List<String> replicaUrls = parseUrls(REPLICA_URLS); // guarded by DBConnection.class
+
+    private static final Metrics.Operation ACQUIRE = Metrics.operation("Connection.acquire");
 
     public static Connection getConnection() throws SQLException {
-        return DriverManager.getConnection(URL, USER, PASSWORD);
+        long start = Metrics.start();
+        try {
+            Connection conn = getPool().borrow();
+            ACQUIRE.success(start);
+            return conn;
+        } catch (SQLException e) {
+            ACQUIRE.failure(start);
+            throw e;
+        }
+    }
+
+    // A connection for a lookup by ID: a replica at most maxReplicaLagMillis behind that has the
+    // calling thread's writes, otherwise the primary
+    public static Connection getReadConnection() throws SQLException {
+        return route(ReplicaRouter.ReadKind.LOOKUP);
+    }
+
+    // A connection for a listing or report: like getReadConnection, within reportMaxLagMillis
+    public static Connection getReportConnection() throws SQLException {
+        return route(ReplicaRouter.ReadKind.REPORT);
+    }
+
+    private static Connection route(ReplicaRouter.ReadKind kind) throws SQLException {
+        getPool();
+        ReplicaRouter r = router;
+        return r != null ? r.read(kind) : getConnection();
+    }
+
+    // True if conn came from a replica (and may be behind the primary)
+    public static boolean isReplica(Connection conn) {
+        ReplicaRouter r = router;
+        return r != null && r.isReplica(conn);
+    }
+
+    // The exports, the sales analytics and the log archive query the tables straight through here, which
+    // only reaches the primary: with -Dinventory.shards they would quietly cover one shard, so they refuse
+    public static void requireUnsharded(String what) throws SQLException {
+        if (ShardedRepositories.getInstalled() != null) {
+            throw new SQLException(what + " reads a single database and does not support -Dinventory.shards");
+        }
+    }
+
+    // Null without replicas
+    public static ReplicaRouter getRouter() {
+        return router;
+    }
+
+    public static ConnectionPool getPool() {
+        ConnectionPool p = pool;
+        if (p == null) {
+            synchronized (DBConnection.class) {
+                p = pool;
+                if (p == null) {
+                    p = newPool(URL, USER, PASSWORD, POOL_SIZE);
+                    router = newRouter(p, USER, PASSWORD, POOL_SIZE);
+                    pool = p;
+                }
+            }
+        }
+        return p;
+    }
+
+    // Point the application at a different database (tests, benchmarks, embedded runs).
+    // Connections already borrowed from the old pool are closed when they are returned.
+    public static synchronized void configure(String url, String user, String password, int poolSize) {
+        ConnectionPool old = pool;
+        ReplicaRouter oldRouter = router;
+        ConnectionPool p = newPool(url, user, password, poolSize);
+        router = newRouter(p, user, password, poolSize);
+        pool = p;
+        DBConnection.url = url;
+        DBConnection.user = user;
+        DBConnection.password = password;
+        if (oldRouter != null) {
+            oldRouter.close();
+        }
+        if (old != null) {
+            old.close();
+        }
+    }
+
+    // Replicas for the next configure(...) (none for an empty list); replaces -Dinventory.db.replicaUrls
+    public static synchronized void configureReplicas(List<String> urls) {
+        replicaUrls = new ArrayList<>(urls);
+    }
+
+    // A separate pool on another database with the configured user, password and statement cache (e.g. one per shard)
+    public static ConnectionPool openPool(String url, int poolSize) {
+        return newPool(url, USER, PASSWORD, poolSize);
+    }
+
+    // A pool of its own on the current primary, for work that must never wait behind the shared
+    // pool's borrowers (the background log writer). Not closed by shutdown().
+    public static synchronized ConnectionPool openPrimaryPool(int poolSize) {
+        return newPool(url, user, password, poolSize);
+    }
+
+    // Every pool caches the statements registered in SqlStatements, one set per physical connection
+    private static ConnectionPool newPool(String url, String user, String password, int poolSize) {
+        ConnectionPool p = new ConnectionPool(withMySqlDefaults(url), user, password, poolSize);
+        p.setStatementCacheSize(STATEMENT_CACHE_SIZE);
+        p.setCacheableStatements(SqlStatements.all());
+        return p;
+    }
+
+    private static ReplicaRouter newRouter(ConnectionPool primary, String user, String password, int poolSize) {
+        if (replicaUrls.isEmpty()) {
+            return null;
+        }
+        List<ConnectionPool> pools = new ArrayList<>();
+        for (String url : replicaUrls) {
+            pools.add(newPool(url, user, password, poolSize));
+        }
+        return new ReplicaRouter(primary, replicaUrls, pools, LOOKUP_MAX_LAG_MILLIS, REPORT_MAX_LAG_MILLIS, HEARTBEAT_MILLIS);
+    }
+
+    // Connector/J options the code relies on, added to MySQL URLs that do not set them themselves:
+    // - useCursorFetch: otherwise setFetchSize is ignored and the exports, the log archive and the
+    //   analytics scans buffer whole result sets
+    // - rewriteBatchedStatements: otherwise executeBatch sends one statement per row, so an order's
+    //   batched decrements, items and logs cost a round trip per line. INSERT batches become multi-row
+    //   INSERTs; UPDATE batches go as one multi-statement packet and keep their per-statement update counts.
+    static String withMySqlDefaults(String url) {
+        if (!url.startsWith("jdbc:mysql:")) {
+            return url;
+        }
+        url = withOption(url, "useCursorFetch");
+        return withOption(url, "rewriteBatchedStatements");
+    }
+
+    private static String withOption(String url, String option) {
+        if (url.contains(option + "=")) {
+            return url;
+        }
+        return url + (url.indexOf('?') >= 0 ? "&" : "?") + option + "=true";
+    }
+
+    private static List<String> parseUrls(String urls) {
+        List<String> list = new ArrayList<>();
+        for (String url : urls.split(",")) {
+            if (!url.isBlank()) {
+                list.add(url.trim());
+            }
+        }
+        return list;
+    }
+
+    public static synchronized void shutdown() {
+        if (router != null) {
+            router.close();
+            router = null;
+        }
+        if (pool != null) {
+            pool.close();
+            pool = null;
+        }
     }
 }
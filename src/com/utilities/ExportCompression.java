@@ -0,0 +1,38 @@
+package com.utilities;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.GZIPOutputStream;
+
+public enum ExportCompression {
+    NONE(""),
+    GZIP(".gz"),
+    ZSTD(".zst"); // needs zstd-jni (com.github.luben:zstd-jni) on the classpath
+
+    private final String extension;
+
+    ExportCompression(String extension) {
+        this.extension = extension;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    public OutputStream wrap(OutputStream out) throws IOException {
+        switch (this) {
+            case GZIP:
+                return new GZIPOutputStream(out, 1 << 16); // header carries no timestamp, so output stays diffable
+            case ZSTD:
+                try {
+                    Class<?> zstd = Class.forName("com.github.luben.zstd.ZstdOutputStream");
+                    return (OutputStream) zstd.getConstructor(OutputStream.class).newInstance(out);
+                } catch (ReflectiveOperationException e) {
+                    out.close();
+                    throw new IOException("zstd compression requires zstd-jni on the classpath", e);
+                }
+            default:
+                return out;
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.utilities;
+
+public enum ExportFormat {
+    TEXT(".txt"),       // "a | b | c" lines, same layout as the original inventory log export
+    CSV(".csv"),        // RFC 4180, header row first
+    JSONL(".jsonl"),    // one JSON object per row
+    COLUMNAR(".col");   // binary row groups with one block per column, see FileExport
+
+    private final String extension;
+
+    ExportFormat(String extension) {
+        this.extension = extension;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+}
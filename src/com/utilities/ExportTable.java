@@ -0,0 +1,92 @@
+package com.utilities;
+
+import java.util.List;
+
+// Tables the export engine knows how to read, with the integer key used for range partitioning.
+// The key must be the first column.
+public enum ExportTable {
+    INVENTORY_LOG("InventoryLog", "log_id", List.of(
+            new Column("log_id", ColumnType.INT),
+            new Column("product_id", ColumnType.INT),
+            new Column("change_quantity", ColumnType.INT),
+            new Column("action", ColumnType.STRING),
+            new Column("timestamp", ColumnType.TIMESTAMP))),
+    ORDERS("Orders", "order_id", List.of(
+            new Column("order_id", ColumnType.INT),
+            new Column("order_date", ColumnType.DATE),
+            new Column("customer_name", ColumnType.STRING),
+            new Column("status", ColumnType.STRING))),
+    ORDER_ITEM("OrderItem", "order_item_id", List.of(
+            new Column("order_item_id", ColumnType.INT),
+            new Column("order_id", ColumnType.INT),
+            new Column("product_id", ColumnType.INT),
+            new Column("quantity", ColumnType.INT),
+            new Column("unit_price", ColumnType.DOUBLE))),
+    PRODUCT("Product", "product_id", List.of(
+            new Column("product_id", ColumnType.INT),
+            new Column("name", ColumnType.STRING),
+            new Column("description", ColumnType.STRING),
+            new Column("price", ColumnType.DOUBLE),
+            new Column("stock_quantity", ColumnType.INT),
+            new Column("supplier_id", ColumnType.INT))),
+    SUPPLIER("Supplier", "supplier_id", List.of(
+            new Column("supplier_id", ColumnType.INT),
+            new Column("name", ColumnType.STRING),
+            new Column("contact_email", ColumnType.STRING),
+            new Column("phone", ColumnType.STRING)));
+
+    public enum ColumnType {
+        INT, DOUBLE, STRING, DATE, TIMESTAMP
+    }
+
+    public static final class Column {
+        private final String name;
+        private final ColumnType type;
+
+        public Column(String name, ColumnType type) {
+            this.name = name;
+            this.type = type;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public ColumnType getType() {
+            return type;
+        }
+    }
+
+    private final String tableName;
+    private final String keyColumn;
+    private final List<Column> columns;
+
+    ExportTable(String tableName, String keyColumn, List<Column> columns) {
+        this.tableName = tableName;
+        this.keyColumn = keyColumn;
+        this.columns = columns;
+    }
+
+    public String getTableName() {
+        return tableName;
+    }
+
+    public String getKeyColumn() {
+        return keyColumn;
+    }
+
+    public List<Column> getColumns() {
+        return columns;
+    }
+
+    public String selectList() {
+        StringBuilder sb = new StringBuilder();
+        for (Column c : columns) {
+            if (sb.length() > 0) {
+                sb.append(", ");
+            }
+            sb.append(c.getName());
+        }
+        return sb.toString();
+    }
+}
@@ -1,15 +1,45 @@
 // File: src/com/utilities/FileExport.java
 package com.utilities;
 
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Scanner;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
+// Export engine. Nothing here is static mutable state, so any number of exports can run at once.
+//
+// export() reads a table in key-range partitions on parallel connections, encodes each partition
+// into its own part file, then concatenates the parts in key order (optionally compressed). Rows are
+// always written in primary key order, so the same data always produces byte-identical files.
 public class FileExport {
 
-    static String filename;
-    static List<String> data;
+    private final String filename;
+    private final List<String> data;
 
     public FileExport(List<String> data, String filename) {
         this.filename = filename;
@@ -21,8 +51,7 @@ public class FileExport {
 
 
     // Method to export any list of strings to a text file
-    public static void exportToTextFile(){  //List<String> data, String filename) {
-        Scanner sc = new Scanner(System.in);
+    public void exportToTextFile(){  //List<String> data, String filename) {
 
         // Ask user for a custom filename or use default
 //        System.out.print("Enter filename to save (without extension) [" + defaultFilename + "]: ");
@@ -44,4 +73,417 @@ public class FileExport {
             System.err.println("Error writing to file: " + e.getMessage());
         }
     }
-}
\ No newline at end of file
+
+    // ---------- Streaming helpers ----------
+
+    private static final int STREAM_BUFFER_SIZE = 1 << 20; // 1 MB between the formatter and the file channel
+
+    // Writer over a file channel with a large buffer, for exports that write row by row
+    public static Writer openBufferedWriter(String filename) throws IOException {
+        FileChannel channel = FileChannel.open(Path.of(filename),
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        return new BufferedWriter(
+                new OutputStreamWriter(Channels.newOutputStream(channel), StandardCharsets.UTF_8),
+                STREAM_BUFFER_SIZE);
+    }
+
+    // Append a timestamp as yyyy-MM-dd HH:mm:ss (or N/A) without going through a formatter
+    public static void appendTimestamp(StringBuilder sb, Timestamp timestamp) {
+        if (timestamp == null) {
+            sb.append("N/A");
+            return;
+        }
+        LocalDateTime t = timestamp.toLocalDateTime();
+        sb.append(t.getYear()).append('-');
+        appendTwoDigits(sb, t.getMonthValue());
+        sb.append('-');
+        appendTwoDigits(sb, t.getDayOfMonth());
+        sb.append(' ');
+        appendTwoDigits(sb, t.getHour());
+        sb.append(':');
+        appendTwoDigits(sb, t.getMinute());
+        sb.append(':');
+        appendTwoDigits(sb, t.getSecond());
+    }
+
+    private static void appendTwoDigits(StringBuilder sb, int value) {
+        sb.append((char) ('0' + value / 10)).append((char) ('0' + value % 10));
+    }
+
+    // ---------- Table export engine ----------
+
+    private static final int EXPORT_FETCH_SIZE = Integer.getInteger("inventory.export.fetchSize", 1000);
+    // Columnar row groups cover fixed key ranges, so group boundaries (and the file bytes)
+    // do not depend on how many partitions the export used. Tables with a key span under
+    // ROW_GROUPS_PER_SPAN * ROW_GROUP_KEYS get narrower groups, so they can still be split.
+    private static final long ROW_GROUP_KEYS = 65_536;
+    private static final long MIN_ROW_GROUP_KEYS = 1_024;
+    private static final long ROW_GROUPS_PER_SPAN = 16;
+
+    // Columnar layout: see ColumnarFile
+    public static final int COLUMNAR_MAGIC = ColumnarFile.MAGIC;
+    public static final short COLUMNAR_VERSION = ColumnarFile.VERSION;
+
+    public static long export(ExportTable table, ExportFormat format, ExportCompression compression,
+                              String filename, int partitions) throws SQLException, IOException {
+        DBConnection.requireUnsharded("The " + table.getTableName() + " export");
+        long start = System.nanoTime();
+
+        long[] range = keyRange(table);
+        int n = range == null ? 0 : Math.max(1, Math.min(partitions, DBConnection.getPool().getMaxSize()));
+        long[] bounds = new long[n + 1];
+        long groupKeys = ROW_GROUP_KEYS;
+        if (n > 0) {
+            long span = range[1] - range[0] + 1;
+            groupKeys = rowGroupKeys(span);
+            for (int i = 0; i <= n; i++) {
+                bounds[i] = range[0] + span * i / n;
+                if (format == ExportFormat.COLUMNAR && i > 0 && i < n) {
+                    bounds[i] = Math.max(bounds[i - 1], Math.floorDiv(bounds[i], groupKeys) * groupKeys);
+                }
+            }
+        }
+        long rowGroupKeys = groupKeys;
+
+        Path target = Path.of(filename).toAbsolutePath();
+        List<Path> parts = new ArrayList<>();
+        ExecutorService executor = n > 1 ? Executors.newFixedThreadPool(n) : null;
+        long rows = 0;
+        try {
+            List<Future<Long>> results = new ArrayList<>();
+            for (int i = 0; i < n; i++) {
+                Path part = Files.createTempFile(target.getParent(), target.getFileName() + ".part" + i + "-", ".tmp");
+                parts.add(part);
+                long from = bounds[i];
+                long to = bounds[i + 1];
+                if (executor == null) {
+                    rows += writePartition(table, format, from, to, rowGroupKeys, part);
+                } else {
+                    results.add(executor.submit(() -> writePartition(table, format, from, to, rowGroupKeys, part)));
+                }
+            }
+            for (Future<Long> f : results) {
+                rows += f.get();
+            }
+
+            try (OutputStream out = compression.wrap(new BufferedOutputStream(Files.newOutputStream(target), 1 << 16))) {
+                writeHeader(table, format, out);
+                for (Path part : parts) {
+                    Files.copy(part, out);
+                }
+                if (format == ExportFormat.COLUMNAR) {
+                    ColumnarFile.writeEnd(out);
+                }
+            } catch (IOException e) {
+                Files.deleteIfExists(target); // never leave a truncated export behind
+                throw e;
+            }
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof SQLException) {
+                throw (SQLException) cause;
+            }
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException("Export of " + table.getTableName() + " failed", cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Export of " + table.getTableName() + " interrupted", e);
+        } finally {
+            if (executor != null) {
+                executor.shutdownNow();
+            }
+            for (Path part : parts) {
+                Files.deleteIfExists(part);
+            }
+        }
+
+        double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+        System.out.printf("Exported %d %s row(s) to %s in %.2f s (%.0f rows/s, %d partition(s))%n",
+                rows, table.getTableName(), filename, seconds, seconds > 0 ? rows / seconds : (double) rows, n);
+        return rows;
+    }
+
+    // Key width of one columnar row group: a power of two from the key span alone (never the partition count)
+    static long rowGroupKeys(long span) {
+        long keys = Long.highestOneBit(Math.max(1, span / ROW_GROUPS_PER_SPAN));
+        return Math.max(MIN_ROW_GROUP_KEYS, Math.min(ROW_GROUP_KEYS, keys));
+    }
+
+    // {min, max} of the partition key, or null for an empty table
+    private static long[] keyRange(ExportTable table) throws SQLException {
+        String key = table.getKeyColumn();
+        String sql = "SELECT MIN(" + key + "), MAX(" + key + ") FROM " + table.getTableName();
+        try (Connection conn = DBConnection.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            rs.next();
+            long min = rs.getLong(1);
+            if (rs.wasNull()) {
+                return null;
+            }
+            return new long[]{min, rs.getLong(2)};
+        }
+    }
+
+    private static void writeHeader(ExportTable table, ExportFormat format, OutputStream out) throws IOException {
+        if (format == ExportFormat.CSV) {
+            StringBuilder sb = new StringBuilder();
+            for (ExportTable.Column c : table.getColumns()) {
+                if (sb.length() > 0) {
+                    sb.append(',');
+                }
+                sb.append(c.getName());
+            }
+            sb.append('\n');
+            out.write(sb.toString().getBytes(StandardCharsets.UTF_8));
+        } else if (format == ExportFormat.COLUMNAR) {
+            ColumnarFile.writeHeader(out, table.getColumns());
+        }
+    }
+
+    // Encode the rows with fromKey <= key < toKey into one part file
+    private static long writePartition(ExportTable table, ExportFormat format, long fromKey, long toKey,
+                                       long rowGroupKeys, Path part) throws SQLException, IOException {
+        String key = table.getKeyColumn();
+        String sql = "SELECT " + table.selectList() + " FROM " + table.getTableName()
+                + " WHERE " + key + " >= ? AND " + key + " < ? ORDER BY " + key;
+
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            stmt.setFetchSize(EXPORT_FETCH_SIZE);
+            stmt.setLong(1, fromKey);
+            stmt.setLong(2, toKey);
+
+            try (ResultSet rs = stmt.executeQuery();
+                 OutputStream out = new BufferedOutputStream(Files.newOutputStream(part), 1 << 16)) {
+                if (format == ExportFormat.COLUMNAR) {
+                    return writeColumnar(table.getColumns(), rs, out, rowGroupKeys);
+                }
+                Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+                long rows = writeRows(table.getColumns(), format, rs, writer);
+                writer.flush();
+                return rows;
+            }
+        }
+    }
+
+    // ---------- Row formats ----------
+
+    private static long writeRows(List<ExportTable.Column> columns, ExportFormat format, ResultSet rs, Writer writer)
+            throws SQLException, IOException {
+        StringBuilder line = new StringBuilder(256);
+        long rows = 0;
+        while (rs.next()) {
+            line.setLength(0);
+            if (format == ExportFormat.JSONL) {
+                line.append('{');
+            }
+            for (int i = 0; i < columns.size(); i++) {
+                ExportTable.Column c = columns.get(i);
+                if (i > 0) {
+                    line.append(format == ExportFormat.TEXT ? " | " : ",");
+                }
+                if (format == ExportFormat.JSONL) {
+                    appendJsonString(line, c.getName());
+                    line.append(':');
+                }
+                appendValue(line, format, c.getType(), rs, i + 1);
+            }
+            if (format == ExportFormat.JSONL) {
+                line.append('}');
+            }
+            line.append('\n');
+            writer.append(line);
+            rows++;
+        }
+        return rows;
+    }
+
+    private static void appendValue(StringBuilder sb, ExportFormat format, ExportTable.ColumnType type,
+                                    ResultSet rs, int index) throws SQLException {
+        switch (type) {
+            case INT: {
+                int v = rs.getInt(index);
+                appendOrNull(sb, format, rs.wasNull() ? null : v);
+                break;
+            }
+            case DOUBLE: {
+                double v = rs.getDouble(index);
+                appendOrNull(sb, format, rs.wasNull() ? null : v);
+                break;
+            }
+            case DATE: {
+                Date d = rs.getDate(index);
+                appendText(sb, format, d == null ? null : d.toString());
+                break;
+            }
+            case TIMESTAMP: {
+                Timestamp t = rs.getTimestamp(index);
+                if (t == null && format == ExportFormat.TEXT) {
+                    sb.append("N/A");
+                } else if (t == null) {
+                    appendOrNull(sb, format, null);
+                } else {
+                    if (format == ExportFormat.JSONL) {
+                        sb.append('"');
+                    }
+                    appendTimestamp(sb, t);
+                    if (format == ExportFormat.JSONL) {
+                        sb.append('"');
+                    }
+                }
+                break;
+            }
+            default:
+                appendText(sb, format, rs.getString(index));
+        }
+    }
+
+    private static void appendOrNull(StringBuilder sb, ExportFormat format, Number value) {
+        if (value != null) {
+            sb.append(value);
+        } else if (format == ExportFormat.JSONL) {
+            sb.append("null");
+        } else if (format == ExportFormat.TEXT) {
+            sb.append("null");
+        }
+        // CSV: empty field
+    }
+
+    private static void appendText(StringBuilder sb, ExportFormat format, String value) {
+        switch (format) {
+            case JSONL:
+                if (value == null) {
+                    sb.append("null");
+                } else {
+                    appendJsonString(sb, value);
+                }
+                break;
+            case CSV:
+                if (value != null) {
+                    appendCsvField(sb, value);
+                }
+                break;
+            default:
+                sb.append(value);
+        }
+    }
+
+    private static void appendCsvField(StringBuilder sb, String value) {
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char ch = value.charAt(i);
+            quote = ch == ',' || ch == '"' || ch == '\n' || ch == '\r';
+        }
+        if (!quote) {
+            sb.append(value);
+            return;
+        }
+        sb.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char ch = value.charAt(i);
+            if (ch == '"') {
+                sb.append('"');
+            }
+            sb.append(ch);
+        }
+        sb.append('"');
+    }
+
+    private static void appendJsonString(StringBuilder sb, String value) {
+        sb.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char ch = value.charAt(i);
+            switch (ch) {
+                case '"':
+                    sb.append("\\\"");
+                    break;
+                case '\\':
+                    sb.append("\\\\");
+                    break;
+                case '\n':
+                    sb.append("\\n");
+                    break;
+                case '\r':
+                    sb.append("\\r");
+                    break;
+                case '\t':
+                    sb.append("\\t");
+                    break;
+                default:
+                    if (ch < 0x20) {
+                        sb.append(String.format("\\u%04x", (int) ch));
+                    } else {
+                        sb.append(ch);
+                    }
+            }
+        }
+        sb.append('"');
+    }
+
+    // ---------- Columnar format ----------
+
+    private static long writeColumnar(List<ExportTable.Column> columns, ResultSet rs, OutputStream out,
+                                      long rowGroupKeys) throws SQLException, IOException {
+        int columnCount = columns.size();
+        ByteArrayOutputStream[] buffers = new ByteArrayOutputStream[columnCount];
+        DataOutputStream[] blocks = new DataOutputStream[columnCount];
+        for (int i = 0; i < columnCount; i++) {
+            buffers[i] = new ByteArrayOutputStream(1 << 16);
+            blocks[i] = new DataOutputStream(buffers[i]);
+        }
+        DataOutputStream data = new DataOutputStream(out);
+
+        long rows = 0;
+        int groupRows = 0;
+        long group = Long.MIN_VALUE;
+        while (rs.next()) {
+            long g = Math.floorDiv(rs.getLong(1), rowGroupKeys); // the key is always the first column
+            if (g != group && groupRows > 0) {
+                ColumnarFile.writeRowGroup(data, groupRows, buffers);
+                groupRows = 0;
+            }
+            group = g;
+            for (int i = 0; i < columnCount; i++) {
+                writeColumnValue(blocks[i], columns.get(i).getType(), rs, i + 1);
+            }
+            rows++;
+            groupRows++;
+        }
+        if (groupRows > 0) {
+            ColumnarFile.writeRowGroup(data, groupRows, buffers);
+        }
+        data.flush();
+        return rows;
+    }
+
+    private static void writeColumnValue(DataOutputStream block, ExportTable.ColumnType type, ResultSet rs, int index)
+            throws SQLException, IOException {
+        switch (type) {
+            case INT: {
+                int v = rs.getInt(index);
+                block.writeInt(rs.wasNull() ? Integer.MIN_VALUE : v);
+                break;
+            }
+            case DOUBLE: {
+                double v = rs.getDouble(index);
+                block.writeDouble(rs.wasNull() ? Double.NaN : v);
+                break;
+            }
+            case DATE: {
+                Date d = rs.getDate(index);
+                block.writeInt(d == null ? Integer.MIN_VALUE : (int) d.toLocalDate().toEpochDay());
+                break;
+            }
+            case TIMESTAMP: {
+                Timestamp t = rs.getTimestamp(index);
+                block.writeLong(t == null ? Long.MIN_VALUE : t.getTime());
+                break;
+            }
+            default:
+                ColumnarFile.writeString(block, rs.getString(index));
+        }
+    }
+}
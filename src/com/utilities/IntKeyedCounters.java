@@ -0,0 +1,180 @@
+package com.utilities;
+
+import java.util.Arrays;
+
+// A fixed number of long counters per int key (product ID, epoch day, supplier ID), in two flat
+// arrays with open addressing and linear probing: no boxing and no object per key, so one
+// accumulator per fork/join partition stays cheap even with millions of products.
+//
+// Not thread-safe: each task fills its own and merges them when joining.
+public class IntKeyedCounters {
+
+    private static final int EMPTY = Integer.MIN_VALUE; // cannot be used as a key
+
+    // Visits one key; read its counters with get(key, column)
+    public interface Visitor {
+        void visit(int key);
+    }
+
+    private final int columns;
+    private int[] keys;
+    private long[] values; // columns longs per slot
+    private int mask;
+    private int size;
+
+    public IntKeyedCounters(int columns, int expectedKeys) {
+        if (columns <= 0) {
+            throw new IllegalArgumentException("Need at least one column: " + columns);
+        }
+        this.columns = columns;
+        allocate(capacityFor(Math.max(16, expectedKeys)));
+    }
+
+    private static int capacityFor(int keys) {
+        long slots = keys + keys / 3L + 1; // at most 3/4 full
+        if (slots > 1 << 30) {
+            throw new IllegalArgumentException("Too many keys: " + keys);
+        }
+        return Integer.highestOneBit((int) slots - 1) << 1;
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        Arrays.fill(keys, EMPTY);
+        values = new long[capacity * columns];
+        mask = capacity - 1;
+    }
+
+    private static int slotOf(int key, int mask) {
+        int h = key * 0x9E3779B9; // spread sequential IDs and days
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    // Slot of key, inserting it with zero counters if it is new
+    private int slot(int key) {
+        if (key == EMPTY) {
+            throw new IllegalArgumentException("Key out of range: " + key);
+        }
+        int i = slotOf(key, mask);
+        while (true) {
+            int k = keys[i];
+            if (k == key) {
+                return i;
+            }
+            if (k == EMPTY) {
+                if (size + 1 > keys.length - keys.length / 4) {
+                    grow();
+                    return slot(key);
+                }
+                keys[i] = key;
+                size++;
+                return i;
+            }
+            i = (i + 1) & mask;
+        }
+    }
+
+    private int find(int key) {
+        int i = slotOf(key, mask);
+        while (true) {
+            int k = keys[i];
+            if (k == key) {
+                return i;
+            }
+            if (k == EMPTY) {
+                return -1;
+            }
+            i = (i + 1) & mask;
+        }
+    }
+
+    private void grow() {
+        int[] oldKeys = keys;
+        long[] oldValues = values;
+        allocate(keys.length << 1);
+        for (int i = 0; i < oldKeys.length; i++) {
+            int key = oldKeys[i];
+            if (key == EMPTY) {
+                continue;
+            }
+            int j = slotOf(key, mask);
+            while (keys[j] != EMPTY) {
+                j = (j + 1) & mask;
+            }
+            keys[j] = key;
+            System.arraycopy(oldValues, i * columns, values, j * columns, columns);
+        }
+    }
+
+    public void add(int key, int column, long delta) {
+        int base = slot(key) * columns; // before reading values: inserting may grow it
+        values[base + column] += delta;
+    }
+
+    // Two columns of the same key with one probe
+    public void add(int key, int column1, long delta1, int column2, long delta2) {
+        int base = slot(key) * columns;
+        values[base + column1] += delta1;
+        values[base + column2] += delta2;
+    }
+
+    public long get(int key, int column) {
+        int i = find(key);
+        return i < 0 ? 0 : values[i * columns + column];
+    }
+
+    public boolean contains(int key) {
+        return find(key) >= 0;
+    }
+
+    // Add every counter of other (same column count) into this one
+    public void merge(IntKeyedCounters other) {
+        if (other.columns != columns) {
+            throw new IllegalArgumentException("Column counts differ: " + columns + " and " + other.columns);
+        }
+        for (int i = 0; i < other.keys.length; i++) {
+            int key = other.keys[i];
+            if (key == EMPTY) {
+                continue;
+            }
+            int base = slot(key) * columns;
+            for (int c = 0; c < columns; c++) {
+                values[base + c] += other.values[i * columns + c];
+            }
+        }
+    }
+
+    public void forEach(Visitor visitor) {
+        for (int key : keys) {
+            if (key != EMPTY) {
+                visitor.visit(key);
+            }
+        }
+    }
+
+    // Keys in ascending order
+    public int[] sortedKeys() {
+        int[] sorted = new int[size];
+        int n = 0;
+        for (int key : keys) {
+            if (key != EMPTY) {
+                sorted[n++] = key;
+            }
+        }
+        Arrays.sort(sorted);
+        return sorted;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getColumns() {
+        return columns;
+    }
+
+    @Override
+    public String toString() {
+        return "IntKeyedCounters{size=" + size + ", columns=" + columns + ", capacity=" + keys.length + '}';
+    }
+}
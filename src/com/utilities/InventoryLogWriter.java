@@ -0,0 +1,367 @@
+package com.utilities;
+
+import com.InventoryLog;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// Background writer for InventoryLog rows. Rows go into a bounded queue and a single writer
+// thread inserts them as multi-row INSERTs, flushing when a batch is full or the linger time is up.
+//
+// Rows written this way are not part of the caller's transaction: a log row can land even if
+// the caller later rolls back. Use SYNC where the log must commit or roll back with the stock change
+// (the repositories do so themselves inside inTransaction).
+//
+// The writer flushes on a connection of its own, not one from the shared pool: GROUP_COMMIT callers
+// may still hold pooled connections while they wait, so a full pool would otherwise never let the
+// flush that releases them start.
+public class InventoryLogWriter implements AutoCloseable {
+
+    public enum Durability {
+        SYNC,            // insert immediately on the caller's connection (no queue)
+        GROUP_COMMIT,    // queue, and block the caller until the batch holding its row commits
+        FIRE_AND_FORGET  // queue and return; rows are lost if the JVM dies before the next flush
+    }
+
+    // One multi-row INSERT never carries more rows than this
+    private static final int MAX_ROWS_PER_STATEMENT = 500;
+
+    private final Durability durability;
+    private final int maxBatchSize;
+    private final long lingerNanos;
+    private final BlockingQueue<Pending> queue;
+    private final Thread worker;
+    private final Thread shutdownHook;
+    private volatile boolean running = true;
+    private ConnectionPool connections; // the writer's own; guarded by this
+    private ConnectionPool openedFor;   // the shared pool it was opened next to
+
+    // Metrics
+    private final LongAdder enqueued = new LongAdder();
+    private final LongAdder rowsWritten = new LongAdder();
+    private final LongAdder rowsFailed = new LongAdder();
+    private final LongAdder flushes = new LongAdder();
+    private final LongAdder totalFlushNanos = new LongAdder();
+    private final AtomicLong maxFlushNanos = new AtomicLong();
+    private final AtomicLong maxQueueDepth = new AtomicLong();
+
+    private static final class Pending {
+        final InventoryLog log;
+        final CompletableFuture<Void> done; // only set for GROUP_COMMIT
+
+        Pending(InventoryLog log, CompletableFuture<Void> done) {
+            this.log = log;
+            this.done = done;
+        }
+    }
+
+    public InventoryLogWriter(Durability durability, int queueCapacity, int maxBatchSize, long lingerMillis) {
+        this.durability = durability;
+        this.maxBatchSize = maxBatchSize;
+        this.lingerNanos = TimeUnit.MILLISECONDS.toNanos(lingerMillis);
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+
+        worker = new Thread(this::run, "inventory-log-writer");
+        worker.setDaemon(true);
+        worker.start();
+
+        // Drain whatever is still queued when the JVM exits normally
+        shutdownHook = new Thread(this::close, "inventory-log-writer-shutdown");
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+    }
+
+    public Durability getDurability() {
+        return durability;
+    }
+
+    // ---------- Append ----------
+
+    // conn is only used by SYNC; the queued modes never touch it
+    public void append(Connection conn, InventoryLog log) throws SQLException {
+        if (durability == Durability.SYNC) {
+            insertRows(conn, List.of(log));
+            rowsWritten.increment();
+            return;
+        }
+        if (!running) {
+            throw new IllegalStateException("Inventory log writer is closed");
+        }
+        if (log.getTimestamp() == null) {
+            log.setTimestamp(new Timestamp(System.currentTimeMillis())); // keep the event time, not the flush time
+        }
+
+        CompletableFuture<Void> done = durability == Durability.GROUP_COMMIT ? new CompletableFuture<>() : null;
+        Pending pending = new Pending(log, done);
+        try {
+            // Waits while the queue is full (back-pressure), but gives up once the writer is closed
+            while (!queue.offer(pending, 100, TimeUnit.MILLISECONDS)) {
+                if (!running) {
+                    throw new IllegalStateException("Inventory log writer is closed");
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while queueing inventory log row", e);
+        }
+        // close() may already have drained the queue; if the row is still there nobody will take it
+        if (!running && queue.remove(pending)) {
+            throw new IllegalStateException("Inventory log writer is closed");
+        }
+        enqueued.increment();
+        maxQueueDepth.accumulateAndGet(queue.size(), Math::max);
+
+        if (done != null) {
+            try {
+                done.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLException("Interrupted while waiting for inventory log commit", e);
+            } catch (ExecutionException e) {
+                throw new SQLException("Inventory log group commit failed", e.getCause());
+            }
+        }
+    }
+
+    // ---------- Writer thread ----------
+
+    private void run() {
+        List<Pending> batch = new ArrayList<>(maxBatchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                Pending first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+
+                // Linger briefly so concurrent appenders share one commit
+                long deadline = System.nanoTime() + lingerNanos;
+                while (batch.size() < maxBatchSize) {
+                    queue.drainTo(batch, maxBatchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= maxBatchSize || remaining <= 0 || !running) {
+                        break;
+                    }
+                    Pending next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                running = false;
+            }
+            if (!batch.isEmpty()) {
+                flush(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    private void flush(List<Pending> batch) {
+        long start = System.nanoTime();
+        List<InventoryLog> rows = new ArrayList<>(batch.size());
+        for (Pending p : batch) {
+            rows.add(p.log);
+        }
+
+        SQLException failure = null;
+        try (Connection conn = writerConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                insertRows(conn, rows);
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            failure = e;
+        }
+
+        long elapsed = System.nanoTime() - start;
+        flushes.increment();
+        totalFlushNanos.add(elapsed);
+        maxFlushNanos.accumulateAndGet(elapsed, Math::max);
+
+        if (failure == null) {
+            rowsWritten.add(rows.size());
+        } else {
+            rowsFailed.add(rows.size());
+            System.err.println("Failed to write " + rows.size() + " inventory log row(s): " + failure.getMessage());
+        }
+        for (Pending p : batch) {
+            if (p.done == null) {
+                continue;
+            }
+            if (failure == null) {
+                p.done.complete(null);
+            } else {
+                p.done.completeExceptionally(failure);
+            }
+        }
+    }
+
+    // Reopened when DBConnection is pointed at another database
+    private synchronized Connection writerConnection() throws SQLException {
+        ConnectionPool shared = DBConnection.getPool();
+        if (connections == null || openedFor != shared) {
+            if (connections != null) {
+                connections.close();
+            }
+            connections = DBConnection.openPrimaryPool(1);
+            openedFor = shared;
+        }
+        return connections.borrow();
+    }
+
+    // Insert rows with as few multi-row INSERT statements as possible
+    private static void insertRows(Connection conn, List<InventoryLog> rows) throws SQLException {
+        int offset = 0;
+        while (offset < rows.size()) {
+            int n = Math.min(MAX_ROWS_PER_STATEMENT, rows.size() - offset);
+            try (PreparedStatement stmt = conn.prepareStatement(multiRowInsert(n))) {
+                int p = 1;
+                for (int i = offset; i < offset + n; i++) {
+                    InventoryLog log = rows.get(i);
+                    stmt.setInt(p++, log.getProductId());
+                    stmt.setInt(p++, log.getChangeQuantity());
+                    stmt.setString(p++, log.getAction());
+                    stmt.setTimestamp(p++, log.getTimestamp() != null
+                            ? log.getTimestamp() : new Timestamp(System.currentTimeMillis()));
+                }
+                stmt.executeUpdate();
+            }
+            offset += n;
+        }
+    }
+
+    private static String multiRowInsert(int rows) {
+        StringBuilder sql = new StringBuilder("INSERT INTO InventoryLog (product_id, change_quantity, action, timestamp) VALUES ");
+        for (int i = 0; i < rows; i++) {
+            sql.append(i == 0 ? "(?, ?, ?, ?)" : ", (?, ?, ?, ?)");
+        }
+        return sql.toString();
+    }
+
+    // Wait until every row queued so far has been flushed (or failed). Returns false on timeout.
+    public boolean awaitDrained(long timeoutMillis) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        while (rowsWritten.sum() + rowsFailed.sum() < enqueued.sum()) {
+            if (System.nanoTime() >= deadline) {
+                return false;
+            }
+            try {
+                Thread.sleep(1);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // ---------- Shutdown ----------
+
+    // Stop accepting rows, wait for the writer to flush everything queued, and fail the rows of
+    // appenders that raced with close() so none of them waits forever
+    @Override
+    public void close() {
+        if (!running) {
+            return;
+        }
+        running = false; // the writer notices within one poll interval and drains the queue
+        try {
+            worker.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        List<Pending> rest = new ArrayList<>();
+        queue.drainTo(rest);
+        if (!rest.isEmpty()) {
+            rowsFailed.add(rest.size());
+            System.err.println("Dropped " + rest.size() + " inventory log row(s) queued after close");
+            SQLException closed = new SQLException("Inventory log writer closed before the row was written");
+            for (Pending p : rest) {
+                if (p.done != null) {
+                    p.done.completeExceptionally(closed);
+                }
+            }
+        }
+        synchronized (this) {
+            if (connections != null) {
+                connections.close();
+                connections = null;
+            }
+        }
+
+        if (Thread.currentThread() != shutdownHook) {
+            try {
+                Runtime.getRuntime().removeShutdownHook(shutdownHook);
+            } catch (IllegalStateException e) {
+                // JVM is already shutting down
+            }
+        }
+    }
+
+    // ---------- Metrics ----------
+
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    public long getMaxQueueDepth() {
+        return maxQueueDepth.get();
+    }
+
+    public long getEnqueuedCount() {
+        return enqueued.sum();
+    }
+
+    public long getRowsWritten() {
+        return rowsWritten.sum();
+    }
+
+    public long getRowsFailed() {
+        return rowsFailed.sum();
+    }
+
+    public long getFlushCount() {
+        return flushes.sum();
+    }
+
+    public double getAverageBatchSize() {
+        long n = flushes.sum();
+        return n == 0 ? 0.0 : (double) (rowsWritten.sum() + rowsFailed.sum()) / n;
+    }
+
+    public double getAverageFlushMillis() {
+        long n = flushes.sum();
+        return n == 0 ? 0.0 : totalFlushNanos.sum() / (double) n / 1_000_000.0;
+    }
+
+    public double getMaxFlushMillis() {
+        return maxFlushNanos.get() / 1_000_000.0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("InventoryLogWriter{mode=%s, queue=%d (max %d), written=%d, failed=%d, flushes=%d, " +
+                        "avgBatch=%.1f, avgFlush=%.3fms, maxFlush=%.3fms}",
+                durability, getQueueDepth(), getMaxQueueDepth(), getRowsWritten(), getRowsFailed(), getFlushCount(),
+                getAverageBatchSize(), getAverageFlushMillis(), getMaxFlushMillis());
+    }
+}
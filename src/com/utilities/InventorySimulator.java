@@ -1,106 +1,165 @@
 package com.utilities;
 
 import com.InventoryLog;
-import com.Order;
-import com.OrderItem;
 import com.Product;
-import com.exceptions.OrderNotFoundException;
-import com.exceptions.ProductNotFoundException;
-import com.utilities.DBConnection;
 
 import java.sql.Connection;
-import java.sql.Date;
 import java.sql.SQLException;
 import java.sql.Timestamp;
-import java.util.Random;
+import java.util.Scanner;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class InventorySimulator {
 
-    private static final int NUMBER_OF_ORDERS = 5;
-    private static final int TEST_PRODUCT_ID = 1; // Assuming a product with ID 1 exists
-    private static final int INITIAL_STOCK = 50; // Initial stock for the test product
+    // Lock comparison runs on its own ID range so it never overwrites real products
+    private static final int COMPARISON_FIRST_PRODUCT_ID = 900_001;
+    private static final int COMPARISON_PRODUCTS = 50;
+    private static final int COMPARISON_ORDERS = 2000;
+    private static final int COMPARISON_THREADS = 16;
 
+    // Interactive front end for LoadGenerator; defaults come from -Dinventory.load.* properties
     public static void runSimulation() {
-        System.out.println("\n==== Starting Concurrent Order Simulation ====");
-
-        // Ensure the test product exists and has enough stock
-        Product.ensureProductExists(TEST_PRODUCT_ID, INITIAL_STOCK);
-        Product product = Product.getProductById(TEST_PRODUCT_ID);
-        if (product == null) {
-            System.err.println("Error: Test Product (ID: " + TEST_PRODUCT_ID + ") not found. Please create it first.");
-            return;
+        System.out.println("\n==== Concurrent Order Load Test ====");
+        System.out.println("Press Enter to keep the value in brackets.");
+
+        LoadGenerator.Config config = LoadGenerator.Config.fromSystemProperties();
+        Scanner sc = new Scanner(System.in);
+        try {
+            config.setProducts(promptInt(sc, "Products", config.getProducts()));
+            config.setInitialStock(promptInt(sc, "Initial stock per product", config.getInitialStock()));
+            config.setOrders(promptInt(sc, "Measured orders (0 = time-bounded)", (int) config.getOrders()));
+            config.setThreads(promptInt(sc, "Threads", config.getThreads()));
+            config.setItemsPerOrder(promptInt(sc, "Items per order", config.getItemsPerOrder()));
+            config.setSkew(prompt(sc, "Skew (uniform | zipf:<s> | hot:<keys>:<probability>)", config.getSkew()));
+            config.setThinkTimeMillis(promptInt(sc, "Think time (ms)", (int) config.getThinkTimeMillis()));
+            config.setWarmupSeconds(promptInt(sc, "Warmup (s)", config.getWarmupSeconds()));
+            config.setMeasureSeconds(promptInt(sc, "Measurement window (s)", config.getMeasureSeconds()));
+
+            new LoadGenerator(config).run().print();
+        } catch (IllegalArgumentException e) {
+            System.out.println("Invalid load test settings: " + e.getMessage());
+        } catch (SQLException e) {
+            System.err.println("Load test failed: " + e.getMessage());
         }
+    }
 
-        System.out.println("Initial Stock for Product ID " + TEST_PRODUCT_ID + ": " + product.getStockQuantity());
+    // Fire a burst of concurrent order requests at the virtual-thread OrderEngine
+    public static void runOrderBurst() {
+        System.out.println("\n==== Concurrent Order Burst ====");
+        System.out.println("Press Enter to keep the value in brackets.");
 
-        ExecutorService executor = Executors.newFixedThreadPool(NUMBER_OF_ORDERS);
-        Random random = new Random();
+        LoadGenerator.Config config = LoadGenerator.Config.fromSystemProperties();
+        Scanner sc = new Scanner(System.in);
+        try {
+            config.setOrders(promptInt(sc, "Concurrent order requests", config.getOrders() > 0 ? (int) config.getOrders() : 10_000));
+            config.setProducts(promptInt(sc, "Products", config.getProducts()));
+            config.setInitialStock(promptInt(sc, "Initial stock per product", config.getInitialStock()));
+            config.setItemsPerOrder(promptInt(sc, "Items per order", config.getItemsPerOrder()));
+            config.setSkew(prompt(sc, "Skew (uniform | zipf:<s> | hot:<keys>:<probability>)", config.getSkew()));
 
-        for (int i = 1; i <= NUMBER_OF_ORDERS; i++) {
-            final int orderIndex = i;
-            // Simulate each order in a separate thread
-            executor.submit(() -> {
-                String customerName = "TestUser" + orderIndex;
-                int quantityToOrder = random.nextInt(5) + 1; // Order 1 to 5 units
+            new LoadGenerator(config).runBurst().print();
+        } catch (IllegalArgumentException e) {
+            System.out.println("Invalid burst settings: " + e.getMessage());
+        } catch (SQLException e) {
+            System.err.println("Order burst failed: " + e.getMessage());
+        }
+    }
+
+    private static String prompt(Scanner sc, String label, String defaultValue) {
+        System.out.print(label + " [" + defaultValue + "]: ");
+        String line = sc.nextLine().trim();
+        return line.isEmpty() ? defaultValue : line;
+    }
+
+    private static int promptInt(Scanner sc, String label, int defaultValue) {
+        return Integer.parseInt(prompt(sc, label, String.valueOf(defaultValue)));
+    }
+
+    // Sell single units spread over many products twice: once with one lock for every product
+    // (what synchronized (Product.class) used to do) and once with per-product stripes.
+    public static void runLockComparison() {
+        runLockComparison(COMPARISON_PRODUCTS, COMPARISON_ORDERS, COMPARISON_THREADS);
+    }
+
+    public static void runLockComparison(int productCount, int orderCount, int threads) {
+        System.out.println("\n==== Global vs Striped Lock Comparison ====");
+        System.out.println(productCount + " products, " + orderCount + " orders, " + threads + " threads");
+
+        ProductLockManager global = new ProductLockManager(1);
+        ProductLockManager striped = new ProductLockManager(ProductLockManager.getDefault().getStripeCount());
+
+        resetComparisonStock(productCount, orderCount);
+        double globalRate = timeSales(global, productCount, orderCount, threads);
+        resetComparisonStock(productCount, orderCount);
+        double stripedRate = timeSales(striped, productCount, orderCount, threads);
 
+        System.out.printf("Global lock : %10.1f orders/s, %d of %d acquisitions contended%n",
+                globalRate, global.getTotalContended(), global.getTotalAcquisitions());
+        System.out.printf("Striped (%d): %10.1f orders/s, %d of %d acquisitions contended%n",
+                striped.getStripeCount(), stripedRate, striped.getTotalContended(), striped.getTotalAcquisitions());
+        System.out.printf("Speedup     : %.2fx%n", stripedRate / globalRate);
+        System.out.println("\nPer-stripe contention (striped run):");
+        striped.printStats();
+    }
+
+    private static void resetComparisonStock(int productCount, int stock) {
+        for (int i = 0; i < productCount; i++) {
+            Product.ensureProductExists(COMPARISON_FIRST_PRODUCT_ID + i, stock); // enough for every order to succeed
+        }
+    }
+
+    private static double timeSales(ProductLockManager locks, int productCount, int orderCount, int threads) {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        AtomicInteger failures = new AtomicInteger();
+
+        long start = System.nanoTime();
+        for (int i = 0; i < orderCount; i++) {
+            executor.submit(() -> {
+                int productId = COMPARISON_FIRST_PRODUCT_ID + ThreadLocalRandom.current().nextInt(productCount);
                 try (Connection conn = DBConnection.getConnection()) {
-                    // Create a new Order object for each simulation
-                    Order order = new Order(new Date(System.currentTimeMillis()), customerName, "Pending");
-                    int orderId = Order.createOrder(order);
-
-                    if (orderId != -1) {
-                        System.out.println("Order " + orderId + " created for " + customerName + " for " + quantityToOrder + " units of Product ID " + TEST_PRODUCT_ID);
-
-                        // Synchronize on the Product class to ensure atomic stock updates
-                        synchronized (Product.class) {
-                            try {
-                                conn.setAutoCommit(false); // Start transaction
-
-                                Product p = Product.getProductById(TEST_PRODUCT_ID); // Fetch latest product state
-                                if (p != null) {
-                                    p.sellProduct(conn, quantityToOrder); // Use the synchronized sellProduct method
-                                    // Log the inventory change
-                                    InventoryLog.createLog(conn, new InventoryLog(
-                                            0, TEST_PRODUCT_ID, -quantityToOrder,
-                                            "Order Processed (Concurrent) - Order " + orderId,
-                                            new Timestamp(System.currentTimeMillis())
-                                    ));
-                                    OrderItem.createOrderItem(new OrderItem(orderId, TEST_PRODUCT_ID, quantityToOrder, p.getPrice()));
-                                    conn.commit(); // Commit transaction
-                                } else {
-                                    System.err.println("Product ID " + TEST_PRODUCT_ID + " not found during order processing.");
-                                    conn.rollback();
-                                }
-                            } catch (SQLException e) {
-                                conn.rollback(); // Rollback on error
-                                System.err.println("Transaction failed for Order " + orderId + ": " + e.getMessage());
-                            } catch (ProductNotFoundException | OrderNotFoundException e) {
-                                System.err.println("Error creating order item for Order " + orderId + ": " + e.getMessage());
-                            } finally {
-                                conn.setAutoCommit(true); // Reset auto-commit
+                    locks.withLock(productId, () -> {
+                        conn.setAutoCommit(false);
+                        try {
+                            if (Product.decrementStock(conn, productId, 1) == Product.OUT_OF_STOCK) {
+                                conn.rollback();
+                                failures.incrementAndGet();
+                                return null;
                             }
+                            InventoryLog.createLog(conn, new InventoryLog(
+                                    0, productId, -1, "Lock Comparison",
+                                    new Timestamp(System.currentTimeMillis())
+                            ));
+                            conn.commit();
+                        } catch (SQLException e) {
+                            conn.rollback();
+                            throw e;
+                        } finally {
+                            Product.invalidateCached(productId);
                         }
-                    }
+                        return null;
+                    });
                 } catch (SQLException e) {
-                    System.err.println("Database connection error for Order " + orderIndex + ": " + e.getMessage());
+                    failures.incrementAndGet();
+                    System.err.println("Sale failed for Product ID " + productId + ": " + e.getMessage());
                 }
             });
         }
 
-        executor.shutdown(); // Shut down the executor after all tasks are submitted
+        executor.shutdown();
         try {
-            executor.awaitTermination(1, TimeUnit.MINUTES); // Wait for all threads to complete
-            System.out.println("\n==== Concurrent Order Simulation Finished ====");
-            Product finalProductState = Product.getProductById(TEST_PRODUCT_ID);
-            if (finalProductState != null) {
-                System.out.println("Final Stock for Product ID " + TEST_PRODUCT_ID + ": " + finalProductState.getStockQuantity());
-            }
+            executor.awaitTermination(10, TimeUnit.MINUTES);
         } catch (InterruptedException e) {
-            System.err.println("Simulation interrupted: " + e.getMessage());
-            Thread.currentThread().interrupt(); // Restore interrupt status
+            Thread.currentThread().interrupt();
+        }
+        double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+
+        if (failures.get() > 0) {
+            System.out.println(failures.get() + " sale(s) failed");
         }
+        return (orderCount - failures.get()) / seconds;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,87 @@
+package com.utilities;
+
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+
+// Picks keys in [0, size) for load generation and benchmarks. Implementations are immutable
+// and use ThreadLocalRandom, so one instance can be shared by every worker thread.
+public interface KeyDistribution {
+
+    int next();
+
+    int size();
+
+    static KeyDistribution uniform(int size) {
+        return new KeyDistribution() {
+            @Override
+            public int next() {
+                return ThreadLocalRandom.current().nextInt(size);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    // Zipf with exponent s: key k is picked with probability proportional to 1 / (k + 1)^s.
+    // s = 0 is uniform, s around 1 is typical retail skew.
+    static KeyDistribution zipf(int size, double s) {
+        double[] cdf = new double[size];
+        double sum = 0;
+        for (int k = 0; k < size; k++) {
+            sum += 1.0 / Math.pow(k + 1, s);
+            cdf[k] = sum;
+        }
+        for (int k = 0; k < size; k++) {
+            cdf[k] /= sum;
+        }
+        return new KeyDistribution() {
+            @Override
+            public int next() {
+                int i = Arrays.binarySearch(cdf, ThreadLocalRandom.current().nextDouble());
+                return Math.min(i >= 0 ? i : -i - 1, size - 1);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    // A hot set of hotKeys keys receives hotProbability of all picks, the rest is uniform
+    static KeyDistribution hotKey(int size, int hotKeys, double hotProbability) {
+        int hot = Math.max(1, Math.min(hotKeys, size));
+        return new KeyDistribution() {
+            @Override
+            public int next() {
+                ThreadLocalRandom r = ThreadLocalRandom.current();
+                return r.nextDouble() < hotProbability ? r.nextInt(hot) : r.nextInt(size);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    // "uniform", "zipf:<s>" or "hot:<keys>:<probability>"
+    static KeyDistribution parse(String spec, int size) {
+        String[] parts = spec.trim().toLowerCase().split(":");
+        switch (parts[0]) {
+            case "uniform":
+                return uniform(size);
+            case "zipf":
+                return zipf(size, parts.length > 1 ? Double.parseDouble(parts[1]) : 1.0);
+            case "hot":
+                return hotKey(size,
+                        parts.length > 1 ? Integer.parseInt(parts[1]) : 1,
+                        parts.length > 2 ? Double.parseDouble(parts[2]) : 0.9);
+            default:
+                throw new IllegalArgumentException("Unknown key distribution: " + spec);
+        }
+    }
+}
@@ -0,0 +1,483 @@
+package com.utilities;
+
+import com.InventoryLog;
+import com.Order;
+import com.OrderItem;
+import com.Product;
+import com.exceptions.OutOfStockException;
+import com.repository.InMemoryJournal;
+import com.repository.Repositories;
+import com.repository.MappedStockRepositories;
+import com.repository.ShardedRepositories;
+import com.repository.StockLedger;
+
+import java.sql.Date;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// Closed-loop load generator: N worker threads each submit an order, optionally think, and repeat.
+// A warmup window runs first and is not measured. The measurement window is either a fixed time
+// or a fixed number of orders. Afterwards the stock of every test product is checked against the
+// InventoryLog rows written during the run.
+//
+// Test products live on their own ID range (Config.firstProductId) and are reset to
+// Config.initialStock before each run, so a run never touches real products.
+public class LoadGenerator {
+
+    private static final double UNIT_PRICE = 9.99;
+    private static final int MAX_PRINTED_ERRORS = 5;
+
+    public static class Config {
+        private int products = 1000;
+        private int firstProductId = 800_001;
+        private int initialStock = 1000;
+        private long orders = 0; // measured orders; 0 = run for measureSeconds
+        private int threads = 16;
+        private int itemsPerOrder = 3;
+        private int maxQuantity = 3;
+        private String skew = "zipf:1.0";
+        private long thinkTimeMillis = 0;
+        private int warmupSeconds = 5;
+        private int measureSeconds = 30;
+
+        // -Dinventory.load.products=..., -Dinventory.load.skew=hot:10:0.9, ...
+        public static Config fromSystemProperties() {
+            Config c = new Config();
+            c.products = Integer.getInteger("inventory.load.products", c.products);
+            c.firstProductId = Integer.getInteger("inventory.load.firstProductId", c.firstProductId);
+            c.initialStock = Integer.getInteger("inventory.load.initialStock", c.initialStock);
+            c.orders = Long.getLong("inventory.load.orders", c.orders);
+            c.threads = Integer.getInteger("inventory.load.threads", c.threads);
+            c.itemsPerOrder = Integer.getInteger("inventory.load.itemsPerOrder", c.itemsPerOrder);
+            c.maxQuantity = Integer.getInteger("inventory.load.maxQuantity", c.maxQuantity);
+            c.skew = System.getProperty("inventory.load.skew", c.skew);
+            c.thinkTimeMillis = Long.getLong("inventory.load.thinkMillis", c.thinkTimeMillis);
+            c.warmupSeconds = Integer.getInteger("inventory.load.warmupSeconds", c.warmupSeconds);
+            c.measureSeconds = Integer.getInteger("inventory.load.measureSeconds", c.measureSeconds);
+            return c;
+        }
+
+        public int getProducts() { return products; }
+        public void setProducts(int products) { this.products = products; }
+        public int getFirstProductId() { return firstProductId; }
+        public void setFirstProductId(int firstProductId) { this.firstProductId = firstProductId; }
+        public int getInitialStock() { return initialStock; }
+        public void setInitialStock(int initialStock) { this.initialStock = initialStock; }
+        public long getOrders() { return orders; }
+        public void setOrders(long orders) { this.orders = orders; }
+        public int getThreads() { return threads; }
+        public void setThreads(int threads) { this.threads = threads; }
+        public int getItemsPerOrder() { return itemsPerOrder; }
+        public void setItemsPerOrder(int itemsPerOrder) { this.itemsPerOrder = itemsPerOrder; }
+        public int getMaxQuantity() { return maxQuantity; }
+        public void setMaxQuantity(int maxQuantity) { this.maxQuantity = maxQuantity; }
+        public String getSkew() { return skew; }
+        public void setSkew(String skew) { this.skew = skew; }
+        public long getThinkTimeMillis() { return thinkTimeMillis; }
+        public void setThinkTimeMillis(long thinkTimeMillis) { this.thinkTimeMillis = thinkTimeMillis; }
+        public int getWarmupSeconds() { return warmupSeconds; }
+        public void setWarmupSeconds(int warmupSeconds) { this.warmupSeconds = warmupSeconds; }
+        public int getMeasureSeconds() { return measureSeconds; }
+        public void setMeasureSeconds(int measureSeconds) { this.measureSeconds = measureSeconds; }
+
+        void validate() {
+            if (products <= 0 || threads <= 0 || itemsPerOrder <= 0 || maxQuantity <= 0) {
+                throw new IllegalArgumentException("products, threads, itemsPerOrder and maxQuantity must be positive");
+            }
+            if (orders < 0 || warmupSeconds < 0 || measureSeconds < 0 || thinkTimeMillis < 0) {
+                throw new IllegalArgumentException("orders, windows and think time must not be negative");
+            }
+            if (orders == 0 && measureSeconds == 0) {
+                throw new IllegalArgumentException("Either orders or measureSeconds must be set");
+            }
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d products (IDs %d-%d, stock %d), %s orders, %d threads, %d item(s)/order " +
+                            "(1-%d units), skew=%s, think=%dms, warmup=%ds%s",
+                    products, firstProductId, firstProductId + products - 1, initialStock,
+                    orders == 0 ? measureSeconds + "s of" : String.valueOf(orders), threads, itemsPerOrder,
+                    maxQuantity, skew, thinkTimeMillis, warmupSeconds,
+                    orders == 0 ? "" : ", limit " + measureSeconds + "s");
+        }
+    }
+
+    public static class Result {
+        private final LatencyHistogram latency;
+        private final long completed;
+        private final long outOfStock;
+        private final long errors;
+        private final double seconds;
+        private final long unitsOrdered;
+        private final long unitsLogged;
+        private final long unitsRemoved;
+        private final int mismatchedProducts;
+
+        Result(LatencyHistogram latency, long completed, long outOfStock, long errors, double seconds,
+               long unitsOrdered, long unitsLogged, long unitsRemoved, int mismatchedProducts) {
+            this.latency = latency;
+            this.completed = completed;
+            this.outOfStock = outOfStock;
+            this.errors = errors;
+            this.seconds = seconds;
+            this.unitsOrdered = unitsOrdered;
+            this.unitsLogged = unitsLogged;
+            this.unitsRemoved = unitsRemoved;
+            this.mismatchedProducts = mismatchedProducts;
+        }
+
+        public LatencyHistogram getLatency() { return latency; }
+        public long getCompleted() { return completed; }
+        public long getOutOfStock() { return outOfStock; }
+        public long getErrors() { return errors; }
+        public double getSeconds() { return seconds; }
+
+        public double getThroughput() {
+            return seconds == 0 ? 0.0 : completed / seconds;
+        }
+
+        // Final stock == initial stock - logged decrements, for every test product
+        public boolean isConsistent() {
+            return mismatchedProducts == 0 && unitsLogged == unitsRemoved;
+        }
+
+        public void print() {
+            System.out.println("\n==== Load Test Results ====");
+            System.out.printf("Measured window : %.2fs%n", seconds);
+            System.out.printf("Orders          : %d completed, %d out-of-stock rejections, %d errors%n",
+                    completed, outOfStock, errors);
+            System.out.printf("Throughput      : %.1f orders/s%n", getThroughput());
+            System.out.printf("Latency         : p50=%.3fms p99=%.3fms p999=%.3fms max=%.3fms mean=%.3fms%n",
+                    latency.percentile(50) / 1e6, latency.percentile(99) / 1e6, latency.percentile(99.9) / 1e6,
+                    latency.getMaxNanos() / 1e6, latency.getMeanNanos() / 1e6);
+            System.out.printf("Stock check     : %d units ordered (all phases), %d logged, %d removed from stock%n",
+                    unitsOrdered, unitsLogged, unitsRemoved);
+            if (isConsistent()) {
+                System.out.println("Consistency     : OK - final stock equals initial stock minus logged decrements");
+            } else {
+                System.out.println("Consistency     : FAILED - " + mismatchedProducts + " product(s) disagree with the log");
+            }
+        }
+    }
+
+    private final Config config;
+    private final KeyDistribution keys;
+
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder outOfStock = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder unitsOrdered = new LongAdder(); // every successful order, warmup included
+    private final AtomicLong measuredIssued = new AtomicLong();
+    private volatile boolean measuring;
+    private volatile boolean stopped;
+
+    public LoadGenerator(Config config) {
+        config.validate();
+        this.config = config;
+        this.keys = KeyDistribution.parse(config.getSkew(), config.getProducts());
+    }
+
+    public static void main(String[] args) {
+        InMemoryJournal.installConfigured();
+        ShardedRepositories.installConfigured();
+        StockLedger.installConfigured();
+        MappedStockRepositories.installConfigured();
+        try {
+            new LoadGenerator(Config.fromSystemProperties()).run().print();
+            if (DBConnection.getRouter() != null) {
+                System.out.println(DBConnection.getRouter());
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        } finally {
+            MappedStockRepositories.uninstall();
+            StockLedger.uninstall();
+            InMemoryJournal.uninstall();
+            ShardedRepositories.uninstall();
+            InventoryLog.shutdownLogWriter();
+            DBConnection.shutdown();
+        }
+    }
+
+    public Result run() throws SQLException {
+        System.out.println("\n==== Load Test ====");
+        System.out.println(config);
+
+        resetProducts();
+        long startLogId = maxLogId();
+
+        ExecutorService executor = Executors.newFixedThreadPool(config.getThreads());
+        for (int i = 0; i < config.getThreads(); i++) {
+            executor.submit(this::worker);
+        }
+        executor.shutdown();
+
+        long measureStart;
+        long measureEnd;
+        try {
+            if (config.getWarmupSeconds() > 0) {
+                System.out.println("Warming up for " + config.getWarmupSeconds() + "s...");
+                Thread.sleep(TimeUnit.SECONDS.toMillis(config.getWarmupSeconds()));
+            }
+            System.out.println("Measuring...");
+            measureStart = System.nanoTime();
+            measuring = true;
+
+            if (config.getOrders() > 0) {
+                // Order-bounded: workers stop by themselves; measureSeconds (if set) is a safety limit
+                long limit = config.getMeasureSeconds() > 0 ? config.getMeasureSeconds() : Long.MAX_VALUE / 1000;
+                executor.awaitTermination(limit, TimeUnit.SECONDS);
+            } else {
+                Thread.sleep(TimeUnit.SECONDS.toMillis(config.getMeasureSeconds()));
+            }
+            measureEnd = System.nanoTime();
+            stopped = true;
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            stopped = true;
+            executor.shutdownNow();
+            throw new SQLException("Load test interrupted", e);
+        }
+
+        // Queued log modes write after commit; wait for them before comparing against the log
+        InventoryLogWriter writer = InventoryLog.getLogWriter();
+        if (InventoryLog.isQueued() && !writer.awaitDrained(TimeUnit.MINUTES.toMillis(1))) {
+            System.err.println("Inventory log writer did not drain; the stock check may report a mismatch");
+        }
+        Product.getCache().clear(); // the test products were changed behind the cache's back
+
+        long[] check = checkStock(startLogId);
+        return new Result(latency, completed.sum(), outOfStock.sum(), errors.sum(),
+                (measureEnd - measureStart) / 1e9, unitsOrdered.sum(), check[0], check[1], (int) check[2]);
+    }
+
+    private void worker() {
+        int[] productIds = new int[config.getItemsPerOrder()];
+        int[] quantities = new int[config.getItemsPerOrder()];
+
+        while (!stopped) {
+            boolean measured = measuring;
+            if (measured && config.getOrders() > 0 && measuredIssued.getAndIncrement() >= config.getOrders()) {
+                return;
+            }
+
+            List<OrderItem> items = buildItems(productIds, quantities);
+            int units = units(items);
+            Order order = new Order(new Date(System.currentTimeMillis()), "LoadTest", "Pending");
+
+            long start = System.nanoTime();
+            try {
+                Order.submitOrder(order, items);
+                unitsOrdered.add(units);
+                if (measured) {
+                    completed.increment();
+                }
+            } catch (OutOfStockException e) {
+                if (measured) {
+                    outOfStock.increment();
+                }
+            } catch (SQLException e) {
+                if (measured) {
+                    errors.increment();
+                }
+                if (errors.sum() <= MAX_PRINTED_ERRORS) {
+                    System.err.println("Order failed: " + e.getMessage());
+                }
+            }
+            if (measured) {
+                latency.record(System.nanoTime() - start);
+            }
+
+            if (config.getThinkTimeMillis() > 0) {
+                // Exponential think time around the configured mean, so threads don't march in lockstep
+                double u = ThreadLocalRandom.current().nextDouble();
+                long think = (long) (-Math.log(1 - u) * config.getThinkTimeMillis());
+                try {
+                    Thread.sleep(Math.min(think, config.getThinkTimeMillis() * 10));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    // Open-loop burst: submit every request at once to an OrderEngine (one virtual thread per order)
+    // and wait for all of them. Latency is measured from submit to completion, so it includes the
+    // time spent queued for a DB slot. Uses Config.orders as the request count; the windows and
+    // think time don't apply.
+    public Result runBurst() throws SQLException {
+        long requests = config.getOrders() > 0 ? config.getOrders() : 10_000;
+        System.out.println("\n==== Order Burst ====");
+        System.out.println(config.getProducts() + " products, " + requests + " concurrent order requests, skew=" + config.getSkew());
+
+        resetProducts();
+        long startLogId = maxLogId();
+        int[] productIds = new int[config.getItemsPerOrder()];
+        int[] quantities = new int[config.getItemsPerOrder()];
+
+        long start;
+        long end;
+        try (OrderEngine engine = new OrderEngine()) {
+            System.out.println("Engine: " + (engine.isVirtual() ? "virtual" : "platform") + " threads, "
+                    + engine.getMaxInFlight() + " DB slot(s)");
+            List<CompletableFuture<Integer>> futures = new ArrayList<>((int) Math.min(requests, Integer.MAX_VALUE));
+            start = System.nanoTime();
+            for (long i = 0; i < requests; i++) {
+                List<OrderItem> items = buildItems(productIds, quantities);
+                int units = units(items);
+                Order order = new Order(new Date(System.currentTimeMillis()), "LoadTest", "Pending");
+                long submittedAt = System.nanoTime();
+                futures.add(engine.submitOrder(order, items).whenComplete((orderId, e) -> {
+                    latency.record(System.nanoTime() - submittedAt);
+                    if (e == null) {
+                        completed.increment();
+                        unitsOrdered.add(units);
+                    } else if (e instanceof OutOfStockException) {
+                        outOfStock.increment();
+                    } else {
+                        errors.increment();
+                        if (errors.sum() <= MAX_PRINTED_ERRORS) {
+                            System.err.println("Order failed: " + e.getMessage());
+                        }
+                    }
+                }));
+            }
+            OrderEngine.awaitAll(futures);
+            end = System.nanoTime();
+            System.out.println(engine);
+        }
+
+        InventoryLogWriter writer = InventoryLog.getLogWriter();
+        if (InventoryLog.isQueued() && !writer.awaitDrained(TimeUnit.MINUTES.toMillis(1))) {
+            System.err.println("Inventory log writer did not drain; the stock check may report a mismatch");
+        }
+        Product.getCache().clear();
+
+        long[] check = checkStock(startLogId);
+        return new Result(latency, completed.sum(), outOfStock.sum(), errors.sum(),
+                (end - start) / 1e9, unitsOrdered.sum(), check[0], check[1], (int) check[2]);
+    }
+
+    private List<OrderItem> buildItems(int[] productIds, int[] quantities) {
+        int lines = pickLines(productIds, quantities);
+        List<OrderItem> items = new ArrayList<>(lines);
+        for (int i = 0; i < lines; i++) {
+            items.add(new OrderItem(0, productIds[i], quantities[i], UNIT_PRICE));
+        }
+        return items;
+    }
+
+    private static int units(List<OrderItem> items) {
+        int units = 0;
+        for (OrderItem item : items) {
+            units += item.getQuantity();
+        }
+        return units;
+    }
+
+    // Fill the arrays with distinct products drawn from the key distribution; returns the line count.
+    // Under heavy skew the same product can come up repeatedly, in which case its quantity is merged.
+    private int pickLines(int[] productIds, int[] quantities) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int lines = 0;
+        for (int i = 0; i < productIds.length; i++) {
+            int productId = config.getFirstProductId() + keys.next();
+            int quantity = 1 + random.nextInt(config.getMaxQuantity());
+            int j = 0;
+            while (j < lines && productIds[j] != productId) {
+                j++;
+            }
+            if (j < lines) {
+                quantities[j] += quantity;
+            } else {
+                productIds[lines] = productId;
+                quantities[lines] = quantity;
+                lines++;
+            }
+        }
+        return lines;
+    }
+
+    // ---------- Setup and verification ----------
+
+    private void resetProducts() throws SQLException {
+        List<Product> products = new ArrayList<>(config.getProducts());
+        for (int i = 0; i < config.getProducts(); i++) {
+            int productId = config.getFirstProductId() + i;
+            products.add(new Product(productId, "Load Product " + productId, "Load test product",
+                    UNIT_PRICE, config.getInitialStock(), 1));
+        }
+        try {
+            Repositories repos = Repositories.getDefault();
+            repos.inTransaction(() -> {
+                repos.products().upsertStock(products);
+                return null;
+            });
+        } catch (OutOfStockException e) {
+            throw new IllegalStateException(e); // not thrown by an upsert
+        }
+        Product.getCache().clear();
+    }
+
+    private static long maxLogId() throws SQLException {
+        return Repositories.getDefault().inventoryLogs().lastLogId();
+    }
+
+    // Returns {units logged, units removed from stock, products whose stock disagrees with the log}.
+    // Runs in a transaction so that with read replicas the listing still comes from the primary.
+    private long[] checkStock(long startLogId) throws SQLException {
+        try {
+            return Repositories.getDefault().inTransaction(() -> compareStock(startLogId));
+        } catch (OutOfStockException e) {
+            throw new IllegalStateException(e); // only reads
+        }
+    }
+
+    private long[] compareStock(long startLogId) throws SQLException {
+        Repositories repos = Repositories.getDefault();
+        int first = config.getFirstProductId();
+        int last = first + config.getProducts() - 1;
+        Map<Integer, Long> net = repos.inventoryLogs().netChanges(startLogId, first, last);
+
+        long logged = 0;
+        long removed = 0;
+        long mismatched = 0;
+        int after = first - 1;
+        while (true) {
+            Page<Product> page = repos.products().list(after, Page.MAX_SIZE, null);
+            for (Product p : page.getItems()) {
+                if (p.getProductId() > last) {
+                    return new long[]{logged, removed, mismatched};
+                }
+                int stock = p.getStockQuantity();
+                long change = net.getOrDefault(p.getProductId(), 0L);
+                logged -= change;
+                removed += config.getInitialStock() - stock;
+                if (stock != config.getInitialStock() + change) {
+                    mismatched++;
+                    if (mismatched <= MAX_PRINTED_ERRORS) {
+                        System.err.println("Product " + p.getProductId() + ": stock " + stock +
+                                ", expected " + (config.getInitialStock() + change) + " from the log");
+                    }
+                }
+            }
+            if (!page.hasMore()) {
+                return new long[]{logged, removed, mismatched};
+            }
+            after = page.getLast().getProductId();
+        }
+    }
+}
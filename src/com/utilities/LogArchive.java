@@ -0,0 +1,809 @@
+package com.utilities;
+
+import com.InventoryLog;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.GZIPInputStream;
+
+// Time-partitioned retention for InventoryLog.
+//
+// The live table is read in day partitions (by timestamp, see idx_log_time). Once a day is older
+// than the cutoff, archive() moves its rows into a gzipped archive file in dir and deletes them from
+// the table, so the table only holds the recent days. Whole months older than the cutoff are then
+// compacted into one file per month.
+//
+// An archive file covers the rows logged in [from, to):
+//   header  {magic "INVA", version, from and to (epoch days), rows, min and max log_id}
+//   summary columnar section (see ColumnarFile): product_id, net_change, changes - one row per product
+//   rows    columnar section with the InventoryLog columns, ordered by (timestamp, log_id)
+// The header and summary of every file are held in memory; rows are decoded on demand and the most
+// recently used files are kept decoded.
+//
+// Moving a partition never loses or doubles a row for readers that hold readLock() across their table
+// query and their archive query: the new file is written and synced under a name of its own and the
+// archived rows are deleted from the table in a transaction left open, then the file is renamed, the
+// delete committed and the file swapped into the catalog under the write lock. A crash in between leaves both the old and the new file, or the
+// new file and the still-live rows; open() keeps the newest file of overlapping ones and archives
+// such rows again, which drops the copies by log_id.
+//
+// The row with the highest log_id is never archived, so the table is never empty and MySQL does not
+// hand out archived IDs again after a restart.
+public class LogArchive implements AutoCloseable {
+
+    static final int MAGIC = 0x494E5641; // "INVA"
+    static final short VERSION = 1;
+    private static final String PREFIX = "inventoryLog-";
+    private static final String SUFFIX = ".inva";
+    private static final int GROUP_ROWS = 65_536;
+    private static final int FETCH_SIZE = Integer.getInteger("inventory.export.fetchSize", 1000);
+
+    // Summary counters
+    static final int NET_CHANGE = 0;
+    static final int CHANGES = 1;
+
+    private static final List<ExportTable.Column> SUMMARY_COLUMNS = List.of(
+            new ExportTable.Column("product_id", ExportTable.ColumnType.INT),
+            new ExportTable.Column("net_change", ExportTable.ColumnType.INT),
+            new ExportTable.Column("changes", ExportTable.ColumnType.INT));
+
+    private static final Metrics.Operation ARCHIVE = Metrics.operation("InventoryLog.archive");
+    private static final Metrics.Operation COMPACT = Metrics.operation("InventoryLog.compact");
+    private static final Metrics.Operation READ = Metrics.operation("InventoryLog.archiveRead");
+
+    // One archive file: the rows logged in [from, to) and their per-product net change
+    public static final class Partition {
+        private final Path path;
+        private final LocalDate from;
+        private final LocalDate to;
+        private final long rows;
+        private final long minLogId;
+        private final long maxLogId;
+        private final IntKeyedCounters summary;
+
+        Partition(Path path, LocalDate from, LocalDate to, long rows, long minLogId, long maxLogId,
+                  IntKeyedCounters summary) {
+            this.path = path;
+            this.from = from;
+            this.to = to;
+            this.rows = rows;
+            this.minLogId = minLogId;
+            this.maxLogId = maxLogId;
+            this.summary = summary;
+        }
+
+        public Path getPath() {
+            return path;
+        }
+
+        public LocalDate getFrom() {
+            return from;
+        }
+
+        public LocalDate getTo() {
+            return to;
+        }
+
+        public long getRows() {
+            return rows;
+        }
+
+        public long getMaxLogId() {
+            return maxLogId;
+        }
+
+        // Net change of a product over the partition (0 if it has no rows here)
+        public long netChange(int productId) {
+            return summary.get(productId, NET_CHANGE);
+        }
+
+        boolean covers(LocalDate day) {
+            return !day.isBefore(from) && day.isBefore(to);
+        }
+
+        boolean within(LocalDate start, LocalDate end) {
+            return !from.isBefore(start) && !to.isAfter(end);
+        }
+
+        long startMillis() {
+            return Timestamp.valueOf(from.atStartOfDay()).getTime();
+        }
+
+        long endMillis() {
+            return Timestamp.valueOf(to.atStartOfDay()).getTime();
+        }
+
+        @Override
+        public String toString() {
+            return path.getFileName() + "{" + from + ".." + to + ", rows=" + rows + ", logIds=" + minLogId + ".." + maxLogId + "}";
+        }
+    }
+
+    // Rows of one or more partitions in columns, kept sorted by (timestamp, log_id)
+    static final class Rows {
+        int size;
+        int[] logId;
+        int[] productId;
+        int[] change;
+        String[] action;
+        long[] time;
+
+        Rows(int capacity) {
+            logId = new int[capacity];
+            productId = new int[capacity];
+            change = new int[capacity];
+            action = new String[capacity];
+            time = new long[capacity];
+        }
+
+        void add(int id, int product, int delta, String act, long millis) {
+            if (size == logId.length) {
+                int capacity = Math.max(16, size * 2);
+                logId = Arrays.copyOf(logId, capacity);
+                productId = Arrays.copyOf(productId, capacity);
+                change = Arrays.copyOf(change, capacity);
+                action = Arrays.copyOf(action, capacity);
+                time = Arrays.copyOf(time, capacity);
+            }
+            logId[size] = id;
+            productId[size] = product;
+            change[size] = delta;
+            action[size] = act;
+            time[size] = millis;
+            size++;
+        }
+
+        boolean before(int i, long millis, int id) {
+            return time[i] < millis || (time[i] == millis && logId[i] < id);
+        }
+
+        // Sort by (timestamp, log_id) and drop repeated log IDs (a row archived twice after a crash)
+        Rows sortedUnique() {
+            int[] order = new int[size];
+            for (int i = 0; i < size; i++) {
+                order[i] = i;
+            }
+            sort(order, new int[size], 0, size);
+            Rows sorted = new Rows(size);
+            int lastId = 0;
+            for (int n = 0; n < size; n++) {
+                int i = order[n];
+                if (sorted.size > 0 && logId[i] == lastId) {
+                    continue;
+                }
+                sorted.add(logId[i], productId[i], change[i], action[i], time[i]);
+                lastId = logId[i];
+            }
+            // The same ID can only repeat with the same timestamp, so neighbours catch every copy
+            return sorted;
+        }
+
+        // Merge sort of row indexes; the input is a few sorted runs (files, then the table's rows)
+        private void sort(int[] order, int[] buffer, int lo, int hi) {
+            if (hi - lo < 2) {
+                return;
+            }
+            int mid = (lo + hi) >>> 1;
+            sort(order, buffer, lo, mid);
+            sort(order, buffer, mid, hi);
+            if (!after(order[mid - 1], order[mid])) {
+                return; // already in order
+            }
+            System.arraycopy(order, lo, buffer, lo, hi - lo);
+            int i = lo;
+            int j = mid;
+            for (int k = lo; k < hi; k++) {
+                if (j >= hi || (i < mid && !after(buffer[i], buffer[j]))) {
+                    order[k] = buffer[i++];
+                } else {
+                    order[k] = buffer[j++];
+                }
+            }
+        }
+
+        private boolean after(int a, int b) {
+            return time[a] > time[b] || (time[a] == time[b] && logId[a] > logId[b]);
+        }
+
+        InventoryLog get(int i) {
+            return new InventoryLog(logId[i], productId[i], change[i], action[i], new Timestamp(time[i]));
+        }
+    }
+
+    private final Path dir;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private volatile List<Partition> partitions = List.of(); // sorted by from; replaced under the write lock
+    private final LruCache<Path, Rows> decoded;
+    private ScheduledExecutorService scheduler;
+
+    private final LongAdder rowsArchived = new LongAdder();
+    private final LongAdder filesCompacted = new LongAdder();
+
+    private LogArchive(Path dir, int cachedPartitions) {
+        this.dir = dir;
+        this.decoded = new LruCache<>(cachedPartitions);
+    }
+
+    // Load the catalog of dir (created if missing), dropping files superseded by a newer one and
+    // archiving again any rows a crash left both in a file and in the table
+    public static LogArchive open(Path dir, int cachedPartitions) throws IOException, SQLException {
+        DBConnection.requireUnsharded("The inventory log archive");
+        Files.createDirectories(dir);
+        LogArchive archive = new LogArchive(dir, cachedPartitions);
+        List<Partition> found = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, PREFIX + "*")) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                if (name.endsWith(".tmp")) {
+                    Files.delete(file); // an archive run that never finished
+                } else if (name.endsWith(SUFFIX)) {
+                    found.add(readHeader(file));
+                }
+            }
+        }
+        // Widest and newest first: a file overlapping one already kept was merged into it
+        found.sort(Comparator.<Partition>comparingLong(p -> p.to.toEpochDay() - p.from.toEpochDay()).reversed()
+                .thenComparing(Comparator.comparingLong((Partition p) -> p.maxLogId).reversed())
+                .thenComparing(Comparator.comparingLong((Partition p) -> p.rows).reversed()));
+        List<Partition> kept = new ArrayList<>();
+        for (Partition p : found) {
+            boolean overlaps = false;
+            for (Partition k : kept) {
+                overlaps |= p.from.isBefore(k.to) && k.from.isBefore(p.to);
+            }
+            if (overlaps) {
+                Files.delete(p.path);
+            } else {
+                kept.add(p);
+            }
+        }
+        kept.sort(Comparator.comparing(p -> p.from));
+        archive.partitions = List.copyOf(kept);
+
+        long maxLive = maxLiveLogId();
+        for (Partition p : kept) {
+            if (hasLiveRows(p.from, p.to, maxLive)) {
+                archive.rewrite(p.from, p.to, List.of(p), true, maxLive);
+            }
+        }
+        return archive;
+    }
+
+    // ---------- Archiving and compaction ----------
+
+    // Move every day before cutoff out of the table, then compact the months before cutoff into one
+    // file each. Returns the number of rows moved.
+    public synchronized long archive(LocalDate cutoff) throws SQLException, IOException {
+        long start = Metrics.start();
+        long moved = 0;
+        try {
+            long maxLive = maxLiveLogId();
+            LocalDate day;
+            while ((day = oldestLiveDay(cutoff, maxLive)) != null) {
+                Partition target = partitionCovering(day);
+                if (target != null) { // late rows for a day already archived
+                    moved += rewrite(target.from, target.to, List.of(target), true, maxLive);
+                } else {
+                    moved += rewrite(day, day.plusDays(1), List.of(), true, maxLive);
+                }
+            }
+            ARCHIVE.success(start, moved);
+        } catch (SQLException | IOException e) {
+            ARCHIVE.failure(start);
+            throw e;
+        }
+        compact(cutoff.withDayOfMonth(1));
+        return moved;
+    }
+
+    // Merge the partitions of every month that ends on or before cutoff into one file per month.
+    // Returns the number of files merged.
+    public synchronized int compact(LocalDate cutoff) throws SQLException, IOException {
+        long start = Metrics.start();
+        int merged = 0;
+        try {
+            List<Partition> sources;
+            while ((sources = nextMonthToCompact(cutoff)) != null) {
+                LocalDate month = sources.get(0).from.withDayOfMonth(1);
+                rewrite(month, month.plusMonths(1), sources, false, 0);
+                merged += sources.size();
+            }
+            filesCompacted.add(merged);
+            COMPACT.success(start, merged);
+            return merged;
+        } catch (SQLException | IOException e) {
+            COMPACT.failure(start);
+            throw e;
+        }
+    }
+
+    // The partitions of the oldest month before cutoff that is not a single month file yet, or null
+    private List<Partition> nextMonthToCompact(LocalDate cutoff) {
+        for (Partition p : partitions) {
+            LocalDate month = p.from.withDayOfMonth(1);
+            LocalDate next = month.plusMonths(1);
+            if (next.isAfter(cutoff) || !p.within(month, next) || (p.from.equals(month) && p.to.equals(next))) {
+                continue;
+            }
+            List<Partition> sources = new ArrayList<>();
+            for (Partition q : partitions) {
+                if (q.within(month, next)) {
+                    sources.add(q);
+                }
+            }
+            return sources;
+        }
+        return null;
+    }
+
+    // Write one file with the rows of sources (and, if live, the table's rows in [from, to) below
+    // maxLive), then swap it in: delete those rows from the table and replace sources in the catalog.
+    // Returns the number of table rows moved.
+    private long rewrite(LocalDate from, LocalDate to, List<Partition> sources, boolean live, long maxLive)
+            throws SQLException, IOException {
+        Rows all = new Rows(1024);
+        for (Partition p : sources) {
+            Rows rows = rows(p);
+            for (int i = 0; i < rows.size; i++) {
+                all.add(rows.logId[i], rows.productId[i], rows.change[i], rows.action[i], rows.time[i]);
+            }
+        }
+        long liveRows = 0;
+        if (live) {
+            try (Connection conn = DBConnection.getConnection();
+                 PreparedStatement stmt = conn.prepareStatement(SqlStatements.INVENTORY_LOG_ARCHIVE_ROWS, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                stmt.setFetchSize(FETCH_SIZE);
+                stmt.setTimestamp(1, Timestamp.valueOf(from.atStartOfDay()));
+                stmt.setTimestamp(2, Timestamp.valueOf(to.atStartOfDay()));
+                stmt.setLong(3, maxLive);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        all.add(rs.getInt(1), rs.getInt(2), rs.getInt(3), rs.getString(4), rs.getTimestamp(5).getTime());
+                        liveRows++;
+                    }
+                }
+            }
+        }
+        Rows rows = all.sortedUnique();
+        if (rows.size == 0) {
+            return 0;
+        }
+
+        long maxLogId = 0;
+        long minLogId = Long.MAX_VALUE;
+        IntKeyedCounters summary = new IntKeyedCounters(2, 256);
+        for (int i = 0; i < rows.size; i++) {
+            maxLogId = Math.max(maxLogId, rows.logId[i]);
+            minLogId = Math.min(minLogId, rows.logId[i]);
+            summary.add(rows.productId[i], NET_CHANGE, rows.change[i], CHANGES, 1);
+        }
+        String label = from.plusDays(1).equals(to) ? from.toString()
+                : from.getDayOfMonth() == 1 && from.plusMonths(1).equals(to) ? from.toString().substring(0, 7)
+                : from + "_" + to;
+        // Sources are merged into the new file, so the same name means the same rows
+        Path target = dir.resolve(PREFIX + label + "-" + maxLogId + "-" + rows.size + SUFFIX);
+        boolean unchanged = false;
+        for (Partition p : sources) {
+            unchanged |= p.path.equals(target);
+        }
+        Path tmp = Files.createTempFile(dir, PREFIX + label + "-", ".tmp");
+        try {
+            write(tmp, from, to, rows, minLogId, maxLogId, summary);
+            Partition partition = new Partition(target, from, to, rows.size, minLogId, maxLogId, summary);
+
+            // Delete before taking the lock, but commit under it: until then readers still see the rows
+            // in the table. Borrowing first also matters, as readers waiting on the lock may be holding
+            // the other connections.
+            try (Connection conn = live && liveRows > 0 ? DBConnection.getConnection() : null) {
+                if (conn != null) {
+                    deleteRows(conn, from, to, maxLive, liveRows);
+                }
+                lock.writeLock().lock();
+                try {
+                    if (!unchanged) {
+                        Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE);
+                    }
+                    if (conn != null) {
+                        try {
+                            conn.commit();
+                        } catch (SQLException e) {
+                            conn.rollback();
+                            if (!unchanged) {
+                                Files.deleteIfExists(target); // the sources and the table still hold everything
+                            }
+                            throw e;
+                        }
+                    }
+                    List<Partition> next = new ArrayList<>(partitions);
+                    next.removeAll(sources);
+                    next.add(partition);
+                    next.sort(Comparator.comparing(p -> p.from));
+                    partitions = List.copyOf(next);
+                    for (Partition p : sources) {
+                        decoded.invalidate(p.path);
+                        if (!p.path.equals(target)) {
+                            Files.deleteIfExists(p.path);
+                        }
+                    }
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            }
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+        rowsArchived.add(liveRows);
+        return liveRows;
+    }
+
+    // Delete the rows that were read into the file, leaving the transaction open for the caller to
+    // commit. The rows of a range are contiguous in idx_log_time, so this is one statement. A row that
+    // committed after the read would go unarchived, so a count other than the one read rolls back.
+    private static void deleteRows(Connection conn, LocalDate from, LocalDate to, long maxLive, long expected)
+            throws SQLException {
+        conn.setAutoCommit(false);
+        try (PreparedStatement stmt = conn.prepareStatement(SqlStatements.INVENTORY_LOG_ARCHIVE_DELETE)) {
+            stmt.setTimestamp(1, Timestamp.valueOf(from.atStartOfDay()));
+            stmt.setTimestamp(2, Timestamp.valueOf(to.atStartOfDay()));
+            stmt.setLong(3, maxLive);
+            int deleted = stmt.executeUpdate();
+            if (deleted != expected) {
+                throw new SQLException("Inventory log rows in " + from + ".." + to + " changed while archiving: read "
+                        + expected + ", deleting " + deleted);
+            }
+        } catch (SQLException e) {
+            conn.rollback();
+            throw e;
+        }
+    }
+
+    private static void write(Path file, LocalDate from, LocalDate to, Rows rows, long minLogId, long maxLogId,
+                              IntKeyedCounters summary) throws IOException {
+        try (OutputStream out = ExportCompression.GZIP.wrap(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16))) {
+            DataOutputStream data = new DataOutputStream(out);
+            data.writeInt(MAGIC);
+            data.writeShort(VERSION);
+            data.writeInt((int) from.toEpochDay());
+            data.writeInt((int) to.toEpochDay());
+            data.writeLong(rows.size);
+            data.writeLong(minLogId);
+            data.writeLong(maxLogId);
+
+            ColumnarFile.Writer products = new ColumnarFile.Writer(out, SUMMARY_COLUMNS, GROUP_ROWS);
+            for (int productId : summary.sortedKeys()) {
+                products.column(0).writeInt(productId);
+                products.column(1).writeInt(Math.toIntExact(summary.get(productId, NET_CHANGE)));
+                products.column(2).writeInt(Math.toIntExact(summary.get(productId, CHANGES)));
+                products.endRow();
+            }
+            products.finish();
+
+            ColumnarFile.Writer writer = new ColumnarFile.Writer(out, ExportTable.INVENTORY_LOG.getColumns(), GROUP_ROWS);
+            for (int i = 0; i < rows.size; i++) {
+                writer.column(0).writeInt(rows.logId[i]);
+                writer.column(1).writeInt(rows.productId[i]);
+                writer.column(2).writeInt(rows.change[i]);
+                ColumnarFile.writeString(writer.column(3), rows.action[i]);
+                writer.column(4).writeLong(rows.time[i]);
+                writer.endRow();
+            }
+            writer.finish();
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.force(true); // on disk before the table rows are deleted
+        }
+    }
+
+    // ---------- Reading ----------
+
+    private static DataInputStream openFile(Path file) throws IOException {
+        return new DataInputStream(new BufferedInputStream(new GZIPInputStream(Files.newInputStream(file), 1 << 16), 1 << 16));
+    }
+
+    private static Partition readHeader(Path file) throws IOException {
+        try (DataInputStream in = openFile(file)) {
+            return readHeader(file, in);
+        }
+    }
+
+    private static Partition readHeader(Path file, DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC) {
+            throw new IOException(file + " is not an inventory log archive");
+        }
+        short version = in.readShort();
+        if (version != VERSION) {
+            throw new IOException(file + ": unsupported archive version " + version);
+        }
+        LocalDate from = LocalDate.ofEpochDay(in.readInt());
+        LocalDate to = LocalDate.ofEpochDay(in.readInt());
+        long rows = in.readLong();
+        long minLogId = in.readLong();
+        long maxLogId = in.readLong();
+        IntKeyedCounters summary = new IntKeyedCounters(2, 256);
+        ColumnarFile.Reader reader = new ColumnarFile.Reader(in);
+        int n;
+        while ((n = reader.nextGroup()) > 0) {
+            for (int i = 0; i < n; i++) {
+                int productId = reader.column(0).readInt();
+                summary.add(productId, NET_CHANGE, reader.column(1).readInt(), CHANGES, reader.column(2).readInt());
+            }
+        }
+        return new Partition(file, from, to, rows, minLogId, maxLogId, summary);
+    }
+
+    // Decoded rows of a partition, from the cache when recently used
+    private Rows rows(Partition p) throws IOException {
+        Rows rows = decoded.get(p.path);
+        if (rows != null) {
+            return rows;
+        }
+        long start = Metrics.start();
+        long generation = decoded.generation(p.path);
+        try (DataInputStream in = openFile(p.path)) {
+            readHeader(p.path, in);
+            ColumnarFile.Reader reader = new ColumnarFile.Reader(in);
+            rows = new Rows(Math.toIntExact(p.rows));
+            int n;
+            while ((n = reader.nextGroup()) > 0) {
+                for (int i = 0; i < n; i++) {
+                    rows.add(reader.column(0).readInt(), reader.column(1).readInt(), reader.column(2).readInt(),
+                            ColumnarFile.Reader.readString(reader.column(3)), reader.column(4).readLong());
+                }
+            }
+            if (rows.size != p.rows || in.read() != -1) { // reading to the end checks the gzip CRC
+                throw new IOException(p.path + " is corrupt: " + rows.size + " of " + p.rows + " rows");
+            }
+            READ.success(start, rows.size);
+        } catch (IOException e) {
+            READ.failure(start);
+            throw e;
+        }
+        decoded.putIfCurrent(p.path, rows, generation);
+        return rows;
+    }
+
+    // Take this around a table query and the archive query that completes it, so no archive run
+    // moves rows between the two
+    public Lock readLock() {
+        return lock.readLock();
+    }
+
+    // Archived rows newest first, after (beforeTimestamp, beforeLogId) when given; productId <= 0 for all
+    public List<InventoryLog> list(Timestamp beforeTimestamp, int beforeLogId, int limit, int productId)
+            throws IOException {
+        long before = beforeTimestamp != null ? beforeTimestamp.getTime() : Long.MAX_VALUE;
+        int beforeId = beforeTimestamp != null ? beforeLogId : Integer.MAX_VALUE;
+        List<InventoryLog> result = new ArrayList<>(limit);
+        lock.readLock().lock();
+        try {
+            collect(partitions, before, beforeId, limit, productId, result);
+        } finally {
+            lock.readLock().unlock();
+        }
+        return result;
+    }
+
+    private void collect(List<Partition> all, long before, int beforeId, int limit, int productId,
+                         List<InventoryLog> result) throws IOException {
+        for (int k = all.size() - 1; k >= 0 && result.size() < limit; k--) {
+            Partition p = all.get(k); // partitions do not overlap, so newer ones come first
+            if (p.startMillis() > before || (productId > 0 && !p.summary.contains(productId))) {
+                continue;
+            }
+            Rows rows = rows(p);
+            int lo = 0;
+            int hi = rows.size;
+            while (lo < hi) { // first row not before the cursor
+                int mid = (lo + hi) >>> 1;
+                if (rows.before(mid, before, beforeId)) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            for (int i = lo - 1; i >= 0 && result.size() < limit; i--) {
+                if (productId <= 0 || rows.productId[i] == productId) {
+                    result.add(rows.get(i));
+                }
+            }
+        }
+    }
+
+    // Add the archived net change per product for log_id > afterLogId and product IDs in
+    // [fromProductId, toProductId] into net
+    public void addNetChanges(long afterLogId, int fromProductId, int toProductId, Map<Integer, Long> net)
+            throws IOException {
+        lock.readLock().lock();
+        try {
+            addNetChanges(partitions, afterLogId, fromProductId, toProductId, net);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void addNetChanges(List<Partition> all, long afterLogId, int fromProductId, int toProductId,
+                               Map<Integer, Long> net) throws IOException {
+        for (Partition p : all) {
+            if (p.maxLogId <= afterLogId) {
+                continue;
+            }
+            if (p.minLogId > afterLogId) { // the whole file counts: the summary is enough
+                p.summary.forEach(productId -> {
+                    if (productId >= fromProductId && productId <= toProductId) {
+                        net.merge(productId, p.summary.get(productId, NET_CHANGE), Long::sum);
+                    }
+                });
+                continue;
+            }
+            Rows rows = rows(p);
+            for (int i = 0; i < rows.size; i++) {
+                int productId = rows.productId[i];
+                if (rows.logId[i] > afterLogId && productId >= fromProductId && productId <= toProductId) {
+                    net.merge(productId, (long) rows.change[i], Long::sum);
+                }
+            }
+        }
+    }
+
+    // Archived rows in [from, to) (epoch millis) handed to visitor one at a time
+    public void forEachRow(long from, long to, RowVisitor visitor) throws IOException {
+        lock.readLock().lock();
+        try {
+            for (Partition p : partitions) {
+                if (p.endMillis() <= from || p.startMillis() >= to) {
+                    continue;
+                }
+                Rows rows = rows(p);
+                for (int i = 0; i < rows.size; i++) {
+                    if (rows.time[i] >= from && rows.time[i] < to) {
+                        visitor.visit(rows.productId[i], rows.change[i], rows.time[i]);
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public interface RowVisitor {
+        void visit(int productId, int changeQuantity, long timestampMillis);
+    }
+
+    public long getMaxLogId() {
+        long max = 0;
+        for (Partition p : partitions) {
+            max = Math.max(max, p.maxLogId);
+        }
+        return max;
+    }
+
+    // Every archived row is older than this (epoch millis); Long.MIN_VALUE when nothing is archived
+    public long getArchivedUntilMillis() {
+        List<Partition> all = partitions;
+        return all.isEmpty() ? Long.MIN_VALUE : all.get(all.size() - 1).endMillis();
+    }
+
+    public List<Partition> getPartitions() {
+        return partitions;
+    }
+
+    // ---------- Table queries ----------
+
+    private static long maxLiveLogId() throws SQLException {
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(SqlStatements.INVENTORY_LOG_MAX_ID);
+             ResultSet rs = stmt.executeQuery()) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    private static LocalDate oldestLiveDay(LocalDate cutoff, long maxLive) throws SQLException {
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(SqlStatements.INVENTORY_LOG_OLDEST_BEFORE)) {
+            stmt.setTimestamp(1, Timestamp.valueOf(cutoff.atStartOfDay()));
+            stmt.setLong(2, maxLive);
+            try (ResultSet rs = stmt.executeQuery()) {
+                rs.next();
+                Timestamp oldest = rs.getTimestamp(1);
+                return oldest == null ? null : oldest.toLocalDateTime().toLocalDate();
+            }
+        }
+    }
+
+    private static boolean hasLiveRows(LocalDate from, LocalDate to, long maxLive) throws SQLException {
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(SqlStatements.INVENTORY_LOG_ANY_IN_RANGE)) {
+            stmt.setTimestamp(1, Timestamp.valueOf(from.atStartOfDay()));
+            stmt.setTimestamp(2, Timestamp.valueOf(to.atStartOfDay()));
+            stmt.setLong(3, maxLive);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next();
+            }
+        }
+    }
+
+    private Partition partitionCovering(LocalDate day) {
+        for (Partition p : partitions) {
+            if (p.covers(day)) {
+                return p;
+            }
+        }
+        return null;
+    }
+
+    // ---------- Scheduling ----------
+
+    // Archive everything older than retentionDays (at least 1) every periodMinutes
+    public synchronized void startPeriodicArchival(int retentionDays, long periodMinutes) {
+        if (scheduler != null || periodMinutes <= 0) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "log-archiver");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                archive(LocalDate.now().minusDays(Math.max(1, retentionDays)));
+            } catch (SQLException | IOException | RuntimeException e) {
+                System.err.println("Inventory log archival failed: " + e.getMessage());
+            }
+        }, periodMinutes, periodMinutes, TimeUnit.MINUTES);
+    }
+
+    @Override
+    public synchronized void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    // ---------- Stats ----------
+
+    public long getRowsArchived() {
+        return rowsArchived.sum();
+    }
+
+    @Override
+    public String toString() {
+        List<Partition> all = partitions;
+        long rows = 0;
+        for (Partition p : all) {
+            rows += p.rows;
+        }
+        return "LogArchive{dir=" + dir + ", files=" + all.size() + ", rows=" + rows +
+                (all.isEmpty() ? "" : ", from=" + all.get(0).from + ", to=" + all.get(all.size() - 1).to) +
+                ", movedSinceOpen=" + rowsArchived.sum() + ", compacted=" + filesCompacted.sum() +
+                ", cached=" + decoded.size() + '}';
+    }
+}
@@ -0,0 +1,146 @@
+package com.utilities;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// Size-bounded, thread-safe LRU cache with hit/miss statistics.
+//
+// Loads that race with a write are handled with per-key-group generations: take generation(key)
+// before reading the database and pass it to putIfCurrent(), which drops the value if the key
+// was invalidated in between. That keeps a slow reader from re-caching a row that was just changed.
+public class LruCache<K, V> {
+
+    private static final int GENERATION_SLOTS = 64;
+
+    private final int maxSize;
+    private final LinkedHashMap<K, V> map;
+    private final AtomicLongArray generations = new AtomicLongArray(GENERATION_SLOTS);
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    public LruCache(int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("Cache size must be positive: " + maxSize);
+        }
+        this.maxSize = maxSize;
+        this.map = new LinkedHashMap<>(16, 0.75f, true) { // access order = LRU
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                if (size() > LruCache.this.maxSize) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    public V get(K key) {
+        V value;
+        synchronized (map) {
+            value = map.get(key);
+        }
+        if (value == null) {
+            misses.increment();
+        } else {
+            hits.increment();
+        }
+        return value;
+    }
+
+    public void put(K key, V value) {
+        synchronized (map) {
+            map.put(key, value);
+        }
+    }
+
+    public long generation(K key) {
+        return generations.get(slot(key));
+    }
+
+    // Cache a freshly loaded value unless the key was invalidated after the load started
+    public boolean putIfCurrent(K key, V value, long generation) {
+        synchronized (map) {
+            if (generations.get(slot(key)) != generation) {
+                return false;
+            }
+            map.put(key, value);
+            return true;
+        }
+    }
+
+    public void invalidate(K key) {
+        synchronized (map) {
+            generations.incrementAndGet(slot(key));
+            map.remove(key);
+        }
+        invalidations.increment();
+    }
+
+    public void clear() {
+        synchronized (map) {
+            for (int i = 0; i < GENERATION_SLOTS; i++) {
+                generations.incrementAndGet(i);
+            }
+            map.clear();
+        }
+        invalidations.increment();
+    }
+
+    private int slot(K key) {
+        int h = key.hashCode();
+        return (h ^ (h >>> 16)) & (GENERATION_SLOTS - 1);
+    }
+
+    // ---------- Stats ----------
+
+    public int size() {
+        synchronized (map) {
+            return map.size();
+        }
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    public long getInvalidations() {
+        return invalidations.sum();
+    }
+
+    public double getHitRate() {
+        long h = hits.sum();
+        long total = h + misses.sum();
+        return total == 0 ? 0.0 : (double) h / total;
+    }
+
+    public void resetStats() {
+        hits.reset();
+        misses.reset();
+        evictions.reset();
+        invalidations.reset();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("LruCache{size=%d/%d, hits=%d, misses=%d, hitRate=%.1f%%, evictions=%d, invalidations=%d}",
+                size(), maxSize, getHits(), getMisses(), getHitRate() * 100, getEvictions(), getInvalidations());
+    }
+}
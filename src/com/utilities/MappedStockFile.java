@@ -0,0 +1,398 @@
+package com.utilities;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+// Stock counters in a memory-mapped file, one int per product ID (product N at slot N - 1), so
+// reopening the store is a map() call rather than a reload of the Product table. Counters are updated
+// in place with VarHandle CASes on the mapping. A process crash loses nothing, because the OS
+// already holds every write. Against power loss the mapping is forced to disk every
+// -Dinventory.stockFile.syncSeconds and on close.
+//
+// A 64-byte header, covered by its own CRC32, holds the capacity and whether the file was closed
+// cleanly. A clean close also stores a CRC32 of the counters, which the next open checks. After an
+// unclean shutdown there is no body checksum to check, so open() instead checks that every slot
+// holds a possible value. Either check failing is an IOException: the file is never half-trusted.
+//
+// Growing the file (a put() past the capacity) maps a larger region of the same file. Updates made
+// through the old mapping land on the same pages, so no lock is needed on the update paths.
+public class MappedStockFile implements AutoCloseable {
+
+    public static final int MISSING = StockCounterStore.MISSING;
+    public static final int OUT_OF_STOCK = StockCounterStore.OUT_OF_STOCK;
+
+    private static final int MAGIC = 0x53544B4D; // "STKM"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 64;
+    private static final int CLEAN = 1;
+    private static final int OPEN = 2;
+    // Header offsets
+    private static final int CAPACITY_AT = 8;
+    private static final int STATE_AT = 12;
+    private static final int BODY_CRC_AT = 16;
+    private static final int CLOSED_AT = 24;
+    private static final int HEADER_CRC_AT = 48;
+    private static final int MAX_CAPACITY = (Integer.MAX_VALUE - HEADER_SIZE) / 4;
+
+    private static final VarHandle INTS = MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private static final class Mapping {
+        final MappedByteBuffer buffer;
+        final int capacity;
+
+        Mapping(MappedByteBuffer buffer, int capacity) {
+            this.buffer = buffer;
+            this.capacity = capacity;
+        }
+    }
+
+    private final Path path;
+    private final FileChannel channel;
+    private volatile Mapping mapping;
+    private final boolean recovered;
+    private ScheduledExecutorService syncer;
+    private boolean closed;
+
+    private MappedStockFile(Path path, FileChannel channel, Mapping mapping, boolean recovered) {
+        this.path = path;
+        this.channel = channel;
+        this.mapping = mapping;
+        this.recovered = recovered;
+    }
+
+    // Open (and check) the file, or create it with room for initialCapacity product IDs
+    public static MappedStockFile open(Path path, int initialCapacity) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            MappedStockFile file;
+            if (channel.size() == 0) {
+                int capacity = Math.max(1024, Math.min(initialCapacity, MAX_CAPACITY));
+                Mapping m = map(channel, capacity);
+                fill(m.buffer, 0, capacity);
+                file = new MappedStockFile(path, channel, m, false);
+            } else {
+                file = check(path, channel);
+            }
+            file.writeHeader(OPEN, 0);
+            return file;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private static Mapping map(FileChannel channel, int capacity) throws IOException {
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + 4L * capacity);
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        return new Mapping(buffer, capacity);
+    }
+
+    private static void fill(ByteBuffer buffer, int fromSlot, int toSlot) {
+        for (int slot = fromSlot; slot < toSlot; slot++) {
+            buffer.putInt(offset(slot), MISSING);
+        }
+    }
+
+    // Recovery check of an existing file
+    private static MappedStockFile check(Path path, FileChannel channel) throws IOException {
+        if (channel.size() < HEADER_SIZE) {
+            throw new IOException("Stock file is truncated: " + path);
+        }
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        channel.read(header, 0);
+        if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+            throw new IOException("Not a stock file: " + path);
+        }
+        if (header.getLong(HEADER_CRC_AT) != headerCrc(header)) {
+            throw new IOException("Stock file header is corrupt (checksum mismatch): " + path);
+        }
+        int capacity = header.getInt(CAPACITY_AT);
+        if (capacity <= 0 || capacity > MAX_CAPACITY || channel.size() < HEADER_SIZE + 4L * capacity) {
+            throw new IOException("Stock file is truncated: " + path);
+        }
+
+        Mapping m = map(channel, capacity);
+        boolean clean = header.getInt(STATE_AT) == CLEAN;
+        if (clean) {
+            if (header.getLong(BODY_CRC_AT) != bodyCrc(m)) {
+                throw new IOException("Stock file is corrupt (checksum mismatch): " + path);
+            }
+        } else {
+            // Each counter is written as one aligned int, so after a crash every slot still holds some
+            // value this class wrote: MISSING or a stock level, never a negative one
+            int bad = 0;
+            for (int slot = 0; slot < capacity; slot++) {
+                int v = m.buffer.getInt(offset(slot));
+                if (v < 0 && v != MISSING) {
+                    bad++;
+                }
+            }
+            if (bad > 0) {
+                throw new IOException("Stock file was not closed cleanly and " + bad + " counter(s) are invalid: " + path);
+            }
+        }
+        return new MappedStockFile(path, channel, m, !clean);
+    }
+
+    private static long headerCrc(ByteBuffer header) {
+        CRC32 crc = new CRC32();
+        crc.update(header.duplicate().position(0).limit(HEADER_CRC_AT));
+        return crc.getValue();
+    }
+
+    private static long bodyCrc(Mapping m) {
+        CRC32 crc = new CRC32();
+        crc.update(m.buffer.duplicate().position(HEADER_SIZE).limit(HEADER_SIZE + 4 * m.capacity));
+        return crc.getValue();
+    }
+
+    private synchronized void writeHeader(int state, long bodyCrc) {
+        ByteBuffer b = mapping.buffer;
+        b.putInt(0, MAGIC);
+        b.putInt(4, VERSION);
+        b.putInt(CAPACITY_AT, mapping.capacity);
+        b.putInt(STATE_AT, state);
+        b.putLong(BODY_CRC_AT, bodyCrc);
+        b.putLong(CLOSED_AT, state == CLEAN ? System.currentTimeMillis() : 0);
+        b.putLong(HEADER_CRC_AT, headerCrc(b));
+        mapping.buffer.force(0, HEADER_SIZE);
+    }
+
+    private static int offset(int slot) {
+        return HEADER_SIZE + 4 * slot;
+    }
+
+    // Slot of productId in m, or -1 if it is beyond the file
+    private static int slot(Mapping m, int productId) {
+        if (productId <= 0) {
+            throw new IllegalArgumentException("Product ID must be positive: " + productId);
+        }
+        return productId <= m.capacity ? productId - 1 : -1;
+    }
+
+    private static void checkStock(int stock) {
+        if (stock < 0) {
+            throw new IllegalArgumentException("Stock must not be negative: " + stock);
+        }
+    }
+
+    // ---------- Counters ----------
+
+    // Current stock, or MISSING
+    public int get(int productId) {
+        Mapping m = mapping;
+        int slot = slot(m, productId);
+        return slot < 0 ? MISSING : (int) INTS.getVolatile(m.buffer, offset(slot));
+    }
+
+    // Take quantity units if at least that many are left. Returns the new stock, OUT_OF_STOCK or MISSING.
+    public int decrement(int productId, int quantity) {
+        if (quantity <= 0) {
+            throw new IllegalArgumentException("Quantity must be greater than 0: " + quantity);
+        }
+        Mapping m = mapping;
+        int slot = slot(m, productId);
+        if (slot < 0) {
+            return MISSING;
+        }
+        int at = offset(slot);
+        while (true) {
+            int v = (int) INTS.getVolatile(m.buffer, at);
+            if (v == MISSING) {
+                return MISSING;
+            }
+            if (v < quantity) {
+                return OUT_OF_STOCK;
+            }
+            if (INTS.compareAndSet(m.buffer, at, v, v - quantity)) {
+                return v - quantity;
+            }
+        }
+    }
+
+    // Add delta, never going below zero. Returns the new stock or MISSING.
+    public int add(int productId, int delta) {
+        Mapping m = mapping;
+        int slot = slot(m, productId);
+        if (slot < 0) {
+            return MISSING;
+        }
+        int at = offset(slot);
+        while (true) {
+            int v = (int) INTS.getVolatile(m.buffer, at);
+            if (v == MISSING) {
+                return MISSING;
+            }
+            int updated = (int) Math.max(0, Math.min(Integer.MAX_VALUE, (long) v + delta));
+            if (INTS.compareAndSet(m.buffer, at, v, updated)) {
+                return updated;
+            }
+        }
+    }
+
+    // Overwrite the stock of a stored product. Returns the old stock, or MISSING (and stores nothing).
+    public int replace(int productId, int stock) {
+        checkStock(stock);
+        Mapping m = mapping;
+        int slot = slot(m, productId);
+        if (slot < 0) {
+            return MISSING;
+        }
+        int at = offset(slot);
+        while (true) {
+            int v = (int) INTS.getVolatile(m.buffer, at);
+            if (v == MISSING) {
+                return MISSING;
+            }
+            if (INTS.compareAndSet(m.buffer, at, v, stock)) {
+                return v;
+            }
+        }
+    }
+
+    // Insert or overwrite, growing the file if needed; returns the old stock or MISSING
+    public int put(int productId, int stock) throws IOException {
+        checkStock(stock);
+        return (int) INTS.getAndSet(mappingFor(productId).buffer, offset(productId - 1), stock);
+    }
+
+    // Insert unless present; returns the stock now stored
+    public int putIfAbsent(int productId, int stock) throws IOException {
+        checkStock(stock);
+        ByteBuffer buffer = mappingFor(productId).buffer;
+        int at = offset(productId - 1);
+        while (true) {
+            int v = (int) INTS.getVolatile(buffer, at);
+            if (v != MISSING) {
+                return v;
+            }
+            if (INTS.compareAndSet(buffer, at, MISSING, stock)) {
+                return stock;
+            }
+        }
+    }
+
+    // Returns the removed product's stock, or MISSING
+    public int remove(int productId) {
+        Mapping m = mapping;
+        int slot = slot(m, productId);
+        return slot < 0 ? MISSING : (int) INTS.getAndSet(m.buffer, offset(slot), MISSING);
+    }
+
+    private Mapping mappingFor(int productId) throws IOException {
+        Mapping m = mapping;
+        return slot(m, productId) >= 0 ? m : grow(productId);
+    }
+
+    private synchronized Mapping grow(int productId) throws IOException {
+        Mapping old = mapping;
+        if (productId <= old.capacity) {
+            return old;
+        }
+        if (productId > MAX_CAPACITY) {
+            throw new IOException("Product ID too large for a stock file: " + productId);
+        }
+        int capacity = (int) Math.min(MAX_CAPACITY, Math.max(productId + (long) productId / 4, 2L * old.capacity));
+        Mapping m = map(channel, capacity);
+        fill(m.buffer, old.capacity, capacity); // before the header grows, so a crash here loses nothing
+        m.buffer.force(offset(old.capacity), 4 * (capacity - old.capacity));
+        mapping = m;
+        writeHeader(OPEN, 0);
+        return m;
+    }
+
+    // Visit every stored product in ID order. Not atomic: concurrent changes may or may not be seen.
+    public void forEach(StockCounterStore.Visitor visitor) {
+        Mapping m = mapping;
+        for (int slot = 0; slot < m.capacity; slot++) {
+            int v = (int) INTS.getVolatile(m.buffer, offset(slot));
+            if (v != MISSING) {
+                visitor.visit(slot + 1, v);
+            }
+        }
+    }
+
+    // ---------- Durability ----------
+
+    // Write dirty pages to disk
+    public void sync() {
+        mapping.buffer.force();
+    }
+
+    public synchronized void startPeriodicSync(long periodSeconds) {
+        stopPeriodicSync();
+        if (periodSeconds <= 0) {
+            return;
+        }
+        syncer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "stock-file-sync");
+            t.setDaemon(true);
+            return t;
+        });
+        syncer.scheduleWithFixedDelay(() -> {
+            try {
+                sync();
+            } catch (RuntimeException e) {
+                System.err.println("Stock file sync failed: " + e.getMessage());
+            }
+        }, periodSeconds, periodSeconds, TimeUnit.SECONDS);
+    }
+
+    public synchronized void stopPeriodicSync() {
+        if (syncer != null) {
+            syncer.shutdownNow();
+            syncer = null;
+        }
+    }
+
+    // Sync and mark the file clean with a checksum of the counters. Updates must have stopped.
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        stopPeriodicSync();
+        sync();
+        writeHeader(CLEAN, bodyCrc(mapping));
+        channel.close();
+    }
+
+    // ---------- Stats ----------
+
+    public Path getPath() {
+        return path;
+    }
+
+    public int capacity() {
+        return mapping.capacity;
+    }
+
+    // True when the last run did not close the file (the counters passed the crash check)
+    public boolean wasRecovered() {
+        return recovered;
+    }
+
+    // Stored products; scans the file
+    public int count() {
+        int[] n = new int[1];
+        forEach((productId, stock) -> n[0]++);
+        return n[0];
+    }
+
+    @Override
+    public String toString() {
+        return "MappedStockFile{path=" + path + ", capacity=" + capacity() + ", recovered=" + recovered + '}';
+    }
+}
@@ -0,0 +1,238 @@
+package com.utilities;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// Per-operation call/error/row counters and latency histograms for the JDBC layer.
+//
+// Each instrumented method holds its Operation in a static final field, so recording is two
+// nanoTime() calls, a few LongAdder increments and one histogram bucket add - no map lookup,
+// no allocation. Disable recording entirely with -Dinventory.metrics=false.
+//
+// Usage:
+//     long start = Metrics.start();
+//     try { ... OP.success(start, rows); } catch (SQLException e) { OP.failure(start); ... }
+//
+// Periodic dump: -Dinventory.metrics.dumpSeconds=60 [-Dinventory.metrics.format=json]
+//                [-Dinventory.metrics.file=metrics.log]
+public final class Metrics {
+
+    public static final boolean ENABLED = !"false".equalsIgnoreCase(System.getProperty("inventory.metrics"));
+
+    private static final Map<String, Operation> OPERATIONS = new ConcurrentHashMap<>();
+    private static ScheduledExecutorService dumper;
+
+    private Metrics() {
+    }
+
+    public static final class Operation {
+        private final String name;
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder rows = new LongAdder();
+        private final LatencyHistogram latency = new LatencyHistogram();
+
+        private Operation(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void success(long startNanos, long rowCount) {
+            if (!ENABLED) {
+                return;
+            }
+            latency.record(System.nanoTime() - startNanos);
+            calls.increment();
+            if (rowCount > 0) {
+                rows.add(rowCount);
+            }
+        }
+
+        public void success(long startNanos) {
+            success(startNanos, 0);
+        }
+
+        public void failure(long startNanos) {
+            if (!ENABLED) {
+                return;
+            }
+            latency.record(System.nanoTime() - startNanos);
+            calls.increment();
+            errors.increment();
+        }
+
+        public Snapshot snapshot() {
+            return new Snapshot(name, calls.sum(), errors.sum(), rows.sum(), latency.getMeanNanos(),
+                    latency.percentile(50), latency.percentile(90), latency.percentile(99),
+                    latency.percentile(99.9), latency.getMaxNanos());
+        }
+
+        void reset() {
+            calls.reset();
+            errors.reset();
+            rows.reset();
+            latency.reset();
+        }
+    }
+
+    // Immutable point-in-time copy of one operation's numbers; latencies in nanoseconds
+    public static final class Snapshot {
+        private final String name;
+        private final long calls;
+        private final long errors;
+        private final long rows;
+        private final double meanNanos;
+        private final long p50Nanos;
+        private final long p90Nanos;
+        private final long p99Nanos;
+        private final long p999Nanos;
+        private final long maxNanos;
+
+        Snapshot(String name, long calls, long errors, long rows, double meanNanos,
+                 long p50Nanos, long p90Nanos, long p99Nanos, long p999Nanos, long maxNanos) {
+            this.name = name;
+            this.calls = calls;
+            this.errors = errors;
+            this.rows = rows;
+            this.meanNanos = meanNanos;
+            this.p50Nanos = p50Nanos;
+            this.p90Nanos = p90Nanos;
+            this.p99Nanos = p99Nanos;
+            this.p999Nanos = p999Nanos;
+            this.maxNanos = maxNanos;
+        }
+
+        public String getName() { return name; }
+        public long getCalls() { return calls; }
+        public long getErrors() { return errors; }
+        public long getRows() { return rows; }
+        public double getMeanNanos() { return meanNanos; }
+        public long getP50Nanos() { return p50Nanos; }
+        public long getP90Nanos() { return p90Nanos; }
+        public long getP99Nanos() { return p99Nanos; }
+        public long getP999Nanos() { return p999Nanos; }
+        public long getMaxNanos() { return maxNanos; }
+    }
+
+    // Register (or look up) an operation; call once and keep the result in a static field
+    public static Operation operation(String name) {
+        return OPERATIONS.computeIfAbsent(name, Operation::new);
+    }
+
+    public static long start() {
+        return ENABLED ? System.nanoTime() : 0L;
+    }
+
+    // Snapshot of every operation that has been called at least once, sorted by name
+    public static List<Snapshot> snapshot() {
+        List<Snapshot> result = new ArrayList<>();
+        for (Operation op : OPERATIONS.values()) {
+            if (op.calls.sum() > 0) {
+                result.add(op.snapshot());
+            }
+        }
+        result.sort((a, b) -> a.getName().compareTo(b.getName()));
+        return result;
+    }
+
+    public static void reset() {
+        for (Operation op : OPERATIONS.values()) {
+            op.reset();
+        }
+    }
+
+    // ---------- Formatting ----------
+
+    public static String toText() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("%-28s %10s %8s %10s %10s %10s %10s %10s %10s%n",
+                "Operation", "Calls", "Errors", "Rows", "Mean ms", "p50 ms", "p99 ms", "p999 ms", "Max ms"));
+        for (Snapshot s : snapshot()) {
+            sb.append(String.format("%-28s %10d %8d %10d %10.3f %10.3f %10.3f %10.3f %10.3f%n",
+                    s.getName(), s.getCalls(), s.getErrors(), s.getRows(), s.getMeanNanos() / 1e6,
+                    s.getP50Nanos() / 1e6, s.getP99Nanos() / 1e6, s.getP999Nanos() / 1e6, s.getMaxNanos() / 1e6));
+        }
+        return sb.toString();
+    }
+
+    // One JSON object: {"timestamp":...,"operations":[{...},...]}; latencies in microseconds
+    public static String toJson() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("{\"timestamp\":").append(System.currentTimeMillis()).append(",\"operations\":[");
+        boolean first = true;
+        for (Snapshot s : snapshot()) {
+            if (!first) {
+                sb.append(',');
+            }
+            first = false;
+            sb.append("{\"name\":\"").append(s.getName()).append('"')
+                    .append(",\"calls\":").append(s.getCalls())
+                    .append(",\"errors\":").append(s.getErrors())
+                    .append(",\"rows\":").append(s.getRows())
+                    .append(",\"meanUs\":").append(Math.round(s.getMeanNanos() / 1e3))
+                    .append(",\"p50Us\":").append(s.getP50Nanos() / 1000)
+                    .append(",\"p90Us\":").append(s.getP90Nanos() / 1000)
+                    .append(",\"p99Us\":").append(s.getP99Nanos() / 1000)
+                    .append(",\"p999Us\":").append(s.getP999Nanos() / 1000)
+                    .append(",\"maxUs\":").append(s.getMaxNanos() / 1000)
+                    .append('}');
+        }
+        return sb.append("]}").toString();
+    }
+
+    // ---------- Periodic dump ----------
+
+    // Start the dump configured by -Dinventory.metrics.dumpSeconds (no-op when unset)
+    public static void startConfiguredDump() {
+        long seconds = Long.getLong("inventory.metrics.dumpSeconds", 0);
+        if (seconds > 0) {
+            startPeriodicDump(seconds, "json".equalsIgnoreCase(System.getProperty("inventory.metrics.format")),
+                    System.getProperty("inventory.metrics.file"));
+        }
+    }
+
+    // Write a snapshot every periodSeconds, appended to file (null for stdout)
+    public static synchronized void startPeriodicDump(long periodSeconds, boolean json, String file) {
+        stopPeriodicDump();
+        dumper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "metrics-dump");
+            t.setDaemon(true);
+            return t;
+        });
+        dumper.scheduleAtFixedRate(() -> dump(json, file), periodSeconds, periodSeconds, TimeUnit.SECONDS);
+    }
+
+    public static synchronized void stopPeriodicDump() {
+        if (dumper != null) {
+            dumper.shutdownNow();
+            dumper = null;
+        }
+    }
+
+    public static void dump(boolean json, String file) {
+        String text = json ? toJson() + System.lineSeparator() : toText();
+        if (file == null) {
+            System.out.print(text);
+            return;
+        }
+        try (Writer w = new OutputStreamWriter(new FileOutputStream(file, true), StandardCharsets.UTF_8)) {
+            w.write(text);
+        } catch (IOException e) {
+            System.err.println("Failed to write metrics to " + file + ": " + e.getMessage());
+        }
+    }
+}
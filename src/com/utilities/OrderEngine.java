@@ -0,0 +1,264 @@
+package com.utilities;
+
+import com.Order;
+import com.OrderItem;
+import com.exceptions.OutOfStockException;
+import com.repository.ProductRepository;
+import com.repository.Repositories;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+// Runs each order request on its own virtual thread. Parking a virtual thread on a JDBC round
+// trip is cheap, so tens of thousands of requests can be in the engine at once; a semaphore sized
+// to the connection budget keeps the number actually talking to the database at or below what the
+// pool can serve, and the rest wait on the semaphore instead of in ConnectionPool.borrow().
+//
+// Virtual threads need JDK 21. On older JVMs the engine falls back to a fixed pool of
+// maxInFlight platform threads, which gives the same DB concurrency with a queue in front.
+public class OrderEngine implements AutoCloseable {
+
+    // A unit of DB work run on an engine thread
+    public interface OrderTask<T> {
+        T run() throws SQLException, OutOfStockException;
+    }
+
+    private final ExecutorService executor;
+    private final boolean virtual;
+    private final int maxInFlight;
+    private final Semaphore permits;
+
+    // Metrics
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder succeeded = new LongAdder();
+    private final LongAdder outOfStock = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger pending = new AtomicInteger(); // submitted but not finished
+    private final LatencyHistogram permitWait = new LatencyHistogram();
+    private final LatencyHistogram serviceTime = new LatencyHistogram();
+
+    // One DB slot per pooled connection
+    public OrderEngine() {
+        this(DBConnection.getPool().getMaxSize());
+    }
+
+    public OrderEngine(int maxInFlight) {
+        if (maxInFlight <= 0) {
+            throw new IllegalArgumentException("maxInFlight must be positive: " + maxInFlight);
+        }
+        this.maxInFlight = maxInFlight;
+        this.permits = new Semaphore(maxInFlight, true);
+        ExecutorService vt = newVirtualThreadExecutor();
+        this.virtual = vt != null;
+        this.executor = vt != null ? vt : Executors.newFixedThreadPool(maxInFlight, r -> {
+            Thread t = new Thread(r, "order-engine");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    // Executors.newVirtualThreadPerTaskExecutor() looked up reflectively so the code still compiles for 17
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) MethodHandles.publicLookup()
+                    .findStatic(Executors.class, "newVirtualThreadPerTaskExecutor", MethodType.methodType(ExecutorService.class))
+                    .invoke();
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            return null;
+        } catch (Throwable e) {
+            System.err.println("Virtual threads unavailable, using platform threads: " + e);
+            return null;
+        }
+    }
+
+    public boolean isVirtual() {
+        return virtual;
+    }
+
+    public int getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    // ---------- Submit ----------
+
+    public <T> CompletableFuture<T> submit(OrderTask<T> task) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        submitted.increment();
+        pending.incrementAndGet();
+        try {
+            executor.execute(() -> execute(task, future));
+        } catch (RuntimeException e) { // RejectedExecutionException after close()
+            pending.decrementAndGet();
+            failed.increment();
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    private <T> void execute(OrderTask<T> task, CompletableFuture<T> future) {
+        long queued = System.nanoTime();
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            pending.decrementAndGet();
+            failed.increment();
+            future.completeExceptionally(e);
+            return;
+        }
+        long start = System.nanoTime();
+        permitWait.record(start - queued);
+        inFlight.incrementAndGet();
+        try {
+            T result = task.run();
+            succeeded.increment();
+            future.complete(result);
+        } catch (OutOfStockException e) {
+            outOfStock.increment();
+            future.completeExceptionally(e);
+        } catch (Throwable e) {
+            failed.increment();
+            future.completeExceptionally(e);
+        } finally {
+            serviceTime.record(System.nanoTime() - start);
+            inFlight.decrementAndGet();
+            permits.release();
+            pending.decrementAndGet();
+        }
+    }
+
+    // Full order: header, guarded stock decrements, items and log rows in one transaction. Completes with the order ID.
+    public CompletableFuture<Integer> submitOrder(Order order, List<OrderItem> items) {
+        return submit(() -> Order.submitOrder(order, items));
+    }
+
+    // Single-product sale without an order header. Completes with the remaining stock.
+    public CompletableFuture<Integer> submitSale(int productId, int quantity) {
+        return submit(() -> {
+            int remaining = Repositories.getDefault().sell(productId, quantity, "Product Sold");
+            if (remaining == ProductRepository.OUT_OF_STOCK) {
+                throw new OutOfStockException(productId, "Out of Stock for product ID: " + productId);
+            }
+            return remaining;
+        });
+    }
+
+    // ---------- Await ----------
+
+    // Block until the future completes and rethrow the task's own checked exception
+    public static <T> T await(CompletableFuture<T> future) throws SQLException, OutOfStockException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for order", e);
+        } catch (ExecutionException e) {
+            throw unwrap(e.getCause());
+        } catch (CancellationException e) {
+            throw new SQLException("Order request was cancelled", e);
+        }
+    }
+
+    // Wait for every future; returns the results in order with null for requests that failed
+    public static <T> List<T> awaitAll(List<CompletableFuture<T>> futures) {
+        try {
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).join();
+        } catch (CompletionException | CancellationException e) {
+            // individual failures are reported as nulls below
+        }
+        List<T> results = new ArrayList<>(futures.size());
+        for (CompletableFuture<T> f : futures) {
+            results.add(f.isCompletedExceptionally() ? null : f.join());
+        }
+        return results;
+    }
+
+    private static SQLException unwrap(Throwable cause) throws OutOfStockException {
+        if (cause instanceof OutOfStockException) {
+            throw (OutOfStockException) cause;
+        }
+        if (cause instanceof SQLException) {
+            return (SQLException) cause;
+        }
+        if (cause instanceof RuntimeException) {
+            throw (RuntimeException) cause;
+        }
+        if (cause instanceof Error) {
+            throw (Error) cause;
+        }
+        return new SQLException("Order request failed", cause);
+    }
+
+    // ---------- Shutdown ----------
+
+    // Stop taking requests and wait for the ones already submitted
+    @Override
+    public void close() {
+        executor.shutdown();
+        try {
+            while (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+                System.out.println("Waiting for " + pending.get() + " order request(s) to finish...");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            executor.shutdownNow();
+        }
+    }
+
+    // ---------- Metrics ----------
+
+    public long getSubmittedCount() {
+        return submitted.sum();
+    }
+
+    public long getSucceededCount() {
+        return succeeded.sum();
+    }
+
+    public long getOutOfStockCount() {
+        return outOfStock.sum();
+    }
+
+    public long getFailedCount() {
+        return failed.sum();
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    // Requests waiting for a DB slot or running
+    public int getPending() {
+        return pending.get();
+    }
+
+    public LatencyHistogram getPermitWait() {
+        return permitWait;
+    }
+
+    public LatencyHistogram getServiceTime() {
+        return serviceTime;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("OrderEngine{threads=%s, maxInFlight=%d, pending=%d, submitted=%d, succeeded=%d, " +
+                        "outOfStock=%d, failed=%d, permitWait p99=%.3fms, service p99=%.3fms}",
+                virtual ? "virtual" : "platform", maxInFlight, getPending(), getSubmittedCount(), getSucceededCount(),
+                getOutOfStockCount(), getFailedCount(), permitWait.percentile(99) / 1e6, serviceTime.percentile(99) / 1e6);
+    }
+}
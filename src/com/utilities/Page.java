@@ -0,0 +1,58 @@
+package com.utilities;
+
+import java.util.List;
+import java.util.Scanner;
+
+// One page of a keyset-paginated listing. The next page is requested with the key of getLast()
+// (e.g. listProducts(page.getLast().getProductId(), ...)), so the database seeks straight to it
+// instead of skipping OFFSET rows.
+public class Page<T> {
+    public static final int DEFAULT_SIZE = Integer.getInteger("inventory.pageSize", 20);
+    public static final int MAX_SIZE = 1000;
+
+    private final List<T> items;
+    private final boolean hasMore;
+
+    public Page(List<T> items, boolean hasMore) {
+        this.items = items;
+        this.hasMore = hasMore;
+    }
+
+    // Build a page from pageSize + 1 fetched rows: the extra row only tells us there is more
+    public static <T> Page<T> of(List<T> fetched, int pageSize) {
+        if (fetched.size() > pageSize) {
+            return new Page<>(List.copyOf(fetched.subList(0, pageSize)), true);
+        }
+        return new Page<>(List.copyOf(fetched), false);
+    }
+
+    public static int checkSize(int pageSize) {
+        if (pageSize <= 0 || pageSize > MAX_SIZE) {
+            throw new IllegalArgumentException("Page size must be between 1 and " + MAX_SIZE + ": " + pageSize);
+        }
+        return pageSize;
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    public boolean hasMore() {
+        return hasMore;
+    }
+
+    public boolean isEmpty() {
+        return items.isEmpty();
+    }
+
+    public T getLast() {
+        return items.isEmpty() ? null : items.get(items.size() - 1);
+    }
+
+    // CLI helper used by the read* listings
+    public static boolean promptNextPage() {
+        System.out.print("n-Next page | any other key-Stop: ");
+        Scanner sc = new Scanner(System.in);
+        return sc.next().equalsIgnoreCase("n");
+    }
+}
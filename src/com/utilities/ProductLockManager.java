@@ -0,0 +1,162 @@
+package com.utilities;
+
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Striped locks keyed by product ID. Sales of different products map to different stripes
+// and run in parallel; only products that share a stripe wait for each other.
+public class ProductLockManager {
+
+    private static final ProductLockManager DEFAULT =
+            new ProductLockManager(Integer.getInteger("inventory.lockStripes", 64));
+
+    private final ReentrantLock[] stripes;
+    private final LongAdder[] acquisitions;
+    private final LongAdder[] contended;
+    private final int mask;
+
+    // Work run while holding a product lock
+    public interface LockedWork<T> {
+        T run() throws SQLException;
+    }
+
+    public ProductLockManager(int stripeCount) {
+        if (stripeCount <= 0) {
+            throw new IllegalArgumentException("Stripe count must be positive: " + stripeCount);
+        }
+        int size = Integer.highestOneBit(stripeCount);
+        if (size < stripeCount) {
+            size <<= 1; // round up to a power of two so the stripe index is a mask
+        }
+        stripes = new ReentrantLock[size];
+        acquisitions = new LongAdder[size];
+        contended = new LongAdder[size];
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new ReentrantLock();
+            acquisitions[i] = new LongAdder();
+            contended[i] = new LongAdder();
+        }
+        mask = size - 1;
+    }
+
+    public static ProductLockManager getDefault() {
+        return DEFAULT;
+    }
+
+    public int getStripeCount() {
+        return stripes.length;
+    }
+
+    public int stripeFor(int productId) {
+        int h = productId * 0x9E3779B9; // spread sequential IDs across stripes
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    public void lock(int productId) {
+        lockStripe(stripeFor(productId));
+    }
+
+    public void unlock(int productId) {
+        stripes[stripeFor(productId)].unlock();
+    }
+
+    public <T> T withLock(int productId, LockedWork<T> work) throws SQLException {
+        lock(productId);
+        try {
+            return work.run();
+        } finally {
+            unlock(productId);
+        }
+    }
+
+    // Lock every product of a multi-line order. Stripes are taken once each and in ascending
+    // order, so two orders touching the same products can never deadlock each other.
+    public <T> T withLocks(int[] productIds, LockedWork<T> work) throws SQLException {
+        int[] held = distinctStripes(productIds);
+        int locked = 0;
+        try {
+            for (int stripe : held) {
+                lockStripe(stripe);
+                locked++;
+            }
+            return work.run();
+        } finally {
+            for (int i = locked - 1; i >= 0; i--) {
+                stripes[held[i]].unlock();
+            }
+        }
+    }
+
+    private int[] distinctStripes(int[] productIds) {
+        int[] s = new int[productIds.length];
+        for (int i = 0; i < productIds.length; i++) {
+            s[i] = stripeFor(productIds[i]);
+        }
+        Arrays.sort(s);
+        int n = 0;
+        for (int i = 0; i < s.length; i++) {
+            if (i == 0 || s[i] != s[i - 1]) {
+                s[n++] = s[i];
+            }
+        }
+        return Arrays.copyOf(s, n);
+    }
+
+    private void lockStripe(int stripe) {
+        ReentrantLock lock = stripes[stripe];
+        if (!lock.tryLock()) {
+            contended[stripe].increment();
+            lock.lock();
+        }
+        acquisitions[stripe].increment();
+    }
+
+    // ---------- Contention stats ----------
+
+    public long getAcquisitions(int stripe) {
+        return acquisitions[stripe].sum();
+    }
+
+    public long getContended(int stripe) {
+        return contended[stripe].sum();
+    }
+
+    public long getTotalAcquisitions() {
+        long total = 0;
+        for (LongAdder a : acquisitions) {
+            total += a.sum();
+        }
+        return total;
+    }
+
+    public long getTotalContended() {
+        long total = 0;
+        for (LongAdder c : contended) {
+            total += c.sum();
+        }
+        return total;
+    }
+
+    public void resetStats() {
+        for (int i = 0; i < stripes.length; i++) {
+            acquisitions[i].reset();
+            contended[i].reset();
+        }
+    }
+
+    public void printStats() {
+        System.out.printf("%-8s %-15s %-15s %-10s%n", "Stripe", "Acquisitions", "Contended", "Rate (%)");
+        System.out.println("-----------------------------------------------------");
+        for (int i = 0; i < stripes.length; i++) {
+            long a = getAcquisitions(i);
+            if (a == 0) {
+                continue;
+            }
+            long c = getContended(i);
+            System.out.printf("%-8d %-15d %-15d %-10.2f%n", i, a, c, 100.0 * c / a);
+        }
+        System.out.println("Total: " + getTotalAcquisitions() + " acquisitions, " + getTotalContended() + " contended");
+    }
+}
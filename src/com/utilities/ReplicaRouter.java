@@ -0,0 +1,266 @@
+package com.utilities;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+// Sends reads to read replicas when they are fresh enough, and everything else to the primary.
+//
+// A heartbeat thread writes the primary's clock into ReplicaHeartbeat every heartbeatMillis and reads
+// the row back from each replica. The value a replica returns is how far (in primary time) it has
+// replayed, so its staleness is now minus that value. This counts the heartbeat period too, so it errs
+// on the stale side. A replica whose heartbeat read fails is skipped until one succeeds again.
+//
+// A read goes to a replica only if
+//   - the replica has replayed past the calling thread's last write (read-your-writes). A write is
+//     recorded when the thread hands a primary connection back, see connectionReturned(), and
+//   - its staleness is within the bound for the kind of read: LOOKUP (by ID) takes a tight bound,
+//     REPORT (listings, low stock) a looser one.
+// Otherwise it goes to the primary. Eligible replicas are used round robin. Every decision is counted
+// per kind and route (getCount, toString, Route.* metrics); -Dinventory.db.traceRouting=true also
+// prints each one.
+public class ReplicaRouter implements AutoCloseable {
+
+    public enum ReadKind {
+        LOOKUP,
+        REPORT
+    }
+
+    // Where a read went, and why it stayed on the primary
+    public enum Route {
+        REPLICA,
+        PRIMARY_OWN_WRITE, // no replica has this thread's last write yet
+        PRIMARY_STALE,     // replicas lag more than the bound
+        PRIMARY_DOWN       // no replica answered its last heartbeat
+    }
+
+    private static final boolean TRACE = Boolean.getBoolean("inventory.db.traceRouting");
+    private static final long UNKNOWN = Long.MIN_VALUE;
+
+    private static final class Replica {
+        final String url;
+        final ConnectionPool pool;
+        volatile long caughtUpTo = UNKNOWN; // primary time the replica has replayed up to
+        volatile boolean failing;
+
+        Replica(String url, ConnectionPool pool) {
+            this.url = url;
+            this.pool = pool;
+        }
+    }
+
+    // Per thread: when it last returned a primary connection it wrote on, and how many primary
+    // connections it holds for reads (those do not count as writes)
+    private static final class Session {
+        long lastWrite = UNKNOWN;
+        int primaryReads;
+    }
+
+    private final ConnectionPool primary;
+    private final List<Replica> replicas = new ArrayList<>();
+    private final long lookupMaxLagMillis;
+    private final long reportMaxLagMillis;
+    private final ThreadLocal<Session> sessions = ThreadLocal.withInitial(Session::new);
+    private final AtomicInteger next = new AtomicInteger();
+    private final ScheduledExecutorService heartbeat;
+
+    private final LongAdder[][] counts = new LongAdder[ReadKind.values().length][Route.values().length];
+    private final Metrics.Operation[][] operations = new Metrics.Operation[ReadKind.values().length][Route.values().length];
+
+    public ReplicaRouter(ConnectionPool primary, List<String> urls, List<ConnectionPool> pools,
+                         long lookupMaxLagMillis, long reportMaxLagMillis, long heartbeatMillis) {
+        this.primary = primary;
+        for (int i = 0; i < urls.size(); i++) {
+            replicas.add(new Replica(urls.get(i), pools.get(i)));
+        }
+        this.lookupMaxLagMillis = lookupMaxLagMillis;
+        this.reportMaxLagMillis = reportMaxLagMillis;
+        for (ReadKind kind : ReadKind.values()) {
+            for (Route route : Route.values()) {
+                counts[kind.ordinal()][route.ordinal()] = new LongAdder();
+                operations[kind.ordinal()][route.ordinal()] = Metrics.operation(
+                        "Route." + kind.name().toLowerCase() + "." + route.name().toLowerCase());
+            }
+        }
+        primary.setReturnListener(this::connectionReturned);
+
+        heartbeat = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "replica-heartbeat");
+            t.setDaemon(true);
+            return t;
+        });
+        heartbeat.scheduleWithFixedDelay(this::beat, 0, heartbeatMillis, TimeUnit.MILLISECONDS);
+    }
+
+    // ---------- Routing ----------
+
+    public Connection read(ReadKind kind) throws SQLException {
+        long start = Metrics.start();
+        long bound = kind == ReadKind.LOOKUP ? lookupMaxLagMillis : reportMaxLagMillis;
+        Session session = sessions.get();
+        long now = System.currentTimeMillis();
+        Route reason = Route.PRIMARY_DOWN;
+        int n = replicas.size();
+        int first = Math.floorMod(next.getAndIncrement(), n);
+        for (int i = 0; i < n; i++) {
+            Replica r = replicas.get((first + i) % n);
+            long caughtUpTo = r.caughtUpTo;
+            if (caughtUpTo == UNKNOWN) {
+                continue;
+            }
+            if (caughtUpTo <= session.lastWrite) {
+                reason = Route.PRIMARY_OWN_WRITE;
+                continue;
+            }
+            if (now - caughtUpTo > bound) {
+                if (reason != Route.PRIMARY_OWN_WRITE) {
+                    reason = Route.PRIMARY_STALE;
+                }
+                continue;
+            }
+            try {
+                Connection conn = r.pool.borrow();
+                record(kind, Route.REPLICA, r.url, now - caughtUpTo, start);
+                return conn;
+            } catch (SQLException e) {
+                markDown(r, e); // try the next one
+            }
+        }
+        Connection conn = primary.borrow();
+        session.primaryReads++;
+        record(kind, reason, null, 0, start);
+        return conn;
+    }
+
+    private void record(ReadKind kind, Route route, String url, long lagMillis, long start) {
+        counts[kind.ordinal()][route.ordinal()].increment();
+        operations[kind.ordinal()][route.ordinal()].success(start);
+        if (TRACE) {
+            System.err.println("Route " + kind + " on " + Thread.currentThread().getName() + ": " + route
+                    + (url != null ? " " + url + " (" + lagMillis + " ms behind)" : ""));
+        }
+    }
+
+    // Return listener of the primary pool. Connections borrowed through read() are not writes; any
+    // other is taken as one. When returns interleave, a read's return may be counted for a write's,
+    // which only records the write a little later than it committed - never earlier.
+    void connectionReturned() {
+        Session session = sessions.get();
+        if (session.primaryReads > 0) {
+            session.primaryReads--;
+        } else {
+            session.lastWrite = System.currentTimeMillis();
+        }
+    }
+
+    // True for connections handed out by a replica's pool
+    public boolean isReplica(Connection conn) {
+        for (Replica r : replicas) {
+            if (r.pool.owns(conn)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // ---------- Heartbeat ----------
+
+    private void beat() {
+        long now = System.currentTimeMillis();
+        try (Connection conn = primary.borrow()) {
+            writeHeartbeat(conn, now);
+        } catch (SQLException e) {
+            System.err.println("Replica heartbeat: cannot write to the primary: " + e.getMessage());
+            return; // replicas keep their last position and grow stale
+        }
+        for (Replica r : replicas) {
+            try (Connection conn = r.pool.borrow();
+                 PreparedStatement stmt = conn.prepareStatement(SqlStatements.REPLICA_HEARTBEAT_READ);
+                 ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    r.caughtUpTo = rs.getLong(1);
+                    if (r.failing) {
+                        r.failing = false;
+                        System.err.println("Replica heartbeat: " + r.url + " is back");
+                    }
+                }
+            } catch (SQLException e) {
+                markDown(r, e);
+            }
+        }
+    }
+
+    private static void writeHeartbeat(Connection conn, long now) throws SQLException {
+        try (PreparedStatement update = conn.prepareStatement(SqlStatements.REPLICA_HEARTBEAT_UPDATE)) {
+            update.setLong(1, now);
+            if (update.executeUpdate() > 0) {
+                return;
+            }
+        } catch (SQLException e) {
+            try (Statement ddl = conn.createStatement()) { // first start on a database without the table
+                ddl.execute(SqlStatements.REPLICA_HEARTBEAT_CREATE);
+            }
+        }
+        try (PreparedStatement insert = conn.prepareStatement(SqlStatements.REPLICA_HEARTBEAT_INSERT)) {
+            insert.setLong(1, now);
+            insert.executeUpdate();
+        }
+    }
+
+    private void markDown(Replica r, SQLException e) {
+        r.caughtUpTo = UNKNOWN;
+        if (!r.failing) {
+            r.failing = true;
+            System.err.println("Replica heartbeat: skipping " + r.url + ": " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void close() {
+        heartbeat.shutdownNow();
+        primary.setReturnListener(null);
+        for (Replica r : replicas) {
+            r.pool.close();
+        }
+    }
+
+    // ---------- Stats ----------
+
+    public long getCount(ReadKind kind, Route route) {
+        return counts[kind.ordinal()][route.ordinal()].sum();
+    }
+
+    // Milliseconds the replica is behind the primary, or -1 if it is not answering
+    public long getLagMillis(int replica) {
+        long caughtUpTo = replicas.get(replica).caughtUpTo;
+        return caughtUpTo == UNKNOWN ? -1 : Math.max(0, System.currentTimeMillis() - caughtUpTo);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("ReplicaRouter{replicas=[");
+        for (int i = 0; i < replicas.size(); i++) {
+            long lag = getLagMillis(i);
+            sb.append(i == 0 ? "" : ", ").append(replicas.get(i).url).append(lag < 0 ? " down" : " lag=" + lag + "ms");
+        }
+        sb.append("], lookupMaxLag=").append(lookupMaxLagMillis).append("ms, reportMaxLag=").append(reportMaxLagMillis).append("ms");
+        for (ReadKind kind : ReadKind.values()) {
+            sb.append(", ").append(kind.name().toLowerCase()).append('{');
+            for (Route route : Route.values()) {
+                sb.append(route.ordinal() == 0 ? "" : ", ").append(route.name().toLowerCase())
+                        .append('=').append(getCount(kind, route));
+            }
+            sb.append('}');
+        }
+        return sb.append('}').toString();
+    }
+}
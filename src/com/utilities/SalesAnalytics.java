@@ -0,0 +1,343 @@
+package com.utilities;
+
+import com.repository.ArchivedLogRepositories;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.Scanner;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.locks.Lock;
+
+// Sales analytics over the JDBC tables: revenue and units per product, per day and per supplier, top
+// sellers and sell-through, without exporting anything.
+//
+// Each table is split into primary key ranges. A fork/join task halves its range until it is at most
+// partitionKeys wide, then streams that range over its own report connection (a replica when one is
+// fresh enough) into primitive counters keyed by product ID or epoch day. Tasks merge their counters
+// as they join. Money is summed in cents, so the totals are exact and do not depend on how the work
+// was split.
+//
+// Like FileExport this reads the single JDBC database behind DBConnection (plus the InventoryLog
+// archive, when one is installed); the in-memory store is not covered and sharded databases are refused.
+public class SalesAnalytics {
+
+    private static final int FETCH_SIZE = Integer.getInteger("inventory.analytics.fetchSize", 1000);
+
+    // Sales counters, per product and per day
+    static final int UNITS = 0;
+    static final int REVENUE_CENTS = 1;
+    static final int LINES = 2;
+    // Stock movement counters from InventoryLog, per product and per day
+    static final int UNITS_IN = 0;
+    static final int UNITS_OUT = 1;
+    // Product facts
+    static final int SUPPLIER = 0;
+    static final int STOCK = 1;
+
+    private final ForkJoinPool pool;
+    private final long partitionKeys;
+
+    public SalesAnalytics(int parallelism, long partitionKeys) {
+        if (partitionKeys <= 0) {
+            throw new IllegalArgumentException("Partition size must be positive: " + partitionKeys);
+        }
+        this.pool = new ForkJoinPool(parallelism);
+        this.partitionKeys = partitionKeys;
+    }
+
+    // -Dinventory.analytics.parallelism (default: cores, at most the pool size) and
+    // -Dinventory.analytics.partitionKeys (default 100000 IDs per task)
+    public static SalesAnalytics fromSystemProperties() {
+        int parallelism = Integer.getInteger("inventory.analytics.parallelism",
+                Math.min(Runtime.getRuntime().availableProcessors(), DBConnection.getPool().getMaxSize()));
+        return new SalesAnalytics(Math.max(1, parallelism), Long.getLong("inventory.analytics.partitionKeys", 100_000));
+    }
+
+    // ---------- Partitioned scans ----------
+
+    // Counters filled from one key range [from, to)
+    private interface RangeReader {
+        void read(Connection conn, long from, long to, Partial into) throws SQLException;
+    }
+
+    // What one task accumulated; merged pairwise as tasks join
+    static final class Partial {
+        final IntKeyedCounters byProduct;
+        final IntKeyedCounters byDay;
+        long rows;
+        int partitions;
+
+        Partial(int columns) {
+            byProduct = new IntKeyedCounters(columns, 1024);
+            byDay = new IntKeyedCounters(columns, 64);
+        }
+
+        Partial merge(Partial other) {
+            // Fold the smaller into the larger to keep the merge cost down
+            Partial big = byProduct.size() >= other.byProduct.size() ? this : other;
+            Partial small = big == this ? other : this;
+            big.byProduct.merge(small.byProduct);
+            big.byDay.merge(small.byDay);
+            big.rows += small.rows;
+            big.partitions += small.partitions;
+            return big;
+        }
+    }
+
+    private final class ScanTask extends RecursiveTask<Partial> {
+        private final RangeReader reader;
+        private final int columns;
+        private final long from;
+        private final long to;
+
+        ScanTask(RangeReader reader, int columns, long from, long to) {
+            this.reader = reader;
+            this.columns = columns;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Partial compute() {
+            if (to - from > partitionKeys) {
+                long mid = from + (to - from) / 2;
+                ScanTask right = new ScanTask(reader, columns, mid, to);
+                right.fork();
+                Partial left = new ScanTask(reader, columns, from, mid).compute();
+                return left.merge(right.join());
+            }
+            Partial partial = new Partial(columns);
+            partial.partitions = 1;
+            try (Connection conn = DBConnection.getReportConnection()) {
+                reader.read(conn, from, to, partial);
+            } catch (SQLException e) {
+                throw new IllegalStateException(e); // unwrapped in scan()
+            }
+            return partial;
+        }
+    }
+
+    private Partial scan(String boundsSql, RangeReader reader, int columns) throws SQLException {
+        long[] range = keyRange(boundsSql);
+        if (range == null) {
+            return new Partial(columns);
+        }
+        try {
+            return new ScanTask(reader, columns, range[0], range[1] + 1).invoke(); // runs inside analyze()'s pool
+        } catch (IllegalStateException e) {
+            if (e.getCause() instanceof SQLException) {
+                throw (SQLException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    // {min, max} of the key, or null for an empty table
+    private static long[] keyRange(String sql) throws SQLException {
+        try (Connection conn = DBConnection.getReportConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql);
+             ResultSet rs = stmt.executeQuery()) {
+            rs.next();
+            long min = rs.getLong(1);
+            if (rs.wasNull()) {
+                return null;
+            }
+            return new long[]{min, rs.getLong(2)};
+        }
+    }
+
+    // Prepared with an explicit result set type, which keeps it out of the pool's statement cache, so
+    // setting the fetch size here does not leak into other users of the statement
+    private static PreparedStatement rangeQuery(Connection conn, String sql, long from, long to) throws SQLException {
+        PreparedStatement stmt = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        stmt.setFetchSize(FETCH_SIZE);
+        stmt.setLong(1, from);
+        stmt.setLong(2, to);
+        return stmt;
+    }
+
+    private static void readItems(Connection conn, long from, long to, Date fromDate, Date toDate, Partial into)
+            throws SQLException {
+        try (PreparedStatement stmt = rangeQuery(conn, SqlStatements.ANALYTICS_ITEMS, from, to)) {
+            stmt.setDate(3, fromDate);
+            stmt.setDate(4, toDate);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    int productId = rs.getInt(1);
+                    int quantity = rs.getInt(2);
+                    long cents = quantity * Math.round(rs.getDouble(3) * 100);
+                    int day = (int) rs.getDate(4).toLocalDate().toEpochDay();
+                    into.byProduct.add(productId, UNITS, quantity, REVENUE_CENTS, cents);
+                    into.byProduct.add(productId, LINES, 1);
+                    into.byDay.add(day, UNITS, quantity, REVENUE_CENTS, cents);
+                    into.byDay.add(day, LINES, 1);
+                    into.rows++;
+                }
+            }
+        }
+    }
+
+    private static void readLogs(Connection conn, long from, long to, Timestamp fromTime, Timestamp toTime, Partial into)
+            throws SQLException {
+        try (PreparedStatement stmt = rangeQuery(conn, SqlStatements.ANALYTICS_LOGS, from, to)) {
+            stmt.setTimestamp(3, fromTime);
+            stmt.setTimestamp(4, toTime);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    int productId = rs.getInt(1);
+                    int change = rs.getInt(2);
+                    int day = (int) rs.getTimestamp(3).toLocalDateTime().toLocalDate().toEpochDay();
+                    int column = change >= 0 ? UNITS_IN : UNITS_OUT;
+                    into.byProduct.add(productId, column, Math.abs((long) change));
+                    into.byDay.add(day, column, Math.abs((long) change));
+                    into.rows++;
+                }
+            }
+        }
+    }
+
+    private static void readProducts(Connection conn, long from, long to, Partial into) throws SQLException {
+        try (PreparedStatement stmt = rangeQuery(conn, SqlStatements.ANALYTICS_PRODUCTS, from, to);
+             ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                int productId = rs.getInt(1);
+                into.byProduct.add(productId, SUPPLIER, rs.getInt(2), STOCK, rs.getInt(3));
+                into.rows++;
+            }
+        }
+    }
+
+    // ---------- Report ----------
+
+    // Sales of orders dated in [from, to) and stock movements logged in that window; null for unbounded.
+    // The three scans run side by side on the same pool.
+    public SalesReport analyze(LocalDate from, LocalDate to, int topN) throws SQLException {
+        DBConnection.requireUnsharded("Sales analytics");
+        long start = System.nanoTime();
+        LocalDate lo = from != null ? from : LocalDate.of(1, 1, 1);
+        LocalDate hi = to != null ? to : LocalDate.of(9999, 12, 31);
+        Date fromDate = Date.valueOf(lo);
+        Date toDate = Date.valueOf(hi);
+        Timestamp fromTime = Timestamp.valueOf(lo.atStartOfDay());
+        Timestamp toTime = Timestamp.valueOf(hi.atStartOfDay());
+
+        Partial[] results = new Partial[3];
+        SQLException[] failure = new SQLException[1];
+        RecursiveTask<Void> all = new RecursiveTask<>() {
+            @Override
+            protected Void compute() {
+                invokeAll(
+                        task(0, SqlStatements.ANALYTICS_ITEM_BOUNDS, (c, f, t, p) -> readItems(c, f, t, fromDate, toDate, p), 3),
+                        task(1, SqlStatements.ANALYTICS_LOG_BOUNDS, (c, f, t, p) -> readLogs(c, f, t, fromTime, toTime, p), 2),
+                        task(2, SqlStatements.ANALYTICS_PRODUCT_BOUNDS, SalesAnalytics::readProducts, 2));
+                return null;
+            }
+
+            private RecursiveTask<Void> task(int index, String bounds, RangeReader reader, int columns) {
+                return new RecursiveTask<>() {
+                    @Override
+                    protected Void compute() {
+                        try {
+                            results[index] = scan(bounds, reader, columns);
+                        } catch (SQLException e) {
+                            failure[0] = e;
+                        }
+                        return null;
+                    }
+                };
+            }
+        };
+        // Rows archived out of InventoryLog count too. The read lock keeps an archive run from moving
+        // rows between the table scan and the archive scan; only this thread takes it.
+        ArchivedLogRepositories archived = ArchivedLogRepositories.getInstalled();
+        Lock lock = archived != null ? archived.getArchive().readLock() : null;
+        if (lock != null) {
+            lock.lock();
+        }
+        try {
+            pool.invoke(all);
+            if (failure[0] != null) {
+                throw failure[0];
+            }
+            if (archived != null) {
+                Partial logs = results[1];
+                archived.getArchive().forEachRow(fromTime.getTime(), toTime.getTime(), (productId, change, millis) -> {
+                    int day = (int) new Timestamp(millis).toLocalDateTime().toLocalDate().toEpochDay();
+                    int column = change >= 0 ? UNITS_IN : UNITS_OUT;
+                    logs.byProduct.add(productId, column, Math.abs((long) change));
+                    logs.byDay.add(day, column, Math.abs((long) change));
+                    logs.rows++;
+                });
+            }
+        } catch (IOException e) {
+            throw new SQLException("Cannot read the inventory log archive: " + e.getMessage(), e);
+        } finally {
+            if (lock != null) {
+                lock.unlock();
+            }
+        }
+
+        Partial items = results[0];
+        Partial logs = results[1];
+        Partial products = results[2];
+        return new SalesReport(lo, hi, items.byProduct, items.byDay, logs.byProduct, logs.byDay, products.byProduct,
+                topN, items.rows + logs.rows + products.rows, items.partitions + logs.partitions + products.partitions,
+                pool.getParallelism(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    // CLI entry from the main menu
+    public static void runReport() {
+        System.out.println("\n==== Sales Analytics ====");
+        Scanner sc = new Scanner(System.in);
+        SalesAnalytics analytics = fromSystemProperties();
+        try {
+            LocalDate from = promptDate(sc, "From date (yyyy-mm-dd, empty for all)");
+            LocalDate to = promptDate(sc, "To date, exclusive (yyyy-mm-dd, empty for all)");
+            analytics.analyze(from, to, Integer.getInteger("inventory.analytics.top", 10)).print();
+        } catch (SQLException e) {
+            System.err.println("Analytics failed: " + e.getMessage());
+        } finally {
+            analytics.shutdown();
+        }
+    }
+
+    private static LocalDate promptDate(Scanner sc, String label) {
+        while (true) {
+            System.out.print(label + ": ");
+            String line = sc.nextLine().trim();
+            if (line.isEmpty()) {
+                return null;
+            }
+            try {
+                return LocalDate.parse(line);
+            } catch (RuntimeException e) {
+                System.out.println("Please enter a date like 2026-01-31.");
+            }
+        }
+    }
+
+    public static void main(String[] args) {
+        SalesAnalytics analytics = fromSystemProperties();
+        try {
+            LocalDate from = args.length > 0 ? LocalDate.parse(args[0]) : null;
+            LocalDate to = args.length > 1 ? LocalDate.parse(args[1]) : null;
+            analytics.analyze(from, to, Integer.getInteger("inventory.analytics.top", 10)).print();
+        } catch (SQLException e) {
+            e.printStackTrace();
+        } finally {
+            analytics.shutdown();
+            DBConnection.shutdown();
+        }
+    }
+}
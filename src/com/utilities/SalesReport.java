@@ -0,0 +1,324 @@
+package com.utilities;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// Result of SalesAnalytics.analyze: totals, best sellers, slowest movers and per day / per supplier rows.
+// Money is kept in cents as summed; the getters convert.
+public class SalesReport {
+
+    // Sales of one product in the window, with its sell-through: sold / (sold + on hand now)
+    public static class ProductSales {
+        private final int productId;
+        private final int supplierId;
+        private final long units;
+        private final long revenueCents;
+        private final long onHand;
+
+        ProductSales(int productId, int supplierId, long units, long revenueCents, long onHand) {
+            this.productId = productId;
+            this.supplierId = supplierId;
+            this.units = units;
+            this.revenueCents = revenueCents;
+            this.onHand = onHand;
+        }
+
+        public int getProductId() {
+            return productId;
+        }
+
+        public int getSupplierId() {
+            return supplierId;
+        }
+
+        public long getUnits() {
+            return units;
+        }
+
+        public double getRevenue() {
+            return revenueCents / 100.0;
+        }
+
+        public long getOnHand() {
+            return onHand;
+        }
+
+        public double getSellThrough() {
+            return units + onHand == 0 ? 0 : (double) units / (units + Math.max(0, onHand));
+        }
+    }
+
+    public static class DaySales {
+        private final LocalDate day;
+        private final long units;
+        private final long revenueCents;
+        private final long orderLines;
+        private final long unitsIn;
+        private final long unitsOut;
+
+        DaySales(LocalDate day, long units, long revenueCents, long orderLines, long unitsIn, long unitsOut) {
+            this.day = day;
+            this.units = units;
+            this.revenueCents = revenueCents;
+            this.orderLines = orderLines;
+            this.unitsIn = unitsIn;
+            this.unitsOut = unitsOut;
+        }
+
+        public LocalDate getDay() {
+            return day;
+        }
+
+        public long getUnits() {
+            return units;
+        }
+
+        public double getRevenue() {
+            return revenueCents / 100.0;
+        }
+
+        public long getOrderLines() {
+            return orderLines;
+        }
+
+        public long getUnitsIn() {
+            return unitsIn;
+        }
+
+        public long getUnitsOut() {
+            return unitsOut;
+        }
+    }
+
+    public static class SupplierSales {
+        private final int supplierId;
+        private final long units;
+        private final long revenueCents;
+
+        SupplierSales(int supplierId, long units, long revenueCents) {
+            this.supplierId = supplierId;
+            this.units = units;
+            this.revenueCents = revenueCents;
+        }
+
+        public int getSupplierId() {
+            return supplierId;
+        }
+
+        public long getUnits() {
+            return units;
+        }
+
+        public double getRevenue() {
+            return revenueCents / 100.0;
+        }
+    }
+
+    private static final int NO_SUPPLIER = 0;
+
+    private final LocalDate from;
+    private final LocalDate to;
+    private final long units;
+    private final long revenueCents;
+    private final long orderLines;
+    private final List<ProductSales> topProducts;
+    private final List<ProductSales> slowestProducts;
+    private final List<DaySales> days = new ArrayList<>();
+    private final List<SupplierSales> suppliers = new ArrayList<>();
+    private final long rowsScanned;
+    private final int partitions;
+    private final int parallelism;
+    private final long elapsedMillis;
+
+    SalesReport(LocalDate from, LocalDate to, IntKeyedCounters salesByProduct, IntKeyedCounters salesByDay,
+                IntKeyedCounters movesByProduct, IntKeyedCounters movesByDay, IntKeyedCounters products, int topN,
+                long rowsScanned, int partitions, int parallelism, long elapsedMillis) {
+        this.from = from;
+        this.to = to;
+        this.rowsScanned = rowsScanned;
+        this.partitions = partitions;
+        this.parallelism = parallelism;
+        this.elapsedMillis = elapsedMillis;
+
+        long[] totals = new long[3];
+        IntKeyedCounters bySupplier = new IntKeyedCounters(2, 64);
+        salesByProduct.forEach(productId -> {
+            long u = salesByProduct.get(productId, SalesAnalytics.UNITS);
+            long cents = salesByProduct.get(productId, SalesAnalytics.REVENUE_CENTS);
+            totals[0] += u;
+            totals[1] += cents;
+            totals[2] += salesByProduct.get(productId, SalesAnalytics.LINES);
+            bySupplier.add((int) products.get(productId, SalesAnalytics.SUPPLIER), 0, u, 1, cents);
+        });
+        units = totals[0];
+        revenueCents = totals[1];
+        orderLines = totals[2];
+
+        topProducts = top(salesByProduct, products, topN, salesByProduct.sortedKeys(), true);
+        // Slowest movers: every product, sold or not, ranked by sell-through
+        slowestProducts = top(salesByProduct, products, topN, products.sortedKeys(), false);
+
+        IntKeyedCounters allDays = new IntKeyedCounters(1, salesByDay.size() + movesByDay.size());
+        salesByDay.forEach(day -> allDays.add(day, 0, 0));
+        movesByDay.forEach(day -> allDays.add(day, 0, 0));
+        for (int day : allDays.sortedKeys()) {
+            days.add(new DaySales(LocalDate.ofEpochDay(day),
+                    salesByDay.get(day, SalesAnalytics.UNITS), salesByDay.get(day, SalesAnalytics.REVENUE_CENTS),
+                    salesByDay.get(day, SalesAnalytics.LINES),
+                    movesByDay.get(day, SalesAnalytics.UNITS_IN), movesByDay.get(day, SalesAnalytics.UNITS_OUT)));
+        }
+        for (int supplierId : bySupplier.sortedKeys()) {
+            suppliers.add(new SupplierSales(supplierId, bySupplier.get(supplierId, 0), bySupplier.get(supplierId, 1)));
+        }
+        suppliers.sort((a, b) -> Long.compare(b.revenueCents, a.revenueCents));
+    }
+
+    // The n best (by revenue) or slowest (by sell-through) products of candidates, with a bounded heap of
+    // indexes into candidates whose root is the weakest entry kept so far
+    private static List<ProductSales> top(IntKeyedCounters sales, IntKeyedCounters products, int n, int[] candidates,
+                                          boolean bestSellers) {
+        ProductSales[] all = new ProductSales[candidates.length];
+        for (int i = 0; i < candidates.length; i++) {
+            int id = candidates[i];
+            all[i] = new ProductSales(id, (int) products.get(id, SalesAnalytics.SUPPLIER),
+                    sales.get(id, SalesAnalytics.UNITS), sales.get(id, SalesAnalytics.REVENUE_CENTS),
+                    products.contains(id) ? products.get(id, SalesAnalytics.STOCK) : 0);
+        }
+        int[] heap = new int[Math.min(Math.max(n, 0), all.length)];
+        int size = 0;
+        for (int i = 0; i < all.length && heap.length > 0; i++) {
+            if (size < heap.length) {
+                heap[size] = i;
+                siftUp(heap, size++, all, bestSellers);
+            } else if (ahead(all[i], all[heap[0]], bestSellers)) {
+                heap[0] = i;
+                siftDown(heap, size, all, bestSellers);
+            }
+        }
+        List<ProductSales> result = new ArrayList<>(size);
+        while (size > 0) {
+            result.add(all[heap[0]]);
+            heap[0] = heap[--size];
+            siftDown(heap, size, all, bestSellers);
+        }
+        Collections.reverse(result);
+        return result;
+    }
+
+    // True if a ranks before b; ties go to the lower product ID so the result does not depend on order
+    private static boolean ahead(ProductSales a, ProductSales b, boolean bestSellers) {
+        int c = bestSellers
+                ? Long.compare(a.revenueCents, b.revenueCents)
+                : Double.compare(b.getSellThrough(), a.getSellThrough());
+        return c != 0 ? c > 0 : a.productId < b.productId;
+    }
+
+    private static void siftUp(int[] heap, int i, ProductSales[] all, boolean bestSellers) {
+        while (i > 0) {
+            int parent = (i - 1) / 2;
+            if (!ahead(all[heap[parent]], all[heap[i]], bestSellers)) {
+                break;
+            }
+            swap(heap, i, parent);
+            i = parent;
+        }
+    }
+
+    private static void siftDown(int[] heap, int size, ProductSales[] all, boolean bestSellers) {
+        int i = 0;
+        while (true) {
+            int weakest = i;
+            for (int child = 2 * i + 1; child <= 2 * i + 2 && child < size; child++) {
+                if (ahead(all[heap[weakest]], all[heap[child]], bestSellers)) {
+                    weakest = child;
+                }
+            }
+            if (weakest == i) {
+                return;
+            }
+            swap(heap, i, weakest);
+            i = weakest;
+        }
+    }
+
+    private static void swap(int[] heap, int i, int j) {
+        int t = heap[i];
+        heap[i] = heap[j];
+        heap[j] = t;
+    }
+
+    public long getUnits() {
+        return units;
+    }
+
+    public double getRevenue() {
+        return revenueCents / 100.0;
+    }
+
+    public long getOrderLines() {
+        return orderLines;
+    }
+
+    public List<ProductSales> getTopProducts() {
+        return topProducts;
+    }
+
+    public List<ProductSales> getSlowestProducts() {
+        return slowestProducts;
+    }
+
+    public List<DaySales> getDays() {
+        return days;
+    }
+
+    public List<SupplierSales> getSuppliers() {
+        return suppliers;
+    }
+
+    public long getRowsScanned() {
+        return rowsScanned;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    public void print() {
+        String window = (from.getYear() <= 1 ? "start" : from.toString()) + " .. " + (to.getYear() >= 9999 ? "now" : to.toString());
+        System.out.println("\n---- Sales " + window + " ----");
+        System.out.printf("Revenue: %.2f | Units: %d | Order lines: %d%n", getRevenue(), units, orderLines);
+
+        System.out.println("\nTop products by revenue:");
+        for (ProductSales p : topProducts) {
+            System.out.printf("  Product %-6d Supplier %-5s Units %-8d Revenue %-12.2f Sell-through %.1f%%%n",
+                    p.productId, supplierLabel(p.supplierId), p.units, p.getRevenue(), p.getSellThrough() * 100);
+        }
+        System.out.println("\nSlowest movers (lowest sell-through):");
+        for (ProductSales p : slowestProducts) {
+            System.out.printf("  Product %-6d Supplier %-5s Sold %-8d On hand %-8d Sell-through %.1f%%%n",
+                    p.productId, supplierLabel(p.supplierId), p.units, p.onHand, p.getSellThrough() * 100);
+        }
+        System.out.println("\nRevenue by supplier:");
+        for (SupplierSales s : suppliers) {
+            System.out.printf("  Supplier %-5s Units %-8d Revenue %.2f%n", supplierLabel(s.supplierId), s.units, s.getRevenue());
+        }
+        System.out.println("\nPer day:");
+        for (DaySales d : days) {
+            System.out.printf("  %s Units %-8d Revenue %-12.2f Lines %-6d Stock in %-8d Stock out %d%n",
+                    d.day, d.units, d.getRevenue(), d.orderLines, d.unitsIn, d.unitsOut);
+        }
+        System.out.println("\n" + this);
+    }
+
+    private static String supplierLabel(int supplierId) {
+        return supplierId == NO_SUPPLIER ? "-" : String.valueOf(supplierId);
+    }
+
+    @Override
+    public String toString() {
+        return "SalesReport{rows=" + rowsScanned + ", partitions=" + partitions + ", parallelism=" + parallelism +
+                ", elapsed=" + elapsedMillis + "ms}";
+    }
+}
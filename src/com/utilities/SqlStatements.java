@@ -0,0 +1,206 @@
+package com.utilities;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+// Every SQL statement the domain classes run, in one place. The connection pool caches prepared
+// statements for exactly these strings (see ConnectionPool.setCacheableStatements), so each one
+// is parsed once per physical connection and reused after that.
+//
+// Statements with optional filters have one constant per variant rather than being assembled
+// at call time, so every variant is a fixed string that can be cached.
+public final class SqlStatements {
+
+    private SqlStatements() {
+    }
+
+    // ---------- Product ----------
+
+    public static final String PRODUCT_INSERT =
+            "INSERT INTO Product (name, description, price, stock_quantity, supplier_id) VALUES (?, ?, ?, ?, ?)";
+    public static final String PRODUCT_LIST =
+            "SELECT product_id, name, description, price, stock_quantity, supplier_id FROM Product " +
+                    "WHERE product_id > ? ORDER BY product_id LIMIT ?";
+    public static final String PRODUCT_LIST_BY_NAME =
+            "SELECT product_id, name, description, price, stock_quantity, supplier_id FROM Product " +
+                    "WHERE product_id > ? AND name LIKE ? ORDER BY product_id LIMIT ?";
+    public static final String PRODUCT_BY_ID = "SELECT * FROM Product WHERE product_id = ?";
+    public static final String PRODUCT_UPDATE_PRICE = "UPDATE Product SET price = ? WHERE product_id = ?";
+    public static final String PRODUCT_DELETE = "DELETE FROM Product WHERE product_id = ?";
+    public static final String PRODUCT_STOCK = "SELECT stock_quantity FROM Product WHERE product_id = ?";
+    public static final String PRODUCT_SET_STOCK = "UPDATE Product SET stock_quantity = ? WHERE product_id = ?";
+    // Guarded decrement: only changes the row when enough stock is left
+    public static final String PRODUCT_DECREMENT_STOCK =
+            "UPDATE Product SET stock_quantity = stock_quantity - ? WHERE product_id = ? AND stock_quantity >= ?";
+    // The same decrement handing back the new stock: on MySQL through LAST_INSERT_ID (read with
+    // getGeneratedKeys, no extra round trip), on H2 as the updated row
+    public static final String PRODUCT_DECREMENT_STOCK_MYSQL =
+            "UPDATE Product SET stock_quantity = LAST_INSERT_ID(stock_quantity - ?) WHERE product_id = ? AND stock_quantity >= ?";
+    public static final String PRODUCT_DECREMENT_STOCK_H2 =
+            "SELECT stock_quantity FROM FINAL TABLE (" + PRODUCT_DECREMENT_STOCK + ")";
+    // Inserts the product with its own ID, or only resets the stock of an existing row
+    public static final String PRODUCT_UPSERT_STOCK =
+            "INSERT INTO Product (product_id, name, description, price, stock_quantity, supplier_id) " +
+                    "VALUES (?, ?, ?, ?, ?, ?) ON DUPLICATE KEY UPDATE stock_quantity = VALUES(stock_quantity)";
+    public static final String PRODUCT_LOW_STOCK = "SELECT * FROM Product WHERE stock_quantity < ?";
+
+    // ---------- Orders ----------
+
+    public static final String ORDER_INSERT = "INSERT INTO Orders (order_date, customer_name, status) VALUES (?, ?, ?)";
+    public static final String ORDER_LIST =
+            "SELECT order_id, order_date, customer_name, status FROM Orders WHERE order_id > ? ORDER BY order_id LIMIT ?";
+    public static final String ORDER_LIST_BY_STATUS =
+            "SELECT order_id, order_date, customer_name, status FROM Orders WHERE order_id > ? AND status = ? " +
+                    "ORDER BY order_id LIMIT ?";
+    // One customer's history, newest first, orders and lines in one round trip: the derived table picks
+    // the page of orders from the (customer_name, order_date, order_id) index, the join adds their lines
+    // through the OrderItem (order_id) index. The "BEFORE" variant continues after the
+    // (order_date, order_id) of the previous page.
+    public static final String ORDER_HISTORY =
+            "SELECT o.order_id, o.order_date, o.customer_name, o.status, " +
+                    "i.order_item_id, i.product_id, i.quantity, i.unit_price FROM " +
+                    "(SELECT order_id, order_date, customer_name, status FROM Orders WHERE customer_name = ? " +
+                    "ORDER BY order_date DESC, order_id DESC LIMIT ?) o " +
+                    "LEFT JOIN OrderItem i ON i.order_id = o.order_id " +
+                    "ORDER BY o.order_date DESC, o.order_id DESC, i.order_item_id";
+    public static final String ORDER_HISTORY_BEFORE =
+            "SELECT o.order_id, o.order_date, o.customer_name, o.status, " +
+                    "i.order_item_id, i.product_id, i.quantity, i.unit_price FROM " +
+                    "(SELECT order_id, order_date, customer_name, status FROM Orders WHERE customer_name = ? " +
+                    "AND (order_date < ? OR (order_date = ? AND order_id < ?)) " +
+                    "ORDER BY order_date DESC, order_id DESC LIMIT ?) o " +
+                    "LEFT JOIN OrderItem i ON i.order_id = o.order_id " +
+                    "ORDER BY o.order_date DESC, o.order_id DESC, i.order_item_id";
+    // Headers only, for sharded databases where the lines live on other shards
+    public static final String ORDER_HISTORY_HEADERS =
+            "SELECT order_id, order_date, customer_name, status FROM Orders WHERE customer_name = ? " +
+                    "ORDER BY order_date DESC, order_id DESC LIMIT ?";
+    public static final String ORDER_HISTORY_HEADERS_BEFORE =
+            "SELECT order_id, order_date, customer_name, status FROM Orders WHERE customer_name = ? " +
+                    "AND (order_date < ? OR (order_date = ? AND order_id < ?)) " +
+                    "ORDER BY order_date DESC, order_id DESC LIMIT ?";
+    public static final String ORDER_EXISTS = "SELECT order_id FROM Orders WHERE order_id = ?";
+    public static final String ORDER_UPDATE_STATUS = "UPDATE Orders SET status = ? WHERE order_id = ?";
+    public static final String ORDER_DELETE = "DELETE FROM Orders WHERE order_id = ?";
+
+    // ---------- OrderItem ----------
+
+    public static final String ORDER_ITEM_INSERT =
+            "INSERT INTO OrderItem (order_id, product_id, quantity, unit_price) VALUES (?, ?, ?, ?)";
+    public static final String ORDER_ITEM_LIST =
+            "SELECT order_item_id, order_id, product_id, quantity, unit_price FROM OrderItem " +
+                    "WHERE order_item_id > ? ORDER BY order_item_id LIMIT ?";
+    public static final String ORDER_ITEM_LIST_BY_ORDER =
+            "SELECT order_item_id, order_id, product_id, quantity, unit_price FROM OrderItem " +
+                    "WHERE order_item_id > ? AND order_id = ? ORDER BY order_item_id LIMIT ?";
+    public static final String ORDER_ITEM_DELETE = "DELETE FROM OrderItem WHERE order_item_id = ?";
+
+    // ---------- Supplier ----------
+
+    public static final String SUPPLIER_INSERT = "INSERT INTO Supplier (name, contact_email, phone) VALUES (?, ?, ?)";
+    public static final String SUPPLIER_LIST =
+            "SELECT supplier_id, name, contact_email, phone FROM Supplier WHERE supplier_id > ? " +
+                    "ORDER BY supplier_id LIMIT ?";
+    public static final String SUPPLIER_LIST_BY_NAME =
+            "SELECT supplier_id, name, contact_email, phone FROM Supplier WHERE supplier_id > ? AND name LIKE ? " +
+                    "ORDER BY supplier_id LIMIT ?";
+    public static final String SUPPLIER_UPDATE_NAME = "UPDATE Supplier SET name = ? WHERE supplier_id = ?";
+    public static final String SUPPLIER_DELETE = "DELETE FROM Supplier WHERE supplier_id = ?";
+
+    // ---------- InventoryLog ----------
+
+    public static final String INVENTORY_LOG_INSERT =
+            "INSERT INTO InventoryLog (product_id, change_quantity, action) VALUES (?, ?, ?)";
+    // Newest first; the "BEFORE" variants continue after the (timestamp, log_id) of the previous page
+    public static final String INVENTORY_LOG_LIST =
+            "SELECT log_id, product_id, change_quantity, action, timestamp FROM InventoryLog " +
+                    "ORDER BY timestamp DESC, log_id DESC LIMIT ?";
+    public static final String INVENTORY_LOG_LIST_BEFORE =
+            "SELECT log_id, product_id, change_quantity, action, timestamp FROM InventoryLog " +
+                    "WHERE (timestamp < ? OR (timestamp = ? AND log_id < ?)) " +
+                    "ORDER BY timestamp DESC, log_id DESC LIMIT ?";
+    public static final String INVENTORY_LOG_LIST_BY_PRODUCT =
+            "SELECT log_id, product_id, change_quantity, action, timestamp FROM InventoryLog " +
+                    "WHERE product_id = ? ORDER BY timestamp DESC, log_id DESC LIMIT ?";
+    public static final String INVENTORY_LOG_LIST_BY_PRODUCT_BEFORE =
+            "SELECT log_id, product_id, change_quantity, action, timestamp FROM InventoryLog " +
+                    "WHERE product_id = ? AND (timestamp < ? OR (timestamp = ? AND log_id < ?)) " +
+                    "ORDER BY timestamp DESC, log_id DESC LIMIT ?";
+    public static final String INVENTORY_LOG_MAX_ID = "SELECT COALESCE(MAX(log_id), 0) FROM InventoryLog";
+    public static final String INVENTORY_LOG_NET_CHANGES =
+            "SELECT product_id, SUM(change_quantity) AS net FROM InventoryLog " +
+                    "WHERE log_id > ? AND product_id BETWEEN ? AND ? GROUP BY product_id";
+    public static final String INVENTORY_LOG_EXPORT =
+            "SELECT log_id, product_id, change_quantity, action, timestamp FROM InventoryLog";
+    // Archival (LogArchive): rows older than a cutoff, limited to log IDs below a bound
+    public static final String INVENTORY_LOG_OLDEST_BEFORE =
+            "SELECT MIN(timestamp) FROM InventoryLog WHERE timestamp < ? AND log_id < ?";
+    public static final String INVENTORY_LOG_ARCHIVE_ROWS =
+            "SELECT log_id, product_id, change_quantity, action, timestamp FROM InventoryLog " +
+                    "WHERE timestamp >= ? AND timestamp < ? AND log_id < ?";
+    public static final String INVENTORY_LOG_ARCHIVE_DELETE =
+            "DELETE FROM InventoryLog WHERE timestamp >= ? AND timestamp < ? AND log_id < ?";
+    public static final String INVENTORY_LOG_ANY_IN_RANGE =
+            "SELECT 1 FROM InventoryLog WHERE timestamp >= ? AND timestamp < ? AND log_id < ? LIMIT 1";
+
+    // ---------- Sales analytics ----------
+
+    // Key bounds of each scanned table, then one range of keys at a time
+    public static final String ANALYTICS_ITEM_BOUNDS = "SELECT MIN(order_item_id), MAX(order_item_id) FROM OrderItem";
+    public static final String ANALYTICS_ITEMS =
+            "SELECT i.product_id, i.quantity, i.unit_price, o.order_date FROM OrderItem i " +
+                    "JOIN Orders o ON o.order_id = i.order_id " +
+                    "WHERE i.order_item_id >= ? AND i.order_item_id < ? AND o.order_date >= ? AND o.order_date < ?";
+    public static final String ANALYTICS_LOG_BOUNDS = "SELECT MIN(log_id), MAX(log_id) FROM InventoryLog";
+    public static final String ANALYTICS_LOGS =
+            "SELECT product_id, change_quantity, timestamp FROM InventoryLog " +
+                    "WHERE log_id >= ? AND log_id < ? AND timestamp >= ? AND timestamp < ?";
+    public static final String ANALYTICS_PRODUCT_BOUNDS = "SELECT MIN(product_id), MAX(product_id) FROM Product";
+    public static final String ANALYTICS_PRODUCTS =
+            "SELECT product_id, supplier_id, stock_quantity FROM Product WHERE product_id >= ? AND product_id < ?";
+
+    // ---------- Replica heartbeat ----------
+
+    public static final String REPLICA_HEARTBEAT_READ = "SELECT beat_millis FROM ReplicaHeartbeat WHERE id = 1";
+    public static final String REPLICA_HEARTBEAT_UPDATE = "UPDATE ReplicaHeartbeat SET beat_millis = ? WHERE id = 1";
+    public static final String REPLICA_HEARTBEAT_INSERT = "INSERT INTO ReplicaHeartbeat (id, beat_millis) VALUES (1, ?)";
+    public static final String REPLICA_HEARTBEAT_CREATE =
+            "CREATE TABLE IF NOT EXISTS ReplicaHeartbeat (id INT PRIMARY KEY, beat_millis BIGINT NOT NULL)";
+
+    // ---------- Registry ----------
+
+    private static final Map<String, String> NAMES_BY_SQL = collect();
+
+    private static Map<String, String> collect() {
+        Map<String, String> names = new HashMap<>();
+        for (Field f : SqlStatements.class.getDeclaredFields()) {
+            int mod = f.getModifiers();
+            if (f.getType() == String.class && Modifier.isPublic(mod) && Modifier.isStatic(mod) && Modifier.isFinal(mod)) {
+                try {
+                    names.put((String) f.get(null), f.getName());
+                } catch (IllegalAccessException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        }
+        return Collections.unmodifiableMap(names);
+    }
+
+    // Every registered SQL string
+    public static Set<String> all() {
+        return NAMES_BY_SQL.keySet();
+    }
+
+    public static boolean isRegistered(String sql) {
+        return NAMES_BY_SQL.containsKey(sql);
+    }
+
+    // Constant name for a registered statement (e.g. "PRODUCT_BY_ID"), or null
+    public static String nameOf(String sql) {
+        return NAMES_BY_SQL.get(sql);
+    }
+}
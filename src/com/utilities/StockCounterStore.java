@@ -0,0 +1,336 @@
+package com.utilities;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+
+// Stock per product ID in two parallel int arrays (open addressing, linear probing): 8 bytes per slot
+// and no object per product, where a ConcurrentHashMap<Integer, AtomicInteger> costs roughly 80 and a
+// Product row several hundred. 10M products fit in a 16M-slot table, 128 MB.
+//
+// Reads and stock changes of existing products are lock-free CASes on the value array and never
+// allocate. Inserts, removes and growing the table take the store's lock. To grow, the lock holder
+// freezes each value with a CAS to MOVED while copying it, so a concurrent update either lands
+// before the copy or waits for the new table; no update is lost.
+//
+// Product ID 0 marks an empty slot and cannot be stored. Removed products leave their key behind
+// (the value goes back to MISSING) until the next resize.
+public class StockCounterStore {
+
+    // Returned for products that are not in the store
+    public static final int MISSING = Integer.MIN_VALUE;
+    // Returned by decrement when fewer units are left; same value as ProductRepository.OUT_OF_STOCK
+    public static final int OUT_OF_STOCK = -1;
+
+    private static final int MOVED = Integer.MIN_VALUE + 1; // value slot copied to a newer table
+    private static final VarHandle INTS = MethodHandles.arrayElementVarHandle(int[].class);
+
+    private static final class Table {
+        final int[] keys;
+        final int[] values;
+        final int mask;
+
+        Table(int capacity) {
+            keys = new int[capacity];
+            values = new int[capacity];
+            Arrays.fill(values, MISSING);
+            mask = capacity - 1;
+        }
+    }
+
+    // Visits one product; see forEach
+    public interface Visitor {
+        void visit(int productId, int stock);
+    }
+
+    private volatile Table table;
+    private int used; // key slots taken, including removed products; guarded by this
+    private int size; // guarded by this
+
+    public StockCounterStore(int expectedProducts) {
+        if (expectedProducts < 0) {
+            throw new IllegalArgumentException("Expected product count must not be negative: " + expectedProducts);
+        }
+        table = new Table(capacityFor(expectedProducts));
+    }
+
+    // Smallest power of two that keeps the table at most 3/4 full
+    private static int capacityFor(long products) {
+        long slots = Math.max(16, products + products / 3 + 1);
+        if (slots > 1 << 30) {
+            throw new IllegalArgumentException("Too many products for one store: " + products);
+        }
+        return Integer.highestOneBit((int) slots - 1) << 1;
+    }
+
+    private static int slotOf(int productId, int mask) {
+        int h = productId * 0x9E3779B9; // spread sequential IDs
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    // Index of productId's key slot in t, or -1
+    private static int find(Table t, int productId) {
+        int i = slotOf(productId, t.mask);
+        while (true) {
+            int key = (int) INTS.getAcquire(t.keys, i);
+            if (key == productId) {
+                return i;
+            }
+            if (key == 0) {
+                return -1;
+            }
+            i = (i + 1) & t.mask;
+        }
+    }
+
+    private static void checkId(int productId) {
+        if (productId == 0) {
+            throw new IllegalArgumentException("Product ID 0 cannot be stored");
+        }
+    }
+
+    private static void checkStock(int stock) {
+        if (stock == MISSING || stock == MOVED) {
+            throw new IllegalArgumentException("Stock out of range: " + stock);
+        }
+    }
+
+    // ---------- Lock-free operations ----------
+
+    // Current stock, or MISSING
+    public int get(int productId) {
+        while (true) {
+            Table t = table;
+            int i = find(t, productId);
+            if (i < 0) {
+                return MISSING;
+            }
+            int v = (int) INTS.getVolatile(t.values, i);
+            if (v != MOVED) {
+                return v;
+            }
+            awaitResize(t);
+        }
+    }
+
+    // Take quantity units if at least that many are left. Returns the new stock, OUT_OF_STOCK or MISSING.
+    public int decrement(int productId, int quantity) {
+        if (quantity <= 0) {
+            throw new IllegalArgumentException("Quantity must be greater than 0: " + quantity);
+        }
+        while (true) {
+            Table t = table;
+            int i = find(t, productId);
+            if (i < 0) {
+                return MISSING;
+            }
+            int v = (int) INTS.getVolatile(t.values, i);
+            if (v == MOVED) {
+                awaitResize(t);
+            } else if (v == MISSING) {
+                return MISSING;
+            } else if (v < quantity) {
+                return OUT_OF_STOCK;
+            } else if (INTS.compareAndSet(t.values, i, v, v - quantity)) {
+                return v - quantity;
+            }
+        }
+    }
+
+    // Add delta (either sign) without a floor. Returns the new stock or MISSING.
+    public int add(int productId, int delta) {
+        while (true) {
+            Table t = table;
+            int i = find(t, productId);
+            if (i < 0) {
+                return MISSING;
+            }
+            int v = (int) INTS.getVolatile(t.values, i);
+            if (v == MOVED) {
+                awaitResize(t);
+                continue;
+            }
+            if (v == MISSING) {
+                return MISSING;
+            }
+            int updated = v + delta;
+            checkStock(updated);
+            if (INTS.compareAndSet(t.values, i, v, updated)) {
+                return updated;
+            }
+        }
+    }
+
+    // Overwrite the stock of a stored product. Returns the old stock, or MISSING (and stores nothing).
+    public int replace(int productId, int stock) {
+        checkStock(stock);
+        while (true) {
+            Table t = table;
+            int i = find(t, productId);
+            if (i < 0) {
+                return MISSING;
+            }
+            int v = (int) INTS.getVolatile(t.values, i);
+            if (v == MOVED) {
+                awaitResize(t);
+                continue;
+            }
+            if (v == MISSING) {
+                return MISSING;
+            }
+            if (INTS.compareAndSet(t.values, i, v, stock)) {
+                return v;
+            }
+        }
+    }
+
+    // A resize in progress publishes the new table when it is done
+    private void awaitResize(Table old) {
+        while (table == old) {
+            Thread.onSpinWait();
+        }
+    }
+
+    // ---------- Locked operations ----------
+
+    // Insert or overwrite; returns the old stock or MISSING
+    public int put(int productId, int stock) {
+        checkId(productId);
+        checkStock(stock);
+        int old = replace(productId, stock);
+        if (old != MISSING) {
+            return old;
+        }
+        synchronized (this) {
+            old = replace(productId, stock); // it may have been inserted while we waited
+            if (old == MISSING) {
+                insertLocked(productId, stock);
+            }
+            return old;
+        }
+    }
+
+    // Insert unless present; returns the stock now stored (the existing value if there was one)
+    public int putIfAbsent(int productId, int stock) {
+        checkId(productId);
+        checkStock(stock);
+        int current = get(productId);
+        if (current != MISSING) {
+            return current;
+        }
+        synchronized (this) {
+            current = get(productId);
+            if (current != MISSING) {
+                return current;
+            }
+            insertLocked(productId, stock);
+            return stock;
+        }
+    }
+
+    // Returns the removed product's stock, or MISSING
+    public synchronized int remove(int productId) {
+        Table t = table; // stable: only resizes replace it, and they hold this lock
+        int i = find(t, productId);
+        if (i < 0) {
+            return MISSING;
+        }
+        int old = (int) INTS.getAndSet(t.values, i, MISSING);
+        if (old != MISSING) {
+            size--;
+        }
+        return old;
+    }
+
+    private void insertLocked(int productId, int stock) {
+        Table t = table;
+        int i = find(t, productId);
+        if (i >= 0) { // removed earlier: reuse its slot
+            INTS.setVolatile(t.values, i, stock);
+            size++;
+            return;
+        }
+        if (used + 1 > t.keys.length - t.keys.length / 4) {
+            t = resizeLocked(capacityFor(size + 1L) > t.keys.length ? t.keys.length << 1 : t.keys.length);
+        }
+        i = slotOf(productId, t.mask);
+        while (t.keys[i] != 0) {
+            i = (i + 1) & t.mask;
+        }
+        INTS.setVolatile(t.values, i, stock);
+        INTS.setRelease(t.keys, i, productId); // readers that see the key see the value
+        used++;
+        size++;
+    }
+
+    // Copy live products into a fresh table (bigger, or the same size to drop removed keys)
+    private Table resizeLocked(int capacity) {
+        Table old = table;
+        Table fresh = new Table(capacity);
+        int live = 0;
+        for (int i = 0; i < old.keys.length; i++) {
+            int key = old.keys[i];
+            if (key == 0) {
+                continue;
+            }
+            int v = (int) INTS.getAndSet(old.values, i, MOVED); // later updates wait for the new table
+            if (v == MISSING) {
+                continue;
+            }
+            int j = slotOf(key, fresh.mask);
+            while (fresh.keys[j] != 0) {
+                j = (j + 1) & fresh.mask;
+            }
+            fresh.keys[j] = key;
+            fresh.values[j] = v;
+            live++;
+        }
+        used = live;
+        table = fresh; // volatile write publishes the plain writes above
+        return fresh;
+    }
+
+    // Visit every product. Not atomic: concurrent changes may or may not be seen.
+    public void forEach(Visitor visitor) {
+        Table t = table;
+        for (int i = 0; i < t.keys.length; i++) {
+            int key = (int) INTS.getAcquire(t.keys, i);
+            if (key == 0) {
+                continue;
+            }
+            int v = (int) INTS.getVolatile(t.values, i);
+            if (v == MOVED) {
+                v = get(key); // copied to a newer table
+            }
+            if (v != MISSING) {
+                visitor.visit(key, v);
+            }
+        }
+    }
+
+    public synchronized void clear() {
+        table = new Table(table.keys.length);
+        used = 0;
+        size = 0;
+    }
+
+    // ---------- Stats ----------
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return table.keys.length;
+    }
+
+    // Heap held by the two arrays
+    public long footprintBytes() {
+        return 8L * table.keys.length;
+    }
+
+    @Override
+    public String toString() {
+        return "StockCounterStore{size=" + size() + ", capacity=" + capacity() + ", footprint=" + (footprintBytes() >> 20) + " MB}";
+    }
+}
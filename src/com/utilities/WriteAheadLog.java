@@ -0,0 +1,399 @@
+package com.utilities;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.CRC32C;
+
+// Append-only log of opaque entries in numbered segment files (wal-<n>.log). Each entry is written as
+// [payload length][CRC32C of the payload][payload]. A segment is closed and a new one started once it
+// passes the segment size.
+//
+// Appends are queued to a single writer thread. It writes whatever is queued as one sequential batch,
+// then completes the callers' futures. How durable a completed future is depends on the Sync mode:
+//   BATCH    - fsync after every batch, before completing it (group commit: one fsync for all
+//              the commits that queued up behind the previous one)
+//   INTERVAL - fsync at most every syncMillis; a crash can lose the last interval, an OS crash only
+//   NONE     - leave it to the OS
+//
+// replay() reads every segment in order. A torn entry at the very end of the last segment is the
+// write a crash interrupted, so the segment is truncated there. A bad entry anywhere else is
+// corruption and fails the replay. checkpoint() replaces all segments with one holding the given
+// entries. Both run before start() or after close(), never while the writer thread is running.
+public class WriteAheadLog implements AutoCloseable {
+
+    public enum Sync {
+        BATCH,
+        INTERVAL,
+        NONE
+    }
+
+    // Receives each replayed entry's payload
+    public interface EntryHandler {
+        void accept(ByteBuffer payload) throws IOException;
+    }
+
+    private static final int ENTRY_HEADER = 8;
+    private static final int MAX_ENTRY = 64 << 20;
+    private static final int MAX_BATCH = 1024;
+
+    private final Path dir;
+    private final Sync sync;
+    private final long syncNanos;
+    private final long segmentBytes;
+    private final BlockingQueue<Pending> queue;
+
+    private FileChannel segment;
+    private long segmentNumber;
+    private long lastSync;
+    private Thread worker;
+    private volatile boolean running;
+    private volatile IOException failure; // the log stops accepting entries after a failed write
+
+    // Metrics
+    private final LongAdder entries = new LongAdder();
+    private final LongAdder bytes = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder fsyncs = new LongAdder();
+    private final LongAdder segments = new LongAdder();
+
+    private static final class Pending {
+        final byte[] payload;
+        final CompletableFuture<Void> done = new CompletableFuture<>();
+
+        Pending(byte[] payload) {
+            this.payload = payload;
+        }
+    }
+
+    public WriteAheadLog(Path dir, Sync sync, long syncMillis, long segmentBytes, int queueCapacity) throws IOException {
+        this.dir = Files.createDirectories(dir);
+        this.sync = sync;
+        this.syncNanos = TimeUnit.MILLISECONDS.toNanos(syncMillis);
+        this.segmentBytes = segmentBytes;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+    }
+
+    // ---------- Startup and shutdown ----------
+
+    // Feed every entry, oldest first, to handler; returns the number of entries
+    public long replay(EntryHandler handler) throws IOException {
+        checkStopped();
+        List<Path> files = segmentFiles();
+        long count = 0;
+        for (int i = 0; i < files.size(); i++) {
+            boolean last = i == files.size() - 1;
+            count += replaySegment(files.get(i), last, handler);
+            segmentNumber = Math.max(segmentNumber, numberOf(files.get(i)));
+        }
+        return count;
+    }
+
+    private long replaySegment(Path file, boolean last, EntryHandler handler) throws IOException {
+        long count = 0;
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long size = ch.size();
+            long position = 0;
+            ByteBuffer header = ByteBuffer.allocate(ENTRY_HEADER);
+            CRC32C crc = new CRC32C();
+            while (position < size) {
+                header.clear();
+                int length = -1;
+                ByteBuffer payload = null;
+                if (size - position >= ENTRY_HEADER && readFully(ch, header, position)) {
+                    length = header.getInt(0);
+                    if (length >= 0 && length <= MAX_ENTRY && size - position - ENTRY_HEADER >= length) {
+                        payload = ByteBuffer.allocate(length);
+                        readFully(ch, payload, position + ENTRY_HEADER);
+                        crc.reset();
+                        crc.update(payload.flip());
+                        if ((int) crc.getValue() != header.getInt(4)) {
+                            payload = null;
+                        }
+                    }
+                }
+                if (payload == null) {
+                    if (!last) {
+                        throw new IOException("Write-ahead log is corrupt at byte " + position + " of " + file);
+                    }
+                    System.err.println("Write-ahead log: dropping torn entry at byte " + position + " of " + file);
+                    ch.truncate(position);
+                    ch.force(true);
+                    break;
+                }
+                handler.accept(payload.rewind());
+                position += ENTRY_HEADER + length;
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static boolean readFully(FileChannel ch, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (ch.read(buffer, position + buffer.position()) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Write entries to a new segment, fsync it, then delete every older segment. A crash before the
+    // deletes leaves the old segments in front of the checkpoint, so its entries must be able to
+    // override them (absolute values, not changes).
+    public void checkpoint(Iterable<byte[]> checkpointEntries) throws IOException {
+        checkStopped();
+        List<Path> old = segmentFiles();
+        openSegment(segmentNumber + 1);
+        for (byte[] payload : checkpointEntries) {
+            write(List.of(new Pending(payload)));
+        }
+        segment.force(true);
+        segment.close();
+        segment = null;
+        for (Path file : old) {
+            Files.deleteIfExists(file);
+        }
+        syncDirectory();
+    }
+
+    public synchronized void start() throws IOException {
+        checkStopped();
+        openSegment(segmentNumber + 1);
+        running = true;
+        lastSync = System.nanoTime();
+        worker = new Thread(this::run, "write-ahead-log");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    // Write what is queued, fsync and stop the writer thread. Entries queued by appenders that raced
+    // with close() fail, so nobody waits on a future that will never complete.
+    @Override
+    public synchronized void close() {
+        if (!running) {
+            return;
+        }
+        running = false; // not an interrupt: that would close the segment channel under a write
+        try {
+            worker.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        List<Pending> rest = new ArrayList<>();
+        queue.drainTo(rest);
+        for (Pending p : rest) {
+            p.done.completeExceptionally(new IOException("The write-ahead log is closed"));
+        }
+        try {
+            if (segment != null) {
+                segment.force(true);
+                segment.close();
+                segment = null;
+            }
+        } catch (IOException e) {
+            System.err.println("Write-ahead log: final sync failed: " + e.getMessage());
+        }
+    }
+
+    private void checkStopped() {
+        if (running) {
+            throw new IllegalStateException("The write-ahead log is running");
+        }
+    }
+
+    // ---------- Appending ----------
+
+    // Queue payload; the future completes once it is written (and synced, for Sync.BATCH)
+    public CompletableFuture<Void> append(byte[] payload) {
+        if (payload.length > MAX_ENTRY) {
+            throw new IllegalArgumentException("Entry too large: " + payload.length + " bytes");
+        }
+        Pending p = new Pending(payload);
+        IOException failed = failure;
+        if (failed != null) {
+            p.done.completeExceptionally(failed);
+        } else if (!running) {
+            p.done.completeExceptionally(new IOException("The write-ahead log is closed"));
+        } else {
+            try {
+                // Waits while the queue is full, but gives up once the log is closed
+                while (!queue.offer(p, 100, TimeUnit.MILLISECONDS)) {
+                    if (!running) {
+                        p.done.completeExceptionally(new IOException("The write-ahead log is closed"));
+                        return p.done;
+                    }
+                }
+                // close() may already have drained the queue; if the entry is still there nobody will write it
+                if (!running && queue.remove(p)) {
+                    p.done.completeExceptionally(new IOException("The write-ahead log is closed"));
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                p.done.completeExceptionally(e);
+            }
+        }
+        return p.done;
+    }
+
+    private void run() {
+        List<Pending> batch = new ArrayList<>(MAX_BATCH);
+        while (running || !queue.isEmpty()) {
+            try {
+                Pending first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    syncIfDue();
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, MAX_BATCH - 1);
+            } catch (InterruptedException e) {
+                queue.drainTo(batch); // finish what is queued
+            }
+            if (!batch.isEmpty()) {
+                flush(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    private void flush(List<Pending> batch) {
+        IOException failed = failure;
+        try {
+            if (failed == null) {
+                write(batch);
+                batches.increment();
+                if (sync == Sync.BATCH) {
+                    segment.force(false);
+                    fsyncs.increment();
+                } else {
+                    syncIfDue();
+                }
+                if (segment.size() >= segmentBytes) {
+                    segment.force(false);
+                    segment.close();
+                    openSegment(segmentNumber + 1);
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Write-ahead log failed, refusing further writes: " + e.getMessage());
+            failure = failed = e;
+        }
+        for (Pending p : batch) {
+            if (failed == null) {
+                p.done.complete(null);
+            } else {
+                p.done.completeExceptionally(failed);
+            }
+        }
+    }
+
+    private void syncIfDue() {
+        if (sync != Sync.INTERVAL || System.nanoTime() - lastSync < syncNanos || failure != null) {
+            return;
+        }
+        try {
+            segment.force(false);
+            fsyncs.increment();
+        } catch (IOException e) {
+            System.err.println("Write-ahead log failed, refusing further writes: " + e.getMessage());
+            failure = e;
+        }
+        lastSync = System.nanoTime();
+    }
+
+    // One gathering write per batch
+    private void write(List<Pending> batch) throws IOException {
+        ByteBuffer[] buffers = new ByteBuffer[batch.size() * 2];
+        CRC32C crc = new CRC32C();
+        long total = 0;
+        for (int i = 0; i < batch.size(); i++) {
+            byte[] payload = batch.get(i).payload;
+            crc.reset();
+            crc.update(payload);
+            ByteBuffer header = ByteBuffer.allocate(ENTRY_HEADER);
+            header.putInt(payload.length).putInt((int) crc.getValue()).flip();
+            buffers[2 * i] = header;
+            buffers[2 * i + 1] = ByteBuffer.wrap(payload);
+            total += ENTRY_HEADER + payload.length;
+        }
+        long written = 0;
+        while (written < total) {
+            written += segment.write(buffers);
+        }
+        entries.add(batch.size());
+        bytes.add(total);
+    }
+
+    // ---------- Segments ----------
+
+    private void openSegment(long number) throws IOException {
+        segmentNumber = number;
+        segment = FileChannel.open(dir.resolve(String.format("wal-%016d.log", number)),
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        segments.increment();
+        syncDirectory(); // the new file's directory entry must survive a crash too
+    }
+
+    private List<Path> segmentFiles() throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, "wal-*.log")) {
+            for (Path p : stream) {
+                files.add(p);
+            }
+        }
+        files.sort((a, b) -> Long.compare(numberOf(a), numberOf(b)));
+        return files;
+    }
+
+    private static long numberOf(Path file) {
+        String name = file.getFileName().toString();
+        return Long.parseLong(name.substring(4, name.length() - 4));
+    }
+
+    private void syncDirectory() {
+        try (FileChannel d = FileChannel.open(dir, StandardOpenOption.READ)) {
+            d.force(true);
+        } catch (IOException e) {
+            // Not supported on every platform; the file contents are still synced
+        }
+    }
+
+    // ---------- Stats ----------
+
+    public Path getDir() {
+        return dir;
+    }
+
+    public Sync getSync() {
+        return sync;
+    }
+
+    public long getEntries() {
+        return entries.sum();
+    }
+
+    public long getFsyncs() {
+        return fsyncs.sum();
+    }
+
+    @Override
+    public String toString() {
+        long b = batches.sum();
+        return "WriteAheadLog{dir=" + dir + ", sync=" + sync + ", segment=" + segmentNumber +
+                ", entries=" + entries.sum() + ", bytes=" + bytes.sum() + ", batches=" + b +
+                ", entriesPerBatch=" + (b == 0 ? 0 : entries.sum() / b) + ", fsyncs=" + fsyncs.sum() +
+                ", segmentsOpened=" + segments.sum() + (failure != null ? ", FAILED" : "") + '}';
+    }
+}
@@ -0,0 +1,338 @@
+package com.repository;
+
+import com.Order;
+import com.OrderItem;
+import com.Product;
+import com.utilities.ConnectionPool;
+import com.utilities.Page;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ShardedRepositoriesTest {
+
+    private static final int SHARDS = 3;
+    private static final AtomicInteger DATABASES = new AtomicInteger();
+
+    private final List<ConnectionPool> pools = new ArrayList<>();
+    private final boolean[] failCommit = new boolean[SHARDS];
+    private ShardedRepositories repos;
+
+    @BeforeEach
+    void openShards() throws Exception {
+        Product.getCache().clear(); // keyed by product ID, which every test's shards reuse
+        String schema = schema();
+        for (int i = 0; i < SHARDS; i++) {
+            ConnectionPool pool = new ConnectionPool("jdbc:h2:mem:shard" + DATABASES.incrementAndGet()
+                    + ";MODE=MySQL;DB_CLOSE_DELAY=-1;DATABASE_TO_UPPER=FALSE;CASE_INSENSITIVE_IDENTIFIERS=TRUE", "sa", "", 4);
+            try (Connection conn = pool.borrow();
+                 Statement stmt = conn.createStatement()) {
+                for (String ddl : schema.split(";")) {
+                    if (!ddl.isBlank()) {
+                        stmt.execute(ddl);
+                    }
+                }
+            }
+            pools.add(pool);
+        }
+    }
+
+    @AfterEach
+    void closeShards() {
+        if (repos != null) {
+            repos.close();
+        }
+        pools.forEach(ConnectionPool::close);
+    }
+
+    @Test
+    void routesProductsAndTheirRowsByProductId() throws Exception {
+        open(true);
+        List<Integer> ids = new ArrayList<>();
+        for (int i = 0; i < 9; i++) {
+            ids.add(repos.products().create(new Product("p" + i, "d", 2.0, 100, 1)));
+        }
+        for (int id : ids) {
+            int shard = repos.shardOf(id);
+            assertEquals(Math.floorMod(id - 1, SHARDS), shard);
+            for (int other = 0; other < SHARDS; other++) {
+                assertEquals(other == shard ? 1 : 0, count(other, "SELECT COUNT(*) FROM Product WHERE product_id = " + id));
+            }
+            assertEquals("p" + ids.indexOf(id), repos.products().findById(id).getName());
+        }
+        // Round-robin creation spreads the products evenly
+        for (int shard = 0; shard < SHARDS; shard++) {
+            assertEquals(3, count(shard, "SELECT COUNT(*) FROM Product"));
+        }
+
+        int id = ids.get(4);
+        assertEquals(97, repos.sell(id, 3, "sale"));
+        assertEquals(1, count(repos.shardOf(id), "SELECT COUNT(*) FROM InventoryLog WHERE product_id = " + id));
+        assertEquals(1, count(repos.shardOf(id), "SELECT COUNT(*) FROM InventoryLog"));
+    }
+
+    @Test
+    void routesOrdersByOrderIdAndItemsByProductId() throws Exception {
+        open(true);
+        int a = repos.products().create(new Product("a", "d", 1.0, 10, 1));
+        int b = repos.products().create(new Product("b", "d", 1.0, 10, 1));
+        List<Integer> orderIds = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            orderIds.add(repos.orders().submit(new Order(Date.valueOf("2026-01-0" + (i + 1)), "c", "NEW"),
+                    List.of(new OrderItem(0, a, 1, 1.0), new OrderItem(0, b, 2, 1.0))));
+        }
+        for (int orderId : orderIds) {
+            int shard = repos.shardOf(orderId);
+            for (int other = 0; other < SHARDS; other++) {
+                assertEquals(other == shard ? 1 : 0, count(other, "SELECT COUNT(*) FROM Orders WHERE order_id = " + orderId));
+            }
+            assertTrue(repos.orders().exists(orderId));
+        }
+        assertEquals(4, count(repos.shardOf(a), "SELECT COUNT(*) FROM OrderItem WHERE product_id = " + a));
+        assertEquals(4, count(repos.shardOf(b), "SELECT COUNT(*) FROM OrderItem WHERE product_id = " + b));
+        assertEquals(6, repos.products().getStock(a));
+        assertEquals(2, repos.products().getStock(b));
+    }
+
+    @Test
+    void interleavedShardsGenerateIdsInTheirOwnResidueClass() throws Exception {
+        // Rows already on a shard before it is interleaved: new IDs continue after them
+        try (Connection conn = pools.get(1).borrow();
+             Statement stmt = conn.createStatement()) {
+            stmt.execute("INSERT INTO Product (product_id, name, price, stock_quantity, supplier_id) VALUES (8, 'old', 1, 1, 1)");
+        }
+        open(true);
+        for (int i = 0; i < 12; i++) {
+            int id = repos.products().create(new Product("p" + i, "d", 1.0, 1, 1));
+            assertEquals(i % SHARDS, repos.shardOf(id), "product " + id);
+            assertTrue(id != 8);
+        }
+        assertEquals(5, count(1, "SELECT COUNT(*) FROM Product"));
+        assertEquals(1, count(1, "SELECT COUNT(*) FROM Product WHERE product_id <= 8"));
+    }
+
+    @Test
+    void refusesIdsGeneratedOnTheWrongShard() throws Exception {
+        open(false); // every shard counts 1, 2, 3, ...
+        int first = repos.products().create(new Product("p0", "d", 1.0, 1, 1));
+        assertEquals(1, first); // shard 0 owns ID 1
+
+        SQLException e = assertThrows(SQLException.class,
+                () -> repos.products().create(new Product("p1", "d", 1.0, 1, 1)));
+        assertTrue(e.getMessage().contains("routes to shard 0"), e.getMessage());
+        assertEquals(0, count(1, "SELECT COUNT(*) FROM Product")); // not stored where nobody would find it
+
+        assertThrows(SQLException.class, () -> repos.checkGenerated(2, 4, "Product"));
+        repos.checkGenerated(2, 6, "Product");
+    }
+
+    @Test
+    void scatterGatherListsInKeyOrderAcrossShards() throws Exception {
+        open(true);
+        for (int i = 0; i < 20; i++) {
+            repos.products().create(new Product(i % 2 == 0 ? "even" + i : "odd" + i, "d", 1.0, 1, 1));
+        }
+        repos.products().delete(5);
+        repos.products().delete(9);
+
+        List<Integer> seen = new ArrayList<>();
+        int after = 0;
+        Page<Product> page;
+        do {
+            page = repos.products().list(after, 4, null);
+            assertTrue(page.getItems().size() <= 4);
+            for (Product p : page.getItems()) {
+                seen.add(p.getProductId());
+                after = p.getProductId();
+            }
+        } while (page.hasMore());
+        List<Integer> expected = new ArrayList<>();
+        for (int id = 1; id <= 20; id++) {
+            if (id != 5 && id != 9) {
+                expected.add(id);
+            }
+        }
+        assertEquals(expected, seen);
+
+        List<Integer> filtered = new ArrayList<>();
+        for (Product p : repos.products().list(0, 100, "odd").getItems()) {
+            filtered.add(p.getProductId());
+        }
+        assertEquals(List.of(2, 4, 6, 8, 10, 12, 14, 16, 18, 20), filtered);
+    }
+
+    @Test
+    void nestedWorkCommitsWithTheOutermostTransaction() throws Exception {
+        open(true);
+        int a = repos.products().create(new Product("a", "d", 1.0, 100, 1)); // shard 0
+        int b = repos.products().create(new Product("b", "d", 1.0, 100, 1)); // shard 1
+        List<Boolean> outcomes = new ArrayList<>();
+
+        repos.inTransaction(new int[]{repos.shardOf(a)}, () -> {
+            repos.products().setStock(a, 50);
+            repos.inTransaction(new int[]{repos.shardOf(b)}, () -> { // adds shard 1 to the outer transaction
+                repos.products().setStock(b, 40);
+                repos.afterCompletion(outcomes::add);
+                return null;
+            });
+            // The nested work returned, but nothing is committed until the outer transaction ends
+            assertEquals(100, stockOnShard(b));
+            assertTrue(outcomes.isEmpty());
+            return null;
+        });
+        assertEquals(50, stockOnShard(a));
+        assertEquals(40, stockOnShard(b));
+        assertEquals(List.of(true), outcomes);
+    }
+
+    @Test
+    void failureAfterNestedWorkRollsBackEveryShard() throws Exception {
+        open(true);
+        int a = repos.products().create(new Product("a", "d", 1.0, 100, 1));
+        int b = repos.products().create(new Product("b", "d", 1.0, 100, 1));
+        List<Boolean> outcomes = new ArrayList<>();
+
+        SQLException e = assertThrows(SQLException.class, () -> repos.inTransaction(() -> {
+            repos.sell(a, 10, "sale");
+            repos.inTransaction(new int[]{repos.shardOf(b)}, () -> {
+                repos.sell(b, 10, "sale");
+                repos.afterCompletion(outcomes::add);
+                return null;
+            });
+            throw new SQLException("boom");
+        }));
+        assertEquals("boom", e.getMessage());
+        assertEquals(100, repos.products().getStock(a));
+        assertEquals(100, repos.products().getStock(b));
+        for (int shard = 0; shard < SHARDS; shard++) {
+            assertEquals(0, count(shard, "SELECT COUNT(*) FROM InventoryLog"));
+        }
+        assertEquals(List.of(false), outcomes);
+        assertFalse(repos.isInTransaction());
+    }
+
+    @Test
+    void failedLaterCommitKeepsEarlierShardsAndReportsNotCommitted() throws Exception {
+        open(true);
+        int a = repos.products().create(new Product("a", "d", 1.0, 100, 1)); // shard 0
+        int b = repos.products().create(new Product("b", "d", 1.0, 100, 1)); // shard 1
+        List<Boolean> outcomes = new ArrayList<>();
+        failCommit[1] = true;
+
+        assertThrows(SQLException.class, () -> repos.inTransaction(() -> {
+            repos.products().setStock(a, 1);
+            repos.products().setStock(b, 2);
+            repos.afterCompletion(outcomes::add);
+            return null;
+        }));
+        failCommit[1] = false;
+
+        // No two-phase commit: shard 0 committed before shard 1 failed
+        assertEquals(1, stockOnShard(a));
+        assertEquals(100, stockOnShard(b));
+        assertEquals(List.of(false), outcomes);
+        assertFalse(repos.isInTransaction());
+
+        // Every shard is usable again afterwards
+        repos.inTransaction(() -> {
+            repos.products().setStock(b, 3);
+            return null;
+        });
+        assertEquals(3, stockOnShard(b));
+    }
+
+    @Test
+    void singleShardWorkTouchesOnlyItsShard() throws Exception {
+        open(true);
+        int a = repos.products().create(new Product("a", "d", 1.0, 5, 1));
+        assertEquals(ProductRepository.OUT_OF_STOCK, repos.sell(a, 6, "sale"));
+        assertEquals(0, repos.sell(a, 5, "sale"));
+        assertNotNull(repos.products().findById(a));
+        assertEquals(1, repos.products().delete(a));
+        assertNull(repos.products().findById(a));
+    }
+
+    // ---------- Helpers ----------
+
+    private void open(boolean interleave) throws SQLException {
+        List<ConnectionSource> sources = new ArrayList<>();
+        for (int i = 0; i < SHARDS; i++) {
+            ConnectionPool pool = pools.get(i);
+            if (interleave) {
+                try (Connection conn = pool.borrow()) {
+                    ShardedRepositories.interleaveIds(conn, i, SHARDS);
+                }
+            }
+            int shard = i;
+            sources.add(() -> failingCommits(pool.borrow(), shard));
+        }
+        repos = new ShardedRepositories(sources);
+    }
+
+    // conn, except that commit() fails while failCommit[shard] is set
+    private Connection failingCommits(Connection conn, int shard) {
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("commit") && failCommit[shard]) {
+                        throw new SQLException("commit failed on shard " + shard);
+                    }
+                    try {
+                        return method.invoke(conn, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+    }
+
+    private long count(int shard, String sql) throws SQLException {
+        try (Connection conn = pools.get(shard).borrow();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    // Read straight from the product's shard, past the product cache
+    private int stockOnShard(int productId) throws SQLException {
+        try (Connection conn = pools.get(repos.shardOf(productId)).borrow();
+             PreparedStatement stmt = conn.prepareStatement("SELECT stock_quantity FROM Product WHERE product_id = ?")) {
+            stmt.setInt(1, productId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                rs.next();
+                return rs.getInt(1);
+            }
+        }
+    }
+
+    private static String schema() throws IOException {
+        try (InputStream in = ShardedRepositoriesTest.class.getResourceAsStream("/sql/schema.sql")) {
+            if (in == null) {
+                throw new IOException("sql/schema.sql not found on the classpath");
+            }
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8).replaceAll("(?m)^--.*$", "");
+        }
+    }
+}
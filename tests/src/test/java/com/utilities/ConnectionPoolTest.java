@@ -0,0 +1,216 @@
+package com.utilities;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConnectionPoolTest {
+
+    private static final AtomicInteger DATABASES = new AtomicInteger();
+
+    private String url;
+    private ConnectionPool pool;
+
+    @BeforeEach
+    void openPool() {
+        url = "jdbc:h2:mem:pool" + DATABASES.incrementAndGet() + ";DB_CLOSE_DELAY=-1";
+        pool = new ConnectionPool(url, "sa", "", 2);
+    }
+
+    @AfterEach
+    void closePool() {
+        pool.close();
+    }
+
+    @Test
+    void neverOpensMoreThanMaxSize() throws Exception {
+        AtomicInteger active = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> results = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                results.add(executor.submit(() -> {
+                    for (int i = 0; i < 50; i++) {
+                        try (Connection conn = pool.borrow()) {
+                            peak.accumulateAndGet(active.incrementAndGet(), Math::max);
+                            Thread.sleep(1);
+                            active.decrementAndGet();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> f : results) {
+                f.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertTrue(peak.get() <= 2, "peak " + peak.get());
+        assertTrue(pool.getCreatedCount() <= 2, "created " + pool.getCreatedCount());
+        assertEquals(400, pool.getBorrowCount());
+        assertEquals(0, pool.getActiveCount());
+    }
+
+    @Test
+    void borrowTimesOutWhenExhausted() throws Exception {
+        pool.setBorrowTimeoutMillis(200);
+        Connection first = pool.borrow();
+        Connection second = pool.borrow();
+
+        long start = System.nanoTime();
+        assertThrows(SQLException.class, pool::borrow);
+        long waitedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertTrue(waitedMillis >= 150, "waited " + waitedMillis + " ms");
+        assertEquals(1, pool.getTimeoutCount());
+
+        // A connection handed back lets the next borrower through
+        CountDownLatch waiting = new CountDownLatch(1);
+        pool.setBorrowTimeoutMillis(5_000);
+        Thread returner = new Thread(() -> {
+            try {
+                waiting.await();
+                Thread.sleep(50);
+                first.close();
+            } catch (InterruptedException | SQLException e) {
+                e.printStackTrace();
+            }
+        });
+        returner.start();
+        waiting.countDown();
+        try (Connection third = pool.borrow()) {
+            assertTrue(third.isValid(1));
+        }
+        returner.join();
+        second.close();
+        assertEquals(1, pool.getTimeoutCount());
+    }
+
+    @Test
+    void closingTwiceReturnsOnce() throws Exception {
+        Connection conn = pool.borrow();
+        conn.close();
+        conn.close();
+        assertEquals(0, pool.getActiveCount());
+        assertEquals(1, pool.getIdleCount());
+        assertThrows(SQLException.class, conn::createStatement);
+    }
+
+    @Test
+    void validatesConnectionsThatSatIdle() throws Exception {
+        pool.setValidationIdleMillis(50);
+        int session;
+        try (Connection conn = pool.borrow()) {
+            session = sessionId(conn);
+        }
+        abortSession(session);
+        Thread.sleep(100);
+
+        try (Connection conn = pool.borrow()) {
+            assertNotEquals(session, sessionId(conn));
+        }
+        assertEquals(1, pool.getValidationFailureCount());
+        assertEquals(2, pool.getCreatedCount());
+    }
+
+    @Test
+    void skipsValidationRightAfterReturn() throws Exception {
+        pool.setValidationIdleMillis(60_000);
+        int session;
+        try (Connection conn = pool.borrow()) {
+            session = sessionId(conn);
+        }
+        try (Connection conn = pool.borrow()) {
+            assertEquals(session, sessionId(conn));
+        }
+        assertEquals(0, pool.getValidationFailureCount());
+        assertEquals(1, pool.getCreatedCount());
+    }
+
+    @Test
+    void evictsConnectionsIdlePastTheTimeout() throws Exception {
+        pool.setIdleTimeoutMillis(50);
+        Connection held = pool.borrow();
+        pool.borrow().close();
+        Thread.sleep(100);
+
+        pool.housekeep();
+        assertEquals(1, pool.getEvictedCount());
+        assertEquals(0, pool.getIdleCount());
+        assertEquals(1, pool.getActiveCount()); // borrowed connections are never evicted
+
+        held.close();
+        pool.housekeep();
+        assertEquals(1, pool.getEvictedCount());
+        assertEquals(1, pool.getIdleCount());
+    }
+
+    @Test
+    void reportsEachLeakOnce() throws Exception {
+        pool.setLeakThresholdMillis(50);
+        Connection leaked = pool.borrow();
+        try (Connection quick = pool.borrow()) {
+            assertTrue(quick.isValid(1));
+        }
+        pool.housekeep();
+        assertEquals(0, pool.getLeakCount());
+
+        Thread.sleep(100);
+        pool.housekeep();
+        pool.housekeep();
+        assertEquals(1, pool.getLeakCount());
+
+        leaked.close();
+        try (Connection next = pool.borrow()) {
+            pool.housekeep();
+            assertEquals(1, pool.getLeakCount());
+        }
+    }
+
+    @Test
+    void leakDetectionCanBeTurnedOff() throws Exception {
+        pool.setLeakThresholdMillis(0);
+        try (Connection conn = pool.borrow()) {
+            Thread.sleep(20);
+            pool.housekeep();
+        }
+        assertEquals(0, pool.getLeakCount());
+    }
+
+    private static int sessionId(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT SESSION_ID()")) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+
+    // Kill a pooled connection's session from outside the pool, as a server restart or timeout would
+    private void abortSession(int session) throws SQLException {
+        try (Connection admin = DriverManager.getConnection(url, "sa", "");
+             Statement stmt = admin.createStatement()) {
+            stmt.execute("CALL ABORT_SESSION(" + session + ")");
+        }
+    }
+}